@@ -486,6 +486,114 @@ public abstract class AbstractByteBuf extends ByteBuf {
         return Double.longBitsToDouble(getLong(index));
     }
 
+    @Override
+    public ByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        checkBulkIndex(index, length, 1, "dstIndex", dstIndex, dst.length);
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = _getShort(index + (i << 1));
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        checkBulkIndex(index, length, 1, "srcIndex", srcIndex, src.length);
+        for (int i = 0; i < length; i++) {
+            _setShort(index + (i << 1), src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        int bytes = bulkLength(length, 1);
+        checkReadableBytes0(bytes);
+        getShorts(readerIndex, dst, dstIndex, length);
+        readerIndex += bytes;
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        int bytes = bulkLength(length, 1);
+        ensureWritable0(bytes);
+        setShorts(writerIndex, src, srcIndex, length);
+        writerIndex += bytes;
+        return this;
+    }
+
+    @Override
+    public ByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        checkBulkIndex(index, length, 2, "dstIndex", dstIndex, dst.length);
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = _getInt(index + (i << 2));
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        checkBulkIndex(index, length, 2, "srcIndex", srcIndex, src.length);
+        for (int i = 0; i < length; i++) {
+            _setInt(index + (i << 2), src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf readInts(int[] dst, int dstIndex, int length) {
+        int bytes = bulkLength(length, 2);
+        checkReadableBytes0(bytes);
+        getInts(readerIndex, dst, dstIndex, length);
+        readerIndex += bytes;
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeInts(int[] src, int srcIndex, int length) {
+        int bytes = bulkLength(length, 2);
+        ensureWritable0(bytes);
+        setInts(writerIndex, src, srcIndex, length);
+        writerIndex += bytes;
+        return this;
+    }
+
+    @Override
+    public ByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        checkBulkIndex(index, length, 3, "dstIndex", dstIndex, dst.length);
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = _getLong(index + (i << 3));
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        checkBulkIndex(index, length, 3, "srcIndex", srcIndex, src.length);
+        for (int i = 0; i < length; i++) {
+            _setLong(index + (i << 3), src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        int bytes = bulkLength(length, 3);
+        checkReadableBytes0(bytes);
+        getLongs(readerIndex, dst, dstIndex, length);
+        readerIndex += bytes;
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        int bytes = bulkLength(length, 3);
+        ensureWritable0(bytes);
+        setLongs(writerIndex, src, srcIndex, length);
+        writerIndex += bytes;
+        return this;
+    }
+
     @Override
     public ByteBuf getBytes(int index, byte[] dst) {
         getBytes(index, dst, 0, dst.length);
@@ -1263,13 +1371,7 @@ public abstract class AbstractByteBuf extends ByteBuf {
         }
         checkIndex(fromIndex, toIndex - fromIndex);
 
-        for (int i = fromIndex; i < toIndex; i ++) {
-            if (_getByte(i) == value) {
-                return i;
-            }
-        }
-
-        return -1;
+        return ByteBufUtil.firstIndexOf(this, fromIndex, toIndex, value);
     }
 
     private int lastIndexOf(int fromIndex, int toIndex, byte value) {
@@ -1433,6 +1535,26 @@ public abstract class AbstractByteBuf extends ByteBuf {
         }
     }
 
+    /**
+     * Checks the bounds of a bulk transfer of {@code length} elements of {@code 1 << shift} bytes each between the
+     * given {@code index} of this buffer and {@code arrayIndex} of an array.
+     */
+    final void checkBulkIndex(int index, int length, int shift, String arrayIndexName, int arrayIndex,
+                              int arrayLength) {
+        checkIndex(index, bulkLength(length, shift));
+        if (checkBounds) {
+            checkRangeBounds(arrayIndexName, arrayIndex, length, arrayLength);
+        }
+    }
+
+    private static int bulkLength(int length, int shift) {
+        if (length < 0 || length > Integer.MAX_VALUE >>> shift) {
+            throw new IllegalArgumentException(
+                    "length: " + length + " (expected: 0-" + (Integer.MAX_VALUE >>> shift) + ')');
+        }
+        return length << shift;
+    }
+
     protected final void checkSrcIndex(int index, int length, int srcIndex, int srcCapacity) {
         checkIndex(index, length);
         if (checkBounds) {
@@ -187,6 +187,50 @@ public abstract class AbstractByteBufAllocator implements ByteBufAllocator {
         return newDirectBuffer(initialCapacity, maxCapacity);
     }
 
+    /**
+     * Allocates {@code count} direct {@link ByteBuf}s with the given {@code initialCapacity} and stores them in
+     * {@code out}, starting at index {@code 0}. This is useful for batched receive paths which need many buffers of
+     * the same size at once, as allocators may serve all of them in one pass. If the allocation fails, the buffers
+     * which were allocated so far are released and {@code out} holds no buffers of this call.
+     */
+    public void directBuffers(int count, int initialCapacity, ByteBuf[] out) {
+        validate(count, initialCapacity, out);
+        int i = 0;
+        boolean success = false;
+        try {
+            for (; i < count; i++) {
+                out[i] = directBuffer(initialCapacity);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                releaseAll(out, i, count);
+            }
+        }
+    }
+
+    /**
+     * Releases the first {@code allocated} buffers of {@code out} and clears the first {@code count} entries.
+     */
+    static void releaseAll(ByteBuf[] out, int allocated, int count) {
+        for (int i = 0; i < count; i++) {
+            ByteBuf buf = out[i];
+            out[i] = null;
+            if (i < allocated) {
+                buf.release();
+            }
+        }
+    }
+
+    static void validate(int count, int initialCapacity, ByteBuf[] out) {
+        checkPositiveOrZero(count, "count");
+        if (count > out.length) {
+            throw new IllegalArgumentException(String.format(
+                    "count: %d (expected: not greater than out.length(%d)", count, out.length));
+        }
+        validate(initialCapacity, DEFAULT_MAX_CAPACITY);
+    }
+
     @Override
     public CompositeByteBuf compositeBuffer() {
         if (directByDefault) {
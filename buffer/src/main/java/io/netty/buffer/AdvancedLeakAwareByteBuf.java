@@ -251,6 +251,24 @@ final class AdvancedLeakAwareByteBuf extends SimpleLeakAwareByteBuf {
         return super.getBytes(index, dst, dstIndex, length);
     }
 
+    @Override
+    public ByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getShorts(index, dst, dstIndex, length);
+    }
+
+    @Override
+    public ByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getInts(index, dst, dstIndex, length);
+    }
+
+    @Override
+    public ByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getLongs(index, dst, dstIndex, length);
+    }
+
     @Override
     public ByteBuf getBytes(int index, ByteBuffer dst) {
         recordLeakNonRefCountingOperation(leak);
@@ -359,6 +377,24 @@ final class AdvancedLeakAwareByteBuf extends SimpleLeakAwareByteBuf {
         return super.setBytes(index, src, srcIndex, length);
     }
 
+    @Override
+    public ByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setShorts(index, src, srcIndex, length);
+    }
+
+    @Override
+    public ByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setInts(index, src, srcIndex, length);
+    }
+
+    @Override
+    public ByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setLongs(index, src, srcIndex, length);
+    }
+
     @Override
     public ByteBuf setBytes(int index, ByteBuffer src) {
         recordLeakNonRefCountingOperation(leak);
@@ -503,6 +539,24 @@ final class AdvancedLeakAwareByteBuf extends SimpleLeakAwareByteBuf {
         return super.readBytes(dst, dstIndex, length);
     }
 
+    @Override
+    public ByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readShorts(dst, dstIndex, length);
+    }
+
+    @Override
+    public ByteBuf readInts(int[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readInts(dst, dstIndex, length);
+    }
+
+    @Override
+    public ByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readLongs(dst, dstIndex, length);
+    }
+
     @Override
     public ByteBuf readBytes(ByteBuffer dst) {
         recordLeakNonRefCountingOperation(leak);
@@ -617,6 +671,24 @@ final class AdvancedLeakAwareByteBuf extends SimpleLeakAwareByteBuf {
         return super.writeBytes(src, srcIndex, length);
     }
 
+    @Override
+    public ByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeShorts(src, srcIndex, length);
+    }
+
+    @Override
+    public ByteBuf writeInts(int[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeInts(src, srcIndex, length);
+    }
+
+    @Override
+    public ByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeLongs(src, srcIndex, length);
+    }
+
     @Override
     public ByteBuf writeBytes(ByteBuffer src) {
         recordLeakNonRefCountingOperation(leak);
@@ -237,6 +237,24 @@ final class AdvancedLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeBy
         return super.getBytes(index, dst, dstIndex, length);
     }
 
+    @Override
+    public CompositeByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getShorts(index, dst, dstIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getInts(index, dst, dstIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.getLongs(index, dst, dstIndex, length);
+    }
+
     @Override
     public CompositeByteBuf getBytes(int index, ByteBuffer dst) {
         recordLeakNonRefCountingOperation(leak);
@@ -345,6 +363,24 @@ final class AdvancedLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeBy
         return super.setBytes(index, src, srcIndex, length);
     }
 
+    @Override
+    public CompositeByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setShorts(index, src, srcIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setInts(index, src, srcIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.setLongs(index, src, srcIndex, length);
+    }
+
     @Override
     public CompositeByteBuf setBytes(int index, ByteBuffer src) {
         recordLeakNonRefCountingOperation(leak);
@@ -483,6 +519,24 @@ final class AdvancedLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeBy
         return super.readBytes(dst, dstIndex, length);
     }
 
+    @Override
+    public CompositeByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readShorts(dst, dstIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf readInts(int[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readInts(dst, dstIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.readLongs(dst, dstIndex, length);
+    }
+
     @Override
     public CompositeByteBuf readBytes(ByteBuffer dst) {
         recordLeakNonRefCountingOperation(leak);
@@ -597,6 +651,24 @@ final class AdvancedLeakAwareCompositeByteBuf extends SimpleLeakAwareCompositeBy
         return super.writeBytes(src, srcIndex, length);
     }
 
+    @Override
+    public CompositeByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeShorts(src, srcIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf writeInts(int[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeInts(src, srcIndex, length);
+    }
+
+    @Override
+    public CompositeByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        recordLeakNonRefCountingOperation(leak);
+        return super.writeLongs(src, srcIndex, length);
+    }
+
     @Override
     public CompositeByteBuf writeBytes(ByteBuffer src) {
         recordLeakNonRefCountingOperation(leak);
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+final class AllocationTagCounter implements AllocationTagMetric {
+
+    private final String tag;
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final AtomicLong peakUsedMemory = new AtomicLong();
+    private final LongCounter numAllocations = PlatformDependent.newLongCounter();
+    private final LongCounter allocatedBytes = PlatformDependent.newLongCounter();
+
+    AllocationTagCounter(String tag) {
+        this.tag = tag;
+    }
+
+    void allocate(int bytes) {
+        numAllocations.increment();
+        allocatedBytes.add(bytes);
+        updatePeak(usedMemory.addAndGet(bytes));
+    }
+
+    void reallocate(int oldBytes, int newBytes) {
+        if (newBytes > oldBytes) {
+            allocatedBytes.add(newBytes - oldBytes);
+        }
+        updatePeak(usedMemory.addAndGet(newBytes - oldBytes));
+    }
+
+    void free(int bytes) {
+        usedMemory.addAndGet(-bytes);
+    }
+
+    private void updatePeak(long used) {
+        for (;;) {
+            long peak = peakUsedMemory.get();
+            if (used <= peak || peakUsedMemory.compareAndSet(peak, used)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String tag() {
+        return tag;
+    }
+
+    @Override
+    public long usedMemory() {
+        return usedMemory.get();
+    }
+
+    @Override
+    public long peakUsedMemory() {
+        return peakUsedMemory.get();
+    }
+
+    @Override
+    public long numAllocations() {
+        return numAllocations.value();
+    }
+
+    @Override
+    public long allocatedBytes() {
+        return allocatedBytes.value();
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) +
+                "(tag: " + tag + "; usedMemory: " + usedMemory() + "; peakUsedMemory: " + peakUsedMemory() +
+                "; numAllocations: " + numAllocations() + "; allocatedBytes: " + allocatedBytes() + ')';
+    }
+}
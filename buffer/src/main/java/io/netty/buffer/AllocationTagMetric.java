@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * Accounting of the direct memory held by the buffers that were allocated with a tag.
+ *
+ * @see AllocationTags
+ */
+public interface AllocationTagMetric {
+
+    /**
+     * Returns the tag.
+     */
+    String tag();
+
+    /**
+     * Returns the number of bytes that are held by live buffers with this tag.
+     */
+    long usedMemory();
+
+    /**
+     * Returns the highest value {@link #usedMemory()} ever had.
+     */
+    long peakUsedMemory();
+
+    /**
+     * Returns the number of buffers that were allocated with this tag. Sampling this value periodically gives the
+     * allocation rate.
+     */
+    long numAllocations();
+
+    /**
+     * Returns the number of bytes that were allocated with this tag.
+     */
+    long allocatedBytes();
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Tags the direct buffers which are allocated by the current thread, so a {@link PooledByteBufAllocator} can account
+ * the memory they hold per subsystem. The accounting is exposed via
+ * {@link PooledByteBufAllocatorMetric#allocationTags()}.
+ * <p>
+ * Tagging is disabled by default. It can be enabled for all allocators with
+ * {@code -Dio.netty.allocator.allocationTags=true} or for a single one via its constructor. Allocators which do not
+ * have tagging enabled ignore the tags and do not do any extra work.
+ * <p>
+ * A typical usage is to scope a tag around the code of a handler that allocates the buffers:
+ * <pre>
+ * String previous = AllocationTags.push("http2-flow-control");
+ * try {
+ *     ByteBuf buf = ctx.alloc().directBuffer(size);
+ *     ...
+ * } finally {
+ *     AllocationTags.pop(previous);
+ * }
+ * </pre>
+ */
+public final class AllocationTags {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AllocationTags.class);
+
+    private static final boolean ENABLED = SystemPropertyUtil.getBoolean("io.netty.allocator.allocationTags", false);
+
+    private static final FastThreadLocal<String> CURRENT = new FastThreadLocal<String>();
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.allocator.allocationTags: {}", ENABLED);
+        }
+    }
+
+    private AllocationTags() {
+    }
+
+    /**
+     * Returns {@code true} if allocation tagging is enabled by default for {@link PooledByteBufAllocator}s.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the tag that is applied to the buffers allocated by the current thread or {@code null} if none.
+     */
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Applies the given {@code tag} to all buffers allocated by the current thread until {@link #pop(String)} is
+     * called, and returns the tag that was applied before, which must be passed to {@link #pop(String)}.
+     */
+    public static String push(String tag) {
+        ObjectUtil.checkNotNull(tag, "tag");
+        String previous = CURRENT.get();
+        CURRENT.set(tag);
+        return previous;
+    }
+
+    /**
+     * Restores the tag that was returned by {@link #push(String)}.
+     */
+    public static void pop(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Allocates a direct buffer with the given {@code tag}.
+     */
+    public static ByteBuf directBuffer(ByteBufAllocator alloc, int initialCapacity, String tag) {
+        String previous = push(tag);
+        try {
+            return alloc.directBuffer(initialCapacity);
+        } finally {
+            pop(previous);
+        }
+    }
+}
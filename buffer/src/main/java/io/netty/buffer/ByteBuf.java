@@ -903,6 +903,69 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length);
 
+    /**
+     * Gets {@code length} 16-bit short integers starting at the specified absolute {@code index} in this buffer and
+     * stores them in the specified array. This is equivalent to calling {@link #getShort(int)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 2} is greater than {@code this.capacity}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = getShort(index + (i << 1));
+        }
+        return this;
+    }
+
+    /**
+     * Gets {@code length} 32-bit integers starting at the specified absolute {@code index} in this buffer and stores
+     * them in the specified array. This is equivalent to calling {@link #getInt(int)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 4} is greater than {@code this.capacity}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = getInt(index + (i << 2));
+        }
+        return this;
+    }
+
+    /**
+     * Gets {@code length} 64-bit long integers starting at the specified absolute {@code index} in this buffer and
+     * stores them in the specified array. This is equivalent to calling {@link #getLong(int)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 8} is greater than {@code this.capacity}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = getLong(index + (i << 3));
+        }
+        return this;
+    }
+
     /**
      * Transfers this buffer's data to the specified destination starting at
      * the specified absolute {@code index} until the destination's position
@@ -1260,6 +1323,69 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf setBytes(int index, byte[] src, int srcIndex, int length);
 
+    /**
+     * Sets {@code length} 16-bit short integers of the specified array starting at the specified absolute {@code
+     * index} in this buffer. This is equivalent to calling {@link #setShort(int, int)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 2} is greater than {@code this.capacity}, or
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            setShort(index + (i << 1), src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    /**
+     * Sets {@code length} 32-bit integers of the specified array starting at the specified absolute {@code index} in
+     * this buffer. This is equivalent to calling {@link #setInt(int, int)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 4} is greater than {@code this.capacity}, or
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            setInt(index + (i << 2), src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    /**
+     * Sets {@code length} 64-bit long integers of the specified array starting at the specified absolute {@code index}
+     * in this buffer. This is equivalent to calling {@link #setLong(int, long)} for every element, but
+     * implementations may check the bounds only once and transfer the elements in bulk.
+     * This method does not modify {@code readerIndex} or {@code writerIndex} of this buffer.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code index} is less than {@code 0},
+     *         if {@code index + length * 8} is greater than {@code this.capacity}, or
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            setLong(index + (i << 3), src[srcIndex + i]);
+        }
+        return this;
+    }
+
     /**
      * Transfers the specified source buffer's data to this buffer starting at
      * the specified absolute {@code index} until the source buffer's position
@@ -1693,6 +1819,60 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf readBytes(byte[] dst, int dstIndex, int length);
 
+    /**
+     * Reads {@code length} 16-bit short integers at the current {@code readerIndex} into the specified array and
+     * increases the {@code readerIndex} by {@code length * 2}.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if {@code length * 2} is greater than {@code this.readableBytes}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = readShort();
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} 32-bit integers at the current {@code readerIndex} into the specified array and increases
+     * the {@code readerIndex} by {@code length * 4}.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if {@code length * 4} is greater than {@code this.readableBytes}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf readInts(int[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = readInt();
+        }
+        return this;
+    }
+
+    /**
+     * Reads {@code length} 64-bit long integers at the current {@code readerIndex} into the specified array and
+     * increases the {@code readerIndex} by {@code length * 8}.
+     *
+     * @param dstIndex the first index of the destination
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if {@code length * 8} is greater than {@code this.readableBytes}, or
+     *         if the specified {@code dstIndex} and {@code length} are out of the bounds of {@code dst}
+     */
+    public ByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            dst[dstIndex + i] = readLong();
+        }
+        return this;
+    }
+
     /**
      * Transfers this buffer's data to the specified destination starting at
      * the current {@code readerIndex} until the destination's position
@@ -1983,6 +2163,63 @@ public abstract class ByteBuf implements ReferenceCounted, Comparable<ByteBuf> {
      */
     public abstract ByteBuf writeBytes(byte[] src, int srcIndex, int length);
 
+    /**
+     * Writes {@code length} 16-bit short integers of the specified array at the current {@code writerIndex} and
+     * increases the {@code writerIndex} by {@code length * 2}.
+     * If {@code this.writableBytes} is less than {@code length * 2}, {@link #ensureWritable(int)}
+     * will be called in an attempt to expand capacity to accommodate.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            writeShort(src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code length} 32-bit integers of the specified array at the current {@code writerIndex} and increases
+     * the {@code writerIndex} by {@code length * 4}.
+     * If {@code this.writableBytes} is less than {@code length * 4}, {@link #ensureWritable(int)}
+     * will be called in an attempt to expand capacity to accommodate.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf writeInts(int[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            writeInt(src[srcIndex + i]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code length} 64-bit long integers of the specified array at the current {@code writerIndex} and
+     * increases the {@code writerIndex} by {@code length * 8}.
+     * If {@code this.writableBytes} is less than {@code length * 8}, {@link #ensureWritable(int)}
+     * will be called in an attempt to expand capacity to accommodate.
+     *
+     * @param srcIndex the first index of the source
+     * @param length   the number of elements to transfer
+     *
+     * @throws IndexOutOfBoundsException
+     *         if the specified {@code srcIndex} and {@code length} are out of the bounds of {@code src}
+     */
+    public ByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        for (int i = 0; i < length; i++) {
+            writeLong(src[srcIndex + i]);
+        }
+        return this;
+    }
+
     /**
      * Transfers the specified source buffer's data to this buffer starting at
      * the current {@code writerIndex} until the source buffer's position
@@ -65,6 +65,8 @@ public final class ByteBufUtil {
     };
 
     private static final byte WRITE_UTF_UNKNOWN = (byte) '?';
+    // Shorter ranges are searched byte by byte, as reading whole words does not pay off for them.
+    private static final int SWAR_MIN_LENGTH = 16;
     private static final int MAX_CHAR_BUFFER_SIZE;
     private static final int THREAD_LOCAL_BUFFER_SIZE;
     private static final int MAX_BYTES_PER_CHAR_UTF8 =
@@ -457,6 +459,175 @@ public final class ByteBufUtil {
         return buf.order() == ByteOrder.BIG_ENDIAN? buf.writeMedium(mediumValue) : buf.writeMediumLE(mediumValue);
     }
 
+    /**
+     * Returns the number of bytes the specified value needs when encoded as
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a>.
+     */
+    public static int varInt32Size(int value) {
+        // Every 7 significant bits need one byte, 0 still needs one byte.
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * Returns the number of bytes the specified value needs when encoded as
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a>.
+     */
+    public static int varInt64Size(long value) {
+        return (63 - Long.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * Writes the specified value as
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a> and returns the
+     * number of written bytes.
+     */
+    public static int writeVarInt32(ByteBuf buf, int value) {
+        if ((value & ~0x7F) == 0) {
+            buf.writeByte(value);
+            return 1;
+        }
+        if ((value & ~0x3FFF) == 0) {
+            // Do not use writeShort(), which would swap the two bytes of a little-endian buffer.
+            buf.ensureWritable(2);
+            int writerIndex = buf.writerIndex();
+            buf.setByte(writerIndex, value & 0x7F | 0x80);
+            buf.setByte(writerIndex + 1, value >>> 7);
+            buf.writerIndex(writerIndex + 2);
+            return 2;
+        }
+        int size = varInt32Size(value);
+        buf.ensureWritable(size);
+        int writerIndex = buf.writerIndex();
+        for (int i = 1; i < size; i++) {
+            buf.setByte(writerIndex++, value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buf.setByte(writerIndex++, value);
+        buf.writerIndex(writerIndex);
+        return size;
+    }
+
+    /**
+     * Writes the specified value as
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a> and returns the
+     * number of written bytes.
+     */
+    public static int writeVarInt64(ByteBuf buf, long value) {
+        if ((value & ~0x3FFFL) == 0) {
+            return writeVarInt32(buf, (int) value);
+        }
+        int size = varInt64Size(value);
+        buf.ensureWritable(size);
+        int writerIndex = buf.writerIndex();
+        for (int i = 1; i < size; i++) {
+            buf.setByte(writerIndex++, (int) value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        buf.setByte(writerIndex++, (int) value);
+        buf.writerIndex(writerIndex);
+        return size;
+    }
+
+    /**
+     * Reads a <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a> which
+     * encodes a 32-bit integer and increases the {@code readerIndex} by the number of read bytes.
+     *
+     * @throws IndexOutOfBoundsException if the buffer does not contain the whole varint, in which case the
+     *                                   {@code readerIndex} is not modified.
+     * @throws IllegalArgumentException  if the varint is longer than 5 bytes.
+     */
+    public static int readVarInt32(ByteBuf buf) {
+        int readerIndex = buf.readerIndex();
+        int writerIndex = buf.writerIndex();
+        checkVarIntReadable(readerIndex, readerIndex, writerIndex);
+        int b = buf.getByte(readerIndex);
+        if (b >= 0) {
+            buf.readerIndex(readerIndex + 1);
+            return b;
+        }
+        int result = b & 0x7F;
+        for (int shift = 7, i = readerIndex + 1; shift < 35; shift += 7, i++) {
+            checkVarIntReadable(readerIndex, i, writerIndex);
+            b = buf.getByte(i);
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                buf.readerIndex(i + 1);
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint32");
+    }
+
+    /**
+     * Reads a <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">varint</a> which
+     * encodes a 64-bit integer and increases the {@code readerIndex} by the number of read bytes.
+     *
+     * @throws IndexOutOfBoundsException if the buffer does not contain the whole varint, in which case the
+     *                                   {@code readerIndex} is not modified.
+     * @throws IllegalArgumentException  if the varint is longer than 10 bytes.
+     */
+    public static long readVarInt64(ByteBuf buf) {
+        int readerIndex = buf.readerIndex();
+        int writerIndex = buf.writerIndex();
+        checkVarIntReadable(readerIndex, readerIndex, writerIndex);
+        int b = buf.getByte(readerIndex);
+        if (b >= 0) {
+            buf.readerIndex(readerIndex + 1);
+            return b;
+        }
+        long result = b & 0x7F;
+        for (int shift = 7, i = readerIndex + 1; shift < 70; shift += 7, i++) {
+            checkVarIntReadable(readerIndex, i, writerIndex);
+            b = buf.getByte(i);
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                buf.readerIndex(i + 1);
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint64");
+    }
+
+    private static void checkVarIntReadable(int readerIndex, int index, int writerIndex) {
+        if (index >= writerIndex) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "readerIndex(%d) + length(%d) exceeds writerIndex(%d)",
+                    readerIndex, index - readerIndex + 1, writerIndex));
+        }
+    }
+
+    /**
+     * Encodes a signed 32-bit integer with
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed-ints">ZigZag encoding</a>, so
+     * values with a small absolute value also have a short varint encoding.
+     */
+    public static int encodeZigZag32(int value) {
+        return value << 1 ^ value >> 31;
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encodeZigZag32(int)}.
+     */
+    public static int decodeZigZag32(int value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Encodes a signed 64-bit integer with
+     * <a href="https://developers.google.com/protocol-buffers/docs/encoding#signed-ints">ZigZag encoding</a>, so
+     * values with a small absolute value also have a short varint encoding.
+     */
+    public static long encodeZigZag64(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    /**
+     * Decodes a value encoded by {@link #encodeZigZag64(long)}.
+     */
+    public static long decodeZigZag64(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
     /**
      * Read the given amount of bytes into a new {@link ByteBuf} that is allocated from the {@link ByteBufAllocator}.
      */
@@ -479,10 +650,51 @@ public final class ByteBufUtil {
         if (fromIndex >= toIndex || buffer.capacity() == 0) {
             return -1;
         }
+        if (buffer instanceof AbstractByteBuf) {
+            AbstractByteBuf buf = (AbstractByteBuf) buffer;
+            buf.checkIndex(fromIndex, toIndex - fromIndex);
+            return firstIndexOf(buf, fromIndex, toIndex, value);
+        }
 
         return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
     }
 
+    /**
+     * Returns the index of the first occurrence of {@code value} in {@code [fromIndex, toIndex)}, which must have
+     * been bounds checked by the caller. Reads 8 bytes at once and finds a matching byte in them with SWAR
+     * (SIMD within a register) bit tricks, unless the buffer is composite or unaligned access is slow.
+     */
+    static int firstIndexOf(AbstractByteBuf buffer, int fromIndex, int toIndex, byte value) {
+        int i = fromIndex;
+        if (toIndex - fromIndex >= SWAR_MIN_LENGTH && PlatformDependent.isUnaligned() &&
+                !(buffer instanceof CompositeByteBuf)) {
+            final long pattern = (value & 0xFFL) * 0x0101010101010101L;
+            for (final int longEnd = toIndex - 7; i < longEnd; i += 8) {
+                // Little endian, so the byte at the lowest index ends up in the lowest bits of the word.
+                long match = swarMatch(buffer._getLongLE(i), pattern);
+                if (match != 0) {
+                    return i + (Long.numberOfTrailingZeros(match) >>> 3);
+                }
+            }
+        }
+        for (; i < toIndex; i++) {
+            if (buffer._getByte(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns a word which has the highest bit set in exactly those bytes of {@code word} which are equal to the
+     * byte repeated in {@code pattern}.
+     */
+    private static long swarMatch(long word, long pattern) {
+        long input = word ^ pattern;
+        long tmp = (input & 0x7F7F7F7F7F7F7F7FL) + 0x7F7F7F7F7F7F7F7FL;
+        return ~(tmp | input | 0x7F7F7F7F7F7F7F7FL);
+    }
+
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
         int capacity = buffer.capacity();
         fromIndex = Math.min(fromIndex, capacity);
@@ -592,9 +804,13 @@ public final class ByteBufUtil {
     static int writeUtf8(AbstractByteBuf buffer, int writerIndex, CharSequence seq, int start, int end) {
         int oldWriterIndex = writerIndex;
 
+        // Most strings are pure ASCII or at least start with an ASCII prefix, which is copied in bulk first.
+        int i = writeAsciiPrefix(buffer, writerIndex, seq, start, end);
+        writerIndex += i - start;
+
         // We can use the _set methods as these not need to do any index checks and reference checks.
         // This is possible as we called ensureWritable(...) before.
-        for (int i = start; i < end; i++) {
+        for (; i < end; i++) {
             char c = seq.charAt(i);
             if (c < 0x80) {
                 buffer._setByte(writerIndex++, (byte) c);
@@ -622,6 +838,64 @@ public final class ByteBufUtil {
         return writerIndex - oldWriterIndex;
     }
 
+    /**
+     * Writes the leading ASCII chars of {@code seq} and returns the index of the first char that was not written, so
+     * the caller can continue with the char by char encoding from there. The bytes of an {@link AsciiString} are
+     * copied directly, any other {@link CharSequence} is packed into words of 8 chars as long as none of them needs
+     * more than one byte.
+     */
+    private static int writeAsciiPrefix(AbstractByteBuf buffer, int writerIndex, CharSequence seq, int start, int end) {
+        if (seq instanceof AsciiString) {
+            AsciiString asciiString = (AsciiString) seq;
+            int offset = asciiString.arrayOffset() + start;
+            int length = asciiPrefixLength(asciiString.array(), offset, end - start);
+            buffer.setBytes(writerIndex, asciiString.array(), offset, length);
+            return start + length;
+        }
+        int i = start;
+        if (end - start >= SWAR_MIN_LENGTH && PlatformDependent.isUnaligned() &&
+                !(buffer instanceof CompositeByteBuf)) {
+            for (final int longEnd = end - 7; i < longEnd; i += 8) {
+                char c0 = seq.charAt(i);
+                char c1 = seq.charAt(i + 1);
+                char c2 = seq.charAt(i + 2);
+                char c3 = seq.charAt(i + 3);
+                char c4 = seq.charAt(i + 4);
+                char c5 = seq.charAt(i + 5);
+                char c6 = seq.charAt(i + 6);
+                char c7 = seq.charAt(i + 7);
+                if ((c0 | c1 | c2 | c3 | c4 | c5 | c6 | c7) >= 0x80) {
+                    break;
+                }
+                buffer._setLongLE(writerIndex, c0 | (long) c1 << 8 | (long) c2 << 16 | (long) c3 << 24 |
+                        (long) c4 << 32 | (long) c5 << 40 | (long) c6 << 48 | (long) c7 << 56);
+                writerIndex += 8;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Returns the number of leading bytes in {@code array} starting at {@code offset} which are ASCII, checking
+     * 8 bytes at once for a set sign bit when {@code Unsafe} is available.
+     */
+    private static int asciiPrefixLength(byte[] array, int offset, int length) {
+        final int end = offset + length;
+        int i = offset;
+        if (length >= SWAR_MIN_LENGTH && PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned()) {
+            for (final int longEnd = end - 7; i < longEnd; i += 8) {
+                // The word is in native byte order, so just stop and let the loop below find the exact position.
+                if ((PlatformDependent.getLong(array, i) & 0x8080808080808080L) != 0) {
+                    break;
+                }
+            }
+        }
+        while (i < end && array[i] >= 0) {
+            i++;
+        }
+        return i - offset;
+    }
+
     private static int writeUtf8Surrogate(AbstractByteBuf buffer, int writerIndex, char c, char c2) {
         if (!Character.isLowSurrogate(c2)) {
             buffer._setByte(writerIndex++, WRITE_UTF_UNKNOWN);
@@ -852,8 +1126,10 @@ public final class ByteBufUtil {
             offset = 0;
             src.getBytes(readerIndex, array, 0, len);
         }
-        if (CharsetUtil.US_ASCII.equals(charset)) {
-            // Fast-path for US-ASCII which is used frequently.
+        if (CharsetUtil.US_ASCII.equals(charset) ||
+                CharsetUtil.UTF_8.equals(charset) && asciiPrefixLength(array, offset, len) == len) {
+            // Fast-path for US-ASCII which is used frequently, and for UTF-8 which only contains ASCII bytes and so
+            // decodes to the same chars.
             return new String(array, 0, offset, len);
         }
         return new String(array, offset, len, charset);
@@ -1330,6 +1606,24 @@ public final class ByteBufUtil {
      * @param length The length of the specified buffer.
      */
     private static boolean isAscii(ByteBuf buf, int index, int length) {
+        if (length >= SWAR_MIN_LENGTH && buf instanceof AbstractByteBuf && !(buf instanceof CompositeByteBuf) &&
+                PlatformDependent.isUnaligned()) {
+            AbstractByteBuf buffer = (AbstractByteBuf) buf;
+            buffer.ensureAccessible();
+            final int end = index + length;
+            int i = index;
+            for (final int longEnd = end - 7; i < longEnd; i += 8) {
+                if ((buffer._getLongLE(i) & 0x8080808080808080L) != 0) {
+                    return false;
+                }
+            }
+            for (; i < end; i++) {
+                if (buffer._getByte(i) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
         return buf.forEachByte(index, length, FIND_NON_ASCII) == -1;
     }
 
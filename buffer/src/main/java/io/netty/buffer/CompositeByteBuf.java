@@ -1076,6 +1076,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
+    @Override
+    public CompositeByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        super.getShorts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        super.getInts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        super.getLongs(index, dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf getBytes(int index, ByteBuffer dst) {
         int limit = dst.limit();
@@ -1349,6 +1367,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
+    @Override
+    public CompositeByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        super.setShorts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        super.setInts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        super.setLongs(index, src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf setBytes(int index, ByteBuffer src) {
         int limit = src.limit();
@@ -2096,6 +2132,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
+    @Override
+    public CompositeByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        super.readShorts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf readInts(int[] dst, int dstIndex, int length) {
+        super.readInts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        super.readLongs(dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf readBytes(ByteBuffer dst) {
         super.readBytes(dst);
@@ -2199,6 +2253,24 @@ public class CompositeByteBuf extends AbstractReferenceCountedByteBuf implements
         return this;
     }
 
+    @Override
+    public CompositeByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        super.writeShorts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf writeInts(int[] src, int srcIndex, int length) {
+        super.writeInts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        super.writeLongs(src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf writeBytes(ByteBuffer src) {
         super.writeBytes(src);
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maps the memory of {@link PoolChunk}s from files that are located on a hugetlbfs mount. The kernel backs such
+ * mappings with huge pages which greatly reduces the number of TLB misses when accessing pooled direct memory.
+ * The files are unlinked directly after mapping, so the memory is given back once the mapping is released.
+ */
+final class HugePageMemory {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(HugePageMemory.class);
+    // Only the first failure is logged as warning, as the following ones are most likely caused by the same problem.
+    private static final AtomicBoolean FALLBACK_LOGGED = new AtomicBoolean();
+
+    private final File directory;
+
+    HugePageMemory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns {@code true} if the given directory can be used to map huge pages from.
+     */
+    static boolean isUsable(File directory) {
+        return directory.isDirectory() && directory.canWrite();
+    }
+
+    /**
+     * Maps {@code capacity} bytes backed by huge pages or returns {@code null} if this failed, for example because
+     * not enough huge pages are available or {@code capacity} is not a multiple of the huge page size.
+     */
+    ByteBuffer map(int capacity) {
+        File file = null;
+        RandomAccessFile raf = null;
+        try {
+            file = File.createTempFile("netty-chunk-", ".hugepage", directory);
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(capacity);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            if (FALLBACK_LOGGED.compareAndSet(false, true)) {
+                logger.warn("Unable to map {} bytes of huge pages from {}, falling back to direct memory" +
+                        " (further failures are logged at debug level)", capacity, directory, e);
+            } else {
+                logger.debug("Unable to map {} bytes of huge pages from {}, falling back to direct memory",
+                        capacity, directory, e);
+            }
+            return null;
+        } finally {
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignore) {
+                    // ignore
+                }
+            }
+            // The mapping stays valid after the file is removed.
+            if (file != null && !file.delete()) {
+                logger.debug("Unable to delete {}", file);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HugePageMemory(" + directory + ')';
+    }
+}
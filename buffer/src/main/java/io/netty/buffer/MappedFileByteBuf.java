@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only {@link ByteBuf} which wraps a memory-mapped region of a file, obtained via {@link MappedFileCache}.
+ * <p>
+ * Unlike a {@code FileRegion} it can be passed through handlers that need to read the content, like encryption or
+ * compression, without copying it onto the heap first. Slices and duplicates share the reference count of this
+ * buffer, and the region is unmapped once the last reference to it has been released and the
+ * {@link MappedFileCache} decides not to keep it around for reuse.
+ * <p>
+ * Any {@link ByteBuffer} obtained from this buffer, for example via {@link #nioBuffer()}, must not be used after the
+ * buffer was released as the memory backing it may be unmapped by then.
+ */
+public final class MappedFileByteBuf extends ReadOnlyByteBufferBuf {
+
+    private final MappedFileCache.Mapping mapping;
+
+    MappedFileByteBuf(ByteBufAllocator allocator, MappedFileCache.Mapping mapping) {
+        super(allocator, mapping.buffer());
+        this.mapping = mapping;
+    }
+
+    /**
+     * Returns the file this buffer was mapped from.
+     */
+    public File file() {
+        return mapping.file();
+    }
+
+    /**
+     * Returns the offset within the {@link #file()} at which the mapped region starts.
+     */
+    public long fileOffset() {
+        return mapping.position();
+    }
+
+    @Override
+    protected void deallocate() {
+        mapping.release();
+    }
+}
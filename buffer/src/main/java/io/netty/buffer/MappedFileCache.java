@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Creates {@link MappedFileByteBuf}s and keeps the mappings of recently used file regions open, so serving the same
+ * region again does not need to map it again.
+ * <p>
+ * A region which is in use by at least one {@link MappedFileByteBuf} is shared by all buffers created for it. Once
+ * all of them are released it is kept open as long as it is one of the {@code maxIdleMappings} most recently
+ * released regions, and unmapped when it falls out of the cache or the cache is {@linkplain #close() closed}.
+ * Unmapping is done via the {@code Cleaner} of the mapped {@link ByteBuffer}, if the platform does not allow it,
+ * the mapping is only released once the garbage collector collected it.
+ * <p>
+ * The cache assumes the content of the mapped files does not change while they are mapped, as all buffers of a
+ * region would observe the modification.
+ */
+public final class MappedFileCache {
+
+    private final ByteBufAllocator allocator;
+    private final int maxIdleMappings;
+    private final Map<Key, Mapping> mappings = new HashMap<Key, Mapping>();
+    // Mappings which are not used by any buffer, in the order they were released.
+    private final Map<Key, Mapping> idleMappings = new LinkedHashMap<Key, Mapping>();
+    private boolean closed;
+
+    /**
+     * Creates a new instance which keeps at most {@code maxIdleMappings} regions mapped that are not in use.
+     */
+    public MappedFileCache(int maxIdleMappings) {
+        this(UnpooledByteBufAllocator.DEFAULT, maxIdleMappings);
+    }
+
+    /**
+     * Creates a new instance which keeps at most {@code maxIdleMappings} regions mapped that are not in use and
+     * returns {@code allocator} from {@link ByteBuf#alloc()} of the created buffers.
+     */
+    public MappedFileCache(ByteBufAllocator allocator, int maxIdleMappings) {
+        this.allocator = ObjectUtil.checkNotNull(allocator, "allocator");
+        this.maxIdleMappings = checkPositiveOrZero(maxIdleMappings, "maxIdleMappings");
+    }
+
+    /**
+     * Maps the whole {@code file}, which must not be larger than {@link Integer#MAX_VALUE} bytes.
+     */
+    public MappedFileByteBuf map(File file) throws IOException {
+        long length = file.length();
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("file too large to be mapped into a single buffer: " + file +
+                    " (length: " + length + ')');
+        }
+        return map(file, 0, (int) length);
+    }
+
+    /**
+     * Maps {@code length} bytes of {@code file} starting at {@code position}, reusing an existing mapping of the
+     * same region if there is one.
+     */
+    public MappedFileByteBuf map(File file, long position, int length) throws IOException {
+        ObjectUtil.checkNotNull(file, "file");
+        checkPositiveOrZero(position, "position");
+        checkPositiveOrZero(length, "length");
+        Key key = new Key(file.getCanonicalFile(), position, length);
+        Mapping mapping;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("closed");
+            }
+            mapping = mappings.get(key);
+            if (mapping != null) {
+                if (mapping.refCnt++ == 0) {
+                    idleMappings.remove(key);
+                }
+                return new MappedFileByteBuf(allocator, mapping);
+            }
+        }
+
+        // Map outside of the lock, so mapping one file does not block other threads. If two threads map the same
+        // region concurrently only the first mapping is kept.
+        MappedByteBuffer buffer = map(key);
+        synchronized (this) {
+            if (!closed) {
+                mapping = mappings.get(key);
+                if (mapping == null) {
+                    mapping = new Mapping(this, key, buffer);
+                    mappings.put(key, mapping);
+                    return new MappedFileByteBuf(allocator, mapping);
+                }
+                if (mapping.refCnt++ == 0) {
+                    idleMappings.remove(key);
+                }
+            }
+        }
+        PlatformDependent.freeDirectBuffer(buffer);
+        if (mapping == null) {
+            throw new IllegalStateException("closed");
+        }
+        return new MappedFileByteBuf(allocator, mapping);
+    }
+
+    private static MappedByteBuffer map(Key key) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(key.file, "r");
+        try {
+            // The mapping stays valid after the channel is closed.
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (key.position > size - key.length) {
+                throw new IllegalArgumentException("region exceeds the file: " + key.file +
+                        " (position: " + key.position + ", length: " + key.length + ", size: " + size + ')');
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, key.position, key.length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Returns the number of regions which are currently mapped, including the idle ones.
+     */
+    public synchronized int mappedRegions() {
+        return mappings.size();
+    }
+
+    /**
+     * Returns the number of regions which are mapped but not used by any buffer.
+     */
+    public synchronized int idleRegions() {
+        return idleMappings.size();
+    }
+
+    /**
+     * Unmaps all idle regions and stops caching. Regions still in use are unmapped once all their buffers are
+     * released.
+     */
+    public void close() {
+        List<Mapping> unmap;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            unmap = new ArrayList<Mapping>(idleMappings.values());
+            for (Mapping mapping : unmap) {
+                mappings.remove(mapping.key);
+            }
+            idleMappings.clear();
+        }
+        for (Mapping mapping : unmap) {
+            PlatformDependent.freeDirectBuffer(mapping.buffer);
+        }
+    }
+
+    void release(Mapping mapping) {
+        Mapping unmap = null;
+        synchronized (this) {
+            assert mapping.refCnt > 0;
+            if (--mapping.refCnt != 0) {
+                return;
+            }
+            if (closed || maxIdleMappings == 0) {
+                mappings.remove(mapping.key);
+                unmap = mapping;
+            } else {
+                idleMappings.put(mapping.key, mapping);
+                if (idleMappings.size() > maxIdleMappings) {
+                    Iterator<Mapping> eldest = idleMappings.values().iterator();
+                    unmap = eldest.next();
+                    eldest.remove();
+                    mappings.remove(unmap.key);
+                }
+            }
+        }
+        if (unmap != null) {
+            PlatformDependent.freeDirectBuffer(unmap.buffer);
+        }
+    }
+
+    /**
+     * A mapped file region, shared by all {@link MappedFileByteBuf}s created for it.
+     */
+    static final class Mapping {
+        private final MappedFileCache cache;
+        private final Key key;
+        private final MappedByteBuffer buffer;
+        // Guarded by the lock of the cache.
+        private int refCnt = 1;
+
+        Mapping(MappedFileCache cache, Key key, MappedByteBuffer buffer) {
+            this.cache = cache;
+            this.key = key;
+            this.buffer = buffer;
+        }
+
+        ByteBuffer buffer() {
+            return buffer;
+        }
+
+        File file() {
+            return key.file;
+        }
+
+        long position() {
+            return key.position;
+        }
+
+        void release() {
+            cache.release(this);
+        }
+    }
+
+    private static final class Key {
+        final File file;
+        final long position;
+        final int length;
+
+        Key(File file, long position, int length) {
+            this.file = file;
+            this.position = position;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return position == other.position && length == other.length && file.equals(other.file);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = file.hashCode();
+            hash = 31 * hash + (int) (position ^ position >>> 32);
+            return 31 * hash + length;
+        }
+    }
+}
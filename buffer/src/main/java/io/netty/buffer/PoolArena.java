@@ -17,20 +17,31 @@
 package io.netty.buffer;
 
 import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.ObjectPool.Handle;
+import io.netty.util.internal.ObjectPool.ObjectCreator;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import static io.netty.buffer.PoolChunk.isSubpage;
 import static java.lang.Math.max;
 
 abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     static final boolean HAS_UNSAFE = PlatformDependent.hasUnsafe();
+    private static final int DEFERRED_FREE_QUEUE_CAPACITY = 1024;
 
     enum SizeClass {
         Small,
@@ -42,7 +53,10 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     final int numSmallSubpagePools;
     final int directMemoryCacheAlignment;
     final int directMemoryCacheAlignmentMask;
+    // Holds subpagePoolStripes heads per size class, so threads allocating the same size class do not all
+    // contend on the same head.
     private final PoolSubpage<T>[] smallSubpagePools;
+    private final int subpagePoolStripeMask;
 
     private final PoolChunkList<T> q050;
     private final PoolChunkList<T> q025;
@@ -66,21 +80,57 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
     // We need to use the LongCounter here as this is not guarded via synchronized block.
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    // Bytes that were given back to the system by trimIdleChunks(...).
+    private final LongCounter reclaimedBytes = PlatformDependent.newLongCounter();
+
+    // Thread cache hits and misses per sizeIdx, these are flushed by adaptive thread caches on every trim.
+    private final AtomicLongArray threadCacheHits;
+    private final AtomicLongArray threadCacheMisses;
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // Number of event loops that are bound to this arena, only modified while holding the synchronized lock.
+    volatile int numBoundEventLoops;
+    // The event loop threads bound to this arena and their executors, only accessed while holding the synchronized
+    // lock. Used to find the new owner once all but one of them were unbound.
+    private final Map<Thread, Executor> boundEventLoops = new HashMap<Thread, Executor>();
+
+    // The event loop thread this arena is exclusively bound to, or null. Frees done by other threads are handed over
+    // via pendingFrees, so these threads do not need to contend on the synchronized lock.
+    private volatile Thread owner;
+    // The executor of the owner, used to drain pendingFrees once they are handed over. Set before owner.
+    private volatile Executor ownerExecutor;
+    // Created once the first event loop binds to this arena, before owner is set.
+    private Queue<DeferredFree> pendingFrees;
+    // true if drainPendingFreesTask was submitted to the ownerExecutor and did not start to drain yet.
+    private final AtomicBoolean drainPendingFreesScheduled = new AtomicBoolean();
+    private final Runnable drainPendingFreesTask = new Runnable() {
+        @Override
+        public void run() {
+            drainPendingFreesScheduled.set(false);
+            synchronized (PoolArena.this) {
+                drainPendingFrees();
+            }
+        }
+    };
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize,
-          int pageShifts, int chunkSize, int cacheAlignment) {
+          int pageShifts, int chunkSize, int cacheAlignment, int subpagePoolStripes) {
         super(pageSize, pageShifts, chunkSize, cacheAlignment);
+        assert subpagePoolStripes > 0 && (subpagePoolStripes & subpagePoolStripes - 1) == 0;
         this.parent = parent;
         directMemoryCacheAlignment = cacheAlignment;
         directMemoryCacheAlignmentMask = cacheAlignment - 1;
 
         numSmallSubpagePools = nSubpages;
-        smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
+        threadCacheHits = new AtomicLongArray(nSizes);
+        threadCacheMisses = new AtomicLongArray(nSizes);
+        subpagePoolStripeMask = subpagePoolStripes - 1;
+        smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools * subpagePoolStripes);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
             smallSubpagePools[i] = newSubpagePoolHead();
         }
@@ -129,6 +179,71 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return buf;
     }
 
+    /**
+     * Allocates {@code count} buffers of the same size into {@code out}. Small buffers which can not be served by the
+     * {@link PoolThreadCache} are carved out of the subpage pool while holding its lock only once per subpage.
+     * If the allocation fails, the buffers which were allocated so far are released again.
+     */
+    @SuppressWarnings("unchecked")
+    void allocate(PoolThreadCache cache, int reqCapacity, int maxCapacity, ByteBuf[] out, int count) {
+        // The first i buffers of out are allocated.
+        int i = 0;
+        boolean success = false;
+        try {
+            final int sizeIdx = size2SizeIdx(reqCapacity);
+            if (sizeIdx > smallMaxSizeIdx) {
+                for (; i < count; i++) {
+                    out[i] = allocate(cache, reqCapacity, maxCapacity);
+                }
+                success = true;
+                return;
+            }
+
+            for (; i < count; i++) {
+                PooledByteBuf<T> buf = newByteBuf(maxCapacity);
+                out[i] = buf;
+                if (!cache.allocateSmall(this, buf, reqCapacity, sizeIdx)) {
+                    break;
+                }
+            }
+            for (int j = i + 1; j < count; j++) {
+                out[j] = newByteBuf(maxCapacity);
+            }
+
+            final int firstUncached = i;
+            final PoolSubpage<T> head = findSubpagePoolHead(sizeIdx);
+            try {
+                while (i < count) {
+                    synchronized (head) {
+                        for (PoolSubpage<T> s = head.next; s != head && i < count; s = head.next) {
+                            // PoolSubpage.allocate() removes the subpage from the pool once it is full.
+                            assert s.doNotDestroy && s.elemSize == sizeIdx2size(sizeIdx);
+                            long handle = s.allocate();
+                            assert handle >= 0;
+                            s.chunk.initBufWithSubpage((PooledByteBuf<T>) out[i], null, handle, reqCapacity, cache);
+                            i++;
+                        }
+                    }
+                    if (i < count) {
+                        // The pool is exhausted, allocate a new subpage which will also serve the following buffers.
+                        synchronized (this) {
+                            allocateNormal((PooledByteBuf<T>) out[i], reqCapacity, sizeIdx, cache);
+                        }
+                        i++;
+                    }
+                }
+            } finally {
+                // Also count a partial allocation, as its buffers are released below and so counted as freed.
+                allocationsSmall.add(i - firstUncached);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                AbstractByteBufAllocator.releaseAll(out, i, count);
+            }
+        }
+    }
+
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
         final int sizeIdx = size2SizeIdx(reqCapacity);
 
@@ -156,7 +271,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
          * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
          * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
          */
-        final PoolSubpage<T> head = smallSubpagePools[sizeIdx];
+        final PoolSubpage<T> head = findSubpagePoolHead(sizeIdx);
         final boolean needsNormalAllocation;
         synchronized (head) {
             final PoolSubpage<T> s = head.next;
@@ -192,6 +307,8 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     // Method must be called inside synchronized(this) { ... } block
     private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int sizeIdx, PoolThreadCache threadCache) {
+        // Give back memory that was released by other threads first so it can be reused.
+        drainPendingFrees();
         if (q050.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
             q025.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
             q000.allocate(buf, reqCapacity, sizeIdx, threadCache) ||
@@ -231,7 +348,118 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
                 return;
             }
 
-            freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, false);
+            if (!deferFree(chunk, handle, normCapacity, sizeClass, nioBuffer)) {
+                freeChunk(chunk, handle, normCapacity, sizeClass, nioBuffer, false);
+            }
+        }
+    }
+
+    /**
+     * Hands over the free to the event loop that owns this arena if called from another thread. Returns
+     * {@code false} if the caller needs to free the memory itself.
+     */
+    private boolean deferFree(PoolChunk<T> chunk, long handle, int normCapacity, SizeClass sizeClass,
+                              ByteBuffer nioBuffer) {
+        final Thread owner = this.owner;
+        if (owner == null || owner == Thread.currentThread()) {
+            return false;
+        }
+        DeferredFree entry = DeferredFree.newInstance(chunk, handle, normCapacity, sizeClass, nioBuffer);
+        if (!pendingFrees.offer(entry)) {
+            // The owner did not catch up yet, just free it directly which will also drain the pending frees.
+            entry.recycle();
+            return false;
+        }
+        if (this.owner != owner || !scheduleDrainPendingFrees()) {
+            // The owner was unbound concurrently or does not accept tasks anymore, so it may never see the entry.
+            synchronized (this) {
+                drainPendingFrees();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes sure the owner drains the pending frees soon, even if it does not need the arena lock itself. Only one
+     * drain is submitted at a time. Returns {@code false} if the owner did not accept the drain.
+     */
+    private boolean scheduleDrainPendingFrees() {
+        if (!drainPendingFreesScheduled.compareAndSet(false, true)) {
+            return true;
+        }
+        final Executor executor = ownerExecutor;
+        if (executor != null) {
+            try {
+                executor.execute(drainPendingFreesTask);
+                return true;
+            } catch (RejectedExecutionException ignore) {
+                // The owner is shutting down.
+            }
+        }
+        drainPendingFreesScheduled.set(false);
+        return false;
+    }
+
+    // Method must be called inside synchronized(this) { ... } block
+    @SuppressWarnings("unchecked")
+    private void drainPendingFrees() {
+        if (pendingFrees == null) {
+            return;
+        }
+        for (;;) {
+            DeferredFree entry = pendingFrees.poll();
+            if (entry == null) {
+                return;
+            }
+            PoolChunk<T> chunk = (PoolChunk<T>) entry.chunk;
+            if (entry.sizeClass == SizeClass.Normal) {
+                ++deallocationsNormal;
+            } else {
+                ++deallocationsSmall;
+            }
+            if (!chunk.parent.free(chunk, entry.handle, entry.normCapacity, entry.nioBuffer)) {
+                destroyChunk(chunk);
+            }
+            entry.recycle();
+        }
+    }
+
+    /**
+     * Binds the given event loop thread to this arena. If it is the only one, it becomes the owner of this arena and
+     * all frees done by other threads are handed over to it.
+     */
+    synchronized void bindEventLoop(Thread thread, Executor executor) {
+        boundEventLoops.put(thread, executor);
+        updateOwner();
+    }
+
+    /**
+     * Unbinds the given event loop thread from this arena. If only one event loop remains bound, it becomes the
+     * owner of this arena again.
+     */
+    synchronized void unbindEventLoop(Thread thread) {
+        boundEventLoops.remove(thread);
+        updateOwner();
+    }
+
+    // Method must be called inside synchronized(this) { ... } block
+    private void updateOwner() {
+        numBoundEventLoops = boundEventLoops.size();
+        // Hand back everything that was handed over to the previous owner, as it may not be the owner anymore.
+        drainPendingFrees();
+        // A drain submitted to the previous owner may never run, so allow to submit one to the new owner.
+        drainPendingFreesScheduled.set(false);
+        if (boundEventLoops.size() == 1) {
+            Map.Entry<Thread, Executor> entry = boundEventLoops.entrySet().iterator().next();
+            if (pendingFrees == null) {
+                pendingFrees = PlatformDependent.newFixedMpscQueue(DEFERRED_FREE_QUEUE_CAPACITY);
+            }
+            ownerExecutor = entry.getValue();
+            owner = entry.getKey();
+        } else {
+            // Either not bound or shared by multiple event loops, so there is no single owner.
+            owner = null;
+            ownerExecutor = null;
         }
     }
 
@@ -246,6 +474,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             // We only call this if freeChunk is not called because of the PoolThreadCache finalizer as otherwise this
             // may fail due lazy class-loading in for example tomcat.
             if (!finalizer) {
+                drainPendingFrees();
                 switch (sizeClass) {
                     case Normal:
                         ++deallocationsNormal;
@@ -265,8 +494,40 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         }
     }
 
+    /**
+     * Destroys all {@link PoolChunk}s that did not serve any allocation for at least {@code decayNanos} and so gives
+     * their memory back to the system. Returns the number of bytes that were reclaimed.
+     */
+    long trimIdleChunks(long decayNanos) {
+        final List<PoolChunk<T>> idle;
+        synchronized (this) {
+            drainPendingFrees();
+            // Only qInit can hold completely free PoolChunks, all other lists either move them down or destroy them
+            // directly once they become empty.
+            idle = qInit.removeIdle(System.nanoTime() - decayNanos);
+        }
+        if (idle == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (PoolChunk<T> chunk: idle) {
+            // destroyChunk not need to be called while holding the synchronized lock.
+            destroyChunk(chunk);
+            bytes += chunk.chunkSize();
+        }
+        reclaimedBytes.add(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the head of the subpage pool for the given size class that should be used by the calling thread.
+     */
     PoolSubpage<T> findSubpagePoolHead(int sizeIdx) {
-        return smallSubpagePools[sizeIdx];
+        if (subpagePoolStripeMask == 0) {
+            return smallSubpagePools[sizeIdx];
+        }
+        int stripe = (int) Thread.currentThread().getId() & subpagePoolStripeMask;
+        return smallSubpagePools[stripe * numSmallSubpagePools + sizeIdx];
     }
 
     void reallocate(PooledByteBuf<T> buf, int newCapacity, boolean freeOldMemory) {
@@ -294,6 +555,9 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             bytesToCopy = newCapacity;
         }
         memoryCopy(oldMemory, oldOffset, buf, bytesToCopy);
+        if (buf.allocationTag != null) {
+            buf.allocationTag.reallocate(oldMaxLength, buf.maxLength);
+        }
         if (freeOldMemory) {
             free(oldChunk, oldNioBuffer, oldHandle, oldMaxLength, buf.cache);
         }
@@ -311,7 +575,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     @Override
     public int numSmallSubpages() {
-        return smallSubpagePools.length;
+        return numSmallSubpagePools;
     }
 
     @Override
@@ -457,6 +721,27 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         return max(0, val);
     }
 
+    /**
+     * Return the number of bytes that were given back to the system because chunks of the arena stayed unused for
+     * longer than the configured chunk decay time.
+     */
+    long numReclaimedBytes() {
+        return reclaimedBytes.value();
+    }
+
+    void threadCacheStats(int sizeIdx, int hits, int misses) {
+        threadCacheHits.addAndGet(sizeIdx, hits);
+        threadCacheMisses.addAndGet(sizeIdx, misses);
+    }
+
+    long numThreadCacheHits(int sizeIdx) {
+        return threadCacheHits.get(sizeIdx);
+    }
+
+    long numThreadCacheMisses(int sizeIdx) {
+        return threadCacheMisses.get(sizeIdx);
+    }
+
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxPageIdx, int pageShifts, int chunkSize);
     protected abstract PoolChunk<T> newUnpooledChunk(int capacity);
     protected abstract PooledByteBuf<T> newByteBuf(int maxCapacity);
@@ -491,13 +776,13 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             .append(q100)
             .append(StringUtil.NEWLINE)
             .append("small subpages:");
-        appendPoolSubPages(buf, smallSubpagePools);
+        appendPoolSubPages(buf, smallSubpagePools, numSmallSubpagePools);
         buf.append(StringUtil.NEWLINE);
 
         return buf.toString();
     }
 
-    private static void appendPoolSubPages(StringBuilder buf, PoolSubpage<?>[] subpages) {
+    private static void appendPoolSubPages(StringBuilder buf, PoolSubpage<?>[] subpages, int numSizes) {
         for (int i = 0; i < subpages.length; i ++) {
             PoolSubpage<?> head = subpages[i];
             if (head.next == head) {
@@ -505,7 +790,7 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
             }
 
             buf.append(StringUtil.NEWLINE)
-                    .append(i)
+                    .append(i % numSizes)
                     .append(": ");
             PoolSubpage<?> s = head.next;
             for (;;) {
@@ -540,12 +825,58 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         }
     }
 
+    static final class DeferredFree {
+        private static final ObjectPool<DeferredFree> RECYCLER = ObjectPool.newPool(
+                new ObjectCreator<DeferredFree>() {
+            @Override
+            public DeferredFree newObject(Handle<DeferredFree> handle) {
+                return new DeferredFree(handle);
+            }
+        });
+
+        private final Handle<DeferredFree> recyclerHandle;
+        PoolChunk<?> chunk;
+        ByteBuffer nioBuffer;
+        SizeClass sizeClass;
+        long handle = -1;
+        int normCapacity;
+
+        private DeferredFree(Handle<DeferredFree> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        static DeferredFree newInstance(PoolChunk<?> chunk, long handle, int normCapacity, SizeClass sizeClass,
+                                        ByteBuffer nioBuffer) {
+            DeferredFree entry = RECYCLER.get();
+            entry.chunk = chunk;
+            entry.handle = handle;
+            entry.normCapacity = normCapacity;
+            entry.sizeClass = sizeClass;
+            entry.nioBuffer = nioBuffer;
+            return entry;
+        }
+
+        void recycle() {
+            chunk = null;
+            nioBuffer = null;
+            sizeClass = null;
+            handle = -1;
+            recyclerHandle.recycle(this);
+        }
+    }
+
     static final class HeapArena extends PoolArena<byte[]> {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
                   int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment,
+                 PooledByteBufAllocator.DEFAULT_SUBPAGE_POOL_STRIPES);
+        }
+
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                  int chunkSize, int directMemoryCacheAlignment, int subpagePoolStripes) {
             super(parent, pageSize, pageShifts, chunkSize,
-                  directMemoryCacheAlignment);
+                  directMemoryCacheAlignment, subpagePoolStripes);
         }
 
         private static byte[] newByteArray(int size) {
@@ -590,10 +921,26 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
+        // May be null if chunks should not be backed by huge pages.
+        private final HugePageMemory hugePageMemory;
+
         DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
                     int chunkSize, int directMemoryCacheAlignment) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                    int chunkSize, int directMemoryCacheAlignment, HugePageMemory hugePageMemory) {
+            this(parent, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, hugePageMemory,
+                 PooledByteBufAllocator.DEFAULT_SUBPAGE_POOL_STRIPES);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int pageShifts,
+                    int chunkSize, int directMemoryCacheAlignment, HugePageMemory hugePageMemory,
+                    int subpagePoolStripes) {
             super(parent, pageSize, pageShifts, chunkSize,
-                  directMemoryCacheAlignment);
+                  directMemoryCacheAlignment, subpagePoolStripes);
+            this.hugePageMemory = hugePageMemory;
         }
 
         @Override
@@ -616,6 +963,26 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
         @Override
         protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxPageIdx,
             int pageShifts, int chunkSize) {
+            if (hugePageMemory != null) {
+                // Mapped chunks count against the direct memory limit just like the allocated ones.
+                PlatformDependent.reserveDirectMemory(chunkSize);
+                ByteBuffer memory = null;
+                try {
+                    memory = hugePageMemory.map(chunkSize);
+                } finally {
+                    if (memory == null) {
+                        PlatformDependent.unreserveDirectMemory(chunkSize);
+                    }
+                }
+                if (memory != null) {
+                    // Huge page mappings are always aligned to the huge page size, so there is no need to add any
+                    // extra space for the cache alignment.
+                    PoolChunk<ByteBuffer> chunk = new PoolChunk<ByteBuffer>(this, memory, pageSize,
+                            pageShifts, chunkSize, maxPageIdx, 0);
+                    chunk.hugePages = true;
+                    return chunk;
+                }
+            }
             if (directMemoryCacheAlignment == 0) {
                 return new PoolChunk<ByteBuffer>(this,
                         allocateDirect(chunkSize), pageSize, pageShifts,
@@ -647,7 +1014,12 @@ abstract class PoolArena<T> extends SizeClasses implements PoolArenaMetric {
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            if (PlatformDependent.useDirectBufferNoCleaner()) {
+            if (chunk.hugePages) {
+                // The mapping is released by the cleaner of the MappedByteBuffer.
+                int capacity = chunk.memory.capacity();
+                PlatformDependent.freeDirectBuffer(chunk.memory);
+                PlatformDependent.unreserveDirectMemory(capacity);
+            } else if (PlatformDependent.useDirectBufferNoCleaner()) {
                 PlatformDependent.freeDirectNoCleaner(chunk.memory);
             } else {
                 PlatformDependent.freeDirectBuffer(chunk.memory);
@@ -178,6 +178,13 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     int freeBytes;
 
+    // true if memory was mapped from a hugetlbfs file and so must be unmapped instead of freed when destroyed.
+    boolean hugePages;
+
+    // The value of System.nanoTime() when this PoolChunk became completely free the last time. Only meaningful while
+    // freeBytes == chunkSize and guarded by the synchronized block on the PoolArena.
+    long idleSinceNanos;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -454,14 +461,13 @@ final class PoolChunk<T> implements PoolChunkMetric {
      */
     void free(long handle, int normCapacity, ByteBuffer nioBuffer) {
         if (isSubpage(handle)) {
-            int sizeIdx = arena.size2SizeIdx(normCapacity);
-            PoolSubpage<T> head = arena.findSubpagePoolHead(sizeIdx);
-
             PoolSubpage<T> subpage = subpages[runOffset(handle)];
             assert subpage != null && subpage.doNotDestroy;
 
-            // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
-            // This is need as we may add it back and so alter the linked-list structure.
+            // Obtain the head of the PoolSubPage pool that the subpage was created for and synchronize on it.
+            // This is need as we may add it back and so alter the linked-list structure. This is not necessarily
+            // the head the calling thread would use for allocations if the pools are striped.
+            PoolSubpage<T> head = subpage.head;
             synchronized (head) {
                 if (subpage.free(head, bitmapIdx(handle))) {
                     //the subpage is still used, do not free it
@@ -555,7 +561,7 @@ final class PoolChunk<T> implements PoolChunkMetric {
                  PoolThreadCache threadCache) {
         if (isRun(handle)) {
             buf.init(this, nioBuffer, handle, runOffset(handle) << pageShifts,
-                     reqCapacity, runSize(pageShifts, handle), arena.parent.threadCache());
+                     reqCapacity, runSize(pageShifts, handle), threadCache);
         } else {
             initBufWithSubpage(buf, nioBuffer, handle, reqCapacity, threadCache);
         }
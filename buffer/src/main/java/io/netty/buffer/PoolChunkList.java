@@ -118,6 +118,9 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
 
     boolean free(PoolChunk<T> chunk, long handle, int normCapacity, ByteBuffer nioBuffer) {
         chunk.free(handle, normCapacity, nioBuffer);
+        if (chunk.freeBytes == chunk.chunkSize()) {
+            chunk.idleSinceNanos = System.nanoTime();
+        }
         if (chunk.freeBytes > freeMaxThreshold) {
             remove(chunk);
             // Move the PoolChunk down the PoolChunkList linked-list.
@@ -178,6 +181,27 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         }
     }
 
+    /**
+     * Removes all {@link PoolChunk}s from this {@link PoolChunkList} that are completely free since
+     * {@code idleDeadlineNanos} or earlier and returns them, or {@code null} if there is no such {@link PoolChunk}.
+     * The caller is responsible to destroy the returned {@link PoolChunk}s.
+     */
+    List<PoolChunk<T>> removeIdle(long idleDeadlineNanos) {
+        List<PoolChunk<T>> idle = null;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes == cur.chunkSize() && cur.idleSinceNanos - idleDeadlineNanos <= 0) {
+                remove(cur);
+                if (idle == null) {
+                    idle = new ArrayList<PoolChunk<T>>();
+                }
+                idle.add(cur);
+            }
+            cur = next;
+        }
+        return idle;
+    }
+
     private void remove(PoolChunk<T> cur) {
         if (cur == head) {
             head = cur.next;
@@ -25,6 +25,8 @@ import static io.netty.buffer.SizeClasses.LOG2_QUANTUM;
 final class PoolSubpage<T> implements PoolSubpageMetric {
 
     final PoolChunk<T> chunk;
+    // The head of the pool this subpage belongs to. All modifications are guarded by its monitor.
+    final PoolSubpage<T> head;
     private final int pageShifts;
     private final int runOffset;
     private final int runSize;
@@ -46,6 +48,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     /** Special constructor that creates a linked list head */
     PoolSubpage() {
         chunk = null;
+        head = this;
         pageShifts = -1;
         runOffset = -1;
         elemSize = -1;
@@ -54,6 +57,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     }
 
     PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int pageShifts, int runOffset, int runSize, int elemSize) {
+        this.head = head;
         this.chunk = chunk;
         this.pageShifts = pageShifts;
         this.runOffset = runOffset;
@@ -218,7 +222,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             numAvail = 0;
             elemSize = -1;
         } else {
-            synchronized (chunk.arena) {
+            synchronized (head) {
                 if (!this.doNotDestroy) {
                     doNotDestroy = false;
                     // Not used for creating the String.
@@ -247,7 +251,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return 0;
         }
 
-        synchronized (chunk.arena) {
+        synchronized (head) {
             return maxNumElems;
         }
     }
@@ -259,7 +263,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return 0;
         }
 
-        synchronized (chunk.arena) {
+        synchronized (head) {
             return numAvail;
         }
     }
@@ -271,7 +275,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
             return -1;
         }
 
-        synchronized (chunk.arena) {
+        synchronized (head) {
             return elemSize;
         }
     }
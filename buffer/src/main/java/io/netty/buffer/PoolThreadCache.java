@@ -29,6 +29,8 @@ import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -43,6 +45,11 @@ final class PoolThreadCache {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PoolThreadCache.class);
     private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
+    // In adaptive mode sizes up to maxCachedBufferCapacity << ADAPTIVE_NORMAL_SHIFT get a cache which is only
+    // enabled once these sizes are allocated frequently.
+    private static final int ADAPTIVE_NORMAL_SHIFT = 3;
+    // The minimum number of misses between two trims that is needed to grow a cache in adaptive mode.
+    private static final int ADAPTIVE_MIN_MISSES = 16;
 
     final PoolArena<byte[]> heapArena;
     final PoolArena<ByteBuffer> directArena;
@@ -59,6 +66,9 @@ final class PoolThreadCache {
     private final int freeSweepAllocationThreshold;
     private final AtomicBoolean freed = new AtomicBoolean();
 
+    // The event loop thread for which this cache was bound to its arenas, or null.
+    Thread boundEventLoop;
+
     private int allocations;
 
     // TODO: Test if adding padding helps under contention
@@ -67,17 +77,28 @@ final class PoolThreadCache {
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
                     int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+             freeSweepAllocationThreshold, false);
+    }
+
+    /**
+     * If {@code adaptive} is {@code true} the capacity of each cache is adjusted on every trim based on the observed
+     * hits and misses, and sizes above {@code maxCachedBufferCapacity} are cached as well once they are hot.
+     */
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity,
+                    int freeSweepAllocationThreshold, boolean adaptive) {
         checkPositiveOrZero(maxCachedBufferCapacity, "maxCachedBufferCapacity");
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
             smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools);
+                    smallCacheSize, directArena, adaptive);
 
             numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, directArena);
+                    normalCacheSize, maxCachedBufferCapacity, directArena, adaptive);
 
             directArena.numThreadCaches.getAndIncrement();
         } else {
@@ -89,11 +110,11 @@ final class PoolThreadCache {
         if (heapArena != null) {
             // Create the caches for the heap allocations
             smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools);
+                    smallCacheSize, heapArena, adaptive);
 
             numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
-                    normalCacheSize, maxCachedBufferCapacity, heapArena);
+                    normalCacheSize, maxCachedBufferCapacity, heapArena, adaptive);
 
             heapArena.numThreadCaches.getAndIncrement();
         } else {
@@ -113,13 +134,14 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createSubPageCaches(
-            int cacheSize, int numCaches) {
+            int cacheSize, PoolArena<T> area, boolean adaptive) {
+        int numCaches = area.numSmallSubpagePools;
         if (cacheSize > 0 && numCaches > 0) {
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[numCaches];
             for (int i = 0; i < cache.length; i++) {
                 // TODO: maybe use cacheSize / cache.length
-                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize);
+                cache[i] = new SubPageMemoryRegionCache<T>(area, i, cacheSize, adaptive);
             }
             return cache;
         } else {
@@ -128,17 +150,26 @@ final class PoolThreadCache {
     }
 
     private static <T> MemoryRegionCache<T>[] createNormalCaches(
-            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
+            int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area, boolean adaptive) {
         if (cacheSize > 0 && maxCachedBufferCapacity > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
-
-            @SuppressWarnings("unchecked")
-            MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
-            for (int i = 0; i < cache.length; i++) {
-                cache[i] = new NormalMemoryRegionCache<T>(cacheSize);
+            int adaptiveMax = adaptive ? (int) Math.min(area.chunkSize, (long) max << ADAPTIVE_NORMAL_SHIFT) : max;
+
+            // Create a cache for each normal size class up to the upper bound. The normal size classes start directly
+            // after the small ones.
+            List<MemoryRegionCache<T>> cache = new ArrayList<MemoryRegionCache<T>>();
+            for (int idx = area.numSmallSubpagePools; idx < area.nSizes && area.sizeIdx2size(idx) <= adaptiveMax;
+                 idx++) {
+                // Sizes above maxCachedBufferCapacity start disabled.
+                cache.add(new NormalMemoryRegionCache<T>(area, idx, cacheSize, adaptive,
+                        area.sizeIdx2size(idx) <= max));
             }
-            return cache;
+            if (cache.isEmpty()) {
+                return null;
+            }
+            @SuppressWarnings("unchecked")
+            MemoryRegionCache<T>[] array = cache.toArray(new MemoryRegionCache[0]);
+            return array;
         } else {
             return null;
         }
@@ -290,14 +321,16 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int sizeIdx) {
+        // sizeIdx is the index across all size classes, while the normal caches start with the first normal size.
+        int idx = sizeIdx - area.numSmallSubpagePools;
         if (area.isDirect()) {
-            return cache(normalDirectCaches, sizeIdx);
+            return cache(normalDirectCaches, idx);
         }
-        return cache(normalHeapCaches, sizeIdx);
+        return cache(normalHeapCaches, idx);
     }
 
     private static <T> MemoryRegionCache<T> cache(MemoryRegionCache<T>[] cache, int sizeIdx) {
-        if (cache == null || sizeIdx > cache.length - 1) {
+        if (cache == null || sizeIdx < 0 || sizeIdx > cache.length - 1) {
             return null;
         }
         return cache[sizeIdx];
@@ -307,8 +340,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by TINY or SMALL size.
      */
     private static final class SubPageMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        SubPageMemoryRegionCache(int size) {
-            super(size, SizeClass.Small);
+        SubPageMemoryRegionCache(PoolArena<T> arena, int sizeIdx, int size, boolean adaptive) {
+            super(arena, sizeIdx, size, SizeClass.Small, adaptive, true);
         }
 
         @Override
@@ -323,8 +356,8 @@ final class PoolThreadCache {
      * Cache used for buffers which are backed by NORMAL size.
      */
     private static final class NormalMemoryRegionCache<T> extends MemoryRegionCache<T> {
-        NormalMemoryRegionCache(int size) {
-            super(size, SizeClass.Normal);
+        NormalMemoryRegionCache(PoolArena<T> arena, int sizeIdx, int size, boolean adaptive, boolean enabled) {
+            super(arena, sizeIdx, size, SizeClass.Normal, adaptive, enabled);
         }
 
         @Override
@@ -336,15 +369,32 @@ final class PoolThreadCache {
     }
 
     private abstract static class MemoryRegionCache<T> {
+        private final PoolArena<T> arena;
+        private final int sizeIdx;
         private final int size;
         private final Queue<Entry<T>> queue;
         private final SizeClass sizeClass;
+        private final boolean adaptive;
         private int allocations;
 
-        MemoryRegionCache(int size, SizeClass sizeClass) {
-            this.size = MathUtil.safeFindNextPositivePowerOfTwo(size);
+        // The number of entries this cache currently accepts. Only differs from size in adaptive mode, where it is
+        // adjusted by the owning thread on every trim and read by the threads that free into this cache.
+        private volatile int limit;
+
+        // Only accessed by the owning thread and flushed to the arena on trim.
+        private int hits;
+        private int misses;
+
+        MemoryRegionCache(PoolArena<T> arena, int sizeIdx, int size, SizeClass sizeClass, boolean adaptive,
+                          boolean enabled) {
+            this.arena = arena;
+            this.sizeIdx = sizeIdx;
+            // In adaptive mode allow to grow up to twice the configured size.
+            this.size = MathUtil.safeFindNextPositivePowerOfTwo(adaptive ? size << 1 : size);
             queue = PlatformDependent.newFixedMpscQueue(this.size);
             this.sizeClass = sizeClass;
+            this.adaptive = adaptive;
+            limit = enabled ? adaptive ? this.size >>> 1 : this.size : 0;
         }
 
         /**
@@ -358,6 +408,9 @@ final class PoolThreadCache {
          */
         @SuppressWarnings("unchecked")
         public final boolean add(PoolChunk<T> chunk, ByteBuffer nioBuffer, long handle, int normCapacity) {
+            if (adaptive && queue.size() >= limit) {
+                return false;
+            }
             Entry<T> entry = newEntry(chunk, nioBuffer, handle, normCapacity);
             boolean queued = queue.offer(entry);
             if (!queued) {
@@ -374,6 +427,9 @@ final class PoolThreadCache {
         public final boolean allocate(PooledByteBuf<T> buf, int reqCapacity, PoolThreadCache threadCache) {
             Entry<T> entry = queue.poll();
             if (entry == null) {
+                if (adaptive) {
+                    ++ misses;
+                }
                 return false;
             }
             initBuf(entry.chunk, entry.nioBuffer, entry.handle, buf, reqCapacity, threadCache);
@@ -381,6 +437,9 @@ final class PoolThreadCache {
 
             // allocations is not thread-safe which is fine as this is only called from the same thread all time.
             ++ allocations;
+            if (adaptive) {
+                ++ hits;
+            }
             return true;
         }
 
@@ -409,7 +468,19 @@ final class PoolThreadCache {
          * Free up cached {@link PoolChunk}s if not allocated frequently enough.
          */
         public final void trim() {
-            int free = size - allocations;
+            int limit = this.limit;
+            if (adaptive) {
+                final int hits = this.hits;
+                final int misses = this.misses;
+                this.hits = 0;
+                this.misses = 0;
+                if (hits != 0 || misses != 0) {
+                    arena.threadCacheStats(sizeIdx, hits, misses);
+                }
+                limit = adaptLimit(limit, hits, misses);
+                this.limit = limit;
+            }
+            int free = limit - allocations;
             allocations = 0;
 
             // We not even allocated all the number that are
@@ -418,6 +489,21 @@ final class PoolThreadCache {
             }
         }
 
+        /**
+         * Grow the cache if most allocations since the last trim could not be served from it, and shrink it if it
+         * was barely used.
+         */
+        private int adaptLimit(int limit, int hits, int misses) {
+            int requests = hits + misses;
+            if (misses > hits && misses >= ADAPTIVE_MIN_MISSES) {
+                return Math.min(size, Math.max(1, limit << 1));
+            }
+            if (requests < limit >>> 2) {
+                return limit >>> 1;
+            }
+            return limit;
+        }
+
         @SuppressWarnings({ "unchecked", "rawtypes" })
         private  void freeEntry(Entry entry, boolean finalizer) {
             PoolChunk chunk = entry.chunk;
@@ -38,6 +38,7 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
     int maxLength;
     PoolThreadCache cache;
     ByteBuffer tmpNioBuf;
+    AllocationTagCounter allocationTag;
     private ByteBufAllocator allocator;
 
     @SuppressWarnings("unchecked")
@@ -168,6 +169,10 @@ abstract class PooledByteBuf<T> extends AbstractReferenceCountedByteBuf {
             final long handle = this.handle;
             this.handle = -1;
             memory = null;
+            if (allocationTag != null) {
+                allocationTag.free(maxLength);
+                allocationTag = null;
+            }
             chunk.arena.free(chunk, tmpNioBuf, handle, maxLength, cache);
             tmpNioBuf = null;
             chunk = null;
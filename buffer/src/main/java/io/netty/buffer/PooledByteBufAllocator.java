@@ -16,12 +16,14 @@
 
 package io.netty.buffer;
 
+import static io.netty.util.internal.ObjectUtil.checkPositive;
 import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 import io.netty.util.NettyRuntime;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -29,10 +31,12 @@ import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.File;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
@@ -48,9 +52,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
     private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_CHUNK_DECAY_MILLIS;
     private static final boolean DEFAULT_USE_CACHE_FOR_ALL_THREADS;
+    private static final boolean DEFAULT_BIND_ARENA_TO_EVENT_LOOP;
+    private static final boolean DEFAULT_ADAPTIVE_THREAD_CACHE;
     private static final int DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT;
+    private static final File DEFAULT_HUGE_PAGE_DIRECTORY;
     static final int DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK;
+    static final int DEFAULT_SUBPAGE_POOL_STRIPES;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -139,17 +148,47 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     "io.netty.allocator.cacheTrimIntervalMillis", 0);
         }
 
+        // the time after which a completely unused chunk is given back to the system, 0 disables it
+        DEFAULT_CHUNK_DECAY_MILLIS = Math.max(0, SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkDecayMillis", 0));
+
+        // if the thread caches should adapt their sizes to the observed hits and misses
+        DEFAULT_ADAPTIVE_THREAD_CACHE = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.adaptiveThreadCache", false);
+
         DEFAULT_USE_CACHE_FOR_ALL_THREADS = SystemPropertyUtil.getBoolean(
                 "io.netty.allocator.useCacheForAllThreads", true);
 
+        // if each event loop should get its own arena, to which all frees by other threads are handed over
+        DEFAULT_BIND_ARENA_TO_EVENT_LOOP = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.bindArenaToEventLoop", false);
+
         DEFAULT_DIRECT_MEMORY_CACHE_ALIGNMENT = SystemPropertyUtil.getInt(
                 "io.netty.allocator.directMemoryCacheAlignment", 0);
 
+        // a directory on a hugetlbfs mount from which the chunks of the direct arenas are mapped, if set.
+        String hugePageDirectory = SystemPropertyUtil.get("io.netty.allocator.hugePageDirectory");
+        File defaultHugePageDirectory = null;
+        if (hugePageDirectory != null) {
+            defaultHugePageDirectory = new File(hugePageDirectory);
+            if (!HugePageMemory.isUsable(defaultHugePageDirectory)) {
+                logger.warn("-Dio.netty.allocator.hugePageDirectory: {} is not a writable directory," +
+                        " using direct memory without huge pages", hugePageDirectory);
+                defaultHugePageDirectory = null;
+            }
+        }
+        DEFAULT_HUGE_PAGE_DIRECTORY = defaultHugePageDirectory;
+
         // Use 1023 by default as we use an ArrayDeque as backing storage which will then allocate an internal array
         // of 1024 elements. Otherwise we would allocate 2048 and only use 1024 which is wasteful.
         DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK = SystemPropertyUtil.getInt(
                 "io.netty.allocator.maxCachedByteBuffersPerChunk", 1023);
 
+        // the number of subpage pools per small size class in each arena, threads are spread across them to reduce
+        // contention on a single pool. Rounded up to a power of two.
+        DEFAULT_SUBPAGE_POOL_STRIPES = MathUtil.safeFindNextPositivePowerOfTwo(Math.max(1,
+                SystemPropertyUtil.getInt("io.netty.allocator.subpagePoolStripes", 1)));
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -169,9 +208,14 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
             logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.adaptiveThreadCache: {}", DEFAULT_ADAPTIVE_THREAD_CACHE);
+            logger.debug("-Dio.netty.allocator.chunkDecayMillis: {}", DEFAULT_CHUNK_DECAY_MILLIS);
             logger.debug("-Dio.netty.allocator.useCacheForAllThreads: {}", DEFAULT_USE_CACHE_FOR_ALL_THREADS);
+            logger.debug("-Dio.netty.allocator.bindArenaToEventLoop: {}", DEFAULT_BIND_ARENA_TO_EVENT_LOOP);
+            logger.debug("-Dio.netty.allocator.hugePageDirectory: {}", DEFAULT_HUGE_PAGE_DIRECTORY);
             logger.debug("-Dio.netty.allocator.maxCachedByteBuffersPerChunk: {}",
                     DEFAULT_MAX_CACHED_BYTEBUFFERS_PER_CHUNK);
+            logger.debug("-Dio.netty.allocator.subpagePoolStripes: {}", DEFAULT_SUBPAGE_POOL_STRIPES);
         }
     }
 
@@ -187,6 +231,9 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     private final PoolThreadLocalCache threadCache;
     private final int chunkSize;
     private final PooledByteBufAllocatorMetric metric;
+    private final boolean allocationTagsEnabled;
+    private final ConcurrentMap<String, AllocationTagCounter> allocationTags =
+            PlatformDependent.newConcurrentHashMap();
 
     public PooledByteBufAllocator() {
         this(false);
@@ -262,8 +309,37 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int smallCacheSize, int normalCacheSize,
                                   boolean useCacheForAllThreads, int directMemoryCacheAlignment) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+             smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, AllocationTags.isEnabled());
+    }
+
+    /**
+     * @param allocationTags {@code true} if the direct buffers allocated by this allocator should be accounted per
+     *                       tag set via {@link AllocationTags}, which is exposed by
+     *                       {@link PooledByteBufAllocatorMetric#allocationTags()}
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  boolean allocationTags) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder,
+             smallCacheSize, normalCacheSize,
+             useCacheForAllThreads, directMemoryCacheAlignment, allocationTags, DEFAULT_SUBPAGE_POOL_STRIPES);
+    }
+
+    /**
+     * @param subpagePoolStripes the number of subpage pools per small size class of each arena, threads allocating
+     *                           the same size class are spread across them by their id to reduce contention on the
+     *                           arena. Must be a power of two.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int smallCacheSize, int normalCacheSize,
+                                  boolean useCacheForAllThreads, int directMemoryCacheAlignment,
+                                  boolean allocationTags, int subpagePoolStripes) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache(useCacheForAllThreads);
+        allocationTagsEnabled = allocationTags;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
         chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
@@ -281,6 +357,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                     + directMemoryCacheAlignment + " (expected: power of two)");
         }
 
+        checkPositive(subpagePoolStripes, "subpagePoolStripes");
+        if ((subpagePoolStripes & subpagePoolStripes - 1) != 0) {
+            throw new IllegalArgumentException("subpagePoolStripes: "
+                    + subpagePoolStripes + " (expected: power of two)");
+        }
+
         int pageShifts = validateAndCalculatePageShifts(pageSize);
 
         if (nHeapArena > 0) {
@@ -289,7 +371,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
             for (int i = 0; i < heapArenas.length; i ++) {
                 PoolArena.HeapArena arena = new PoolArena.HeapArena(this,
                         pageSize, pageShifts, chunkSize,
-                        directMemoryCacheAlignment);
+                        directMemoryCacheAlignment, subpagePoolStripes);
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -302,9 +384,12 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         if (nDirectArena > 0) {
             directArenas = newArenaArray(nDirectArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
+            HugePageMemory hugePageMemory = DEFAULT_HUGE_PAGE_DIRECTORY == null ?
+                    null : new HugePageMemory(DEFAULT_HUGE_PAGE_DIRECTORY);
             for (int i = 0; i < directArenas.length; i ++) {
                 PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment);
+                        this, pageSize, pageShifts, chunkSize, directMemoryCacheAlignment, hugePageMemory,
+                        subpagePoolStripes);
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
@@ -375,7 +460,11 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         final ByteBuf buf;
         if (directArena != null) {
-            buf = directArena.allocate(cache, initialCapacity, maxCapacity);
+            PooledByteBuf<ByteBuffer> pooledBuf = directArena.allocate(cache, initialCapacity, maxCapacity);
+            if (allocationTagsEnabled) {
+                tagAllocation(pooledBuf, AllocationTags.current());
+            }
+            buf = pooledBuf;
         } else {
             buf = PlatformDependent.hasUnsafe() ?
                     UnsafeByteBufUtil.newUnsafeDirectByteBuf(this, initialCapacity, maxCapacity) :
@@ -385,6 +474,50 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return toLeakAwareBuffer(buf);
     }
 
+    @Override
+    public void directBuffers(int count, int initialCapacity, ByteBuf[] out) {
+        PoolThreadCache cache = threadCache.get();
+        PoolArena<ByteBuffer> directArena = cache.directArena;
+        if (directArena == null || count <= 1 || initialCapacity == 0) {
+            super.directBuffers(count, initialCapacity, out);
+            return;
+        }
+        validate(count, initialCapacity, out);
+
+        directArena.allocate(cache, initialCapacity, DEFAULT_MAX_CAPACITY, out, count);
+        String tag = allocationTagsEnabled ? AllocationTags.current() : null;
+        for (int i = 0; i < count; i++) {
+            ByteBuf buf = out[i];
+            if (tag != null) {
+                @SuppressWarnings("unchecked")
+                PooledByteBuf<ByteBuffer> pooledBuf = (PooledByteBuf<ByteBuffer>) buf;
+                tagAllocation(pooledBuf, tag);
+            }
+            out[i] = toLeakAwareBuffer(buf);
+        }
+    }
+
+    void tagAllocation(PooledByteBuf<ByteBuffer> buf, String tag) {
+        if (tag == null) {
+            return;
+        }
+        AllocationTagCounter counter = allocationTags.get(tag);
+        if (counter == null) {
+            counter = new AllocationTagCounter(tag);
+            AllocationTagCounter old = allocationTags.putIfAbsent(tag, counter);
+            if (old != null) {
+                counter = old;
+            }
+        }
+        counter.allocate(buf.maxLength);
+        buf.allocationTag = counter;
+    }
+
+    List<AllocationTagMetric> allocationTagMetrics() {
+        return Collections.<AllocationTagMetric>unmodifiableList(
+                new ArrayList<AllocationTagCounter>(allocationTags.values()));
+    }
+
     /**
      * Default number of heap arenas - System Property: io.netty.allocator.numHeapArenas - default 2 * cores
      */
@@ -451,6 +584,42 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     * Default chunk decay time - System Property: io.netty.allocator.chunkDecayMillis - default 0 (disabled)
+     */
+    public static long defaultChunkDecayMillis() {
+        return DEFAULT_CHUNK_DECAY_MILLIS;
+    }
+
+    /**
+     * Return {@code true} if the chunks of the direct arenas are mapped from huge pages - System Property:
+     * io.netty.allocator.hugePageDirectory - default not set
+     */
+    public static boolean defaultUseHugePages() {
+        return DEFAULT_HUGE_PAGE_DIRECTORY != null;
+    }
+
+    /**
+     * Default event loop arena binding - System Property: io.netty.allocator.bindArenaToEventLoop - default false
+     */
+    public static boolean defaultBindArenaToEventLoop() {
+        return DEFAULT_BIND_ARENA_TO_EVENT_LOOP;
+    }
+
+    /**
+     * Default adaptive thread cache behavior - System Property: io.netty.allocator.adaptiveThreadCache - default false
+     */
+    public static boolean defaultAdaptiveThreadCache() {
+        return DEFAULT_ADAPTIVE_THREAD_CACHE;
+    }
+
+    /**
+     * Default number of subpage pool stripes - System Property: io.netty.allocator.subpagePoolStripes - default 1
+     */
+    public static int defaultSubpagePoolStripes() {
+        return DEFAULT_SUBPAGE_POOL_STRIPES;
+    }
+
     /**
      * Return {@code true} if direct memory cache alignment is supported, {@code false} otherwise.
      */
@@ -489,31 +658,87 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
+            final Thread current = Thread.currentThread();
+            // Only bind if we can be sure onRemoval(...) will be called once the event loop terminates.
+            final EventExecutor executor = ThreadExecutorMap.currentExecutor();
+            if (DEFAULT_BIND_ARENA_TO_EVENT_LOOP && executor != null &&
+                    FastThreadLocalThread.willCleanupFastThreadLocals(current)) {
+                final PoolArena<byte[]> heapArena = leastBoundArena(heapArenas);
+                final PoolArena<ByteBuffer> directArena = leastBoundArena(directArenas);
+                final PoolThreadCache cache = newThreadCache(heapArena, directArena);
+                if (heapArena != null) {
+                    heapArena.bindEventLoop(current, executor);
+                }
+                if (directArena != null) {
+                    directArena.bindEventLoop(current, executor);
+                }
+                cache.boundEventLoop = current;
+                return cache;
+            }
+
             final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
             final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
 
-            final Thread current = Thread.currentThread();
             if (useCacheForAllThreads || current instanceof FastThreadLocalThread) {
-                final PoolThreadCache cache = new PoolThreadCache(
-                        heapArena, directArena, smallCacheSize, normalCacheSize,
-                        DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
-
-                if (DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0) {
-                    final EventExecutor executor = ThreadExecutorMap.currentExecutor();
-                    if (executor != null) {
-                        executor.scheduleAtFixedRate(trimTask, DEFAULT_CACHE_TRIM_INTERVAL_MILLIS,
-                                DEFAULT_CACHE_TRIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
-                    }
-                }
-                return cache;
+                return newThreadCache(heapArena, directArena);
             }
             // No caching so just use 0 as sizes.
             return new PoolThreadCache(heapArena, directArena, 0, 0, 0, 0);
         }
 
+        private PoolThreadCache newThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena) {
+            final PoolThreadCache cache = new PoolThreadCache(
+                    heapArena, directArena, smallCacheSize, normalCacheSize,
+                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL, DEFAULT_ADAPTIVE_THREAD_CACHE);
+
+            // If only the chunk decay is configured we still need to trim periodically, so use it as interval.
+            final long trimIntervalMillis = DEFAULT_CACHE_TRIM_INTERVAL_MILLIS > 0 ?
+                    DEFAULT_CACHE_TRIM_INTERVAL_MILLIS : DEFAULT_CHUNK_DECAY_MILLIS;
+            if (trimIntervalMillis > 0) {
+                final EventExecutor executor = ThreadExecutorMap.currentExecutor();
+                if (executor != null) {
+                    executor.scheduleAtFixedRate(trimTask, trimIntervalMillis,
+                            trimIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            return cache;
+        }
+
         @Override
         protected void onRemoval(PoolThreadCache threadCache) {
             threadCache.free(false);
+            Thread eventLoop = threadCache.boundEventLoop;
+            if (eventLoop != null) {
+                if (threadCache.heapArena != null) {
+                    threadCache.heapArena.unbindEventLoop(eventLoop);
+                }
+                if (threadCache.directArena != null) {
+                    threadCache.directArena.unbindEventLoop(eventLoop);
+                }
+            }
+        }
+
+        /**
+         * Returns the arena with the least bound event loops, so each event loop gets its own arena if there are
+         * enough of them.
+         */
+        private <T> PoolArena<T> leastBoundArena(PoolArena<T>[] arenas) {
+            if (arenas == null || arenas.length == 0) {
+                return null;
+            }
+
+            PoolArena<T> minArena = arenas[0];
+            for (int i = 1; i < arenas.length; i++) {
+                PoolArena<T> arena = arenas[i];
+                int bound = arena.numBoundEventLoops;
+                int minBound = minArena.numBoundEventLoops;
+                if (bound < minBound ||
+                        bound == minBound && arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
+                    minArena = arena;
+                }
+            }
+
+            return minArena;
         }
 
         private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
@@ -646,6 +871,49 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         return usedMemory(directArenas);
     }
 
+    final long numThreadCacheHits(boolean direct, int sizeIdx) {
+        PoolArena<?>[] arenas = direct ? directArenas : heapArenas;
+        if (arenas == null) {
+            return 0;
+        }
+        long hits = 0;
+        for (PoolArena<?> arena : arenas) {
+            hits += arena.numThreadCacheHits(sizeIdx);
+        }
+        return hits;
+    }
+
+    final long numThreadCacheMisses(boolean direct, int sizeIdx) {
+        PoolArena<?>[] arenas = direct ? directArenas : heapArenas;
+        if (arenas == null) {
+            return 0;
+        }
+        long misses = 0;
+        for (PoolArena<?> arena : arenas) {
+            misses += arena.numThreadCacheMisses(sizeIdx);
+        }
+        return misses;
+    }
+
+    final long reclaimedHeapMemory() {
+        return reclaimedMemory(heapArenas);
+    }
+
+    final long reclaimedDirectMemory() {
+        return reclaimedMemory(directArenas);
+    }
+
+    private static long reclaimedMemory(PoolArena<?>[] arenas) {
+        if (arenas == null) {
+            return 0;
+        }
+        long reclaimed = 0;
+        for (PoolArena<?> arena : arenas) {
+            reclaimed += arena.numReclaimedBytes();
+        }
+        return reclaimed;
+    }
+
     private static long usedMemory(PoolArena<?>[] arenas) {
         if (arenas == null) {
             return -1;
@@ -676,11 +944,45 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
         PoolThreadCache cache = threadCache.getIfExists();
         if (cache != null) {
             cache.trim();
+            if (DEFAULT_CHUNK_DECAY_MILLIS > 0) {
+                // Now that the cached memory was given back to the arenas, release chunks that became idle.
+                long decayNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_CHUNK_DECAY_MILLIS);
+                if (cache.heapArena != null) {
+                    cache.heapArena.trimIdleChunks(decayNanos);
+                }
+                if (cache.directArena != null) {
+                    cache.directArena.trimIdleChunks(decayNanos);
+                }
+            }
             return true;
         }
         return false;
     }
 
+    /**
+     * Give back the memory of all chunks that did not serve any allocation for at least the given amount of time to
+     * the system. This can be used to shrink the pool after a traffic spike, for example from a periodic task.
+     * Memory that is still cached by the thread local caches is not considered, see
+     * {@link #trimCurrentThreadCache()}.
+     *
+     * Returns the number of bytes that were given back.
+     */
+    public long trimIdleChunks(long idleTime, TimeUnit unit) {
+        long decayNanos = unit.toNanos(checkPositiveOrZero(idleTime, "idleTime"));
+        return trimIdleChunks(heapArenas, decayNanos) + trimIdleChunks(directArenas, decayNanos);
+    }
+
+    private static long trimIdleChunks(PoolArena<?>[] arenas, long decayNanos) {
+        if (arenas == null) {
+            return 0;
+        }
+        long reclaimed = 0;
+        for (PoolArena<?> arena : arenas) {
+            reclaimed += arena.trimIdleChunks(decayNanos);
+        }
+        return reclaimed;
+    }
+
     /**
      * Returns the status of the allocator (which contains all metrics) as string. Be aware this may be expensive
      * and so should not called too frequently.
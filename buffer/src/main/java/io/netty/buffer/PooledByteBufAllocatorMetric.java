@@ -59,6 +59,15 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.directArenas();
     }
 
+    /**
+     * Return a {@link List} of the {@link AllocationTagMetric}s of all tags direct buffers were allocated with.
+     * This is always empty unless allocation tags were enabled for the allocator, which is the case by default if
+     * {@link AllocationTags#isEnabled()} returns {@code true}.
+     */
+    public List<AllocationTagMetric> allocationTags() {
+        return allocator.allocationTagMetrics();
+    }
+
     /**
      * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
      */
@@ -107,12 +116,53 @@ public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetri
         return allocator.usedDirectMemory();
     }
 
+    /**
+     * Return the number of allocations of the given size class that were served by the thread caches. Only counted
+     * if {@link PooledByteBufAllocator#defaultAdaptiveThreadCache()} is {@code true}, and updated every time a thread
+     * cache is trimmed.
+     *
+     * @param direct {@code true} for direct, {@code false} for heap allocations.
+     * @param sizeIdx the index of the size class, see {@link PoolArenaMetric#size2SizeIdx(int)}.
+     */
+    public long numThreadCacheHits(boolean direct, int sizeIdx) {
+        return allocator.numThreadCacheHits(direct, sizeIdx);
+    }
+
+    /**
+     * Return the number of allocations of the given size class that could not be served by the thread caches, even
+     * though a cache for the size class exists. Only counted if
+     * {@link PooledByteBufAllocator#defaultAdaptiveThreadCache()} is {@code true}, and updated every time a thread
+     * cache is trimmed.
+     *
+     * @param direct {@code true} for direct, {@code false} for heap allocations.
+     * @param sizeIdx the index of the size class, see {@link PoolArenaMetric#size2SizeIdx(int)}.
+     */
+    public long numThreadCacheMisses(boolean direct, int sizeIdx) {
+        return allocator.numThreadCacheMisses(direct, sizeIdx);
+    }
+
+    /**
+     * Return the number of heap bytes that were given back to the system because chunks stayed unused for too long.
+     */
+    public long reclaimedHeapMemory() {
+        return allocator.reclaimedHeapMemory();
+    }
+
+    /**
+     * Return the number of direct bytes that were given back to the system because chunks stayed unused for too long.
+     */
+    public long reclaimedDirectMemory() {
+        return allocator.reclaimedDirectMemory();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(256);
         sb.append(StringUtil.simpleClassName(this))
                 .append("(usedHeapMemory: ").append(usedHeapMemory())
                 .append("; usedDirectMemory: ").append(usedDirectMemory())
+                .append("; reclaimedHeapMemory: ").append(reclaimedHeapMemory())
+                .append("; reclaimedDirectMemory: ").append(reclaimedDirectMemory())
                 .append("; numHeapArenas: ").append(numHeapArenas())
                 .append("; numDirectArenas: ").append(numDirectArenas())
                 .append("; smallCacheSize: ").append(smallCacheSize())
@@ -0,0 +1,571 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.ObjectUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ScatteringByteChannel;
+
+/**
+ * A {@link ByteBuf} which stores its content in a fixed size backing buffer that is used as a ring, so the first
+ * index of this buffer may be located anywhere in the backing buffer and the content wraps around its end.
+ * <p>
+ * The benefit is that {@link #discardReadBytes()} and {@link #discardSomeReadBytes()} only move the start of the
+ * ring instead of copying the readable bytes to the start of the buffer, which makes it a good fit to cumulate the
+ * input of streaming decoders. Bytes which wrap around the end of the backing buffer are only copied if a single
+ * {@link ByteBuffer} is requested for them, for example via {@link #nioBuffer(int, int)}.
+ */
+public final class RingByteBuf extends AbstractReferenceCountedByteBuf {
+
+    private static final ByteBuffer EMPTY_NIO_BUFFER = Unpooled.EMPTY_BUFFER.nioBuffer();
+
+    private final ByteBufAllocator alloc;
+    private ByteBuf buffer;
+    // Capacity of the backing buffer, which is always the capacity of this buffer.
+    private int capacity;
+    // Index of the backing buffer which is index 0 of this buffer.
+    private int head;
+
+    /**
+     * Creates a new instance whose backing buffer of {@code initialCapacity} bytes is allocated by {@code alloc}.
+     */
+    public RingByteBuf(ByteBufAllocator alloc, int initialCapacity, int maxCapacity) {
+        super(maxCapacity);
+        this.alloc = ObjectUtil.checkNotNull(alloc, "alloc");
+        if (initialCapacity < 0 || initialCapacity > maxCapacity) {
+            throw new IllegalArgumentException(
+                    "initialCapacity: " + initialCapacity + " (expected: 0-" + maxCapacity + ')');
+        }
+        buffer = alloc.buffer(initialCapacity, initialCapacity);
+        capacity = initialCapacity;
+    }
+
+    // Translates an index of this buffer into an index of the backing buffer.
+    private int idx(int index) {
+        int i = head + index;
+        return i < capacity ? i : i - capacity;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public ByteBuf capacity(int newCapacity) {
+        checkNewCapacity(newCapacity);
+        if (newCapacity == capacity) {
+            return this;
+        }
+        ByteBuf newBuffer = buffer.isDirect() ? alloc.directBuffer(newCapacity, newCapacity)
+                                              : alloc.heapBuffer(newCapacity, newCapacity);
+        ByteBuf toRelease = newBuffer;
+        try {
+            getBytes(0, newBuffer, 0, Math.min(capacity, newCapacity));
+            toRelease = buffer;
+        } finally {
+            toRelease.release();
+        }
+        buffer = newBuffer;
+        capacity = newCapacity;
+        head = 0;
+        if (newCapacity < writerIndex()) {
+            trimIndicesToCapacity(newCapacity);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf discardReadBytes() {
+        if (readerIndex == 0) {
+            ensureAccessible();
+            return this;
+        }
+        ensureAccessible();
+        // The readable bytes stay where they are, only the start of the ring moves.
+        head = idx(readerIndex);
+        writerIndex -= readerIndex;
+        adjustMarkers(readerIndex);
+        readerIndex = 0;
+        return this;
+    }
+
+    @Override
+    public ByteBuf discardSomeReadBytes() {
+        // Discarding is cheap, so always discard everything.
+        return discardReadBytes();
+    }
+
+    @Override
+    public ByteBufAllocator alloc() {
+        return alloc;
+    }
+
+    @Override
+    public ByteOrder order() {
+        return ByteOrder.BIG_ENDIAN;
+    }
+
+    @Override
+    public ByteBuf unwrap() {
+        return null;
+    }
+
+    @Override
+    public boolean isDirect() {
+        return buffer.isDirect();
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public byte[] array() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean hasMemoryAddress() {
+        return false;
+    }
+
+    @Override
+    public long memoryAddress() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected byte _getByte(int index) {
+        return buffer.getByte(idx(index));
+    }
+
+    @Override
+    protected short _getShort(int index) {
+        int i = idx(index);
+        if (i <= capacity - 2) {
+            return buffer.getShort(i);
+        }
+        return (short) (_getByte(index) << 8 | _getByte(index + 1) & 0xff);
+    }
+
+    @Override
+    protected short _getShortLE(int index) {
+        int i = idx(index);
+        if (i <= capacity - 2) {
+            return buffer.getShortLE(i);
+        }
+        return (short) (_getByte(index) & 0xff | _getByte(index + 1) << 8);
+    }
+
+    @Override
+    protected int _getUnsignedMedium(int index) {
+        int i = idx(index);
+        if (i <= capacity - 3) {
+            return buffer.getUnsignedMedium(i);
+        }
+        return (_getByte(index) & 0xff) << 16 | (_getShort(index + 1) & 0xffff);
+    }
+
+    @Override
+    protected int _getUnsignedMediumLE(int index) {
+        int i = idx(index);
+        if (i <= capacity - 3) {
+            return buffer.getUnsignedMediumLE(i);
+        }
+        return _getByte(index) & 0xff | (_getShortLE(index + 1) & 0xffff) << 8;
+    }
+
+    @Override
+    protected int _getInt(int index) {
+        int i = idx(index);
+        if (i <= capacity - 4) {
+            return buffer.getInt(i);
+        }
+        return (_getShort(index) & 0xffff) << 16 | _getShort(index + 2) & 0xffff;
+    }
+
+    @Override
+    protected int _getIntLE(int index) {
+        int i = idx(index);
+        if (i <= capacity - 4) {
+            return buffer.getIntLE(i);
+        }
+        return _getShortLE(index) & 0xffff | (_getShortLE(index + 2) & 0xffff) << 16;
+    }
+
+    @Override
+    protected long _getLong(int index) {
+        int i = idx(index);
+        if (i <= capacity - 8) {
+            return buffer.getLong(i);
+        }
+        return (_getInt(index) & 0xffffffffL) << 32 | _getInt(index + 4) & 0xffffffffL;
+    }
+
+    @Override
+    protected long _getLongLE(int index) {
+        int i = idx(index);
+        if (i <= capacity - 8) {
+            return buffer.getLongLE(i);
+        }
+        return _getIntLE(index) & 0xffffffffL | (_getIntLE(index + 4) & 0xffffffffL) << 32;
+    }
+
+    @Override
+    protected void _setByte(int index, int value) {
+        buffer.setByte(idx(index), value);
+    }
+
+    @Override
+    protected void _setShort(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 2) {
+            buffer.setShort(i, value);
+        } else {
+            _setByte(index, value >>> 8);
+            _setByte(index + 1, value);
+        }
+    }
+
+    @Override
+    protected void _setShortLE(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 2) {
+            buffer.setShortLE(i, value);
+        } else {
+            _setByte(index, value);
+            _setByte(index + 1, value >>> 8);
+        }
+    }
+
+    @Override
+    protected void _setMedium(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 3) {
+            buffer.setMedium(i, value);
+        } else {
+            _setByte(index, value >>> 16);
+            _setShort(index + 1, value);
+        }
+    }
+
+    @Override
+    protected void _setMediumLE(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 3) {
+            buffer.setMediumLE(i, value);
+        } else {
+            _setByte(index, value);
+            _setShortLE(index + 1, value >>> 8);
+        }
+    }
+
+    @Override
+    protected void _setInt(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 4) {
+            buffer.setInt(i, value);
+        } else {
+            _setShort(index, value >>> 16);
+            _setShort(index + 2, value);
+        }
+    }
+
+    @Override
+    protected void _setIntLE(int index, int value) {
+        int i = idx(index);
+        if (i <= capacity - 4) {
+            buffer.setIntLE(i, value);
+        } else {
+            _setShortLE(index, value);
+            _setShortLE(index + 2, value >>> 16);
+        }
+    }
+
+    @Override
+    protected void _setLong(int index, long value) {
+        int i = idx(index);
+        if (i <= capacity - 8) {
+            buffer.setLong(i, value);
+        } else {
+            _setInt(index, (int) (value >>> 32));
+            _setInt(index + 4, (int) value);
+        }
+    }
+
+    @Override
+    protected void _setLongLE(int index, long value) {
+        int i = idx(index);
+        if (i <= capacity - 8) {
+            buffer.setLongLE(i, value);
+        } else {
+            _setIntLE(index, (int) value);
+            _setIntLE(index + 4, (int) (value >>> 32));
+        }
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.capacity());
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        buffer.getBytes(i, dst, dstIndex, first);
+        if (first < length) {
+            buffer.getBytes(0, dst, dstIndex + first, length - first);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, byte[] dst, int dstIndex, int length) {
+        checkDstIndex(index, length, dstIndex, dst.length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        buffer.getBytes(i, dst, dstIndex, first);
+        if (first < length) {
+            buffer.getBytes(0, dst, dstIndex + first, length - first);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, ByteBuffer dst) {
+        int length = dst.remaining();
+        checkIndex(index, length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        int limit = dst.limit();
+        try {
+            dst.limit(dst.position() + first);
+            buffer.getBytes(i, dst);
+        } finally {
+            dst.limit(limit);
+        }
+        if (first < length) {
+            buffer.getBytes(0, dst);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf getBytes(int index, OutputStream out, int length) throws IOException {
+        checkIndex(index, length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        buffer.getBytes(i, out, first);
+        if (first < length) {
+            buffer.getBytes(0, out, length - first);
+        }
+        return this;
+    }
+
+    @Override
+    public int getBytes(int index, GatheringByteChannel out, int length) throws IOException {
+        checkIndex(index, length);
+        int i = idx(index);
+        if (i <= capacity - length) {
+            return buffer.getBytes(i, out, length);
+        }
+        long writtenBytes = out.write(nioBuffers(index, length));
+        return (int) Math.min(writtenBytes, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getBytes(int index, FileChannel out, long position, int length) throws IOException {
+        checkIndex(index, length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        int writtenBytes = buffer.getBytes(i, out, position, first);
+        if (writtenBytes == first && first < length) {
+            writtenBytes += buffer.getBytes(0, out, position + first, length - first);
+        }
+        return writtenBytes;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuf src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.capacity());
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        buffer.setBytes(i, src, srcIndex, first);
+        if (first < length) {
+            buffer.setBytes(0, src, srcIndex + first, length - first);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, byte[] src, int srcIndex, int length) {
+        checkSrcIndex(index, length, srcIndex, src.length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        buffer.setBytes(i, src, srcIndex, first);
+        if (first < length) {
+            buffer.setBytes(0, src, srcIndex + first, length - first);
+        }
+        return this;
+    }
+
+    @Override
+    public ByteBuf setBytes(int index, ByteBuffer src) {
+        int length = src.remaining();
+        checkIndex(index, length);
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        int limit = src.limit();
+        try {
+            src.limit(src.position() + first);
+            buffer.setBytes(i, src);
+        } finally {
+            src.limit(limit);
+        }
+        if (first < length) {
+            buffer.setBytes(0, src);
+        }
+        return this;
+    }
+
+    @Override
+    public int setBytes(int index, InputStream in, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EmptyArrays.EMPTY_BYTES);
+        }
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        int readBytes = buffer.setBytes(i, in, first);
+        if (readBytes == first && first < length) {
+            int localReadBytes = buffer.setBytes(0, in, length - first);
+            if (localReadBytes > 0) {
+                readBytes += localReadBytes;
+            }
+        }
+        return readBytes;
+    }
+
+    @Override
+    public int setBytes(int index, ScatteringByteChannel in, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EMPTY_NIO_BUFFER);
+        }
+        int i = idx(index);
+        if (i <= capacity - length) {
+            return buffer.setBytes(i, in, length);
+        }
+        // The buffers returned by nioBuffers(...) share the content of the backing buffer as the range wraps around.
+        long readBytes = in.read(nioBuffers(index, length));
+        return (int) Math.min(readBytes, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int setBytes(int index, FileChannel in, long position, int length) throws IOException {
+        checkIndex(index, length);
+        if (length == 0) {
+            return in.read(EMPTY_NIO_BUFFER, position);
+        }
+        int i = idx(index);
+        int first = Math.min(length, capacity - i);
+        int readBytes = buffer.setBytes(i, in, position, first);
+        if (readBytes == first && first < length) {
+            int localReadBytes = buffer.setBytes(0, in, position + first, length - first);
+            if (localReadBytes > 0) {
+                readBytes += localReadBytes;
+            }
+        }
+        return readBytes;
+    }
+
+    @Override
+    public ByteBuf copy(int index, int length) {
+        checkIndex(index, length);
+        ByteBuf copy = alloc.buffer(length, maxCapacity());
+        boolean release = true;
+        try {
+            copy.writeBytes(this, index, length);
+            release = false;
+            return copy;
+        } finally {
+            if (release) {
+                copy.release();
+            }
+        }
+    }
+
+    @Override
+    public int nioBufferCount() {
+        // Once the start of the ring moved, ranges of this buffer may wrap around the end of the backing buffer.
+        return head == 0 ? 1 : 2;
+    }
+
+    @Override
+    public ByteBuffer nioBuffer(int index, int length) {
+        checkIndex(index, length);
+        int i = idx(index);
+        if (i <= capacity - length) {
+            return buffer.nioBuffer(i, length);
+        }
+        // The range wraps around, so merge both parts into a new buffer.
+        ByteBuffer merged = ByteBuffer.allocate(length).order(order());
+        getBytes(index, merged);
+        merged.flip();
+        return merged;
+    }
+
+    @Override
+    public ByteBuffer internalNioBuffer(int index, int length) {
+        checkIndex(index, length);
+        int i = idx(index);
+        if (i <= capacity - length) {
+            return buffer.internalNioBuffer(i, length);
+        }
+        // Like CompositeByteBuf a range which spans more than one buffer is not supported, callers check
+        // nioBufferCount() and use nioBuffers(int, int) instead.
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ByteBuffer[] nioBuffers(int index, int length) {
+        checkIndex(index, length);
+        int i = idx(index);
+        int first = capacity - i;
+        if (first >= length) {
+            return new ByteBuffer[] { buffer.nioBuffer(i, length) };
+        }
+        return new ByteBuffer[] { buffer.nioBuffer(i, first), buffer.nioBuffer(0, length - first) };
+    }
+
+    @Override
+    protected void deallocate() {
+        buffer.release();
+    }
+}
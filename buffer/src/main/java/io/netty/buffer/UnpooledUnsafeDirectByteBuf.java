@@ -155,6 +155,42 @@ public class UnpooledUnsafeDirectByteBuf extends UnpooledDirectByteBuf {
         return UnsafeByteBufUtil.getLongLE(addr(index));
     }
 
+    @Override
+    public ByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        UnsafeByteBufUtil.getShorts(this, addr(index), index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        UnsafeByteBufUtil.setShorts(this, addr(index), index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        UnsafeByteBufUtil.getInts(this, addr(index), index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        UnsafeByteBufUtil.setInts(this, addr(index), index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        UnsafeByteBufUtil.getLongs(this, addr(index), index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        UnsafeByteBufUtil.setLongs(this, addr(index), index, src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public ByteBuf getBytes(int index, ByteBuf dst, int dstIndex, int length) {
         UnsafeByteBufUtil.getBytes(this, addr(index), index, dst, dstIndex, length);
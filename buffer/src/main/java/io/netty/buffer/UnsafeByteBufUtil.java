@@ -477,6 +477,48 @@ final class UnsafeByteBufUtil {
         }
     }
 
+    static void getShorts(AbstractByteBuf buf, long addr, int index, short[] dst, int dstIndex, int length) {
+        buf.checkBulkIndex(index, length, 1, "dstIndex", dstIndex, dst.length);
+        for (int i = dstIndex, end = dstIndex + length; i < end; i++, addr += 2) {
+            dst[i] = getShort(addr);
+        }
+    }
+
+    static void setShorts(AbstractByteBuf buf, long addr, int index, short[] src, int srcIndex, int length) {
+        buf.checkBulkIndex(index, length, 1, "srcIndex", srcIndex, src.length);
+        for (int i = srcIndex, end = srcIndex + length; i < end; i++, addr += 2) {
+            setShort(addr, src[i]);
+        }
+    }
+
+    static void getInts(AbstractByteBuf buf, long addr, int index, int[] dst, int dstIndex, int length) {
+        buf.checkBulkIndex(index, length, 2, "dstIndex", dstIndex, dst.length);
+        for (int i = dstIndex, end = dstIndex + length; i < end; i++, addr += 4) {
+            dst[i] = getInt(addr);
+        }
+    }
+
+    static void setInts(AbstractByteBuf buf, long addr, int index, int[] src, int srcIndex, int length) {
+        buf.checkBulkIndex(index, length, 2, "srcIndex", srcIndex, src.length);
+        for (int i = srcIndex, end = srcIndex + length; i < end; i++, addr += 4) {
+            setInt(addr, src[i]);
+        }
+    }
+
+    static void getLongs(AbstractByteBuf buf, long addr, int index, long[] dst, int dstIndex, int length) {
+        buf.checkBulkIndex(index, length, 3, "dstIndex", dstIndex, dst.length);
+        for (int i = dstIndex, end = dstIndex + length; i < end; i++, addr += 8) {
+            dst[i] = getLong(addr);
+        }
+    }
+
+    static void setLongs(AbstractByteBuf buf, long addr, int index, long[] src, int srcIndex, int length) {
+        buf.checkBulkIndex(index, length, 3, "srcIndex", srcIndex, src.length);
+        for (int i = srcIndex, end = srcIndex + length; i < end; i++, addr += 8) {
+            setLong(addr, src[i]);
+        }
+    }
+
     static void getBytes(AbstractByteBuf buf, long addr, int index, byte[] dst, int dstIndex, int length) {
         buf.checkIndex(index, length);
         checkNotNull(dst, "dst");
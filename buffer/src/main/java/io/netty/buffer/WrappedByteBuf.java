@@ -352,6 +352,24 @@ class WrappedByteBuf extends ByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        buf.getShorts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        buf.getInts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        buf.getLongs(index, dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public ByteBuf getBytes(int index, ByteBuffer dst) {
         buf.getBytes(index, dst);
@@ -487,6 +505,24 @@ class WrappedByteBuf extends ByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        buf.setShorts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        buf.setInts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        buf.setLongs(index, src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public ByteBuf setBytes(int index, ByteBuffer src) {
         buf.setBytes(index, src);
@@ -664,6 +700,24 @@ class WrappedByteBuf extends ByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        buf.readShorts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf readInts(int[] dst, int dstIndex, int length) {
+        buf.readInts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        buf.readLongs(dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public ByteBuf readBytes(ByteBuffer dst) {
         buf.readBytes(dst);
@@ -805,6 +859,24 @@ class WrappedByteBuf extends ByteBuf {
         return this;
     }
 
+    @Override
+    public ByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        buf.writeShorts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeInts(int[] src, int srcIndex, int length) {
+        buf.writeInts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public ByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        buf.writeLongs(src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public ByteBuf writeBytes(ByteBuffer src) {
         buf.writeBytes(src);
@@ -708,6 +708,24 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return this;
     }
 
+    @Override
+    public CompositeByteBuf getShorts(int index, short[] dst, int dstIndex, int length) {
+        wrapped.getShorts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf getInts(int index, int[] dst, int dstIndex, int length) {
+        wrapped.getInts(index, dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf getLongs(int index, long[] dst, int dstIndex, int length) {
+        wrapped.getLongs(index, dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf getBytes(int index, ByteBuffer dst) {
         wrapped.getBytes(index, dst);
@@ -812,6 +830,24 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return this;
     }
 
+    @Override
+    public CompositeByteBuf setShorts(int index, short[] src, int srcIndex, int length) {
+        wrapped.setShorts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf setInts(int index, int[] src, int srcIndex, int length) {
+        wrapped.setInts(index, src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf setLongs(int index, long[] src, int srcIndex, int length) {
+        wrapped.setLongs(index, src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf setBytes(int index, ByteBuffer src) {
         wrapped.setBytes(index, src);
@@ -1058,6 +1094,24 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return this;
     }
 
+    @Override
+    public CompositeByteBuf readShorts(short[] dst, int dstIndex, int length) {
+        wrapped.readShorts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf readInts(int[] dst, int dstIndex, int length) {
+        wrapped.readInts(dst, dstIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf readLongs(long[] dst, int dstIndex, int length) {
+        wrapped.readLongs(dst, dstIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf readBytes(ByteBuffer dst) {
         wrapped.readBytes(dst);
@@ -1215,6 +1269,24 @@ class WrappedCompositeByteBuf extends CompositeByteBuf {
         return this;
     }
 
+    @Override
+    public CompositeByteBuf writeShorts(short[] src, int srcIndex, int length) {
+        wrapped.writeShorts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf writeInts(int[] src, int srcIndex, int length) {
+        wrapped.writeInts(src, srcIndex, length);
+        return this;
+    }
+
+    @Override
+    public CompositeByteBuf writeLongs(long[] src, int srcIndex, int length) {
+        wrapped.writeLongs(src, srcIndex, length);
+        return this;
+    }
+
     @Override
     public CompositeByteBuf writeBytes(ByteBuffer src) {
         wrapped.writeBytes(src);
@@ -18,7 +18,11 @@ package io.netty.buffer;
 import io.netty.util.internal.PlatformDependent;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -134,6 +138,47 @@ public abstract class AbstractByteBufAllocatorTest<T extends AbstractByteBufAllo
         assertEquals(expectedUsedMemoryAfterRelease(allocator, capacity), metric.usedHeapMemory());
     }
 
+    @Test
+    public void testDirectBuffersReleasesAllocatedBuffersOnFailure() {
+        final List<ByteBuf> allocated = new ArrayList<ByteBuf>();
+        AbstractByteBufAllocator allocator = new AbstractByteBufAllocator() {
+            @Override
+            protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+                if (allocated.size() == 2) {
+                    throw new OutOfMemoryError();
+                }
+                ByteBuf buf = new UnpooledHeapByteBuf(UnpooledByteBufAllocator.DEFAULT, initialCapacity, maxCapacity);
+                allocated.add(buf);
+                return buf;
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        };
+
+        ByteBuf[] out = new ByteBuf[4];
+        try {
+            allocator.directBuffers(out.length, 16, out);
+            fail();
+        } catch (OutOfMemoryError expected) {
+            // expected
+        }
+        assertEquals(2, allocated.size());
+        for (ByteBuf buf : allocated) {
+            assertEquals(0, buf.refCnt());
+        }
+        for (ByteBuf buf : out) {
+            assertNull(buf);
+        }
+    }
+
     protected long expectedUsedMemory(T allocator, int capacity) {
         return capacity;
     }
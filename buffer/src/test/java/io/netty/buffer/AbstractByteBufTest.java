@@ -631,6 +631,69 @@ public abstract class AbstractByteBufTest {
         testRandomIntAccess(true);
     }
 
+    @Test
+    public void testBulkIntAccess() {
+        int[] values = new int[buffer.capacity() / 4 - 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt();
+        }
+        buffer.setInts(4, values, 0, values.length);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(values[i], buffer.getInt(4 + i * 4));
+        }
+        int[] read = new int[values.length + 1];
+        buffer.getInts(4, read, 1, values.length);
+        assertEquals(0, read[0]);
+        assertArrayEquals(values, Arrays.copyOfRange(read, 1, read.length));
+
+        buffer.clear();
+        buffer.writeInts(values, 0, values.length);
+        assertEquals(values.length * 4, buffer.writerIndex());
+        int[] readInts = new int[values.length];
+        buffer.readInts(readInts, 0, values.length);
+        assertEquals(values.length * 4, buffer.readerIndex());
+        assertArrayEquals(values, readInts);
+    }
+
+    @Test
+    public void testBulkShortAndLongAccess() {
+        short[] shorts = new short[buffer.capacity() / 2];
+        long[] longs = new long[buffer.capacity() / 8];
+        for (int i = 0; i < shorts.length; i++) {
+            shorts[i] = (short) random.nextInt();
+        }
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = random.nextLong();
+        }
+
+        buffer.clear();
+        buffer.writeShorts(shorts, 0, shorts.length);
+        short[] readShorts = new short[shorts.length];
+        buffer.getShorts(0, readShorts, 0, shorts.length);
+        assertArrayEquals(shorts, readShorts);
+        assertEquals(shorts[1], buffer.getShort(2));
+
+        buffer.clear();
+        buffer.setLongs(0, longs, 0, longs.length);
+        buffer.writerIndex(longs.length * 8);
+        long[] readLongs = new long[longs.length];
+        buffer.readLongs(readLongs, 0, longs.length);
+        assertArrayEquals(longs, readLongs);
+        assertEquals(longs[1], buffer.getLong(8));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetIntsOutOfBounds() {
+        buffer.getInts(buffer.capacity() - 4, new int[2], 0, 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testReadLongsNotReadable() {
+        buffer.clear();
+        buffer.writeLong(1);
+        buffer.readLongs(new long[2], 0, 2);
+    }
+
     @Test
     public void testRandomIntLEAccess() {
         testRandomIntAccess(false);
@@ -2157,6 +2220,25 @@ public abstract class AbstractByteBufTest {
         assertEquals(0, buffer.indexOf(-1, buffer.capacity(), (byte) 1));
     }
 
+    @Test
+    public void testIndexOfAllPositions() {
+        int length = Math.min(buffer.capacity(), 100);
+        buffer.clear();
+        for (int i = 0; i < length; i++) {
+            // Use bytes with the highest bit set as well, as those are the tricky ones for SWAR.
+            buffer.writeByte(i % 2 == 0 ? 0x80 | i : i);
+        }
+        for (int from = 0; from < length; from++) {
+            for (int i = from; i < length; i++) {
+                byte value = buffer.getByte(i);
+                assertEquals(i, buffer.indexOf(from, length, value));
+                assertEquals(i, ByteBufUtil.indexOf(buffer, from, length, value));
+                assertEquals(-1, buffer.indexOf(from, i, value));
+            }
+            assertEquals(-1, buffer.indexOf(from, length, (byte) 0x7F));
+        }
+    }
+
     @Test
     public void testIndexOfReleaseBuffer() {
         ByteBuf buffer = releasedBuffer();
@@ -36,6 +36,111 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class ByteBufUtilTest {
+    @Test
+    public void testVarInt32() {
+        int[] values = { 0, 1, 127, 128, 16383, 16384, 2097151, 2097152, 268435455, 268435456,
+                Integer.MAX_VALUE, -1, Integer.MIN_VALUE };
+        int[] sizes = { 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 5, 5 };
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(sizes[i], ByteBufUtil.varInt32Size(values[i]));
+                assertEquals(sizes[i], ByteBufUtil.writeVarInt32(buf, values[i]));
+                assertEquals(sizes[i], buf.readableBytes());
+                assertEquals(values[i], ByteBufUtil.readVarInt32(buf));
+                assertFalse(buf.isReadable());
+                buf.clear();
+            }
+            // 300 is encoded as 0xAC 0x02
+            ByteBufUtil.writeVarInt32(buf, 300);
+            assertEquals((byte) 0xAC, buf.getByte(0));
+            assertEquals((byte) 0x02, buf.getByte(1));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testVarInt32LittleEndian() {
+        int[] values = { 1, 300, 16383, 16384, Integer.MAX_VALUE };
+        ByteBuf buf = Unpooled.buffer().order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            for (int value : values) {
+                ByteBufUtil.writeVarInt32(buf, value);
+                assertEquals(value, ByteBufUtil.readVarInt32(buf));
+                assertFalse(buf.isReadable());
+                buf.clear();
+            }
+            // The byte order of the buffer does not change the encoding of 300, which is 0xAC 0x02.
+            ByteBufUtil.writeVarInt32(buf, 300);
+            assertEquals((byte) 0xAC, buf.getByte(0));
+            assertEquals((byte) 0x02, buf.getByte(1));
+            buf.clear();
+            ByteBufUtil.writeVarInt64(buf, 300);
+            assertEquals((byte) 0xAC, buf.getByte(0));
+            assertEquals((byte) 0x02, buf.getByte(1));
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testVarInt64() {
+        long[] values = { 0, 1, 127, 128, 1L << 35, (1L << 56) - 1, 1L << 56, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+        int[] sizes = { 1, 1, 1, 2, 6, 8, 9, 9, 10, 10 };
+        ByteBuf buf = Unpooled.buffer();
+        try {
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(sizes[i], ByteBufUtil.varInt64Size(values[i]));
+                assertEquals(sizes[i], ByteBufUtil.writeVarInt64(buf, values[i]));
+                assertEquals(values[i], ByteBufUtil.readVarInt64(buf));
+                assertFalse(buf.isReadable());
+                buf.clear();
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testReadTruncatedVarInt() {
+        ByteBuf buf = Unpooled.buffer(16);
+        try {
+            buf.writeByte(0x80).writeByte(0x80);
+            try {
+                ByteBufUtil.readVarInt32(buf);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+                assertEquals(0, buf.readerIndex());
+            }
+            buf.writeBytes(new byte[] { (byte) 0x80, (byte) 0x80, (byte) 0x80, 0 });
+            try {
+                ByteBufUtil.readVarInt32(buf);
+                fail();
+            } catch (IllegalArgumentException expected) {
+                assertEquals(0, buf.readerIndex());
+            }
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testZigZag() {
+        assertEquals(0, ByteBufUtil.encodeZigZag32(0));
+        assertEquals(1, ByteBufUtil.encodeZigZag32(-1));
+        assertEquals(2, ByteBufUtil.encodeZigZag32(1));
+        assertEquals(-1, ByteBufUtil.encodeZigZag32(Integer.MIN_VALUE));
+        assertEquals(3L, ByteBufUtil.encodeZigZag64(-2L));
+        assertEquals(-1L, ByteBufUtil.encodeZigZag64(Long.MIN_VALUE));
+        for (int value : new int[] { 0, 1, -1, 12345, -12345, Integer.MAX_VALUE, Integer.MIN_VALUE }) {
+            assertEquals(value, ByteBufUtil.decodeZigZag32(ByteBufUtil.encodeZigZag32(value)));
+            assertEquals(value, ByteBufUtil.decodeZigZag64(ByteBufUtil.encodeZigZag64(value)));
+        }
+        assertEquals(Long.MAX_VALUE, ByteBufUtil.decodeZigZag64(ByteBufUtil.encodeZigZag64(Long.MAX_VALUE)));
+    }
+
     @Test
     public void decodeRandomHexBytesWithEvenLength() {
         decodeRandomHexBytes(256);
@@ -625,6 +730,62 @@ public class ByteBufUtilTest {
         testDecodeString("Some UTF-8 like äÄ∏ŒŒ", CharsetUtil.UTF_8);
     }
 
+    @Test
+    public void testWriteAndDecodeUtf8NonAsciiAtEachPosition() {
+        for (int length = 1; length < 40; length++) {
+            for (int position = 0; position < length; position++) {
+                StringBuilder sb = new StringBuilder(length);
+                for (int i = 0; i < length; i++) {
+                    sb.append((char) ('a' + i % 26));
+                }
+                sb.setCharAt(position, 'ä');
+                String text = sb.toString();
+                byte[] expected = text.getBytes(CharsetUtil.UTF_8);
+
+                ByteBuf heap = Unpooled.buffer(length);
+                ByteBuf direct = Unpooled.directBuffer(length);
+                ByteBuf asciiString = Unpooled.buffer(length);
+                try {
+                    assertEquals(expected.length, ByteBufUtil.writeUtf8(heap, text));
+                    assertEquals(expected.length, ByteBufUtil.writeUtf8(direct, text));
+                    assertEquals(expected.length, ByteBufUtil.writeUtf8(asciiString, new AsciiString(text)));
+                    assertEquals(Unpooled.wrappedBuffer(expected), heap);
+                    assertEquals(Unpooled.wrappedBuffer(expected), direct);
+                    assertEquals(Unpooled.wrappedBuffer(expected), asciiString);
+
+                    assertEquals(text, ByteBufUtil.decodeString(heap, 0, heap.readableBytes(), CharsetUtil.UTF_8));
+                    assertEquals(text, ByteBufUtil.decodeString(direct, 0, direct.readableBytes(), CharsetUtil.UTF_8));
+                    assertFalse(ByteBufUtil.isText(heap, CharsetUtil.US_ASCII));
+                    assertFalse(ByteBufUtil.isText(direct, CharsetUtil.US_ASCII));
+                } finally {
+                    heap.release();
+                    direct.release();
+                    asciiString.release();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testWriteAndDecodeUtf8Ascii() {
+        String text = "GET /some/path?foo=bar&wibble=eek HTTP/1.1";
+        ByteBuf heap = Unpooled.buffer(text.length());
+        ByteBuf direct = Unpooled.directBuffer(text.length());
+        try {
+            ByteBufUtil.writeUtf8(heap, text);
+            ByteBufUtil.writeUtf8(direct, new AsciiString(text));
+            assertEquals(Unpooled.wrappedBuffer(text.getBytes(CharsetUtil.US_ASCII)), heap);
+            assertEquals(heap, direct);
+            assertEquals(text, ByteBufUtil.decodeString(heap, 0, heap.readableBytes(), CharsetUtil.UTF_8));
+            assertEquals(text, ByteBufUtil.decodeString(direct, 0, direct.readableBytes(), CharsetUtil.UTF_8));
+            assertTrue(ByteBufUtil.isText(heap, CharsetUtil.US_ASCII));
+            assertTrue(ByteBufUtil.isText(direct, CharsetUtil.US_ASCII));
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+
     private static void testDecodeString(String text, Charset charset) {
         ByteBuf buffer = Unpooled.copiedBuffer(text, charset);
         assertEquals(text, ByteBufUtil.decodeString(buffer, 0, buffer.readableBytes(), charset));
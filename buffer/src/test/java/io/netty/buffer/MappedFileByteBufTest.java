@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.CharsetUtil;
+import io.netty.util.IllegalReferenceCountException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedFileByteBufTest {
+
+    private static final String CONTENT = "Netty is an asynchronous event-driven network application framework.";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("netty-", ".tmp");
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(CONTENT.getBytes(CharsetUtil.US_ASCII));
+        } finally {
+            out.close();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testMapWholeFile() throws IOException {
+        MappedFileCache cache = new MappedFileCache(1);
+        MappedFileByteBuf buf = cache.map(file);
+        try {
+            assertEquals(CONTENT, buf.toString(CharsetUtil.US_ASCII));
+            assertEquals(file.getCanonicalFile(), buf.file());
+            assertEquals(0, buf.fileOffset());
+            assertTrue(buf.isReadOnly());
+            assertTrue(buf.isDirect());
+            assertFalse(buf.isWritable());
+        } finally {
+            buf.release();
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testMapRegion() throws IOException {
+        MappedFileCache cache = new MappedFileCache(1);
+        MappedFileByteBuf buf = cache.map(file, 12, 12);
+        try {
+            assertEquals("asynchronous", buf.toString(CharsetUtil.US_ASCII));
+            assertEquals(12, buf.fileOffset());
+        } finally {
+            buf.release();
+            cache.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMapRegionExceedingFile() throws IOException {
+        MappedFileCache cache = new MappedFileCache(1);
+        try {
+            cache.map(file, 1, CONTENT.length());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testWriteNotAllowed() throws IOException {
+        MappedFileCache cache = new MappedFileCache(1);
+        MappedFileByteBuf buf = cache.map(file);
+        try {
+            buf.setByte(0, 1);
+        } finally {
+            buf.release();
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testSliceSharesReferenceCount() throws IOException {
+        MappedFileCache cache = new MappedFileCache(0);
+        MappedFileByteBuf buf = cache.map(file);
+        ByteBuf slice = buf.retainedSlice(0, 5);
+        assertEquals("Netty", slice.toString(CharsetUtil.US_ASCII));
+        assertFalse(buf.release());
+        assertEquals(1, cache.mappedRegions());
+
+        assertTrue(slice.release());
+        assertEquals(0, cache.mappedRegions());
+        try {
+            buf.getByte(0);
+            fail();
+        } catch (IllegalReferenceCountException expected) {
+            // expected
+        }
+        cache.close();
+    }
+
+    @Test
+    public void testMappingsAreShared() throws IOException {
+        MappedFileCache cache = new MappedFileCache(1);
+        MappedFileByteBuf buf = cache.map(file);
+        MappedFileByteBuf buf2 = cache.map(file);
+        MappedFileByteBuf region = cache.map(file, 0, 5);
+        assertEquals(2, cache.mappedRegions());
+        assertEquals(0, cache.idleRegions());
+
+        assertTrue(buf.release());
+        assertEquals(0, cache.idleRegions());
+        assertTrue(buf2.release());
+        assertEquals(1, cache.idleRegions());
+
+        // The idle mapping is reused.
+        buf = cache.map(file);
+        assertEquals(0, cache.idleRegions());
+        assertEquals(2, cache.mappedRegions());
+        assertEquals(CONTENT, buf.toString(CharsetUtil.US_ASCII));
+        assertTrue(buf.release());
+
+        // Only one idle mapping is kept, so the least recently released one is unmapped.
+        assertTrue(region.release());
+        assertEquals(1, cache.idleRegions());
+        assertEquals(1, cache.mappedRegions());
+
+        cache.close();
+        assertEquals(0, cache.mappedRegions());
+    }
+
+    @Test
+    public void testCloseUnmapsOnRelease() throws IOException {
+        MappedFileCache cache = new MappedFileCache(4);
+        MappedFileByteBuf buf = cache.map(file);
+        cache.close();
+        assertEquals(1, cache.mappedRegions());
+        assertEquals(CONTENT, buf.toString(CharsetUtil.US_ASCII));
+        assertTrue(buf.release());
+        assertEquals(0, cache.mappedRegions());
+        try {
+            cache.map(file);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}
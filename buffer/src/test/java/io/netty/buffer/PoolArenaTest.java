@@ -20,7 +20,12 @@ import io.netty.util.internal.PlatformDependent;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.junit.Assert.*;
 import static org.junit.Assume.*;
@@ -162,6 +167,192 @@ public class PoolArenaTest {
         Assert.assertEquals(1, metric.numNormalAllocations());
     }
 
+    @Test
+    public void testHugePageMemoryChunk() throws Exception {
+        // A regular directory can be used the same way as a hugetlbfs mount, the mapping is just not backed by huge
+        // pages then.
+        File dir = File.createTempFile("netty-hugepages", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+        try {
+            PoolArena.DirectArena arena = new PoolArena.DirectArena(null, 8192, 13, 8192 << 5, 0,
+                    new HugePageMemory(dir));
+            PoolThreadCache cache = new PoolThreadCache(null, arena, 0, 0, 0, 0);
+            long usedDirectMemory = PlatformDependent.usedDirectMemory();
+            // Use a size big enough to move the chunk out of qInit, so it is destroyed once the buffer was released.
+            PooledByteBuf<ByteBuffer> buf = arena.allocate(cache, 64 * 1024, 64 * 1024);
+            assertTrue(buf.chunk.hugePages);
+            buf.writeLong(42);
+            assertEquals(42, buf.readLong());
+            if (usedDirectMemory >= 0) {
+                // The mapped chunk is counted against the direct memory limit.
+                assertEquals(usedDirectMemory + (8192 << 5), PlatformDependent.usedDirectMemory());
+            }
+
+            // The backing file is removed directly after mapping it.
+            String[] files = dir.list();
+            assertNotNull(files);
+            assertEquals(0, files.length);
+            assertTrue(buf.release());
+            cache.free(false);
+            if (usedDirectMemory >= 0) {
+                assertEquals(usedDirectMemory, PlatformDependent.usedDirectMemory());
+            }
+        } finally {
+            assertTrue(dir.delete());
+        }
+    }
+
+    @Test
+    public void testHugePageMemoryFallback() {
+        PoolArena.DirectArena arena = new PoolArena.DirectArena(null, 8192, 13, 8192 << 5, 0,
+                new HugePageMemory(new File("does-not-exist")));
+        PoolThreadCache cache = new PoolThreadCache(null, arena, 0, 0, 0, 0);
+        PooledByteBuf<ByteBuffer> buf = arena.allocate(cache, 1024, 1024);
+        assertFalse(buf.chunk.hugePages);
+        assertTrue(buf.release());
+        cache.free(false);
+    }
+
+    @Test
+    public void testFreeFromOtherThreadIsHandedOverToBoundEventLoop() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.metric().directArenas().get(0);
+        final Queue<Runnable> ownerTasks = new ArrayDeque<Runnable>();
+        arena.bindEventLoop(Thread.currentThread(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                ownerTasks.add(command);
+            }
+        });
+
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        // The free was handed over to the owner and so not done yet.
+        assertEquals(1, arena.numActiveNormalAllocations());
+
+        // The next allocation of the owner picks up the pending free.
+        ByteBuf buffer = allocator.directBuffer(64 * 1024);
+        assertEquals(1, arena.numActiveNormalAllocations());
+        assertTrue(buffer.release());
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        // A drain was submitted to the owner, and it finds nothing left to do.
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.poll().run();
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        // Without the owner touching the arena, the submitted drain gives back the memory. Only one drain is
+        // submitted for all frees that are handed over before it runs.
+        ByteBuf first = allocator.directBuffer(64 * 1024);
+        ByteBuf second = allocator.directBuffer(64 * 1024);
+        releaseInOtherThread(first);
+        releaseInOtherThread(second);
+        assertEquals(2, arena.numActiveNormalAllocations());
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.poll().run();
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(1, arena.numActiveNormalAllocations());
+
+        // Unbinding must not leave any pending frees behind.
+        arena.unbindEventLoop(Thread.currentThread());
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        // Without an owner frees are done directly.
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(0, arena.numActiveNormalAllocations());
+    }
+
+    @Test
+    public void testRemainingBoundEventLoopBecomesOwner() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.metric().directArenas().get(0);
+        final Queue<Runnable> ownerTasks = new ArrayDeque<Runnable>();
+        Executor ownerExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                ownerTasks.add(command);
+            }
+        };
+        Thread otherEventLoop = new Thread();
+        arena.bindEventLoop(Thread.currentThread(), ownerExecutor);
+        arena.bindEventLoop(otherEventLoop, ownerExecutor);
+        assertEquals(2, arena.numBoundEventLoops);
+
+        // Shared by two event loops, so frees are done directly.
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        // Once the other event loop is unbound, the remaining one owns the arena again.
+        arena.unbindEventLoop(otherEventLoop);
+        assertEquals(1, arena.numBoundEventLoops);
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(1, arena.numActiveNormalAllocations());
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.poll().run();
+        assertEquals(0, arena.numActiveNormalAllocations());
+
+        arena.unbindEventLoop(Thread.currentThread());
+        assertEquals(0, arena.numBoundEventLoops);
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(0, arena.numActiveNormalAllocations());
+    }
+
+    @Test
+    public void testFreeFromOtherThreadIsDoneDirectlyIfBoundEventLoopRejects() throws Exception {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, false);
+        @SuppressWarnings("unchecked")
+        PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.metric().directArenas().get(0);
+        arena.bindEventLoop(Thread.currentThread(), new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        });
+
+        releaseInOtherThread(allocator.directBuffer(64 * 1024));
+        assertEquals(0, arena.numActiveNormalAllocations());
+        arena.unbindEventLoop(Thread.currentThread());
+    }
+
+    private static void releaseInOtherThread(final ByteBuf buffer) throws InterruptedException {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                buffer.release();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(0, buffer.refCnt());
+    }
+
+    @Test
+    public void testAdaptiveThreadCacheCachesHotSizes() {
+        PoolArena.DirectArena arena = new PoolArena.DirectArena(null, 8192, 13, 8192 << 11, 0);
+        PoolThreadCache cache = new PoolThreadCache(null, arena, 0, 4, 32 * 1024, 8192, true);
+        // Bigger than maxCachedBufferCapacity, so not cached at first.
+        int size = 64 * 1024;
+        int sizeIdx = arena.size2SizeIdx(size);
+        for (int i = 0; i < 16; i++) {
+            assertTrue(arena.allocate(cache, size, size).release());
+        }
+        cache.trim();
+        assertEquals(0, arena.numThreadCacheHits(sizeIdx));
+        assertEquals(16, arena.numThreadCacheMisses(sizeIdx));
+
+        // The size is hot now, so it is cached from now on.
+        assertTrue(arena.allocate(cache, size, size).release());
+        assertTrue(arena.allocate(cache, size, size).release());
+        cache.trim();
+        assertEquals(1, arena.numThreadCacheHits(sizeIdx));
+        assertEquals(17, arena.numThreadCacheMisses(sizeIdx));
+        cache.free(false);
+    }
+
     @Test
     public void testDirectArenaMemoryCopy() {
         ByteBuf src = PooledByteBufAllocator.DEFAULT.directBuffer(512);
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
@@ -39,6 +40,9 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<PooledByteBufAllocator> {
@@ -81,6 +85,141 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertTrue(allocator.trimCurrentThreadCache());
     }
 
+    @Test
+    public void testTrimIdleChunks() {
+        // Disable caching so the memory is directly given back to the arena on release.
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, false);
+        ByteBuf directBuffer = allocator.directBuffer(64 * 1024);
+        ByteBuf heapBuffer = allocator.heapBuffer(64 * 1024);
+        int chunkSize = allocator.metric().chunkSize();
+
+        // Chunks that are still in use must never be released.
+        assertEquals(0, allocator.trimIdleChunks(0, MILLISECONDS));
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+        assertEquals(chunkSize, allocator.metric().usedHeapMemory());
+
+        assertTrue(directBuffer.release());
+        assertTrue(heapBuffer.release());
+
+        // The chunks did not stay idle for long enough yet.
+        assertEquals(0, allocator.trimIdleChunks(1, TimeUnit.HOURS));
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+
+        assertEquals(2L * chunkSize, allocator.trimIdleChunks(0, MILLISECONDS));
+        assertEquals(0, allocator.metric().usedDirectMemory());
+        assertEquals(0, allocator.metric().usedHeapMemory());
+        assertEquals(chunkSize, allocator.metric().reclaimedDirectMemory());
+        assertEquals(chunkSize, allocator.metric().reclaimedHeapMemory());
+        assertEquals(chunkSize, ((PoolArena<?>) allocator.metric().directArenas().get(0)).numReclaimedBytes());
+
+        // The arena must still be usable after its chunks were released.
+        directBuffer = allocator.directBuffer(64 * 1024);
+        assertEquals(chunkSize, allocator.metric().usedDirectMemory());
+        assertTrue(directBuffer.release());
+    }
+
+    @Test
+    public void testNormalThreadCacheHitsAndMisses() {
+        Assume.assumeFalse(PooledByteBufAllocator.defaultAdaptiveThreadCache());
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 64, true);
+        int size = 32 * 1024;
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        int sizeIdx = arena.size2SizeIdx(size);
+
+        // The first allocation misses the cache, the second is served from it.
+        assertTrue(allocator.directBuffer(size).release());
+        assertTrue(allocator.directBuffer(size).release());
+        assertEquals(1, arena.numNormalAllocations());
+        assertTrue(allocator.trimCurrentThreadCache());
+
+        // Hits and misses are only counted by adaptive thread caches.
+        assertEquals(0, allocator.metric().numThreadCacheHits(true, sizeIdx));
+        assertEquals(0, allocator.metric().numThreadCacheMisses(true, sizeIdx));
+
+        ((PoolArena<?>) arena).threadCacheStats(sizeIdx, 1, 2);
+        assertEquals(1, allocator.metric().numThreadCacheHits(true, sizeIdx));
+        assertEquals(2, allocator.metric().numThreadCacheMisses(true, sizeIdx));
+        assertEquals(0, allocator.metric().numThreadCacheHits(false, sizeIdx));
+    }
+
+    @Test
+    public void testBulkDirectBuffers() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true);
+        // More buffers than fit in a single subpage, so the bulk allocation needs to add new subpages.
+        ByteBuf[] bufs = new ByteBuf[512];
+        allocator.directBuffers(bufs.length, 1024, bufs);
+        for (int i = 0; i < bufs.length; i++) {
+            ByteBuf buf = bufs[i];
+            assertEquals(1024, buf.capacity());
+            assertEquals(0, buf.writerIndex());
+            buf.writeInt(i);
+        }
+        PoolArenaMetric arena = allocator.metric().directArenas().get(0);
+        assertEquals(bufs.length, arena.numSmallAllocations());
+
+        for (int i = 0; i < bufs.length; i++) {
+            assertEquals(i, bufs[i].getInt(0));
+            assertTrue(bufs[i].release());
+        }
+        assertEquals(0, arena.numActiveSmallAllocations());
+    }
+
+    @Test
+    public void testAllocationTags() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true, 0, true);
+        ByteBuf tagged = AllocationTags.directBuffer(allocator, 1024, "test");
+        ByteBuf untagged = allocator.directBuffer(1024);
+        List<AllocationTagMetric> tags = allocator.metric().allocationTags();
+        assertEquals(1, tags.size());
+        AllocationTagMetric metric = tags.get(0);
+        assertEquals("test", metric.tag());
+        assertEquals(1, metric.numAllocations());
+        assertEquals(tagged.capacity(), metric.usedMemory());
+
+        tagged.capacity(64 * 1024);
+        assertEquals(64 * 1024, metric.usedMemory());
+        assertEquals(64 * 1024, metric.peakUsedMemory());
+
+        assertTrue(tagged.release());
+        assertTrue(untagged.release());
+        assertEquals(0, metric.usedMemory());
+        assertEquals(64 * 1024, metric.peakUsedMemory());
+        assertEquals(1, metric.numAllocations());
+        assertNull(AllocationTags.current());
+    }
+
+    @Test
+    public void testAllocationTagsBulk() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true, 0, true);
+        ByteBuf[] bufs = new ByteBuf[4];
+        String previous = AllocationTags.push("bulk");
+        try {
+            allocator.directBuffers(bufs.length, 1024, bufs);
+        } finally {
+            AllocationTags.pop(previous);
+        }
+        List<AllocationTagMetric> tags = allocator.metric().allocationTags();
+        assertEquals(1, tags.size());
+        AllocationTagMetric metric = tags.get(0);
+        assertEquals("bulk", metric.tag());
+        assertEquals(bufs.length, metric.numAllocations());
+        assertEquals(bufs.length * 1024, metric.usedMemory());
+
+        for (int i = 0; i < bufs.length; i++) {
+            assertTrue(bufs[i].release());
+            assertEquals((bufs.length - i - 1) * 1024, metric.usedMemory());
+        }
+        assertEquals(bufs.length * 1024, metric.peakUsedMemory());
+    }
+
+    @Test
+    public void testAllocationTagsDisabled() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, true, 0, false);
+        ByteBuf tagged = AllocationTags.directBuffer(allocator, 1024, "test");
+        assertTrue(allocator.metric().allocationTags().isEmpty());
+        assertTrue(tagged.release());
+    }
+
     @Test
     public void testPooledUnsafeHeapBufferAndUnsafeDirectBuffer() {
         PooledByteBufAllocator allocator = newAllocator(true);
@@ -154,6 +293,21 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         testArenaMetrics0(new PooledByteBufAllocator(true, 2, 2, 8192, 11, 1000, 1000, 1000, true, 64), 100, 1, 1, 0);
     }
 
+    @Test
+    public void testArenaMetricsNormalCache() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 64);
+        // Normal sized buffers up to maxCachedBufferCapacity are served from the thread cache after the first one.
+        int size = 32 * 1024;
+        for (int i = 0; i < 100; i++) {
+            assertTrue(allocator.directBuffer(size).release());
+            assertTrue(allocator.heapBuffer(size).release());
+        }
+
+        assertArenaMetrics(allocator.metric().directArenas(), 1, 1, 0);
+        assertArenaMetrics(allocator.metric().heapArenas(), 1, 1, 0);
+        assertEquals(1, allocator.metric().directArenas().get(0).numNormalAllocations());
+    }
+
     private static void testArenaMetrics0(
             PooledByteBufAllocator allocator, int num, int expectedActive, int expectedAlloc, int expectedDealloc) {
         for (int i = 0; i < num; i++) {
@@ -215,6 +369,86 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         }
     }
 
+    @Test(timeout = 10000)
+    public void testStripedSubpagePoolsFreeFromOtherThreads() throws Throwable {
+        final int stripes = 4;
+        // No thread caches, so all frees go back to the arena.
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, false, 0, false, stripes);
+        @SuppressWarnings("unchecked")
+        final PoolArena<ByteBuffer> arena = (PoolArena<ByteBuffer>) allocator.metric().directArenas().get(0);
+        final int sizeIdx = arena.size2SizeIdx(1024);
+        final int numThreads = stripes;
+        final ByteBuf[][] buffers = new ByteBuf[numThreads][64];
+        final List<PoolSubpage<ByteBuffer>> heads = new ArrayList<PoolSubpage<ByteBuffer>>();
+        Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final ByteBuf[] bufs = buffers[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < bufs.length; j++) {
+                        bufs[j] = allocator.directBuffer(1024);
+                    }
+                    PoolSubpage<ByteBuffer> head = arena.findSubpagePoolHead(sizeIdx);
+                    synchronized (heads) {
+                        if (!heads.contains(head)) {
+                            heads.add(head);
+                        }
+                    }
+                }
+            };
+        }
+        runAll(threads);
+        assertEquals(numThreads * 64, arena.numActiveSmallAllocations());
+
+        // Free the buffers of each thread on another thread.
+        for (int i = 0; i < numThreads; i++) {
+            final ByteBuf[] bufs = buffers[(i + 1) % numThreads];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (ByteBuf buf : bufs) {
+                        assertTrue(buf.release());
+                    }
+                }
+            };
+        }
+        runAll(threads);
+        assertEquals(0, arena.numActiveSmallAllocations());
+        assertEquals(0, arena.numActiveAllocations());
+
+        // Every pool used for allocations keeps one completely free subpage which belongs to it, all others were
+        // given back to their chunk.
+        assertEquals(heads.size(), arena.smallSubpages().size());
+        for (PoolSubpage<ByteBuffer> head : heads) {
+            PoolSubpage<ByteBuffer> subpage = head.next;
+            assertNotSame(head, subpage);
+            assertSame(head, subpage.head);
+            assertSame(head, subpage.next);
+            assertEquals(subpage.maxNumElements(), subpage.numAvailable());
+        }
+    }
+
+    private static void runAll(Thread[] threads) throws Throwable {
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                @Override
+                public void uncaughtException(Thread t, Throwable e) {
+                    error.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
     @Test
     public void testAllocNotNull() {
         PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0);
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests {@link RingByteBuf}s whose start was moved, so the content wraps around the end of the backing buffer.
+ */
+public class RingByteBufTest extends AbstractByteBufTest {
+
+    @Override
+    protected ByteBuf newBuffer(int length, int maxCapacity) {
+        ByteBuf buffer = new RingByteBuf(UnpooledByteBufAllocator.DEFAULT, length, maxCapacity);
+        // Move the start of the ring to the middle of the backing buffer.
+        buffer.writerIndex(length / 2).readerIndex(length / 2).discardReadBytes();
+        assertEquals(0, buffer.writerIndex());
+        return buffer;
+    }
+
+    @Override
+    protected boolean discardReadBytesDoesNotMoveWritableBytes() {
+        return false;
+    }
+
+    @Test
+    public void testWrapAround() {
+        ByteBuf buffer = new RingByteBuf(UnpooledByteBufAllocator.DEFAULT, 8, 8);
+        try {
+            buffer.writeInt(1).writeShort(2);
+            assertEquals(1, buffer.readInt());
+            buffer.discardReadBytes();
+            assertEquals(0, buffer.readerIndex());
+            assertEquals(2, buffer.writerIndex());
+
+            // Straddles the end of the backing buffer.
+            buffer.writeInt(0x01020304);
+            assertEquals(0x00020102, buffer.getInt(0));
+            assertEquals(0x0403, buffer.getShortLE(4) & 0xffff);
+            assertEquals(2, buffer.nioBuffers(0, 6).length);
+            ByteBuffer nioBuffer = buffer.nioBuffer(0, 6);
+            assertEquals(6, nioBuffer.remaining());
+            assertEquals(2, nioBuffer.getShort());
+            assertEquals(0x01020304, nioBuffer.getInt());
+
+            assertEquals(2, buffer.readShort());
+            assertEquals(0x01020304, buffer.readInt());
+            assertFalse(buffer.isReadable());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    @Test
+    public void testCapacityIncreaseKeepsContent() {
+        ByteBuf buffer = new RingByteBuf(UnpooledByteBufAllocator.DEFAULT, 8, 64);
+        try {
+            buffer.writeLong(1);
+            buffer.skipBytes(6).discardReadBytes();
+            buffer.writeInt(3);
+            buffer.writeLong(4);
+            assertEquals(1, buffer.readShort());
+            assertEquals(3, buffer.readInt());
+            assertEquals(4, buffer.readLong());
+        } finally {
+            buffer.release();
+        }
+    }
+}
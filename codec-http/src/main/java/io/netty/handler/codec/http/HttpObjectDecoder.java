@@ -937,13 +937,34 @@ public abstract class HttpObjectDecoder extends ByteToMessageDecoder {
         public AppendableCharSequence parse(ByteBuf buffer) {
             final int oldSize = size;
             seq.reset();
-            int i = buffer.forEachByte(this);
-            if (i == -1) {
-                size = oldSize;
-                return null;
+            // Look for the end of the line a word at a time first and only process the bytes up to it, so an
+            // incomplete line is not parsed again and again while more data arrives. If the line is already too
+            // long, parse it to fail as before.
+            final int writerIndex = buffer.writerIndex();
+            int start = buffer.readerIndex();
+            for (;;) {
+                int lfIndex = buffer.indexOf(start, writerIndex, HttpConstants.LF);
+                int end;
+                if (lfIndex != -1) {
+                    end = lfIndex + 1;
+                } else if (size + writerIndex - start > maxLength) {
+                    end = writerIndex;
+                } else {
+                    size = oldSize;
+                    return null;
+                }
+                int i = buffer.forEachByte(start, end - start, this);
+                if (i != -1) {
+                    buffer.readerIndex(i + 1);
+                    return seq;
+                }
+                if (end == writerIndex) {
+                    size = oldSize;
+                    return null;
+                }
+                // The LF was skipped as a leading control character of the initial line.
+                start = end;
             }
-            buffer.readerIndex(i + 1);
-            return seq;
         }
 
         public void reset() {
@@ -32,6 +32,7 @@
 package io.netty.handler.codec.http2;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.handler.codec.http2.HpackUtil.IndexType;
 import io.netty.handler.codec.http2.Http2HeadersEncoder.SensitivityDetector;
 import io.netty.util.AsciiString;
@@ -249,11 +250,8 @@ final class HpackEncoder {
             out.writeByte((int) (mask | i));
         } else {
             out.writeByte(mask | nbits);
-            long length = i - nbits;
-            for (; (length & ~0x7F) != 0; length >>>= 7) {
-                out.writeByte((int) ((length & 0x7F) | 0x80));
-            }
-            out.writeByte((int) length);
+            // The remainder is encoded with 7 bits per byte, least significant group first, just like a varint.
+            ByteBufUtil.writeVarInt64(out, i - nbits);
         }
     }
 
@@ -18,6 +18,7 @@ package io.netty.handler.codec;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.RingByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelConfig;
 import io.netty.channel.ChannelHandlerContext;
@@ -149,6 +150,42 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
         }
     };
 
+    /**
+     * Cumulate {@link ByteBuf}s by copying them into a {@link RingByteBuf}, which discards read bytes by moving its
+     * start instead of copying the readable bytes to the beginning of the buffer. This way connections which
+     * constantly have a partial frame buffered do not need to move memory around before more bytes can be
+     * cumulated, while bytes of a frame which wrap around the end of the ring are only copied if the frame is
+     * requested as a single {@link java.nio.ByteBuffer}.
+     */
+    public static final Cumulator RING_CUMULATOR = new Cumulator() {
+        @Override
+        public ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+            if (!cumulation.isReadable() && in.isContiguous()) {
+                // If cumulation is empty and input buffer is contiguous, use it directly
+                cumulation.release();
+                return in;
+            }
+            try {
+                if (!(cumulation instanceof RingByteBuf)) {
+                    return newRingCumulation(alloc, cumulation, in);
+                }
+                final int required = in.readableBytes();
+                if (required > cumulation.writableBytes() && cumulation.refCnt() == 1) {
+                    // Reclaim the read bytes first, which is cheap for a RingByteBuf. This is only safe if the
+                    // cumulation is not shared, as for example slices of it would otherwise see other bytes.
+                    cumulation.discardReadBytes();
+                }
+                cumulation.writeBytes(in, in.readerIndex(), required);
+                in.readerIndex(in.writerIndex());
+                return cumulation;
+            } finally {
+                // We must release in in all cases as otherwise it may produce a leak if writeBytes(...) throw
+                // for whatever release (for example because of OutOfMemoryError)
+                in.release();
+            }
+        }
+    };
+
     private static final byte STATE_INIT = 0;
     private static final byte STATE_CALLING_CHILD_DECODE = 1;
     private static final byte STATE_HANDLER_REMOVED_PENDING = 2;
@@ -546,6 +583,23 @@ public abstract class ByteToMessageDecoder extends ChannelInboundHandlerAdapter
         }
     }
 
+    private static ByteBuf newRingCumulation(ByteBufAllocator alloc, ByteBuf oldCumulation, ByteBuf in) {
+        int oldBytes = oldCumulation.readableBytes();
+        int newBytes = in.readableBytes();
+        int totalBytes = oldBytes + newBytes;
+        ByteBuf newCumulation = new RingByteBuf(alloc, alloc.calculateNewCapacity(totalBytes, MAX_VALUE), MAX_VALUE);
+        ByteBuf toRelease = newCumulation;
+        try {
+            newCumulation.writeBytes(oldCumulation, oldCumulation.readerIndex(), oldBytes)
+                .writeBytes(in, in.readerIndex(), newBytes);
+            in.readerIndex(in.writerIndex());
+            toRelease = oldCumulation;
+            return newCumulation;
+        } finally {
+            toRelease.release();
+        }
+    }
+
     /**
      * Cumulate {@link ByteBuf}s.
      */
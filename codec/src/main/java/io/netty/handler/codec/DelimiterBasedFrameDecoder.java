@@ -311,24 +311,23 @@ public class DelimiterBasedFrameDecoder extends ByteToMessageDecoder {
      * found in the haystack.
      */
     private static int indexOf(ByteBuf haystack, ByteBuf needle) {
-        for (int i = haystack.readerIndex(); i < haystack.writerIndex(); i ++) {
-            int haystackIndex = i;
-            int needleIndex;
-            for (needleIndex = 0; needleIndex < needle.capacity(); needleIndex ++) {
-                if (haystack.getByte(haystackIndex) != needle.getByte(needleIndex)) {
-                    break;
-                } else {
-                    haystackIndex ++;
-                    if (haystackIndex == haystack.writerIndex() &&
-                        needleIndex != needle.capacity() - 1) {
-                        return -1;
-                    }
-                }
+        final int readerIndex = haystack.readerIndex();
+        final int writerIndex = haystack.writerIndex();
+        final int needleLength = needle.capacity();
+        final byte first = needle.getByte(0);
+        // Jump to the candidates via indexOf(...), which scans for the first byte of the needle a word at a time.
+        for (int i = haystack.indexOf(readerIndex, writerIndex, first); i >= 0;
+             i = haystack.indexOf(i + 1, writerIndex, first)) {
+            if (i + needleLength > writerIndex) {
+                return -1;
             }
-
-            if (needleIndex == needle.capacity()) {
+            int needleIndex = 1;
+            while (needleIndex < needleLength && haystack.getByte(i + needleIndex) == needle.getByte(needleIndex)) {
+                needleIndex ++;
+            }
+            if (needleIndex == needleLength) {
                 // Found the needle from the haystack!
-                return i - haystack.readerIndex();
+                return i - readerIndex;
             }
         }
         return -1;
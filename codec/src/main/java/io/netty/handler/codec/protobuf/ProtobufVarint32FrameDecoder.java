@@ -18,6 +18,7 @@ package io.netty.handler.codec.protobuf;
 import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.nano.CodedInputByteBufferNano;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.CorruptedFrameException;
@@ -48,12 +49,11 @@ public class ProtobufVarint32FrameDecoder extends ByteToMessageDecoder {
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out)
             throws Exception {
-        in.markReaderIndex();
-        int preIndex = in.readerIndex();
-        int length = readRawVarint32(in);
-        if (preIndex == in.readerIndex()) {
+        if (!isRawVarint32Readable(in)) {
             return;
         }
+        in.markReaderIndex();
+        int length = ByteBufUtil.readVarInt32(in);
         if (length < 0) {
             throw new CorruptedFrameException("negative length: " + length);
         }
@@ -66,56 +66,19 @@ public class ProtobufVarint32FrameDecoder extends ByteToMessageDecoder {
     }
 
     /**
-     * Reads variable length 32bit int from buffer
-     *
-     * @return decoded int if buffers readerIndex has been forwarded else nonsense value
+     * Returns {@code true} if the buffer contains a whole variable length 32bit int.
      */
-    private static int readRawVarint32(ByteBuf buffer) {
-        if (!buffer.isReadable()) {
-            return 0;
-        }
-        buffer.markReaderIndex();
-        byte tmp = buffer.readByte();
-        if (tmp >= 0) {
-            return tmp;
-        } else {
-            int result = tmp & 127;
-            if (!buffer.isReadable()) {
-                buffer.resetReaderIndex();
-                return 0;
-            }
-            if ((tmp = buffer.readByte()) >= 0) {
-                result |= tmp << 7;
-            } else {
-                result |= (tmp & 127) << 7;
-                if (!buffer.isReadable()) {
-                    buffer.resetReaderIndex();
-                    return 0;
-                }
-                if ((tmp = buffer.readByte()) >= 0) {
-                    result |= tmp << 14;
-                } else {
-                    result |= (tmp & 127) << 14;
-                    if (!buffer.isReadable()) {
-                        buffer.resetReaderIndex();
-                        return 0;
-                    }
-                    if ((tmp = buffer.readByte()) >= 0) {
-                        result |= tmp << 21;
-                    } else {
-                        result |= (tmp & 127) << 21;
-                        if (!buffer.isReadable()) {
-                            buffer.resetReaderIndex();
-                            return 0;
-                        }
-                        result |= (tmp = buffer.readByte()) << 28;
-                        if (tmp < 0) {
-                            throw new CorruptedFrameException("malformed varint.");
-                        }
-                    }
-                }
+    private static boolean isRawVarint32Readable(ByteBuf buffer) {
+        int readerIndex = buffer.readerIndex();
+        int length = Math.min(buffer.readableBytes(), 5);
+        for (int i = 0; i < length; i++) {
+            if (buffer.getByte(readerIndex + i) >= 0) {
+                return true;
             }
-            return result;
         }
+        if (length == 5) {
+            throw new CorruptedFrameException("malformed varint.");
+        }
+        return false;
     }
 }
@@ -18,6 +18,7 @@ package io.netty.handler.codec.protobuf;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.nano.CodedOutputByteBufferNano;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToByteEncoder;
@@ -56,15 +57,7 @@ public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder<B
      * @param value to be written
      */
     static void writeRawVarint32(ByteBuf out, int value) {
-        while (true) {
-            if ((value & ~0x7F) == 0) {
-                out.writeByte(value);
-                return;
-            } else {
-                out.writeByte((value & 0x7F) | 0x80);
-                value >>>= 7;
-            }
-        }
+        ByteBufUtil.writeVarInt32(out, value);
     }
 
     /**
@@ -73,18 +66,6 @@ public class ProtobufVarint32LengthFieldPrepender extends MessageToByteEncoder<B
      * @return size of value encoded as protobuf varint32.
      */
     static int computeRawVarint32Size(final int value) {
-        if ((value & (0xffffffff <<  7)) == 0) {
-            return 1;
-        }
-        if ((value & (0xffffffff << 14)) == 0) {
-            return 2;
-        }
-        if ((value & (0xffffffff << 21)) == 0) {
-            return 3;
-        }
-        if ((value & (0xffffffff << 28)) == 0) {
-            return 4;
-        }
-        return 5;
+        return ByteBufUtil.varInt32Size(value);
     }
 }
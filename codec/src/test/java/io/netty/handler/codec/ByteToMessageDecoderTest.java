@@ -19,6 +19,7 @@ import io.netty.buffer.AbstractByteBufAllocator;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.RingByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.buffer.UnpooledHeapByteBuf;
@@ -432,6 +433,71 @@ public class ByteToMessageDecoderTest {
         }
     }
 
+    @Test
+    public void testRingCumulator() {
+        ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+                if (in.readableBytes() >= 3) {
+                    out.add(in.readRetainedSlice(3));
+                }
+            }
+        };
+        decoder.setCumulator(ByteToMessageDecoder.RING_CUMULATOR);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        // Frames of 3 bytes received in fragments of 2 bytes, so there is always a partial frame buffered.
+        byte value = 0;
+        for (int i = 0; i < 300; i++) {
+            channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { value++, value++ }));
+            if (i % 3 == 1) {
+                // A fragment was appended to the remaining bytes of the previous one.
+                assertTrue(decoder.internalBuffer() instanceof RingByteBuf);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            ByteBuf frame = channel.readInbound();
+            assertEquals((byte) (i * 3), frame.readByte());
+            assertEquals((byte) (i * 3 + 1), frame.readByte());
+            assertEquals((byte) (i * 3 + 2), frame.readByte());
+            frame.release();
+        }
+        assertNull(channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void releaseWhenRingCumulateThrows() {
+        final Error error = new Error();
+        ByteBufAllocator allocator = new AbstractByteBufAllocator(false) {
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+
+            @Override
+            protected ByteBuf newHeapBuffer(int initialCapacity, int maxCapacity) {
+                throw error;
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(int initialCapacity, int maxCapacity) {
+                throw error;
+            }
+        };
+        ByteBuf oldCumulation = Unpooled.buffer().writeZero(1);
+        ByteBuf in = Unpooled.buffer().writeZero(12);
+        try {
+            ByteToMessageDecoder.RING_CUMULATOR.cumulate(allocator, oldCumulation, in);
+            fail();
+        } catch (Error expected) {
+            assertSame(error, expected);
+            assertEquals(0, in.refCnt());
+            assertEquals(1, oldCumulation.refCnt());
+            oldCumulation.release();
+        }
+    }
+
     @Test
     public void testDoesNotOverRead() {
         class ReadInterceptingHandler extends ChannelOutboundHandlerAdapter {
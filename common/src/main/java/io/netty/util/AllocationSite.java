@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SuppressJava6Requirement;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static io.netty.util.internal.StringUtil.NEWLINE;
+
+/**
+ * Compact description of the place a tracked resource was allocated at, made of the top frames of the allocating
+ * thread's stack which are not part of the allocation machinery itself. Used by {@link ResourceLeakDetector} to
+ * aggregate leaks per allocation site, which is much cheaper than capturing a full stack trace per resource.
+ */
+final class AllocationSite {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AllocationSite.class);
+
+    // Leading frames of these classes and packages are skipped, as they are the same for every allocation.
+    private static final String[] SKIPPED_CLASSES = {
+            AllocationSite.class.getName(), ResourceLeakDetector.class.getName()
+    };
+    private static final String[] SKIPPED_PACKAGES = { "io.netty.buffer." };
+
+    private static final Object STACK_WALKER;
+    private static final Method WALK;
+    private static final Method GET_CLASS_NAME;
+    private static final Method GET_METHOD_NAME;
+    private static final Method GET_LINE_NUMBER;
+
+    static {
+        Object stackWalker = null;
+        Method walk = null;
+        Method getClassName = null;
+        Method getMethodName = null;
+        Method getLineNumber = null;
+        if (PlatformDependent.javaVersion() >= 9) {
+            try {
+                // StackWalker only materializes the frames which are actually consumed, unlike
+                // Throwable.getStackTrace() which always captures the whole stack.
+                Class<?> stackWalkerClass = Class.forName("java.lang.StackWalker");
+                Class<?> stackFrameClass = Class.forName("java.lang.StackWalker$StackFrame");
+                stackWalker = stackWalkerClass.getMethod("getInstance").invoke(null);
+                walk = stackWalkerClass.getMethod("walk", Class.forName("java.util.function.Function"));
+                getClassName = stackFrameClass.getMethod("getClassName");
+                getMethodName = stackFrameClass.getMethod("getMethodName");
+                getLineNumber = stackFrameClass.getMethod("getLineNumber");
+            } catch (Throwable cause) {
+                logger.debug("java.lang.StackWalker: unavailable", cause);
+                stackWalker = null;
+            }
+        }
+        STACK_WALKER = stackWalker;
+        WALK = walk;
+        GET_CLASS_NAME = getClassName;
+        GET_METHOD_NAME = getMethodName;
+        GET_LINE_NUMBER = getLineNumber;
+    }
+
+    private final long fingerprint;
+    private final String[] classNames;
+    private final String[] methodNames;
+    private final int[] lineNumbers;
+
+    private AllocationSite(String[] classNames, String[] methodNames, int[] lineNumbers) {
+        this.classNames = classNames;
+        this.methodNames = methodNames;
+        this.lineNumbers = lineNumbers;
+        // FNV-1a over the frames, so the same call path always produces the same fingerprint.
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < classNames.length; i++) {
+            if (classNames[i] == null) {
+                break;
+            }
+            hash = (hash ^ classNames[i].hashCode()) * 0x100000001b3L;
+            hash = (hash ^ methodNames[i].hashCode()) * 0x100000001b3L;
+            hash = (hash ^ lineNumbers[i]) * 0x100000001b3L;
+        }
+        fingerprint = hash;
+    }
+
+    /**
+     * Captures the allocation site of the calling thread, made of at most {@code maxFrames} frames.
+     */
+    static AllocationSite capture(int maxFrames) {
+        if (STACK_WALKER != null) {
+            try {
+                return (AllocationSite) WALK.invoke(STACK_WALKER, new FrameCollector(maxFrames));
+            } catch (Throwable ignore) {
+                // Fall back to the stack trace below.
+            }
+        }
+        StackTraceElement[] stackTrace = new Throwable().getStackTrace();
+        String[] classNames = new String[maxFrames];
+        String[] methodNames = new String[maxFrames];
+        int[] lineNumbers = new int[maxFrames];
+        int count = 0;
+        for (int i = 0; i < stackTrace.length && count < maxFrames; i++) {
+            StackTraceElement element = stackTrace[i];
+            String className = element.getClassName();
+            if (count == 0 && isSkipped(className)) {
+                continue;
+            }
+            classNames[count] = className;
+            methodNames[count] = element.getMethodName();
+            lineNumbers[count] = element.getLineNumber();
+            count++;
+        }
+        return new AllocationSite(classNames, methodNames, lineNumbers);
+    }
+
+    private static boolean isSkipped(String className) {
+        for (String skipped : SKIPPED_CLASSES) {
+            if (className.startsWith(skipped) &&
+                    (className.length() == skipped.length() || className.charAt(skipped.length()) == '$')) {
+                return true;
+            }
+        }
+        for (String prefix : SKIPPED_PACKAGES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a hash of the frames of this site. Sites with the same fingerprint are treated as the same site.
+     */
+    long fingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder(512);
+        for (int i = 0; i < classNames.length && classNames[i] != null; i++) {
+            buf.append("\tat ").append(classNames[i]).append('.').append(methodNames[i]);
+            if (lineNumbers[i] >= 0) {
+                buf.append(':').append(lineNumbers[i]);
+            }
+            buf.append(NEWLINE);
+        }
+        return buf.toString();
+    }
+
+    @SuppressJava6Requirement(reason = "Only used if java.lang.StackWalker is available")
+    private static final class FrameCollector implements Function<Stream<?>, AllocationSite> {
+        private final int maxFrames;
+
+        FrameCollector(int maxFrames) {
+            this.maxFrames = maxFrames;
+        }
+
+        @Override
+        public AllocationSite apply(Stream<?> frames) {
+            String[] classNames = new String[maxFrames];
+            String[] methodNames = new String[maxFrames];
+            int[] lineNumbers = new int[maxFrames];
+            int count = 0;
+            try {
+                Iterator<?> it = frames.iterator();
+                while (count < maxFrames && it.hasNext()) {
+                    Object frame = it.next();
+                    String className = (String) GET_CLASS_NAME.invoke(frame);
+                    if (count == 0 && isSkipped(className)) {
+                        continue;
+                    }
+                    classNames[count] = className;
+                    methodNames[count] = (String) GET_METHOD_NAME.invoke(frame);
+                    lineNumbers[count] = (Integer) GET_LINE_NUMBER.invoke(frame);
+                    count++;
+                }
+            } catch (Exception e) {
+                PlatformDependent.throwException(e);
+            }
+            return new AllocationSite(classNames, methodNames, lineNumbers);
+        }
+    }
+}
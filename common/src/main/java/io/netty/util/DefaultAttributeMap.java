@@ -18,72 +18,105 @@ package io.netty.util;
 import io.netty.util.internal.ObjectUtil;
 
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
- * Default {@link AttributeMap} implementation which use simple synchronization per bucket to keep the memory overhead
- * as low as possible.
+ * Default {@link AttributeMap} implementation which stores the attributes in an immutable array which is sorted by
+ * {@link AttributeKey#id()} and replaced via compare-and-set on every insertion or removal. Lookups are lock-free
+ * and use a binary search, and a map with only a few attributes has nearly no memory overhead, which is the common
+ * case for {@link io.netty.channel.Channel}s and their handler contexts.
  */
 public class DefaultAttributeMap implements AttributeMap {
 
-    @SuppressWarnings("rawtypes")
-    private static final AtomicReferenceFieldUpdater<DefaultAttributeMap, AtomicReferenceArray> updater =
-            AtomicReferenceFieldUpdater.newUpdater(DefaultAttributeMap.class, AtomicReferenceArray.class, "attributes");
+    private static final AtomicReferenceFieldUpdater<DefaultAttributeMap, DefaultAttribute[]> ATTRIBUTES_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultAttributeMap.class, DefaultAttribute[].class, "attributes");
+    private static final DefaultAttribute[] EMPTY_ATTRIBUTES = new DefaultAttribute[0];
+
+    // Sorted by AttributeKey.id(); never modified, but replaced as a whole by ATTRIBUTES_UPDATER.
+    private volatile DefaultAttribute[] attributes = EMPTY_ATTRIBUTES;
+
+    /**
+     * Returns the index of the attribute with the given key, or {@code -(insertion point) - 1} if there is none,
+     * like {@link java.util.Arrays#binarySearch(int[], int)}.
+     */
+    private static int searchAttributeByKey(DefaultAttribute[] sortedAttributes, AttributeKey<?> key) {
+        int low = 0;
+        int high = sortedAttributes.length - 1;
+
+        while (low <= high) {
+            int mid = low + high >>> 1;
+            DefaultAttribute midVal = sortedAttributes[mid];
+            AttributeKey midValKey = midVal.key;
+            if (midValKey == key) {
+                return mid;
+            }
+            int midValKeyId = midValKey.id();
+            int keyId = key.id();
+            assert midValKeyId != keyId;
+            boolean searchRight = midValKeyId < keyId;
+            if (searchRight) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
 
-    private static final int BUCKET_SIZE = 4;
-    private static final int MASK = BUCKET_SIZE  - 1;
+        return -(low + 1);
+    }
 
-    // Initialize lazily to reduce memory consumption; updated by AtomicReferenceFieldUpdater above.
-    @SuppressWarnings("UnusedDeclaration")
-    private volatile AtomicReferenceArray<DefaultAttribute<?>> attributes;
+    private static DefaultAttribute[] orderedCopyOnInsert(DefaultAttribute[] sortedSrc, DefaultAttribute toInsert) {
+        // Attributes are usually added in increasing key id order, so search the insertion point from the end.
+        int srcLength = sortedSrc.length;
+        DefaultAttribute[] copy = new DefaultAttribute[srcLength + 1];
+        int id = toInsert.key.id();
+        int i;
+        for (i = srcLength - 1; i >= 0; i--) {
+            DefaultAttribute attribute = sortedSrc[i];
+            assert attribute.key.id() != id;
+            if (attribute.key.id() < id) {
+                break;
+            }
+            copy[i + 1] = sortedSrc[i];
+        }
+        copy[i + 1] = toInsert;
+        final int toCopy = i + 1;
+        if (toCopy > 0) {
+            System.arraycopy(sortedSrc, 0, copy, 0, toCopy);
+        }
+        return copy;
+    }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T> Attribute<T> attr(AttributeKey<T> key) {
         ObjectUtil.checkNotNull(key, "key");
-        AtomicReferenceArray<DefaultAttribute<?>> attributes = this.attributes;
-        if (attributes == null) {
-            // Not using ConcurrentHashMap due to high memory consumption.
-            attributes = new AtomicReferenceArray<DefaultAttribute<?>>(BUCKET_SIZE);
-
-            if (!updater.compareAndSet(this, null, attributes)) {
-                attributes = this.attributes;
-            }
-        }
-
-        int i = index(key);
-        DefaultAttribute<?> head = attributes.get(i);
-        if (head == null) {
-            // No head exists yet which means we may be able to add the attribute without synchronization and just
-            // use compare and set. At worst we need to fallback to synchronization and waste two allocations.
-            head = new DefaultAttribute();
-            DefaultAttribute<T> attr = new DefaultAttribute<T>(head, key);
-            head.next = attr;
-            attr.prev = head;
-            if (attributes.compareAndSet(i, null, head)) {
-                // we were able to add it so return the attr right away
-                return attr;
-            } else {
-                head = attributes.get(i);
-            }
-        }
-
-        synchronized (head) {
-            DefaultAttribute<?> curr = head;
-            for (;;) {
-                DefaultAttribute<?> next = curr.next;
-                if (next == null) {
-                    DefaultAttribute<T> attr = new DefaultAttribute<T>(head, key);
-                    curr.next = attr;
-                    attr.prev = curr;
-                    return attr;
+        DefaultAttribute<T> newAttribute = null;
+        for (;;) {
+            final DefaultAttribute[] attributes = this.attributes;
+            final int index = searchAttributeByKey(attributes, key);
+            final DefaultAttribute[] newAttributes;
+            if (index >= 0) {
+                final DefaultAttribute<T> foundAttribute = attributes[index];
+                assert foundAttribute.key() == key;
+                if (!foundAttribute.isRemoved()) {
+                    return foundAttribute;
                 }
-
-                if (next.key == key && !next.removed) {
-                    return (Attribute<T>) next;
+                // Replace the removed attribute with a new one.
+                if (newAttribute == null) {
+                    newAttribute = new DefaultAttribute<T>(this, key);
                 }
-                curr = next;
+                final int count = attributes.length;
+                newAttributes = new DefaultAttribute[count];
+                System.arraycopy(attributes, 0, newAttributes, 0, count);
+                newAttributes[index] = newAttribute;
+            } else {
+                if (newAttribute == null) {
+                    newAttribute = new DefaultAttribute<T>(this, key);
+                }
+                newAttributes = orderedCopyOnInsert(attributes, newAttribute);
+            }
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attributes, newAttributes)) {
+                return newAttribute;
             }
         }
     }
@@ -91,69 +124,67 @@ public class DefaultAttributeMap implements AttributeMap {
     @Override
     public <T> boolean hasAttr(AttributeKey<T> key) {
         ObjectUtil.checkNotNull(key, "key");
-        AtomicReferenceArray<DefaultAttribute<?>> attributes = this.attributes;
-        if (attributes == null) {
-            // no attribute exists
-            return false;
-        }
-
-        int i = index(key);
-        DefaultAttribute<?> head = attributes.get(i);
-        if (head == null) {
-            // No attribute exists which point to the bucket in which the head should be located
-            return false;
-        }
+        final DefaultAttribute[] attributes = this.attributes;
+        final int index = searchAttributeByKey(attributes, key);
+        // A removed attribute may still be present until the removing thread replaced the array.
+        return index >= 0 && !attributes[index].isRemoved();
+    }
 
-        // We need to synchronize on the head.
-        synchronized (head) {
-            // Start with head.next as the head itself does not store an attribute.
-            DefaultAttribute<?> curr = head.next;
-            while (curr != null) {
-                if (curr.key == key && !curr.removed) {
-                    return true;
-                }
-                curr = curr.next;
+    private <T> void removeAttributeIfMatch(AttributeKey<T> key, DefaultAttribute<T> value) {
+        for (;;) {
+            final DefaultAttribute[] attributes = this.attributes;
+            final int index = searchAttributeByKey(attributes, key);
+            if (index < 0) {
+                return;
+            }
+            final DefaultAttribute attribute = attributes[index];
+            assert attribute.key() == key;
+            if (attribute != value) {
+                // Replaced by a new attribute already.
+                return;
+            }
+            final int count = attributes.length;
+            final int newCount = count - 1;
+            final DefaultAttribute[] newAttributes =
+                    newCount == 0 ? EMPTY_ATTRIBUTES : new DefaultAttribute[newCount];
+            // Perform 2 bulk copies to skip the removed attribute.
+            System.arraycopy(attributes, 0, newAttributes, 0, index);
+            final int remaining = count - index - 1;
+            if (remaining > 0) {
+                System.arraycopy(attributes, index + 1, newAttributes, index, remaining);
+            }
+            if (ATTRIBUTES_UPDATER.compareAndSet(this, attributes, newAttributes)) {
+                return;
             }
-            return false;
         }
     }
 
-    private static int index(AttributeKey<?> key) {
-        return key.id() & MASK;
-    }
-
     @SuppressWarnings("serial")
     private static final class DefaultAttribute<T> extends AtomicReference<T> implements Attribute<T> {
 
+        private static final AtomicReferenceFieldUpdater<DefaultAttribute, DefaultAttributeMap> MAP_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(DefaultAttribute.class,
+                                                       DefaultAttributeMap.class, "attributeMap");
         private static final long serialVersionUID = -2661411462200283011L;
 
-        // The head of the linked-list this attribute belongs to
-        private final DefaultAttribute<?> head;
+        // Set to null once the attribute is removed via getAndRemove() or remove().
+        private volatile DefaultAttributeMap attributeMap;
         private final AttributeKey<T> key;
 
-        // Double-linked list to prev and next node to allow fast removal
-        private DefaultAttribute<?> prev;
-        private DefaultAttribute<?> next;
-
-        // Will be set to true one the attribute is removed via getAndRemove() or remove()
-        private volatile boolean removed;
-
-        DefaultAttribute(DefaultAttribute<?> head, AttributeKey<T> key) {
-            this.head = head;
+        DefaultAttribute(DefaultAttributeMap attributeMap, AttributeKey<T> key) {
+            this.attributeMap = attributeMap;
             this.key = key;
         }
 
-        // Special constructor for the head of the linked-list.
-        DefaultAttribute() {
-            head = this;
-            key = null;
-        }
-
         @Override
         public AttributeKey<T> key() {
             return key;
         }
 
+        private boolean isRemoved() {
+            return attributeMap == null;
+        }
+
         @Override
         public T setIfAbsent(T value) {
             while (!compareAndSet(null, value)) {
@@ -167,36 +198,22 @@ public class DefaultAttributeMap implements AttributeMap {
 
         @Override
         public T getAndRemove() {
-            removed = true;
+            final DefaultAttributeMap attributeMap = this.attributeMap;
+            final boolean removed = attributeMap != null && MAP_UPDATER.compareAndSet(this, attributeMap, null);
             T oldValue = getAndSet(null);
-            remove0();
+            if (removed) {
+                attributeMap.removeAttributeIfMatch(key, this);
+            }
             return oldValue;
         }
 
         @Override
         public void remove() {
-            removed = true;
+            final DefaultAttributeMap attributeMap = this.attributeMap;
+            final boolean removed = attributeMap != null && MAP_UPDATER.compareAndSet(this, attributeMap, null);
             set(null);
-            remove0();
-        }
-
-        private void remove0() {
-            synchronized (head) {
-                if (prev == null) {
-                    // Removed before.
-                    return;
-                }
-
-                prev.next = next;
-
-                if (next != null) {
-                    next.prev = prev;
-                }
-
-                // Null out prev and next - this will guard against multiple remove0() calls which may corrupt
-                // the linked list for the bucket.
-                prev = null;
-                next = null;
+            if (removed) {
+                attributeMap.removeAttributeIfMatch(key, this);
             }
         }
     }
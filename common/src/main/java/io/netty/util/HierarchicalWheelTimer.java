@@ -0,0 +1,813 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import static io.netty.util.internal.StringUtil.simpleClassName;
+
+/**
+ * A {@link Timer} which keeps its {@link Timeout}s in a hierarchy of timing wheels, optionally sharded across
+ * several worker threads.
+ *
+ * <h3>Hierarchical Wheels</h3>
+ *
+ * {@link HashedWheelTimer} uses a single wheel, so a timeout which lies more than one revolution in the future
+ * stays in its bucket and is visited again on every revolution until its remaining rounds reach zero.  With many
+ * long timeouts this turns every tick into a scan over mostly idle timeouts.
+ * <p>
+ * {@link HierarchicalWheelTimer} instead adds overflow wheels on demand.  Each bucket of the first wheel covers
+ * one tick, each bucket of the second wheel covers one full revolution of the first wheel and so on.  A timeout
+ * is placed into the lowest wheel whose range covers its deadline and is moved down one level whenever the bucket
+ * it lives in comes due, so it is touched at most once per level.  Inserting and cancelling a timeout are
+ * {@code O(1)} as the buckets are doubly linked lists.
+ *
+ * <h3>Shards</h3>
+ *
+ * The timer can be split into several shards, each with its own worker thread, wheels and submission queue.  New
+ * timeouts are spread randomly across the shards, which removes the single worker thread as a bottleneck when
+ * millions of timeouts are scheduled and expire concurrently.
+ *
+ * <h3>Expiry Executor</h3>
+ *
+ * By default the {@link TimerTask}s are run by the worker thread, like {@link HashedWheelTimer} does.  If an
+ * {@link Executor} is specified, the timeouts expiring within a tick are instead handed off to it in batches, so
+ * slow tasks do not delay the expiry of other timeouts and each batch costs a single {@link Executor#execute}
+ * call.
+ *
+ * <h3>Do not create many instances.</h3>
+ *
+ * Like {@link HashedWheelTimer}, every instance creates its own worker threads and should be shared across the
+ * application.
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(HierarchicalWheelTimer.class);
+
+    private static final long MILLISECOND_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int EXPIRY_BATCH_SIZE = 1024;
+    private static final ResourceLeakDetector<HierarchicalWheelTimer> leakDetector =
+            ResourceLeakDetectorFactory.instance().newResourceLeakDetector(HierarchicalWheelTimer.class, 1);
+
+    private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimer> WORKER_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimer.class, "workerState");
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+    @SuppressWarnings({ "unused", "FieldMayBeFinal" })
+    private volatile int workerState; // 0 - init, 1 - started, 2 - shut down
+
+    private final ResourceLeakTracker<HierarchicalWheelTimer> leak;
+    private final Shard[] shards;
+    private final long tickDuration;
+    private final int wheelBits;
+    private final Executor expiryExecutor;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final LongCounter pendingTimeouts = PlatformDependent.newLongCounter();
+    private final long maxPendingTimeouts;
+
+    private volatile long startTime;
+
+    /**
+     * Creates a new timer with the default thread factory
+     * ({@link Executors#defaultThreadFactory()}), default tick duration, default number of ticks per wheel and
+     * a single shard.
+     */
+    public HierarchicalWheelTimer() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new timer with the default tick duration, default number of ticks per wheel and a single shard.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the
+     *                       background {@link Thread}s which are dedicated to
+     *                       {@link TimerTask} expiry.
+     * @throws NullPointerException if {@code threadFactory} is {@code null}
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer with the default number of ticks per wheel and a single shard.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the
+     *                       background {@link Thread}s which are dedicated to
+     *                       {@link TimerTask} expiry.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit) {
+        this(threadFactory, tickDuration, unit, 512, 1);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates the
+     *                       background {@link Thread}s which are dedicated to
+     *                       {@link TimerTask} expiry.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of each wheel
+     * @param shards         the number of shards, each of them using its own worker thread
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration}, {@code ticksPerWheel} and
+     *                                  {@code shards} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                  int ticksPerWheel, int shards) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, shards, null, true, -1);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory        a {@link ThreadFactory} that creates the
+     *                             background {@link Thread}s which are dedicated to
+     *                             {@link TimerTask} expiry.
+     * @param tickDuration         the duration between tick
+     * @param unit                 the time unit of the {@code tickDuration}
+     * @param ticksPerWheel        the size of each wheel
+     * @param shards               the number of shards, each of them using its own worker thread
+     * @param expiryExecutor       the {@link Executor} to which expired timeouts are handed off in batches, or
+     *                             {@code null} if the {@link TimerTask}s should be run by the worker threads.
+     * @param leakDetection        {@code true} if leak detection should be enabled always,
+     *                             if false it will only be enabled if the worker threads are not
+     *                             daemon threads.
+     * @param  maxPendingTimeouts  The maximum number of pending timeouts after which call to
+     *                             {@code newTimeout} will result in
+     *                             {@link java.util.concurrent.RejectedExecutionException}
+     *                             being thrown. No maximum pending timeouts limit is assumed if
+     *                             this value is 0 or negative.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration}, {@code ticksPerWheel} and
+     *                                  {@code shards} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit,
+                                  int ticksPerWheel, int shards, Executor expiryExecutor,
+                                  boolean leakDetection, long maxPendingTimeouts) {
+        ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+        ObjectUtil.checkNotNull(unit, "unit");
+        ObjectUtil.checkPositive(tickDuration, "tickDuration");
+        ObjectUtil.checkPositive(ticksPerWheel, "ticksPerWheel");
+        ObjectUtil.checkPositive(shards, "shards");
+        if (ticksPerWheel > 1073741824) {
+            throw new IllegalArgumentException(
+                    "ticksPerWheel may not be greater than 2^30: " + ticksPerWheel);
+        }
+
+        // Normalize ticksPerWheel to power of two, so the span of every wheel is a power of two as well.
+        wheelBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1));
+
+        long duration = unit.toNanos(tickDuration);
+        if (duration < MILLISECOND_NANOS) {
+            logger.warn("Configured tickDuration {} smaller then {}, using 1ms.",
+                        tickDuration, MILLISECOND_NANOS);
+            this.tickDuration = MILLISECOND_NANOS;
+        } else {
+            this.tickDuration = duration;
+        }
+
+        this.expiryExecutor = expiryExecutor;
+        this.maxPendingTimeouts = maxPendingTimeouts;
+
+        this.shards = new Shard[shards];
+        boolean daemon = true;
+        for (int i = 0; i < shards; i ++) {
+            Shard shard = new Shard();
+            shard.thread = threadFactory.newThread(shard);
+            daemon &= shard.thread.isDaemon();
+            this.shards[i] = shard;
+        }
+
+        leak = leakDetection || !daemon ? leakDetector.track(this) : null;
+    }
+
+    /**
+     * Starts the background threads explicitly.  The background threads will
+     * start automatically on demand even if you did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been
+     *                               {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    long startTime = System.nanoTime();
+                    // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0.
+                    this.startTime = startTime == 0 ? 1 : startTime;
+                    startTimeInitialized.countDown();
+                    for (Shard shard: shards) {
+                        shard.thread.start();
+                    }
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        // Wait until the startTime is initialized by the thread which started the workers.
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Ignore - it will be ready very soon.
+            }
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        for (Shard shard: shards) {
+            if (Thread.currentThread() == shard.thread) {
+                throw new IllegalStateException(
+                        HierarchicalWheelTimer.class.getSimpleName() +
+                                ".stop() cannot be called from " +
+                                TimerTask.class.getSimpleName());
+            }
+        }
+
+        if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            // workerState can be 0 or 2 at this moment - let it always be 2.
+            if (WORKER_STATE_UPDATER.getAndSet(this, WORKER_STATE_SHUTDOWN) != WORKER_STATE_SHUTDOWN) {
+                if (leak != null) {
+                    boolean closed = leak.close(this);
+                    assert closed;
+                }
+            }
+
+            return Collections.emptySet();
+        }
+
+        Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        try {
+            boolean interrupted = false;
+            for (Shard shard: shards) {
+                while (shard.thread.isAlive()) {
+                    shard.thread.interrupt();
+                    try {
+                        shard.thread.join(100);
+                    } catch (InterruptedException ignored) {
+                        interrupted = true;
+                    }
+                }
+                unprocessedTimeouts.addAll(shard.unprocessedTimeouts);
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            if (leak != null) {
+                boolean closed = leak.close(this);
+                assert closed;
+            }
+        }
+        return Collections.unmodifiableSet(unprocessedTimeouts);
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        ObjectUtil.checkNotNull(task, "task");
+        ObjectUtil.checkNotNull(unit, "unit");
+
+        pendingTimeouts.increment();
+        if (maxPendingTimeouts > 0) {
+            long pendingTimeoutsCount = pendingTimeouts.value();
+            if (pendingTimeoutsCount > maxPendingTimeouts) {
+                pendingTimeouts.decrement();
+                throw new RejectedExecutionException("Number of pending timeouts ("
+                    + pendingTimeoutsCount + ") is greater than or equal to maximum allowed pending "
+                    + "timeouts (" + maxPendingTimeouts + ")");
+            }
+        }
+
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+
+        // Guard against overflow.
+        if (delay > 0 && deadline < 0) {
+            deadline = Long.MAX_VALUE;
+        }
+        Shard shard = shards.length == 1 ? shards[0] : shards[PlatformDependent.threadLocalRandom().nextInt(
+                shards.length)];
+        HierarchicalWheelTimeout timeout = new HierarchicalWheelTimeout(shard, task, deadline);
+        shard.timeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the number of pending timeouts of this {@link Timer}.
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.value();
+    }
+
+    /**
+     * The part of the timer that is owned by a single worker thread.
+     */
+    private final class Shard implements Runnable {
+        final Queue<HierarchicalWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+        final Queue<HierarchicalWheelTimeout> cancelledTimeouts = PlatformDependent.newMpscQueue();
+        final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+        final Wheel wheel = new Wheel(0, wheelBits, 0);
+        Thread thread;
+
+        // Only accessed by the worker thread.
+        private long tick;
+        private List<HierarchicalWheelTimeout> expiredTimeouts;
+
+        HierarchicalWheelTimer timer() {
+            return HierarchicalWheelTimer.this;
+        }
+
+        @Override
+        public void run() {
+            do {
+                final long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+                        wheel.advanceClock(tick);
+                    }
+                    processCancelledTasks();
+                    transferTimeoutsToWheel();
+                    expireTimeouts(wheel);
+                    handOffExpiredTimeouts();
+                    tick++;
+                }
+            } while (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+                wheel.clearTimeouts(unprocessedTimeouts);
+            }
+            for (;;) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            processCancelledTasks();
+        }
+
+        private void transferTimeoutsToWheel() {
+            // transfer only max. 100000 timeouts per tick to prevent a thread to stale the workerThread when it just
+            // adds new timeouts in a loop.
+            for (int i = 0; i < 100000; i++) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (timeout.state() == HierarchicalWheelTimeout.ST_CANCELLED) {
+                    // Was cancelled in the meantime.
+                    continue;
+                }
+                add(timeout);
+            }
+        }
+
+        /**
+         * Places the {@link HierarchicalWheelTimeout} into the lowest wheel whose range covers its deadline,
+         * or expires it if it is due in the current tick.
+         */
+        private void add(HierarchicalWheelTimeout timeout) {
+            final long expiration = timeout.deadline / tickDuration;
+            Wheel wheel = this.wheel;
+            for (;;) {
+                if (expiration < wheel.currentTick + wheel.span()) {
+                    // Only ever true for the lowest wheel, as every wheel covers the first bucket of the next one.
+                    expire(timeout);
+                    return;
+                }
+                if (expiration < wheel.currentTick + wheel.interval()) {
+                    wheel.bucket(expiration).addTimeout(timeout);
+                    return;
+                }
+                Wheel overflow = wheel.overflow(tick);
+                if (overflow == null) {
+                    // The deadline lies beyond the range of the largest wheel we can represent. Park it in the
+                    // furthest bucket, it will be placed again once that bucket comes due.
+                    wheel.bucket(wheel.currentTick + wheel.interval() - wheel.span()).addTimeout(timeout);
+                    return;
+                }
+                wheel = overflow;
+            }
+        }
+
+        /**
+         * Empties the buckets of all wheels that come due in the current tick, starting with the largest wheel so
+         * that timeouts cascading down to the lowest wheel are expired within the same tick.
+         */
+        private void expireTimeouts(Wheel wheel) {
+            if (wheel == null || wheel.currentTick != tick) {
+                // If this wheel is not on a bucket boundary the larger wheels are not either.
+                return;
+            }
+            expireTimeouts(wheel.overflow);
+
+            HierarchicalWheelBucket bucket = wheel.bucket(tick);
+            for (;;) {
+                HierarchicalWheelTimeout timeout = bucket.pollTimeout();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    add(timeout);
+                }
+            }
+        }
+
+        private void expire(HierarchicalWheelTimeout timeout) {
+            if (!timeout.compareAndSetState(HierarchicalWheelTimeout.ST_INIT, HierarchicalWheelTimeout.ST_EXPIRED)) {
+                // Was cancelled in the meantime, the pending count is updated when processing the cancellation.
+                return;
+            }
+            pendingTimeouts.decrement();
+
+            if (expiryExecutor == null) {
+                timeout.run();
+                return;
+            }
+            List<HierarchicalWheelTimeout> expiredTimeouts = this.expiredTimeouts;
+            if (expiredTimeouts == null) {
+                expiredTimeouts = this.expiredTimeouts = new ArrayList<HierarchicalWheelTimeout>();
+            }
+            expiredTimeouts.add(timeout);
+            if (expiredTimeouts.size() == EXPIRY_BATCH_SIZE) {
+                handOffExpiredTimeouts();
+            }
+        }
+
+        private void handOffExpiredTimeouts() {
+            List<HierarchicalWheelTimeout> expiredTimeouts = this.expiredTimeouts;
+            if (expiredTimeouts == null) {
+                return;
+            }
+            this.expiredTimeouts = null;
+            try {
+                expiryExecutor.execute(new ExpiredTimeouts(expiredTimeouts));
+            } catch (Throwable t) {
+                logger.warn("An exception was thrown while handing off {} expired timeouts to {}",
+                        expiredTimeouts.size(), expiryExecutor, t);
+            }
+        }
+
+        private void processCancelledTasks() {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                try {
+                    timeout.remove();
+                } catch (Throwable t) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("An exception was thrown while process a cancellation task", t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * calculate goal nanoTime from startTime and current tick number,
+         * then wait until that goal has been reached.
+         * @return Long.MIN_VALUE if received a shutdown request,
+         * current time otherwise (with Long.MIN_VALUE changed by +1)
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (;;) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                // See https://github.com/netty/netty/issues/356
+                if (PlatformDependent.isWindows()) {
+                    sleepTimeMs = sleepTimeMs / 10 * 10;
+                    if (sleepTimeMs == 0) {
+                        sleepTimeMs = 1;
+                    }
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A single level of the hierarchy. Each of its buckets covers {@code 2^shift} ticks, so the whole wheel covers
+     * {@code 2^(shift + bits)} ticks, which is the span of one bucket of the overflow wheel.
+     */
+    private static final class Wheel {
+        private final HierarchicalWheelBucket[] buckets;
+        private final int shift;
+        private final int bits;
+
+        // The start of the current bucket, always a multiple of the span.
+        long currentTick;
+        Wheel overflow;
+
+        Wheel(int shift, int bits, long tick) {
+            this.shift = shift;
+            this.bits = bits;
+            buckets = new HierarchicalWheelBucket[1 << bits];
+            for (int i = 0; i < buckets.length; i ++) {
+                buckets[i] = new HierarchicalWheelBucket();
+            }
+            advanceClock(tick);
+        }
+
+        long span() {
+            return 1L << shift;
+        }
+
+        long interval() {
+            return 1L << (shift + bits);
+        }
+
+        void advanceClock(long tick) {
+            currentTick = tick & -span();
+        }
+
+        HierarchicalWheelBucket bucket(long tick) {
+            return buckets[(int) (tick >>> shift) & (buckets.length - 1)];
+        }
+
+        /**
+         * Returns the next wheel of the hierarchy, creating it if needed, or {@code null} if its range could not
+         * be represented anymore.
+         */
+        Wheel overflow(long tick) {
+            if (overflow == null && shift + 2 * bits < 63) {
+                overflow = new Wheel(shift + bits, bits, tick);
+            }
+            return overflow;
+        }
+
+        void clearTimeouts(Set<Timeout> set) {
+            for (HierarchicalWheelBucket bucket: buckets) {
+                bucket.clearTimeouts(set);
+            }
+        }
+    }
+
+    /**
+     * Runs a batch of expired {@link HierarchicalWheelTimeout}s on the expiry {@link Executor}.
+     */
+    private static final class ExpiredTimeouts implements Runnable {
+        private final List<HierarchicalWheelTimeout> timeouts;
+
+        ExpiredTimeouts(List<HierarchicalWheelTimeout> timeouts) {
+            this.timeouts = timeouts;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < timeouts.size(); i ++) {
+                timeouts.get(i).run();
+            }
+        }
+    }
+
+    private static final class HierarchicalWheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimeout.class, "state");
+
+        private final Shard shard;
+        private final TimerTask task;
+        private final long deadline;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // This will be used to chain timeouts in HierarchicalWheelBucket via a double-linked-list.
+        // As only the worker thread of the shard will act on it there is no need for synchronization / volatile.
+        HierarchicalWheelTimeout next;
+        HierarchicalWheelTimeout prev;
+
+        // The bucket to which the timeout was added
+        HierarchicalWheelBucket bucket;
+
+        HierarchicalWheelTimeout(Shard shard, TimerTask task, long deadline) {
+            this.shard = shard;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Timer timer() {
+            return shard.timer();
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            // only update the state it will be removed from its bucket on next tick.
+            if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            shard.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        void remove() {
+            HierarchicalWheelBucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+            shard.timer().pendingTimeouts.decrement();
+        }
+
+        boolean compareAndSetState(int expected, int state) {
+            return STATE_UPDATER.compareAndSet(this, expected, state);
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void run() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long currentTime = System.nanoTime();
+            long remaining = deadline - currentTime + shard.timer().startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores HierarchicalWheelTimeouts in a doubly linked list, so they can be removed from the middle
+     * in constant time without any extra object creation.
+     */
+    private static final class HierarchicalWheelBucket {
+        private HierarchicalWheelTimeout head;
+        private HierarchicalWheelTimeout tail;
+
+        void addTimeout(HierarchicalWheelTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(HierarchicalWheelTimeout timeout) {
+            HierarchicalWheelTimeout next = timeout.next;
+            HierarchicalWheelTimeout prev = timeout.prev;
+            if (prev != null) {
+                prev.next = next;
+            } else {
+                head = next;
+            }
+            if (next != null) {
+                next.prev = prev;
+            } else {
+                tail = prev;
+            }
+            // null out prev, next and bucket to allow for GC.
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        HierarchicalWheelTimeout pollTimeout() {
+            HierarchicalWheelTimeout head = this.head;
+            if (head != null) {
+                remove(head);
+            }
+            return head;
+        }
+
+        /**
+         * Clear this bucket and return all not expired / cancelled {@link Timeout}s.
+         */
+        void clearTimeouts(Set<Timeout> set) {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = pollTimeout();
+                if (timeout == null) {
+                    return;
+                }
+                if (timeout.isExpired() || timeout.isCancelled()) {
+                    continue;
+                }
+                set.add(timeout);
+            }
+        }
+    }
+}
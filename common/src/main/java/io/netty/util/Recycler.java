@@ -17,7 +17,10 @@
 package io.netty.util;
 
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.ObjectPool;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -25,8 +28,10 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.lang.ref.WeakReference;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Queue;
 import java.util.WeakHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import static io.netty.util.internal.MathUtil.safeFindNextPositivePowerOfTwo;
 import static java.lang.Math.max;
@@ -58,6 +63,7 @@ public abstract class Recycler<T> {
     private static final int LINK_CAPACITY;
     private static final int RATIO;
     private static final int DELAYED_QUEUE_RATIO;
+    private static final boolean LOCK_FREE;
 
     static {
         // In the future, we might have different maxCapacity for different object types.
@@ -89,6 +95,10 @@ public abstract class Recycler<T> {
         RATIO = max(0, SystemPropertyUtil.getInt("io.netty.recycler.ratio", 8));
         DELAYED_QUEUE_RATIO = max(0, SystemPropertyUtil.getInt("io.netty.recycler.delayedQueue.ratio", RATIO));
 
+        // Use a thread-local stack plus a bounded MPSC queue for objects recycled by other threads instead of
+        // the Stack / WeakOrderQueue design.
+        LOCK_FREE = SystemPropertyUtil.getBoolean("io.netty.recycler.lockFree", false);
+
         if (logger.isDebugEnabled()) {
             if (DEFAULT_MAX_CAPACITY_PER_THREAD == 0) {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: disabled");
@@ -96,12 +106,14 @@ public abstract class Recycler<T> {
                 logger.debug("-Dio.netty.recycler.linkCapacity: disabled");
                 logger.debug("-Dio.netty.recycler.ratio: disabled");
                 logger.debug("-Dio.netty.recycler.delayedQueue.ratio: disabled");
+                logger.debug("-Dio.netty.recycler.lockFree: disabled");
             } else {
                 logger.debug("-Dio.netty.recycler.maxCapacityPerThread: {}", DEFAULT_MAX_CAPACITY_PER_THREAD);
                 logger.debug("-Dio.netty.recycler.maxSharedCapacityFactor: {}", MAX_SHARED_CAPACITY_FACTOR);
                 logger.debug("-Dio.netty.recycler.linkCapacity: {}", LINK_CAPACITY);
                 logger.debug("-Dio.netty.recycler.ratio: {}", RATIO);
                 logger.debug("-Dio.netty.recycler.delayedQueue.ratio: {}", DELAYED_QUEUE_RATIO);
+                logger.debug("-Dio.netty.recycler.lockFree: {}", LOCK_FREE);
             }
         }
 
@@ -113,24 +125,11 @@ public abstract class Recycler<T> {
     private final int interval;
     private final int maxDelayedQueuesPerThread;
     private final int delayedQueueInterval;
+    private final DefaultRecyclerMetric metric = new DefaultRecyclerMetric();
 
-    private final FastThreadLocal<Stack<T>> threadLocal = new FastThreadLocal<Stack<T>>() {
-        @Override
-        protected Stack<T> initialValue() {
-            return new Stack<T>(Recycler.this, Thread.currentThread(), maxCapacityPerThread, maxSharedCapacityFactor,
-                    interval, maxDelayedQueuesPerThread, delayedQueueInterval);
-        }
-
-        @Override
-        protected void onRemoval(Stack<T> value) {
-            // Let us remove the WeakOrderQueue from the WeakHashMap directly if its safe to remove some overhead
-            if (value.threadRef.get() == Thread.currentThread()) {
-               if (DELAYED_RECYCLED.isSet()) {
-                   DELAYED_RECYCLED.get().remove(value);
-               }
-            }
-        }
-    };
+    // Only one of these is used, depending on io.netty.recycler.lockFree.
+    private final FastThreadLocal<Stack<T>> threadLocal;
+    private final FastThreadLocal<LocalPool<T>> localPool;
 
     protected Recycler() {
         this(DEFAULT_MAX_CAPACITY_PER_THREAD);
@@ -152,6 +151,12 @@ public abstract class Recycler<T> {
 
     protected Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
                        int ratio, int maxDelayedQueuesPerThread, int delayedQueueRatio) {
+        this(maxCapacityPerThread, maxSharedCapacityFactor, ratio, maxDelayedQueuesPerThread, delayedQueueRatio,
+                LOCK_FREE);
+    }
+
+    Recycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
+             int ratio, int maxDelayedQueuesPerThread, int delayedQueueRatio, boolean lockFree) {
         interval = max(0, ratio);
         delayedQueueInterval = max(0, delayedQueueRatio);
         if (maxCapacityPerThread <= 0) {
@@ -163,6 +168,42 @@ public abstract class Recycler<T> {
             this.maxSharedCapacityFactor = max(1, maxSharedCapacityFactor);
             this.maxDelayedQueuesPerThread = max(0, maxDelayedQueuesPerThread);
         }
+        if (lockFree) {
+            threadLocal = null;
+            localPool = new FastThreadLocal<LocalPool<T>>() {
+                @Override
+                protected LocalPool<T> initialValue() {
+                    return new LocalPool<T>(Recycler.this, Thread.currentThread());
+                }
+
+                @Override
+                protected void onRemoval(LocalPool<T> value) {
+                    // Drop everything which is recycled from now on, as the pool can not be used anymore.
+                    value.owner.clear();
+                }
+            };
+        } else {
+            localPool = null;
+            threadLocal = new FastThreadLocal<Stack<T>>() {
+                @Override
+                protected Stack<T> initialValue() {
+                    return new Stack<T>(Recycler.this, Thread.currentThread(), Recycler.this.maxCapacityPerThread,
+                            Recycler.this.maxSharedCapacityFactor, interval, Recycler.this.maxDelayedQueuesPerThread,
+                            delayedQueueInterval);
+                }
+
+                @Override
+                protected void onRemoval(Stack<T> value) {
+                    // Let us remove the WeakOrderQueue from the WeakHashMap directly if its safe to remove some
+                    // overhead
+                    if (value.threadRef.get() == Thread.currentThread()) {
+                       if (DELAYED_RECYCLED.isSet()) {
+                           DELAYED_RECYCLED.get().remove(value);
+                       }
+                    }
+                }
+            };
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -170,6 +211,18 @@ public abstract class Recycler<T> {
         if (maxCapacityPerThread == 0) {
             return newObject((Handle<T>) NOOP_HANDLE);
         }
+        if (localPool != null) {
+            LocalPool<T> pool = localPool.get();
+            LockFreeHandle<T> handle = pool.claim();
+            if (handle == null) {
+                metric.misses.increment();
+                handle = new LockFreeHandle<T>(pool);
+                handle.value = newObject(handle);
+            } else {
+                metric.hits.increment();
+            }
+            return handle.value;
+        }
         Stack<T> stack = threadLocal.get();
         DefaultHandle<T> handle = stack.pop();
         if (handle == null) {
@@ -187,6 +240,14 @@ public abstract class Recycler<T> {
         if (handle == NOOP_HANDLE) {
             return false;
         }
+        if (handle instanceof LockFreeHandle) {
+            LockFreeHandle<T> h = (LockFreeHandle<T>) handle;
+            if (h.pool.parent != this) {
+                return false;
+            }
+            h.recycle(o);
+            return true;
+        }
 
         DefaultHandle<T> h = (DefaultHandle<T>) handle;
         if (h.stack.parent != this) {
@@ -197,12 +258,20 @@ public abstract class Recycler<T> {
         return true;
     }
 
+    /**
+     * Returns the {@link RecyclerMetric} of this {@link Recycler}. The counters are only maintained if the
+     * lock-free implementation is used, which is enabled by {@code -Dio.netty.recycler.lockFree=true}.
+     */
+    public final RecyclerMetric metric() {
+        return metric;
+    }
+
     final int threadLocalCapacity() {
-        return threadLocal.get().elements.length;
+        return localPool != null ? localPool.get().elements.length : threadLocal.get().elements.length;
     }
 
     final int threadLocalSize() {
-        return threadLocal.get().size;
+        return localPool != null ? localPool.get().size : threadLocal.get().size;
     }
 
     protected abstract T newObject(Handle<T> handle);
@@ -237,6 +306,206 @@ public abstract class Recycler<T> {
         }
     }
 
+    private static final class DefaultRecyclerMetric implements RecyclerMetric {
+        final LongCounter hits = PlatformDependent.newLongCounter();
+        final LongCounter misses = PlatformDependent.newLongCounter();
+        final LongCounter drops = PlatformDependent.newLongCounter();
+        final LongCounter crossThreadReturns = PlatformDependent.newLongCounter();
+
+        @Override
+        public long hits() {
+            return hits.value();
+        }
+
+        @Override
+        public long misses() {
+            return misses.value();
+        }
+
+        @Override
+        public long drops() {
+            return drops.value();
+        }
+
+        @Override
+        public long crossThreadReturns() {
+            return crossThreadReturns.value();
+        }
+
+        @Override
+        public String toString() {
+            return StringUtil.simpleClassName(this) +
+                    "(hits: " + hits() +
+                    "; misses: " + misses() +
+                    "; drops: " + drops() +
+                    "; crossThreadReturns: " + crossThreadReturns() +
+                    ')';
+        }
+    }
+
+    private static final class LockFreeHandle<T> implements Handle<T> {
+        private static final int STATE_CLAIMED = 0;
+        private static final int STATE_AVAILABLE = 1;
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LockFreeHandle> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(LockFreeHandle.class, "state");
+
+        @SuppressWarnings("unused")
+        private volatile int state;
+        final LocalPool<T> pool;
+        boolean hasBeenRecycled;
+        T value;
+
+        LockFreeHandle(LocalPool<T> pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void recycle(Object object) {
+            if (object != value) {
+                throw new IllegalArgumentException("object does not belong to handle");
+            }
+            if (STATE_UPDATER.getAndSet(this, STATE_AVAILABLE) == STATE_AVAILABLE) {
+                throw new IllegalStateException("recycled already");
+            }
+            pool.release(this);
+        }
+
+        void toClaimed() {
+            assert state == STATE_AVAILABLE;
+            // Only the owning thread claims handles, and recycling the handle again requires publishing it first.
+            STATE_UPDATER.lazySet(this, STATE_CLAIMED);
+        }
+    }
+
+    /**
+     * Thread-local pool of the lock-free implementation. Handles recycled by the owning thread are pushed on a plain
+     * array stack, handles recycled by other threads are handed back through a bounded MPSC queue which is drained
+     * by the owner once its stack runs empty. Unlike {@link WeakOrderQueue} this does not allocate any per-thread
+     * structures on the recycling side, so the memory retained for cross-thread recycling is bounded per pool.
+     */
+    private static final class LocalPool<T> {
+        final Recycler<T> parent;
+        // See Stack.threadRef for why this is a WeakReference.
+        final WeakReference<Thread> owner;
+        // null if recycling from other threads is disabled.
+        private final Queue<LockFreeHandle<T>> foreignHandles;
+        LockFreeHandle<?>[] elements;
+        int size;
+        private int handleRecycleCount;
+        private int foreignHandleRecycleCount;
+
+        LocalPool(Recycler<T> parent, Thread owner) {
+            this.parent = parent;
+            this.owner = new WeakReference<Thread>(owner);
+            if (parent.maxDelayedQueuesPerThread == 0) {
+                foreignHandles = null;
+            } else {
+                int maxForeignHandles = max(parent.maxCapacityPerThread / parent.maxSharedCapacityFactor,
+                        LINK_CAPACITY);
+                foreignHandles = PlatformDependent.newMpscQueue(maxForeignHandles);
+            }
+            elements = new LockFreeHandle[min(INITIAL_CAPACITY, parent.maxCapacityPerThread)];
+            // Start at interval so the first one will be recycled.
+            handleRecycleCount = parent.interval;
+            foreignHandleRecycleCount = parent.delayedQueueInterval;
+        }
+
+        @SuppressWarnings("unchecked")
+        LockFreeHandle<T> claim() {
+            int size = this.size;
+            if (size == 0) {
+                size = drainForeignHandles();
+                if (size == 0) {
+                    return null;
+                }
+            }
+            size--;
+            LockFreeHandle<T> handle = (LockFreeHandle<T>) elements[size];
+            elements[size] = null;
+            this.size = size;
+            handle.toClaimed();
+            return handle;
+        }
+
+        void release(LockFreeHandle<T> handle) {
+            Thread owner = this.owner.get();
+            if (owner == Thread.currentThread()) {
+                if (!handle.hasBeenRecycled) {
+                    if (handleRecycleCount < parent.interval) {
+                        handleRecycleCount++;
+                        // Drop the object to not grow the pool too aggressively.
+                        parent.metric.drops.increment();
+                        return;
+                    }
+                    handleRecycleCount = 0;
+                    handle.hasBeenRecycled = true;
+                }
+                if (!push(handle)) {
+                    parent.metric.drops.increment();
+                }
+                return;
+            }
+            parent.metric.crossThreadReturns.increment();
+            if (owner != null && !owner.isAlive()) {
+                // Nobody will ever drain the queue again, so stop retaining objects in it.
+                this.owner.clear();
+                owner = null;
+            }
+            if (owner == null || foreignHandles == null || !foreignHandles.offer(handle)) {
+                // The owner is gone, recycling from other threads is disabled or the queue is full.
+                parent.metric.drops.increment();
+            }
+        }
+
+        private int drainForeignHandles() {
+            if (foreignHandles == null) {
+                return 0;
+            }
+            for (;;) {
+                LockFreeHandle<T> handle = foreignHandles.poll();
+                if (handle == null) {
+                    break;
+                }
+                if (!handle.hasBeenRecycled) {
+                    // Apply the ratio for objects recycled by other threads first and then the ratio of the pool
+                    // itself, just like Stack does when it transfers objects from a WeakOrderQueue.
+                    if (foreignHandleRecycleCount < parent.delayedQueueInterval) {
+                        foreignHandleRecycleCount++;
+                        parent.metric.drops.increment();
+                        continue;
+                    }
+                    foreignHandleRecycleCount = 0;
+                    if (handleRecycleCount < parent.interval) {
+                        handleRecycleCount++;
+                        parent.metric.drops.increment();
+                        continue;
+                    }
+                    handleRecycleCount = 0;
+                    handle.hasBeenRecycled = true;
+                }
+                if (!push(handle)) {
+                    parent.metric.drops.increment();
+                    break;
+                }
+            }
+            return size;
+        }
+
+        private boolean push(LockFreeHandle<T> handle) {
+            int size = this.size;
+            if (size >= parent.maxCapacityPerThread) {
+                return false;
+            }
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, min(size << 1, parent.maxCapacityPerThread));
+            }
+            elements[size] = handle;
+            this.size = size + 1;
+            return true;
+        }
+    }
+
     private static final FastThreadLocal<Map<Stack<?>, WeakOrderQueue>> DELAYED_RECYCLED =
             new FastThreadLocal<Map<Stack<?>, WeakOrderQueue>>() {
         @Override
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+/**
+ * Exposes metrics of a {@link Recycler}.
+ */
+public interface RecyclerMetric {
+
+    /**
+     * Returns the number of objects which were taken from the pool.
+     */
+    long hits();
+
+    /**
+     * Returns the number of objects which had to be newly created as the pool was empty.
+     */
+    long misses();
+
+    /**
+     * Returns the number of recycled objects which were not pooled, because the pool was full, the recycling ratio
+     * dropped them or the owning thread is gone.
+     */
+    long drops();
+
+    /**
+     * Returns the number of objects which were recycled by another thread than the one they were created by.
+     */
+    long crossThreadReturns();
+}
@@ -26,13 +26,20 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import java.lang.ref.WeakReference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
@@ -53,8 +60,20 @@ public class ResourceLeakDetector<T> {
     // There is a minor performance benefit in TLR if this is a power of 2.
     private static final int DEFAULT_SAMPLING_INTERVAL = 128;
 
+    private static final String PROP_ALLOCATION_SITES = "io.netty.leakDetection.allocationSites";
+    private static final String PROP_ALLOCATION_SITE_FRAMES = "io.netty.leakDetection.allocationSiteFrames";
+    private static final int DEFAULT_ALLOCATION_SITE_FRAMES = 8;
+    private static final String PROP_MAX_ALLOCATION_SITES = "io.netty.leakDetection.maxAllocationSites";
+    private static final int DEFAULT_MAX_ALLOCATION_SITES = 256;
+    private static final String PROP_ALLOCATION_SITE_REPORT_INTERVAL =
+            "io.netty.leakDetection.allocationSiteReportInterval";
+    private static final long DEFAULT_ALLOCATION_SITE_REPORT_INTERVAL = 60000;
+
     private static final int TARGET_RECORDS;
     static final int SAMPLING_INTERVAL;
+    private static final int ALLOCATION_SITE_FRAMES;
+    private static final int MAX_ALLOCATION_SITES;
+    private static final long ALLOCATION_SITE_REPORT_INTERVAL_NANOS;
 
     /**
      * Represents the level of resource leak detection.
@@ -98,6 +117,7 @@ public class ResourceLeakDetector<T> {
     }
 
     private static Level level;
+    private static volatile boolean allocationSites;
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(ResourceLeakDetector.class);
 
@@ -124,11 +144,23 @@ public class ResourceLeakDetector<T> {
 
         TARGET_RECORDS = SystemPropertyUtil.getInt(PROP_TARGET_RECORDS, DEFAULT_TARGET_RECORDS);
         SAMPLING_INTERVAL = SystemPropertyUtil.getInt(PROP_SAMPLING_INTERVAL, DEFAULT_SAMPLING_INTERVAL);
+        allocationSites = SystemPropertyUtil.getBoolean(PROP_ALLOCATION_SITES, false);
+        ALLOCATION_SITE_FRAMES = Math.max(1,
+                SystemPropertyUtil.getInt(PROP_ALLOCATION_SITE_FRAMES, DEFAULT_ALLOCATION_SITE_FRAMES));
+        MAX_ALLOCATION_SITES = Math.max(1,
+                SystemPropertyUtil.getInt(PROP_MAX_ALLOCATION_SITES, DEFAULT_MAX_ALLOCATION_SITES));
+        ALLOCATION_SITE_REPORT_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(Math.max(0, SystemPropertyUtil.getLong(
+                PROP_ALLOCATION_SITE_REPORT_INTERVAL, DEFAULT_ALLOCATION_SITE_REPORT_INTERVAL)));
 
         ResourceLeakDetector.level = level;
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
             logger.debug("-D{}: {}", PROP_TARGET_RECORDS, TARGET_RECORDS);
+            logger.debug("-D{}: {}", PROP_ALLOCATION_SITES, allocationSites);
+            logger.debug("-D{}: {}", PROP_ALLOCATION_SITE_FRAMES, ALLOCATION_SITE_FRAMES);
+            logger.debug("-D{}: {}", PROP_MAX_ALLOCATION_SITES, MAX_ALLOCATION_SITES);
+            logger.debug("-D{}: {}", PROP_ALLOCATION_SITE_REPORT_INTERVAL,
+                    TimeUnit.NANOSECONDS.toMillis(ALLOCATION_SITE_REPORT_INTERVAL_NANOS));
         }
     }
 
@@ -161,6 +193,22 @@ public class ResourceLeakDetector<T> {
         return level;
     }
 
+    /**
+     * Sets whether leaks detected at {@link Level#SIMPLE} are aggregated per allocation site. Instead of a full
+     * stack trace only the top frames of the allocating thread are captured for each sampled resource, and the
+     * number of leaks per site is reported periodically rather than logging every leak on its own.
+     */
+    public static void setAllocationSiteTracking(boolean enabled) {
+        allocationSites = enabled;
+    }
+
+    /**
+     * Returns {@code true} if leaks detected at {@link Level#SIMPLE} are aggregated per allocation site.
+     */
+    public static boolean isAllocationSiteTracking() {
+        return allocationSites;
+    }
+
     /** the collection of active resources */
     private final Set<DefaultResourceLeak<?>> allLeaks =
             Collections.newSetFromMap(new ConcurrentHashMap<DefaultResourceLeak<?>, Boolean>());
@@ -169,6 +217,8 @@ public class ResourceLeakDetector<T> {
     private final Set<String> reportedLeaks =
             Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
+    private final AllocationSiteLeaks allocationSiteLeaks = new AllocationSiteLeaks();
+
     private final String resourceType;
     private final int samplingInterval;
 
@@ -256,12 +306,14 @@ public class ResourceLeakDetector<T> {
         if (level.ordinal() < Level.PARANOID.ordinal()) {
             if ((PlatformDependent.threadLocalRandom().nextInt(samplingInterval)) == 0) {
                 reportLeak();
-                return new DefaultResourceLeak(obj, refQueue, allLeaks);
+                AllocationSite site = level == Level.SIMPLE && allocationSites ?
+                        AllocationSite.capture(ALLOCATION_SITE_FRAMES) : null;
+                return new DefaultResourceLeak(obj, refQueue, allLeaks, site);
             }
             return null;
         }
         reportLeak();
-        return new DefaultResourceLeak(obj, refQueue, allLeaks);
+        return new DefaultResourceLeak(obj, refQueue, allLeaks, null);
     }
 
     private void clearRefQueue() {
@@ -301,6 +353,11 @@ public class ResourceLeakDetector<T> {
                 continue;
             }
 
+            if (ref.allocationSite != null) {
+                allocationSiteLeaks.add(ref.allocationSite);
+                continue;
+            }
+
             String records = ref.toString();
             if (reportedLeaks.add(records)) {
                 if (records.isEmpty()) {
@@ -310,6 +367,11 @@ public class ResourceLeakDetector<T> {
                 }
             }
         }
+
+        String sites = allocationSiteLeaks.pollReport();
+        if (sites != null) {
+            reportAllocationSiteLeaks(resourceType, sites);
+        }
     }
 
     /**
@@ -336,6 +398,17 @@ public class ResourceLeakDetector<T> {
                 resourceType, PROP_LEVEL, Level.ADVANCED.name().toLowerCase(), simpleClassName(this));
     }
 
+    /**
+     * This method is called periodically with the leaks which were detected since the last call, aggregated by
+     * allocation site, if {@linkplain #setAllocationSiteTracking(boolean) allocation site tracking} is enabled.
+     * It can be overridden for tracking how many times leaks have been detected.
+     */
+    protected void reportAllocationSiteLeaks(String resourceType, String sites) {
+        logger.error("LEAK: {}.release() was not called before it's garbage-collected. " +
+                "See https://netty.io/wiki/reference-counted-objects.html for more information. " +
+                "Leaks detected since the last report by allocation site:{}", resourceType, sites);
+    }
+
     /**
      * @deprecated This method will no longer be invoked by {@link ResourceLeakDetector}.
      */
@@ -364,11 +437,13 @@ public class ResourceLeakDetector<T> {
 
         private final Set<DefaultResourceLeak<?>> allLeaks;
         private final int trackedHash;
+        final AllocationSite allocationSite;
 
         DefaultResourceLeak(
                 Object referent,
                 ReferenceQueue<Object> refQueue,
-                Set<DefaultResourceLeak<?>> allLeaks) {
+                Set<DefaultResourceLeak<?>> allLeaks,
+                AllocationSite allocationSite) {
             super(referent, refQueue);
 
             assert referent != null;
@@ -378,9 +453,11 @@ public class ResourceLeakDetector<T> {
             // be collected via the WeakReference.
             trackedHash = System.identityHashCode(referent);
             allLeaks.add(this);
-            // Create a new Record so we always have the creation stacktrace included.
-            headUpdater.set(this, new TraceRecord(TraceRecord.BOTTOM));
+            // Create a new Record so we always have the creation stacktrace included, unless the allocation site
+            // was captured instead.
+            headUpdater.set(this, allocationSite == null ? new TraceRecord(TraceRecord.BOTTOM) : TraceRecord.BOTTOM);
             this.allLeaks = allLeaks;
+            this.allocationSite = allocationSite;
         }
 
         @Override
@@ -561,6 +638,97 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Bounded table of the number of leaks per allocation site since the last report.
+     */
+    private static final class AllocationSiteLeaks {
+        private final ConcurrentMap<Long, SiteLeaks> sites = PlatformDependent.newConcurrentHashMap();
+        // Leaks which could not be added to the table because it was full.
+        private final AtomicInteger otherLeaks = new AtomicInteger();
+        // Allow the first report right away.
+        private final AtomicLong lastReportNanos =
+                new AtomicLong(System.nanoTime() - ALLOCATION_SITE_REPORT_INTERVAL_NANOS);
+
+        void add(AllocationSite site) {
+            Long fingerprint = site.fingerprint();
+            SiteLeaks leaks = sites.get(fingerprint);
+            if (leaks == null) {
+                if (sites.size() >= MAX_ALLOCATION_SITES) {
+                    otherLeaks.incrementAndGet();
+                    return;
+                }
+                SiteLeaks newLeaks = new SiteLeaks(site);
+                leaks = sites.putIfAbsent(fingerprint, newLeaks);
+                if (leaks == null) {
+                    leaks = newLeaks;
+                }
+            }
+            leaks.count.incrementAndGet();
+        }
+
+        /**
+         * Returns the leaks since the last report if the report interval elapsed and there were any, {@code null}
+         * otherwise.
+         */
+        String pollReport() {
+            if (sites.isEmpty() && otherLeaks.get() == 0) {
+                return null;
+            }
+            long lastReport = lastReportNanos.get();
+            long now = System.nanoTime();
+            if (now - lastReport < ALLOCATION_SITE_REPORT_INTERVAL_NANOS ||
+                    !lastReportNanos.compareAndSet(lastReport, now)) {
+                return null;
+            }
+
+            List<SiteLeaks> leaked = new ArrayList<SiteLeaks>();
+            for (Iterator<SiteLeaks> it = sites.values().iterator(); it.hasNext();) {
+                SiteLeaks leaks = it.next();
+                leaks.reported = leaks.count.getAndSet(0);
+                if (leaks.reported == 0) {
+                    // Make room for other sites. A leak counted concurrently may be lost, which is acceptable.
+                    it.remove();
+                } else {
+                    leaked.add(leaks);
+                }
+            }
+            int other = otherLeaks.getAndSet(0);
+            if (leaked.isEmpty() && other == 0) {
+                return null;
+            }
+
+            Collections.sort(leaked, new Comparator<SiteLeaks>() {
+                @Override
+                public int compare(SiteLeaks o1, SiteLeaks o2) {
+                    return o2.reported - o1.reported;
+                }
+            });
+            StringBuilder buf = new StringBuilder(leaked.size() * 512);
+            for (SiteLeaks leaks : leaked) {
+                buf.append(NEWLINE).append(leaks.reported).append(" leak(s) allocated at:").append(NEWLINE)
+                   .append(leaks.site);
+            }
+            if (other > 0) {
+                buf.append(NEWLINE).append(other).append(" leak(s) at other sites, as at most ")
+                   .append(MAX_ALLOCATION_SITES).append(" sites are tracked. Use system property ")
+                   .append(PROP_MAX_ALLOCATION_SITES).append(" to increase the limit.").append(NEWLINE);
+            }
+            buf.setLength(buf.length() - NEWLINE.length());
+            return buf.toString();
+        }
+    }
+
+    private static final class SiteLeaks {
+        final AllocationSite site;
+        final AtomicInteger count = new AtomicInteger();
+        // Only accessed by the thread creating the report.
+        int reported;
+
+        SiteLeaks(AllocationSite site) {
+            this.site = site;
+        }
+    }
+
     private static final AtomicReference<String[]> excludedMethods =
             new AtomicReference<String[]>(EmptyArrays.EMPTY_STRINGS);
 
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Base class of the {@link EventExecutorGroup}s whose {@link #next()} returns a new {@link OrderedEventExecutor} with
+ * its own task queue, which is handed to a thread of the group by {@link #submit(OrderedExecutor)} whenever it has
+ * tasks to run. The executors are not bound to a thread, but the tasks of one executor never run concurrently.
+ * <p>
+ * Scheduled tasks are kept by the executor that scheduled them and run as part of its task queue. A timer of the
+ * {@link GlobalEventExecutor} hands the executor to a thread once the next one is due. Shutting down one of the
+ * executors shuts down the whole group, the tasks submitted before are still run but scheduled tasks are cancelled.
+ * {@link #iterator()} returns no executors as they are created on demand.
+ */
+abstract class AbstractOrderedEventExecutorGroup extends AbstractEventExecutorGroup {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractOrderedEventExecutorGroup.class);
+
+    private static final int ST_STARTED = 0;
+    private static final int ST_SHUTDOWN = 1;
+    private static final int ST_TERMINATED = 2;
+
+    private static final AtomicIntegerFieldUpdater<AbstractOrderedEventExecutorGroup> STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(AbstractOrderedEventExecutorGroup.class, "state");
+
+    private final int maxTaskExecutePerRun;
+    // Executors which are submitted to or run by a thread, plus executions and shutdowns in progress. The group is
+    // terminated once it drops to zero after shutdown() was called, and it never increases again afterwards.
+    private final AtomicInteger activeCount = new AtomicInteger();
+    // Executors which have scheduled tasks, so shutdown() can make them cancel these.
+    private final Set<OrderedExecutor> schedulingExecutors =
+            Collections.newSetFromMap(PlatformDependent.<OrderedExecutor, Boolean>newConcurrentHashMap());
+    private final Promise<?> terminationFuture = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+    private volatile int state = ST_STARTED;
+
+    /**
+     * @param maxTaskExecutePerRun  the maximum number of tasks an executor runs before it is submitted again, so other
+     *                              executors get a chance to run
+     */
+    AbstractOrderedEventExecutorGroup(int maxTaskExecutePerRun) {
+        this.maxTaskExecutePerRun = ObjectUtil.checkPositive(maxTaskExecutePerRun, "maxTaskExecutePerRun");
+    }
+
+    /**
+     * Hands the given executor to a thread, which must call {@link OrderedExecutor#run()}. Invoked whenever the
+     * executor gets tasks to run, and again after it ran {@code maxTaskExecutePerRun} tasks.
+     */
+    abstract void submit(OrderedExecutor executor);
+
+    /**
+     * Invoked once the group is terminated, so no executor will be submitted anymore.
+     */
+    void terminated() {
+        // NOOP
+    }
+
+    /**
+     * Returns a new {@link OrderedEventExecutor} which runs its tasks on threads of this group.
+     */
+    @Override
+    public EventExecutor next() {
+        return new OrderedExecutor(this);
+    }
+
+    @Override
+    public Iterator<EventExecutor> iterator() {
+        return Collections.<EventExecutor>emptyList().iterator();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        next().execute(command);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return state >= ST_SHUTDOWN;
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        // The quiet period is not supported, but tasks which were submitted before are still run.
+        shutdown();
+        return terminationFuture();
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return terminationFuture;
+    }
+
+    @Deprecated
+    @Override
+    public void shutdown() {
+        if (!tryAcquireActive()) {
+            return;
+        }
+        try {
+            if (STATE_UPDATER.compareAndSet(this, ST_STARTED, ST_SHUTDOWN)) {
+                // Executors with scheduled tasks may have nothing else to run, wake them up to cancel these.
+                for (OrderedExecutor executor : schedulingExecutors) {
+                    executor.wakeup();
+                }
+            }
+        } finally {
+            releaseActive();
+        }
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state >= ST_SHUTDOWN;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return state == ST_TERMINATED;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return terminationFuture.await(timeout, unit);
+    }
+
+    private boolean tryAcquireActive() {
+        for (;;) {
+            int activeCount = this.activeCount.get();
+            if (activeCount == 0 && isShutdown()) {
+                // Terminated or about to be.
+                return false;
+            }
+            if (this.activeCount.compareAndSet(activeCount, activeCount + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseActive() {
+        if (activeCount.decrementAndGet() == 0 && isShutdown()) {
+            state = ST_TERMINATED;
+            terminationFuture.trySuccess(null);
+            terminated();
+        }
+    }
+
+    static final class OrderedExecutor extends AbstractScheduledEventExecutor implements OrderedEventExecutor {
+        private static final int NONE = 0;
+        private static final int SUBMITTED = 1;
+        private static final int RUNNING = 2;
+
+        private final AbstractOrderedEventExecutorGroup group;
+        private final Queue<Runnable> tasks = PlatformDependent.newMpscQueue();
+        private final AtomicInteger state = new AtomicInteger();
+        private final Runnable timerTask = new Runnable() {
+            @Override
+            public void run() {
+                wakeup();
+            }
+        };
+        private volatile Thread runningThread;
+        // Set by wakeup(), so a running executor checks its scheduled tasks once more before it stops.
+        private volatile boolean wakeupRequested;
+        // The index of the thread which ran this executor last, for groups which prefer to keep it on that thread.
+        volatile int lastRunner = -1;
+
+        // Only accessed while running.
+        private ScheduledFuture<?> timer;
+        private long timerDeadlineNanos;
+
+        OrderedExecutor(AbstractOrderedEventExecutorGroup group) {
+            super(group);
+            this.group = group;
+        }
+
+        /**
+         * Runs the tasks of this executor. Must only be called by a thread it was {@linkplain #submit submitted} to.
+         */
+        void run() {
+            if (!state.compareAndSet(SUBMITTED, RUNNING)) {
+                return;
+            }
+            runningThread = Thread.currentThread();
+            try {
+                for (;;) {
+                    wakeupRequested = false;
+                    int i = runScheduledTasks();
+                    for (; i < group.maxTaskExecutePerRun; i++) {
+                        Runnable task = tasks.poll();
+                        if (task == null) {
+                            break;
+                        }
+                        safeExecute(task);
+                    }
+                    if (i >= group.maxTaskExecutePerRun) {
+                        // Give other executors a turn. The active count is passed on to the next run.
+                        state.set(SUBMITTED);
+                        try {
+                            group.submit(this);
+                            return;
+                        } catch (Throwable t) {
+                            logger.warn("Failed to submit an executor with remaining tasks, running them now.", t);
+                            state.set(RUNNING);
+                            continue;
+                        }
+                    }
+                    updateTimer();
+                    state.set(NONE);
+                    // A producer may have added a task or requested a wakeup between the last poll() and resetting the
+                    // state, in which case it either submitted us again or we need to keep on running.
+                    // See NonStickyEventExecutorGroup.
+                    if (tasks.isEmpty() && !wakeupRequested || !state.compareAndSet(NONE, RUNNING)) {
+                        group.releaseActive();
+                        return;
+                    }
+                }
+            } finally {
+                runningThread = null;
+            }
+        }
+
+        private int runScheduledTasks() {
+            if (group.isShutdown()) {
+                // Like SingleThreadEventExecutor, do not run scheduled tasks once shutting down.
+                cancelScheduledTasks();
+                return 0;
+            }
+            if (!hasScheduledTasks()) {
+                return 0;
+            }
+            int ran = 0;
+            long nanoTime = nanoTime();
+            Runnable task;
+            while ((task = pollScheduledTask(nanoTime)) != null) {
+                safeExecute(task);
+                ran++;
+            }
+            return ran;
+        }
+
+        /**
+         * Makes sure a timer hands this executor to a thread again once its next scheduled task is due.
+         */
+        private void updateTimer() {
+            long deadlineNanos = nextScheduledTaskDeadlineNanos();
+            if (deadlineNanos != -1) {
+                // Register before checking the state, so shutdown() either sees us or we see the shutdown.
+                group.schedulingExecutors.add(this);
+                if (group.isShutdown()) {
+                    cancelScheduledTasks();
+                    deadlineNanos = -1;
+                }
+            }
+            ScheduledFuture<?> timer = this.timer;
+            if (deadlineNanos == -1) {
+                if (timer != null) {
+                    timer.cancel(false);
+                    this.timer = null;
+                }
+                group.schedulingExecutors.remove(this);
+                return;
+            }
+            // A timer whose deadline passed may be the one which woke us up and is still running, so it will not
+            // wake us up again.
+            if (timer != null && !timer.isDone() && timerDeadlineNanos <= deadlineNanos &&
+                    nanoTime() < timerDeadlineNanos) {
+                return;
+            }
+            if (timer != null) {
+                timer.cancel(false);
+            }
+            timerDeadlineNanos = deadlineNanos;
+            this.timer = GlobalEventExecutor.INSTANCE.schedule(
+                    timerTask, deadlineToDelayNanos(deadlineNanos), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Hands this executor to a thread even if it has no tasks, unless the group is terminated.
+         */
+        void wakeup() {
+            if (!group.tryAcquireActive()) {
+                return;
+            }
+            wakeupRequested = true;
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                submitOrFail();
+            } else {
+                // Already submitted or running, in which case it sees the request before it stops.
+                group.releaseActive();
+            }
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            ObjectUtil.checkNotNull(command, "command");
+            // Count the execution as active before checking the state, so shutdown() either waits for it or we see
+            // the shutdown.
+            if (!group.tryAcquireActive()) {
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            if (isShutdown()) {
+                group.releaseActive();
+                throw new RejectedExecutionException("event executor terminated");
+            }
+            if (!tasks.offer(command)) {
+                group.releaseActive();
+                throw new RejectedExecutionException();
+            }
+            if (state.compareAndSet(NONE, SUBMITTED)) {
+                // Keep the active count until the executor stops running.
+                submitOrFail();
+            } else {
+                group.releaseActive();
+            }
+        }
+
+        private void submitOrFail() {
+            for (;;) {
+                try {
+                    group.submit(this);
+                    return;
+                } catch (Throwable t) {
+                    // No thread will run the queued tasks, so fail them rather than leaving them in the queue.
+                    failTasks(t);
+                    state.set(NONE);
+                    if (tasks.isEmpty() || !state.compareAndSet(NONE, SUBMITTED)) {
+                        group.releaseActive();
+                        throw new RejectedExecutionException("Failed to submit an executor with tasks to run", t);
+                    }
+                }
+            }
+        }
+
+        private void failTasks(Throwable cause) {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                if (task instanceof PromiseTask) {
+                    ((PromiseTask<?>) task).tryFailureInternal(cause);
+                } else {
+                    logger.warn("Dropped a task as the executor could not be submitted: {}", task);
+                }
+            }
+        }
+
+        @Override
+        public boolean inEventLoop(Thread thread) {
+            return thread == runningThread;
+        }
+
+        @Override
+        public boolean isShuttingDown() {
+            return group.isShuttingDown();
+        }
+
+        @Override
+        public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+            return group.shutdownGracefully(quietPeriod, timeout, unit);
+        }
+
+        @Override
+        public Future<?> terminationFuture() {
+            return group.terminationFuture();
+        }
+
+        @Deprecated
+        @Override
+        public void shutdown() {
+            group.shutdown();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return group.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return group.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return group.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -18,6 +18,9 @@ package io.netty.util.concurrent;
 import io.netty.util.internal.DefaultPriorityQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PriorityQueue;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import static io.netty.util.concurrent.ScheduledFutureTask.deadlineNanos;
 
@@ -30,6 +33,27 @@ import java.util.concurrent.TimeUnit;
  * Abstract base class for {@link EventExecutor}s that want to support scheduling.
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(AbstractScheduledEventExecutor.class);
+
+    // Tasks scheduled at least this far in the future are kept in a ScheduledTaskWheel, disabled if <= 0.
+    private static final long SCHEDULED_TASK_WHEEL_THRESHOLD_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            SystemPropertyUtil.getLong("io.netty.eventexecutor.scheduledTaskWheelThresholdMillis", -1));
+    private static final long SCHEDULED_TASK_WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(Math.max(1,
+            SystemPropertyUtil.getLong("io.netty.eventexecutor.scheduledTaskWheelTickMillis", 100)));
+    private static final int SCHEDULED_TASK_WHEEL_SIZE = Math.min(1 << 16, Math.max(2,
+            SystemPropertyUtil.getInt("io.netty.eventexecutor.scheduledTaskWheelSize", 256)));
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.scheduledTaskWheelThresholdMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(SCHEDULED_TASK_WHEEL_THRESHOLD_NANOS));
+            logger.debug("-Dio.netty.eventexecutor.scheduledTaskWheelTickMillis: {}",
+                    TimeUnit.NANOSECONDS.toMillis(SCHEDULED_TASK_WHEEL_TICK_NANOS));
+            logger.debug("-Dio.netty.eventexecutor.scheduledTaskWheelSize: {}", SCHEDULED_TASK_WHEEL_SIZE);
+        }
+    }
+
     private static final Comparator<ScheduledFutureTask<?>> SCHEDULED_FUTURE_TASK_COMPARATOR =
             new Comparator<ScheduledFutureTask<?>>() {
                 @Override
@@ -44,6 +68,7 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     };
 
     PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue;
+    ScheduledTaskWheel scheduledTaskWheel;
 
     long nextTaskId;
 
@@ -86,6 +111,14 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return scheduledTaskQueue;
     }
 
+    ScheduledTaskWheel scheduledTaskWheel() {
+        if (scheduledTaskWheel == null && SCHEDULED_TASK_WHEEL_THRESHOLD_NANOS > 0) {
+            scheduledTaskWheel = new ScheduledTaskWheel(this, SCHEDULED_TASK_WHEEL_TICK_NANOS,
+                    SCHEDULED_TASK_WHEEL_SIZE, SCHEDULED_TASK_WHEEL_THRESHOLD_NANOS);
+        }
+        return scheduledTaskWheel;
+    }
+
     private static boolean isNullOrEmpty(Queue<ScheduledFutureTask<?>> queue) {
         return queue == null || queue.isEmpty();
     }
@@ -97,6 +130,10 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
      */
     protected void cancelScheduledTasks() {
         assert inEventLoop();
+        ScheduledTaskWheel scheduledTaskWheel = this.scheduledTaskWheel;
+        if (scheduledTaskWheel != null) {
+            scheduledTaskWheel.cancelAll();
+        }
         PriorityQueue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
         if (isNullOrEmpty(scheduledTaskQueue)) {
             return;
@@ -248,7 +285,11 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     final void scheduleFromEventLoop(final ScheduledFutureTask<?> task) {
         // nextTaskId a long and so there is no chance it will overflow back to 0
-        scheduledTaskQueue().add(task.setId(++nextTaskId));
+        task.setId(++nextTaskId);
+        ScheduledTaskWheel scheduledTaskWheel = scheduledTaskWheel();
+        if (scheduledTaskWheel == null || !scheduledTaskWheel.add(task, nanoTime())) {
+            scheduledTaskQueue().add(task);
+        }
     }
 
     private <V> ScheduledFuture<V> schedule(final ScheduledFutureTask<V> task) {
@@ -274,11 +315,22 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
     final void removeScheduled(final ScheduledFutureTask<?> task) {
         assert task.isCancelled();
         if (inEventLoop()) {
-            scheduledTaskQueue().removeTyped(task);
-        } else {
+            removeScheduledFromEventLoop(task);
+        } else if (task.wheelBucket == null) {
             // task will remove itself from scheduled task queue when it runs
             lazyExecute(task);
         }
+        // Tasks in the ScheduledTaskWheel are only marked as cancelled and dropped once their bucket comes due, so no
+        // task needs to be submitted to the event loop. wheelBucket is written before the loop checks isCancelled()
+        // when emptying a bucket, so if we still see the task in the wheel, the loop sees that it was cancelled.
+    }
+
+    final void removeScheduledFromEventLoop(final ScheduledFutureTask<?> task) {
+        if (task.wheelBucket != null) {
+            scheduledTaskWheel.remove(task);
+        } else {
+            scheduledTaskQueue().removeTyped(task);
+        }
     }
 
     /**
@@ -27,6 +27,7 @@ import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -41,6 +42,12 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     @SuppressWarnings("rawtypes")
     private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> RESULT_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "result");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<DefaultPromise, Object> LISTENERS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultPromise.class, Object.class, "listeners");
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<DefaultPromise> NOTIFYING_LISTENERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultPromise.class, "notifyingListeners");
     private static final Object SUCCESS = new Object();
     private static final Object UNCANCELLABLE = new Object();
     private static final CauseHolder CANCELLATION_CAUSE_HOLDER = new CauseHolder(ThrowableUtil.unknownStackTrace(
@@ -50,22 +57,25 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     private volatile Object result;
     private final EventExecutor executor;
     /**
-     * One or more listeners. Can be a {@link GenericFutureListener} or a {@link DefaultFutureListeners}.
-     * If {@code null}, it means either 1) no listeners were added yet or 2) all listeners were notified.
+     * One or more listeners. Can be a {@link GenericFutureListener} or a stack of {@link ListenerNode}s with the most
+     * recently added listener on top. If {@code null}, it means either 1) no listeners were added yet or 2) all
+     * listeners were notified.
      *
-     * Threading - synchronized(this). We must support adding listeners when there is no EventExecutor.
+     * Threading - compare-and-set, removals additionally synchronized(this). We must support adding listeners when
+     * there is no EventExecutor.
      */
-    private Object listeners;
+    private volatile Object listeners;
     /**
-     * Threading - synchronized(this). We are required to hold the monitor to use Java's underlying wait()/notifyAll().
+     * Threading - synchronized(this) for updates. We are required to hold the monitor to use Java's underlying
+     * wait()/notifyAll(). Volatile so completing the promise only needs the monitor if someone is actually waiting.
      */
-    private short waiters;
+    private volatile short waiters;
 
     /**
-     * Threading - synchronized(this). We must prevent concurrent notification and FIFO listener notification if the
+     * Threading - compare-and-set. We must prevent concurrent notification and FIFO listener notification if the
      * executor changes.
      */
-    private boolean notifyingListeners;
+    private volatile int notifyingListeners;
 
     /**
      * Creates a new instance.
@@ -175,9 +185,7 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListener(GenericFutureListener<? extends Future<? super V>> listener) {
         checkNotNull(listener, "listener");
 
-        synchronized (this) {
-            addListener0(listener);
-        }
+        addListener0(listener);
 
         if (isDone()) {
             notifyListeners();
@@ -190,13 +198,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     public Promise<V> addListeners(GenericFutureListener<? extends Future<? super V>>... listeners) {
         checkNotNull(listeners, "listeners");
 
-        synchronized (this) {
-            for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
-                if (listener == null) {
-                    break;
-                }
-                addListener0(listener);
+        for (GenericFutureListener<? extends Future<? super V>> listener : listeners) {
+            if (listener == null) {
+                break;
             }
+            addListener0(listener);
         }
 
         if (isDone()) {
@@ -246,13 +252,15 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         checkDeadLock();
 
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
+            // Register as a waiter before checking isDone(), as the completing thread only takes the monitor to call
+            // notifyAll() if it sees a waiter.
+            incWaiters();
+            try {
+                while (!isDone()) {
                     wait();
-                } finally {
-                    decWaiters();
                 }
+            } finally {
+                decWaiters();
             }
         }
         return this;
@@ -268,16 +276,18 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
 
         boolean interrupted = false;
         synchronized (this) {
-            while (!isDone()) {
-                incWaiters();
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    // Interrupted while waiting.
-                    interrupted = true;
-                } finally {
-                    decWaiters();
+            incWaiters();
+            try {
+                while (!isDone()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // Interrupted while waiting.
+                        interrupted = true;
+                    }
                 }
+            } finally {
+                decWaiters();
             }
         }
 
@@ -534,40 +544,33 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void notifyListenersNow() {
-        Object listeners;
-        synchronized (this) {
-            // Only proceed if there are listeners to notify and we are not already notifying listeners.
-            if (notifyingListeners || this.listeners == null) {
-                return;
-            }
-            notifyingListeners = true;
-            listeners = this.listeners;
-            this.listeners = null;
-        }
-        for (;;) {
-            if (listeners instanceof DefaultFutureListeners) {
-                notifyListeners0((DefaultFutureListeners) listeners);
-            } else {
+        // Only proceed if there are listeners to notify and we are not already notifying listeners.
+        while (listeners != null && NOTIFYING_LISTENERS_UPDATER.compareAndSet(this, 0, 1)) {
+            Object listeners = LISTENERS_UPDATER.getAndSet(this, null);
+            if (listeners instanceof ListenerNode) {
+                notifyListeners0((ListenerNode) listeners);
+            } else if (listeners != null) {
                 notifyListener0(this, (GenericFutureListener<?>) listeners);
             }
-            synchronized (this) {
-                if (this.listeners == null) {
-                    // Nothing can throw from within this method, so setting notifyingListeners back to false does not
-                    // need to be in a finally block.
-                    notifyingListeners = false;
-                    return;
-                }
-                listeners = this.listeners;
-                this.listeners = null;
-            }
+            // Nothing can throw from within this method, so resetting notifyingListeners does not need to be in a
+            // finally block. Listeners that were added while we were notifying are picked up by the next iteration.
+            notifyingListeners = 0;
         }
     }
 
-    private void notifyListeners0(DefaultFutureListeners listeners) {
-        GenericFutureListener<?>[] a = listeners.listeners();
-        int size = listeners.size();
-        for (int i = 0; i < size; i ++) {
-            notifyListener0(this, a[i]);
+    private void notifyListeners0(ListenerNode head) {
+        // The stack has the most recently added listener on top, so link it the other way around first to notify
+        // in FIFO order without copying the listeners into an array.
+        ListenerNode tail = head;
+        for (ListenerNode next = head.next; next != null; next = next.next) {
+            next.newer = tail;
+            tail = next;
+        }
+        for (ListenerNode node = tail; node != null; node = node.newer) {
+            GenericFutureListener<?> l = node.listener;
+            if (l != null) {
+                notifyListener0(this, l);
+            }
         }
     }
 
@@ -583,21 +586,77 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
     }
 
     private void addListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners == null) {
-            listeners = listener;
-        } else if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).add(listener);
-        } else {
-            listeners = new DefaultFutureListeners((GenericFutureListener<?>) listeners, listener);
+        ListenerNode node = null;
+        for (;;) {
+            Object listeners = this.listeners;
+            Object update;
+            if (listeners == null) {
+                // The common case of a single listener does not need a node.
+                update = listener;
+            } else {
+                if (node == null) {
+                    node = new ListenerNode(listener);
+                }
+                node.next = listeners instanceof ListenerNode ?
+                        (ListenerNode) listeners : new ListenerNode((GenericFutureListener<?>) listeners);
+                update = node;
+            }
+            if (LISTENERS_UPDATER.compareAndSet(this, listeners, update)) {
+                return;
+            }
         }
     }
 
+    // Must be called while holding the monitor so concurrent removals of the same listener do not race.
     private void removeListener0(GenericFutureListener<? extends Future<? super V>> listener) {
-        if (listeners instanceof DefaultFutureListeners) {
-            ((DefaultFutureListeners) listeners).remove(listener);
-        } else if (listeners == listener) {
-            listeners = null;
+        for (;;) {
+            Object listeners = this.listeners;
+            if (listeners instanceof ListenerNode) {
+                // Remove the first added occurrence, which is the one closest to the bottom of the stack.
+                ListenerNode head = (ListenerNode) listeners;
+                ListenerNode found = null;
+                ListenerNode foundPrev = null;
+                for (ListenerNode prev = null, node = head; node != null; prev = node, node = node.next) {
+                    if (node.listener == listener) {
+                        found = node;
+                        foundPrev = prev;
+                    }
+                }
+                if (found == null) {
+                    return;
+                }
+                if (foundPrev != null) {
+                    // Adds only replace the head, so only removals relink nodes below it. Clear the listener first
+                    // as a notifier may have detached the stack already and still walk over the unlinked node.
+                    found.listener = null;
+                    foundPrev.next = found.next;
+                    return;
+                }
+                // The head may be replaced concurrently by an add or a notification, so unlink it with a CAS.
+                if (LISTENERS_UPDATER.compareAndSet(this, head, head.next)) {
+                    return;
+                }
+                continue;
+            }
+            if (listeners != listener || LISTENERS_UPDATER.compareAndSet(this, listener, null)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of listeners which are neither notified nor removed yet. Package-private for testing only.
+     */
+    int listenerStackSize() {
+        Object listeners = this.listeners;
+        if (!(listeners instanceof ListenerNode)) {
+            return listeners == null ? 0 : 1;
         }
+        int size = 0;
+        for (ListenerNode node = (ListenerNode) listeners; node != null; node = node.next) {
+            size ++;
+        }
+        return size;
     }
 
     private boolean setSuccess0(V result) {
@@ -623,9 +682,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
      * Check if there are any waiters and if so notify these.
      * @return {@code true} if there are any listeners attached to the promise, {@code false} otherwise.
      */
-    private synchronized boolean checkNotifyWaiters() {
+    private boolean checkNotifyWaiters() {
         if (waiters > 0) {
-            notifyAll();
+            synchronized (this) {
+                notifyAll();
+            }
         }
         return listeners != null;
     }
@@ -671,11 +732,11 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         try {
             for (;;) {
                 synchronized (this) {
-                    if (isDone()) {
-                        return true;
-                    }
                     incWaiters();
                     try {
+                        if (isDone()) {
+                            return true;
+                        }
                         wait(waitTime / 1000000, (int) (waitTime % 1000000));
                     } catch (InterruptedException e) {
                         if (interruptable) {
@@ -765,28 +826,31 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
             return null;
         }
 
-        if (listeners instanceof DefaultFutureListeners) {
-            // Copy DefaultFutureListeners into an array of listeners.
-            DefaultFutureListeners dfl = (DefaultFutureListeners) listeners;
-            int progressiveSize = dfl.progressiveSize();
+        if (listeners instanceof ListenerNode) {
+            // Copy the stack into an array of listeners, keeping the order in which they were added.
+            GenericFutureListener<?> progressive = null;
+            int progressiveSize = 0;
+            for (ListenerNode node = (ListenerNode) listeners; node != null; node = node.next) {
+                GenericFutureListener<?> l = node.listener;
+                if (l instanceof GenericProgressiveFutureListener) {
+                    progressive = l;
+                    progressiveSize ++;
+                }
+            }
             switch (progressiveSize) {
                 case 0:
                     return null;
                 case 1:
-                    for (GenericFutureListener<?> l: dfl.listeners()) {
-                        if (l instanceof GenericProgressiveFutureListener) {
-                            return l;
-                        }
-                    }
-                    return null;
+                    return progressive;
             }
 
-            GenericFutureListener<?>[] array = dfl.listeners();
+            // Only removals (which we exclude by holding the monitor) relink the nodes below the head we read or change
+            // their listener, so the second pass sees exactly the same progressive listeners.
             GenericProgressiveFutureListener<?>[] copy = new GenericProgressiveFutureListener[progressiveSize];
-            for (int i = 0, j = 0; j < progressiveSize; i ++) {
-                GenericFutureListener<?> l = array[i];
+            for (ListenerNode node = (ListenerNode) listeners; node != null; node = node.next) {
+                GenericFutureListener<?> l = node.listener;
                 if (l instanceof GenericProgressiveFutureListener) {
-                    copy[j ++] = (GenericProgressiveFutureListener<?>) l;
+                    copy[-- progressiveSize] = (GenericProgressiveFutureListener<?>) l;
                 }
             }
 
@@ -836,6 +900,19 @@ public class DefaultPromise<V> extends AbstractFuture<V> implements Promise<V> {
         }
     }
 
+    private static final class ListenerNode {
+        // Only set to null when the listener is removed.
+        volatile GenericFutureListener<?> listener;
+        // Written before the node is published and afterwards only changed by removals, which hold the monitor.
+        volatile ListenerNode next;
+        // Only used by the thread that notifies the listeners.
+        ListenerNode newer;
+
+        ListenerNode(GenericFutureListener<?> listener) {
+            this.listener = listener;
+        }
+    }
+
     private static void safeExecute(EventExecutor executor, Runnable task) {
         try {
             executor.execute(task);
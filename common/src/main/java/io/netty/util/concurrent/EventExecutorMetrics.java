@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Utilization and latency metrics of a {@link SingleThreadEventExecutor}, collected when the
+ * {@code io.netty.eventexecutor.metrics} system property is set to {@code true}.
+ * <p>
+ * All values are updated by the executor thread without allocating and can be read from any thread. Counters only
+ * grow while the executor is running, so the utilization over an interval is obtained by taking two readings and
+ * dividing the difference of {@link #busyNanos()} by the difference of {@link #elapsedNanos()}.
+ * <p>
+ * The executor is <em>idle</em> while it blocks waiting for work, for example in {@code Selector.select()} or
+ * {@code epoll_wait}, and <em>busy</em> otherwise. The busy time is split into the time spent running tasks and the
+ * remainder, which for event loops is the time spent processing I/O events.
+ */
+@UnstableApi
+public final class EventExecutorMetrics {
+
+    private static final AtomicIntegerFieldUpdater<EventExecutorMetrics> SAMPLING_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(EventExecutorMetrics.class, "sampling");
+
+    private final Histogram tasksPerIteration = new Histogram();
+    private final Histogram taskWaitTime = new Histogram();
+    private final Histogram scheduledTaskLateness = new Histogram();
+
+    private volatile boolean started;
+    private volatile long startNanos;
+    private volatile boolean stopped;
+    private volatile long stopNanos;
+
+    // Odd while the executor thread updates idleNanos and idleStartNanos, so readers can see a consistent pair.
+    private volatile long idleVersion;
+    private volatile boolean idling;
+    private volatile long idleStartNanos;
+    private volatile long idleNanos;
+
+    private volatile long taskNanos;
+    private volatile long tasksRun;
+    private volatile long iterations;
+    // Only accessed by the executor thread.
+    private long iterationTasks;
+
+    // Only one task at a time has its time spent in the task queue measured. A producer claims the sample by setting
+    // sampling to 1, and the executor thread releases it again once it runs the sampled task.
+    private volatile int sampling;
+    private volatile long sampledNanos;
+    private volatile Runnable sampledTask;
+
+    EventExecutorMetrics() { }
+
+    /**
+     * Returns the time since the executor thread was started, or until it terminated.
+     */
+    public long elapsedNanos() {
+        if (!started) {
+            return 0;
+        }
+        long end = stopped ? stopNanos : System.nanoTime();
+        return end - startNanos;
+    }
+
+    /**
+     * Returns the time the executor thread spent waiting for work, including the current wait if it is idle now.
+     */
+    public long idleNanos() {
+        for (;;) {
+            long version = idleVersion;
+            boolean idling = this.idling;
+            long idleStartNanos = this.idleStartNanos;
+            long idleNanos = this.idleNanos;
+            if ((version & 1) == 0 && version == idleVersion) {
+                return idling ? idleNanos + System.nanoTime() - idleStartNanos : idleNanos;
+            }
+        }
+    }
+
+    /**
+     * Returns the time the executor thread did not spend waiting for work.
+     */
+    public long busyNanos() {
+        return Math.max(0, elapsedNanos() - idleNanos());
+    }
+
+    /**
+     * Returns the time the executor thread spent running tasks, including scheduled tasks.
+     */
+    public long taskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * Returns the time the executor thread was busy but not running tasks. For event loops this is the time spent
+     * processing I/O events.
+     */
+    public long ioNanos() {
+        return Math.max(0, busyNanos() - taskNanos());
+    }
+
+    /**
+     * Returns the number of tasks that were run, including scheduled tasks.
+     */
+    public long tasksRun() {
+        return tasksRun;
+    }
+
+    /**
+     * Returns the number of times the executor thread ran the tasks that were ready, which is once per iteration of
+     * an event loop.
+     */
+    public long iterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the distribution of the number of tasks run per iteration.
+     */
+    public Histogram tasksPerIteration() {
+        return tasksPerIteration;
+    }
+
+    /**
+     * Returns the distribution of the time tasks spent in the task queue, in nanoseconds. To stay cheap only one
+     * task at a time is measured, so this is a sample of all the tasks that were submitted from any thread.
+     */
+    public Histogram taskWaitTime() {
+        return taskWaitTime;
+    }
+
+    /**
+     * Returns the distribution of the time between the deadline of a scheduled task and the moment the executor
+     * thread picked it up to run, in nanoseconds.
+     */
+    public Histogram scheduledTaskLateness() {
+        return scheduledTaskLateness;
+    }
+
+    void start() {
+        startNanos = System.nanoTime();
+        started = true;
+    }
+
+    void stop() {
+        stopNanos = System.nanoTime();
+        stopped = true;
+    }
+
+    void idleStarted() {
+        long version = idleVersion;
+        idleVersion = version + 1;
+        idleStartNanos = System.nanoTime();
+        idling = true;
+        idleVersion = version + 2;
+    }
+
+    void idleEnded() {
+        if (!idling) {
+            return;
+        }
+        long version = idleVersion;
+        idleVersion = version + 1;
+        idleNanos += System.nanoTime() - idleStartNanos;
+        idling = false;
+        idleVersion = version + 2;
+    }
+
+    void taskAdded(Runnable task) {
+        if (sampling == 0 && SAMPLING_UPDATER.compareAndSet(this, 0, 1)) {
+            sampledNanos = System.nanoTime();
+            sampledTask = task;
+        }
+    }
+
+    void taskRemoved(Runnable task) {
+        if (sampledTask == task) {
+            sampledTask = null;
+            sampling = 0;
+        }
+    }
+
+    void taskStarted(Runnable task) {
+        iterationTasks++;
+        if (sampledTask == task) {
+            taskWaitTime.record(System.nanoTime() - sampledNanos);
+            sampledTask = null;
+            sampling = 0;
+        }
+    }
+
+    void tasksRan(long nanos) {
+        long tasks = iterationTasks;
+        iterationTasks = 0;
+        tasksPerIteration.record(tasks);
+        tasksRun += tasks;
+        iterations++;
+        taskNanos += nanos;
+    }
+
+    void scheduledTaskPolled(long lateNanos) {
+        scheduledTaskLateness.record(lateNanos);
+    }
+
+    /**
+     * A histogram with power-of-two buckets. Bucket {@code 0} holds the value {@code 0} and bucket {@code i} holds
+     * the values in {@code [2^(i-1), 2^i)}.
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private volatile long totalCount;
+        private volatile long max;
+
+        Histogram() { }
+
+        /**
+         * Returns the number of buckets.
+         */
+        public int buckets() {
+            return BUCKETS;
+        }
+
+        /**
+         * Returns the number of values recorded in the given bucket.
+         */
+        public long count(int bucket) {
+            return counts.get(bucket);
+        }
+
+        /**
+         * Returns the smallest value of the given bucket.
+         */
+        public long lowerBound(int bucket) {
+            return bucket == 0 ? 0 : 1L << bucket - 1;
+        }
+
+        /**
+         * Returns the largest value of the given bucket.
+         */
+        public long upperBound(int bucket) {
+            return bucket == 0 ? 0 : (1L << bucket) - 1;
+        }
+
+        /**
+         * Returns the number of values recorded.
+         */
+        public long totalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Returns the largest value recorded.
+         */
+        public long max() {
+            return max;
+        }
+
+        // Only called by the executor thread.
+        void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            int bucket = BUCKETS - Long.numberOfLeadingZeros(value);
+            counts.lazySet(bucket, counts.get(bucket) + 1);
+            totalCount++;
+            if (value > max) {
+                max = value;
+            }
+        }
+    }
+}
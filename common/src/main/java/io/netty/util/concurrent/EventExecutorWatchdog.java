@@ -0,0 +1,407 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Detects {@link SingleThreadEventExecutor}s whose thread is blocked, for example by a handler doing blocking I/O
+ * on an event loop.
+ * <p>
+ * Every time an executor runs its tasks it bumps a progress counter, which costs an ordered store per event loop
+ * iteration. A daemon thread checks the counters of the watched executors periodically. An executor whose counter did
+ * not change is fine if it is waiting for work, which {@link SingleThreadEventExecutor#recordIdleStart()} tells
+ * without waking it up. Otherwise, if the counter still did not change after the blocked threshold elapsed, the
+ * executor is considered blocked: the stack trace of its thread is sampled on every check until it makes progress
+ * again, and the {@link Listener} is notified when the executor becomes blocked and when it recovers.
+ * <p>
+ * Executors whose {@link SingleThreadEventExecutor#run()} does not report when it waits for work are sent a no-op task
+ * instead, which wakes them up if they are idle. Executors that are shutting down are never sent a task, as it would
+ * delay the end of their quiet period.
+ * <p>
+ * The watchdog thread is started when the first executor is watched and terminates itself once all watched
+ * executors are terminated or unwatched. Setting the {@code io.netty.eventexecutor.blockedThresholdMillis} system
+ * property watches every {@link SingleThreadEventExecutor} with a watchdog that logs blocked executors.
+ */
+@UnstableApi
+public final class EventExecutorWatchdog {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventExecutorWatchdog.class);
+
+    // Limits the memory used while sampling an executor which stays blocked with a changing stack.
+    private static final int MAX_STACK_SAMPLES = 64;
+
+    private static final Runnable PING_TASK = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+
+        @Override
+        public String toString() {
+            return EventExecutorWatchdog.class.getSimpleName() + ".PING_TASK";
+        }
+    };
+
+    private static final Comparator<StackSample> STACK_SAMPLE_COMPARATOR = new Comparator<StackSample>() {
+        @Override
+        public int compare(StackSample o1, StackSample o2) {
+            return o2.count - o1.count;
+        }
+    };
+
+    private static final Listener LOGGING_LISTENER = new Listener() {
+        @Override
+        public void blocked(SingleThreadEventExecutor executor, long blockedNanos, StackTraceElement[] stackTrace) {
+            if (logger.isWarnEnabled()) {
+                BlockedException e = new BlockedException(
+                        executor + " is blocked for at least " + TimeUnit.NANOSECONDS.toMillis(blockedNanos) + "ms");
+                e.setStackTrace(stackTrace);
+                logger.warn("Blocked event executor detected", e);
+            }
+        }
+
+        @Override
+        public void unblocked(SingleThreadEventExecutor executor, long blockedNanos, List<StackSample> stackSamples) {
+            if (logger.isWarnEnabled()) {
+                StringBuilder buf = new StringBuilder(1024);
+                buf.append(executor).append(" was blocked for at least ")
+                   .append(TimeUnit.NANOSECONDS.toMillis(blockedNanos)).append("ms. Sampled stack traces:");
+                for (StackSample sample : stackSamples) {
+                    buf.append(StringUtil.NEWLINE).append(sample.count()).append(" sample(s):");
+                    for (StackTraceElement element : sample.stackTrace()) {
+                        buf.append(StringUtil.NEWLINE).append("\tat ").append(element);
+                    }
+                }
+                logger.warn(buf.toString());
+            }
+        }
+    };
+
+    private final ConcurrentMap<SingleThreadEventExecutor, Watchee> watchees =
+            PlatformDependent.newConcurrentHashMap();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final ThreadFactory threadFactory;
+    private final Listener listener;
+    private final long blockedThresholdNanos;
+    private final long checkIntervalNanos;
+
+    /**
+     * Creates a new instance which logs blocked executors.
+     *
+     * @param blockedThreshold  the time an executor may not make progress before it is considered blocked
+     * @param unit              the unit of {@code blockedThreshold}
+     */
+    public EventExecutorWatchdog(long blockedThreshold, TimeUnit unit) {
+        this(blockedThreshold, unit, LOGGING_LISTENER);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param blockedThreshold  the time an executor may not make progress before it is considered blocked
+     * @param unit              the unit of {@code blockedThreshold}
+     * @param listener          the {@link Listener} to notify, invoked by the watchdog thread
+     */
+    public EventExecutorWatchdog(long blockedThreshold, TimeUnit unit, Listener listener) {
+        this(blockedThreshold, unit, listener, newDefaultThreadFactory());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param blockedThreshold  the time an executor may not make progress before it is considered blocked
+     * @param unit              the unit of {@code blockedThreshold}
+     * @param listener          the {@link Listener} to notify, invoked by the watchdog thread
+     * @param threadFactory     the {@link ThreadFactory} used to create the watchdog thread
+     */
+    public EventExecutorWatchdog(long blockedThreshold, TimeUnit unit, Listener listener,
+                                 ThreadFactory threadFactory) {
+        ObjectUtil.checkNotNull(unit, "unit");
+        blockedThresholdNanos = checkPositive(unit.toNanos(blockedThreshold), "blockedThreshold");
+        // Check a few times per threshold, so a blocked executor is reported soon after it exceeded the threshold and
+        // a few stacks are sampled while it stays blocked.
+        checkIntervalNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), blockedThresholdNanos / 4);
+        this.listener = ObjectUtil.checkNotNull(listener, "listener");
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+    }
+
+    private static ThreadFactory newDefaultThreadFactory() {
+        String poolName = "eventExecutorWatchdog";
+        String serviceThreadPrefix = SystemPropertyUtil.get("io.netty.serviceThreadPrefix");
+        if (!StringUtil.isNullOrEmpty(serviceThreadPrefix)) {
+            poolName = serviceThreadPrefix + poolName;
+        }
+        // Executors may be watched from arbitrary threads, so the thread factory must not be sticky about its thread
+        // group. Use a high priority so the watchdog still gets to run while busy event loops occupy all cores.
+        return new DefaultThreadFactory(poolName, true, Thread.MAX_PRIORITY, null);
+    }
+
+    /**
+     * Watches all {@link SingleThreadEventExecutor}s of the given {@link EventExecutorGroup}, which may also be a
+     * single {@link EventExecutor}. Other executors are ignored.
+     */
+    public void watch(EventExecutorGroup group) {
+        ObjectUtil.checkNotNull(group, "group");
+        for (EventExecutor executor : group) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                SingleThreadEventExecutor e = (SingleThreadEventExecutor) executor;
+                // The executor keeps tracking its progress after it was unwatched, as another watchdog may still
+                // watch it.
+                e.watched();
+                watchees.putIfAbsent(e, new Watchee(e));
+            }
+        }
+        startThreadIfNeeded();
+    }
+
+    /**
+     * Stops watching the executors of the given {@link EventExecutorGroup}. Terminated executors are unwatched
+     * automatically.
+     */
+    public void unwatch(EventExecutorGroup group) {
+        ObjectUtil.checkNotNull(group, "group");
+        for (EventExecutor executor : group) {
+            watchees.remove(executor);
+        }
+    }
+
+    private void startThreadIfNeeded() {
+        if (watchees.isEmpty() || !started.compareAndSet(false, true)) {
+            return;
+        }
+        final Thread watchdogThread = threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                runWatchdog();
+            }
+        });
+        // Set to null to ensure we not create classloader leaks by holds a strong reference to the inherited
+        // classloader.
+        AccessController.doPrivileged(new PrivilegedAction<Void>() {
+            @Override
+            public Void run() {
+                watchdogThread.setContextClassLoader(null);
+                return null;
+            }
+        });
+        watchdogThread.start();
+    }
+
+    private void runWatchdog() {
+        for (;;) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(checkIntervalNanos);
+            } catch (InterruptedException ignore) {
+                // Ignore the interrupt; do not terminate while there are executors to watch.
+            }
+
+            long nanoTime = System.nanoTime();
+            for (Watchee watchee : watchees.values()) {
+                if (watchee.executor.isTerminated()) {
+                    watchees.remove(watchee.executor);
+                } else {
+                    watchee.check(nanoTime);
+                }
+            }
+
+            if (watchees.isEmpty()) {
+                // Mark the current watchdog thread as stopped. Only one watchdog thread runs at the same time, so
+                // the CAS must succeed.
+                boolean stopped = started.compareAndSet(true, false);
+                assert stopped;
+
+                // Check if an executor was watched while we did the CAS above, and whether watch() already started
+                // a new thread for it.
+                if (watchees.isEmpty() || !started.compareAndSet(false, true)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private final class Watchee {
+        final SingleThreadEventExecutor executor;
+        private final Map<List<StackTraceElement>, StackSample> stackSamples =
+                new HashMap<List<StackTraceElement>, StackSample>();
+        private long lastProgress;
+        private boolean stalled;
+        private long stalledNanos;
+        private boolean blocked;
+
+        Watchee(SingleThreadEventExecutor executor) {
+            this.executor = executor;
+            lastProgress = executor.progress();
+        }
+
+        void check(long nanoTime) {
+            Thread thread = executor.thread();
+            if (thread == null) {
+                // Not started yet, do not start it by pinging it.
+                return;
+            }
+
+            long progress = executor.progress();
+            if (progress != lastProgress) {
+                lastProgress = progress;
+                stalled = false;
+                if (blocked) {
+                    blocked = false;
+                    List<StackSample> samples = new ArrayList<StackSample>(stackSamples.values());
+                    stackSamples.clear();
+                    Collections.sort(samples, STACK_SAMPLE_COMPARATOR);
+                    try {
+                        listener.unblocked(executor, nanoTime - stalledNanos, Collections.unmodifiableList(samples));
+                    } catch (Throwable t) {
+                        logger.warn("An exception was thrown by " + listener.getClass().getName() +
+                                ".unblocked()", t);
+                    }
+                }
+                return;
+            }
+
+            int idleState = executor.idleState();
+            if (idleState == SingleThreadEventExecutor.IDLE_STATE_IDLE) {
+                // No progress because the executor waits for work, which is not worth reporting.
+                stalled = false;
+                return;
+            }
+
+            if (!stalled) {
+                stalled = true;
+                stalledNanos = nanoTime;
+                if (idleState == SingleThreadEventExecutor.IDLE_STATE_UNKNOWN && !executor.isShuttingDown()) {
+                    // We cannot tell if the executor waits for work, so give it some. Do not do this while it is
+                    // shutting down, as the task would end its quiet period.
+                    try {
+                        executor.execute(PING_TASK);
+                    } catch (RejectedExecutionException ignore) {
+                        // Shutting down, will be unwatched once terminated.
+                    }
+                }
+                return;
+            }
+
+            long blockedNanos = nanoTime - stalledNanos;
+            if (blockedNanos < blockedThresholdNanos) {
+                return;
+            }
+
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            List<StackTraceElement> key = Arrays.asList(stackTrace);
+            StackSample sample = stackSamples.get(key);
+            if (sample != null) {
+                sample.count++;
+            } else if (stackSamples.size() < MAX_STACK_SAMPLES) {
+                stackSamples.put(key, new StackSample(stackTrace));
+            }
+
+            if (!blocked) {
+                blocked = true;
+                try {
+                    listener.blocked(executor, blockedNanos, stackTrace);
+                } catch (Throwable t) {
+                    logger.warn("An exception was thrown by " + listener.getClass().getName() + ".blocked()", t);
+                }
+            }
+        }
+    }
+
+    /**
+     * A stack trace of a blocked executor thread and how many times it was sampled.
+     */
+    public static final class StackSample {
+        private final StackTraceElement[] stackTrace;
+        private int count = 1;
+
+        StackSample(StackTraceElement[] stackTrace) {
+            this.stackTrace = stackTrace;
+        }
+
+        /**
+         * Returns the sampled stack trace.
+         */
+        public StackTraceElement[] stackTrace() {
+            return stackTrace.clone();
+        }
+
+        /**
+         * Returns the number of times the stack trace was sampled.
+         */
+        public int count() {
+            return count;
+        }
+    }
+
+    /**
+     * Notified by the watchdog thread about blocked executors.
+     */
+    public interface Listener {
+
+        /**
+         * Invoked once when {@code executor} did not make progress for longer than the blocked threshold.
+         *
+         * @param blockedNanos  the time the executor is known to be blocked
+         * @param stackTrace    the stack trace of the executor thread
+         */
+        void blocked(SingleThreadEventExecutor executor, long blockedNanos, StackTraceElement[] stackTrace);
+
+        /**
+         * Invoked once {@code executor} makes progress again after {@link #blocked} was invoked.
+         *
+         * @param blockedNanos  the time the executor is known to have been blocked
+         * @param stackSamples  the distinct stack traces sampled while it was blocked, most frequent first
+         */
+        void unblocked(SingleThreadEventExecutor executor, long blockedNanos, List<StackSample> stackSamples);
+    }
+
+    private static final class BlockedException extends Exception {
+        private static final long serialVersionUID = -3197620218765003218L;
+
+        BlockedException(String message) {
+            super(message);
+        }
+
+        @Override
+        public Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -122,10 +122,13 @@ public class FastThreadLocal<V> {
         variablesToRemove.remove(variable);
     }
 
-    private final int index;
+    // Package-private for testing only.
+    final int index;
 
     public FastThreadLocal() {
-        index = InternalThreadLocalMap.nextVariableIndex();
+        // The index can be reused once this instance is unreachable: every map which holds a value for this
+        // variable references it through its variablesToRemove set until the value is removed.
+        index = InternalThreadLocalMap.nextVariableIndex(this);
     }
 
     /**
@@ -50,6 +50,12 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
 
     private int queueIndex = INDEX_NOT_IN_QUEUE;
 
+    // Links used by ScheduledTaskWheel while the task is part of one of its buckets, only modified by the event loop.
+    // wheelBucket is volatile as cancel() checks it from other threads.
+    volatile ScheduledTaskWheel.Bucket wheelBucket;
+    ScheduledFutureTask<?> wheelPrev;
+    ScheduledFutureTask<?> wheelNext;
+
     ScheduledFutureTask(AbstractScheduledEventExecutor executor,
             Runnable runnable, long nanoTime) {
 
@@ -159,7 +165,7 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
             if (delayNanos() > 0L) {
                 // Not yet expired, need to add or remove from queue
                 if (isCancelled()) {
-                    scheduledExecutor().scheduledTaskQueue().removeTyped(this);
+                    scheduledExecutor().removeScheduledFromEventLoop(this);
                 } else {
                     scheduledExecutor().scheduleFromEventLoop(this);
                 }
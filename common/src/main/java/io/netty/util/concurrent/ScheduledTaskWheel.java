@@ -0,0 +1,346 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+/**
+ * A coarse hierarchical timing wheel which holds the {@link ScheduledFutureTask}s of an
+ * {@link AbstractScheduledEventExecutor} whose deadline lies further in the future than a threshold.
+ * <p>
+ * Tasks are kept in doubly linked buckets, so adding and removing them is {@code O(1)} no matter how many
+ * timers are outstanding. The wheel never runs a task itself: about one tick before a bucket comes due its tasks
+ * are moved into the scheduled task queue of the executor, which then runs them at their precise deadline. A
+ * single internal {@link ScheduledFutureTask} in that queue wakes up the executor for these promotions.
+ * <p>
+ * Tasks cancelled from outside the event loop are not removed immediately, they are dropped once their bucket
+ * comes due. This avoids submitting a removal task to the event loop for every cancellation.
+ * <p>
+ * All methods must be called from the event loop.
+ */
+final class ScheduledTaskWheel {
+
+    private final AbstractScheduledEventExecutor executor;
+    private final long tickNanos;
+    private final long thresholdNanos;
+    private final int wheelBits;
+    private final Wheel wheel;
+    private final Runnable promoteTask = new Runnable() {
+        @Override
+        public void run() {
+            promotion = null;
+            promote(ScheduledFutureTask.nanoTime());
+            schedulePromotion(nextFlushTick());
+        }
+    };
+
+    // All tasks due up to and including this tick are in the scheduled task queue of the executor.
+    private long tick;
+    private int size;
+    private ScheduledFutureTask<Void> promotion;
+    private long promotionTick;
+
+    ScheduledTaskWheel(AbstractScheduledEventExecutor executor, long tickNanos, int ticksPerWheel,
+                       long thresholdNanos) {
+        this.executor = executor;
+        this.tickNanos = tickNanos;
+        this.thresholdNanos = thresholdNanos;
+        wheelBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1));
+        tick = ScheduledFutureTask.nanoTime() / tickNanos;
+        wheel = new Wheel(0, wheelBits, tick);
+    }
+
+    /**
+     * Returns the number of tasks in the wheel, including those which were cancelled from outside the event loop
+     * and were not dropped yet.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds the given task to the wheel if its deadline is at least the threshold away.
+     *
+     * @return {@code false} if the task should be added to the scheduled task queue instead
+     */
+    boolean add(ScheduledFutureTask<?> task, long nanoTime) {
+        if (task.deadlineNanos() - nanoTime < thresholdNanos) {
+            return false;
+        }
+        if (size == 0) {
+            // Nothing to promote, so there is no need to tick through the time the wheel was empty.
+            advanceClock(Math.max(tick, nanoTime / tickNanos));
+        }
+        long flushTick = add0(task);
+        if (flushTick < 0) {
+            return false;
+        }
+        if (promotion == null || flushTick < promotionTick) {
+            schedulePromotion(flushTick);
+        }
+        return true;
+    }
+
+    /**
+     * Places the task into the lowest wheel whose range covers its deadline.
+     *
+     * @return the tick at which the bucket of the task comes due, or {@code -1} if the task is already due
+     */
+    private long add0(ScheduledFutureTask<?> task) {
+        final long expiration = task.deadlineNanos() / tickNanos;
+        Wheel wheel = this.wheel;
+        for (;;) {
+            if (expiration < wheel.currentTick + wheel.span()) {
+                // Only ever true for the lowest wheel, as every wheel covers the first bucket of the next one.
+                return -1;
+            }
+            long bucketTick;
+            if (expiration < wheel.currentTick + wheel.interval()) {
+                bucketTick = expiration & -wheel.span();
+            } else {
+                Wheel overflow = wheel.overflow(tick);
+                if (overflow != null) {
+                    wheel = overflow;
+                    continue;
+                }
+                // The deadline lies beyond the range of the largest wheel we can represent. Park it in the
+                // furthest bucket, it will be placed again once that bucket comes due.
+                bucketTick = wheel.currentTick + wheel.interval() - wheel.span();
+            }
+            wheel.bucket(bucketTick).add(task);
+            size++;
+            return bucketTick;
+        }
+    }
+
+    /**
+     * Removes a task which was cancelled from the event loop.
+     */
+    void remove(ScheduledFutureTask<?> task) {
+        Bucket bucket = task.wheelBucket;
+        if (bucket != null) {
+            bucket.remove(task);
+            size--;
+        }
+    }
+
+    /**
+     * Cancels all tasks and empties the wheel.
+     */
+    void cancelAll() {
+        for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+            for (Bucket bucket: wheel.buckets) {
+                for (;;) {
+                    ScheduledFutureTask<?> task = bucket.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.cancelWithoutRemove(false);
+                }
+            }
+        }
+        size = 0;
+        // The promotion task is part of the scheduled task queue and so is cancelled together with it.
+        promotion = null;
+    }
+
+    /**
+     * Moves all tasks which are due within the next tick after {@code nanoTime} into the scheduled task queue.
+     */
+    void promote(long nanoTime) {
+        final long target = nanoTime / tickNanos + 1;
+        // Jump from one non-empty bucket to the next, as the loop may have been blocked for many ticks.
+        for (;;) {
+            long flushTick = nextFlushTick();
+            if (flushTick < 0 || flushTick > target) {
+                break;
+            }
+            advanceClock(flushTick);
+            flush(wheel);
+        }
+        if (tick < target) {
+            advanceClock(target);
+        }
+    }
+
+    private void advanceClock(long tick) {
+        this.tick = tick;
+        for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+            wheel.currentTick = tick & -wheel.span();
+        }
+    }
+
+    /**
+     * Empties the buckets of all wheels that come due in the current tick, starting with the largest wheel so
+     * that tasks cascading down are promoted within the same tick.
+     */
+    private void flush(Wheel wheel) {
+        if (wheel == null || wheel.currentTick != tick) {
+            // If this wheel is not on a bucket boundary the larger wheels are not either.
+            return;
+        }
+        flush(wheel.overflow);
+
+        Bucket bucket = wheel.bucket(tick);
+        for (;;) {
+            ScheduledFutureTask<?> task = bucket.poll();
+            if (task == null) {
+                break;
+            }
+            size--;
+            if (!task.isCancelled() && add0(task) < 0) {
+                executor.scheduledTaskQueue().add(task);
+            }
+        }
+    }
+
+    /**
+     * Returns the earliest tick at which a non-empty bucket comes due, or {@code -1} if the wheel is empty.
+     */
+    private long nextFlushTick() {
+        if (size == 0) {
+            return -1;
+        }
+        long next = Long.MAX_VALUE;
+        for (Wheel wheel = this.wheel; wheel != null; wheel = wheel.overflow) {
+            long bucketTick = wheel.currentTick;
+            for (int i = 1; i < wheel.buckets.length; i++) {
+                bucketTick += wheel.span();
+                if (bucketTick >= next) {
+                    break;
+                }
+                if (!wheel.bucket(bucketTick).isEmpty()) {
+                    next = bucketTick;
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    private void schedulePromotion(long flushTick) {
+        ScheduledFutureTask<Void> promotion = this.promotion;
+        if (promotion != null) {
+            promotion.cancelWithoutRemove(false);
+            executor.scheduledTaskQueue().removeTyped(promotion);
+            this.promotion = null;
+        }
+        if (flushTick < 0) {
+            return;
+        }
+        // Promote one tick early, so the tasks are part of the scheduled task queue before their deadline.
+        promotion = new ScheduledFutureTask<Void>(executor, promoteTask, (flushTick - 1) * tickNanos);
+        executor.scheduledTaskQueue().add(promotion.setId(++executor.nextTaskId));
+        this.promotion = promotion;
+        promotionTick = flushTick;
+    }
+
+    /**
+     * A single level of the hierarchy. Each of its buckets covers {@code 2^shift} ticks, so the whole wheel covers
+     * {@code 2^(shift + bits)} ticks, which is the span of one bucket of the overflow wheel.
+     */
+    private static final class Wheel {
+        final Bucket[] buckets;
+        private final int shift;
+        private final int bits;
+
+        // The start of the current bucket, always a multiple of the span.
+        long currentTick;
+        Wheel overflow;
+
+        Wheel(int shift, int bits, long tick) {
+            this.shift = shift;
+            this.bits = bits;
+            buckets = new Bucket[1 << bits];
+            for (int i = 0; i < buckets.length; i ++) {
+                buckets[i] = new Bucket();
+            }
+            currentTick = tick & -span();
+        }
+
+        long span() {
+            return 1L << shift;
+        }
+
+        long interval() {
+            return 1L << (shift + bits);
+        }
+
+        Bucket bucket(long tick) {
+            return buckets[(int) (tick >>> shift) & (buckets.length - 1)];
+        }
+
+        /**
+         * Returns the next wheel of the hierarchy, creating it if needed, or {@code null} if its range could not
+         * be represented anymore.
+         */
+        Wheel overflow(long tick) {
+            if (overflow == null && shift + 2 * bits < 63) {
+                overflow = new Wheel(shift + bits, bits, tick);
+            }
+            return overflow;
+        }
+    }
+
+    /**
+     * Doubly linked list of {@link ScheduledFutureTask}s, which act as the nodes themselves.
+     */
+    static final class Bucket {
+        private ScheduledFutureTask<?> head;
+        private ScheduledFutureTask<?> tail;
+
+        boolean isEmpty() {
+            return head == null;
+        }
+
+        void add(ScheduledFutureTask<?> task) {
+            assert task.wheelBucket == null;
+            task.wheelBucket = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.wheelNext = task;
+                task.wheelPrev = tail;
+                tail = task;
+            }
+        }
+
+        void remove(ScheduledFutureTask<?> task) {
+            ScheduledFutureTask<?> next = task.wheelNext;
+            ScheduledFutureTask<?> prev = task.wheelPrev;
+            if (prev != null) {
+                prev.wheelNext = next;
+            } else {
+                head = next;
+            }
+            if (next != null) {
+                next.wheelPrev = prev;
+            } else {
+                tail = prev;
+            }
+            task.wheelPrev = null;
+            task.wheelNext = null;
+            task.wheelBucket = null;
+        }
+
+        ScheduledFutureTask<?> poll() {
+            ScheduledFutureTask<?> head = this.head;
+            if (head != null) {
+                remove(head);
+            }
+            return head;
+        }
+    }
+}
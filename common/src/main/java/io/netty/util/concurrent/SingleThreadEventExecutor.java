@@ -41,6 +41,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -54,6 +55,22 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
+    private static final boolean METRICS_ENABLED =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.metrics", false);
+    private static final long BLOCKED_THRESHOLD_MILLIS =
+            SystemPropertyUtil.getLong("io.netty.eventexecutor.blockedThresholdMillis", 0);
+
+    static {
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.eventexecutor.metrics: {}", METRICS_ENABLED);
+            logger.debug("-Dio.netty.eventexecutor.blockedThresholdMillis: {}", BLOCKED_THRESHOLD_MILLIS);
+        }
+    }
+
+    static final int IDLE_STATE_UNKNOWN = 0;
+    static final int IDLE_STATE_IDLE = 1;
+    static final int IDLE_STATE_BUSY = 2;
+
     private static final int ST_NOT_STARTED = 1;
     private static final int ST_STARTED = 2;
     private static final int ST_SHUTTING_DOWN = 3;
@@ -69,6 +86,10 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> STATE_UPDATER =
             AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "state");
+    private static final AtomicLongFieldUpdater<SingleThreadEventExecutor> PROGRESS_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "progress");
+    private static final AtomicIntegerFieldUpdater<SingleThreadEventExecutor> IDLE_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(SingleThreadEventExecutor.class, "idleState");
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
@@ -86,11 +107,21 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private final boolean addTaskWakesUp;
     private final int maxPendingTasks;
     private final RejectedExecutionHandler rejectedExecutionHandler;
+    private final EventExecutorMetrics metrics = METRICS_ENABLED ? new EventExecutorMetrics() : null;
 
     private long lastExecutionTime;
 
     @SuppressWarnings({"FieldMayBeFinal", "unused"})
     private volatile int state = ST_NOT_STARTED;
+    // Bumped by takeTask() and the runAllTasks() variants, so an EventExecutorWatchdog can tell if the executor thread
+    // is blocked.
+    private volatile long progress;
+    // Updated by recordIdleStart() and recordIdleEnd(), so an EventExecutorWatchdog can tell an idle executor from a
+    // blocked one without waking it up.
+    private volatile int idleState = IDLE_STATE_UNKNOWN;
+    // Set once an EventExecutorWatchdog watches this executor. Until then progress and idleState are not updated, so
+    // executors which are not watched do not pay for the extra stores in every iteration of their loop.
+    private volatile boolean watched;
 
     private volatile long gracefulShutdownQuietPeriod;
     private volatile long gracefulShutdownTimeout;
@@ -229,6 +260,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected Runnable takeTask() {
         assert inEventLoop();
+        updateProgress();
         if (!(taskQueue instanceof BlockingQueue)) {
             throw new UnsupportedOperationException();
         }
@@ -238,6 +270,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
             if (scheduledTask == null) {
                 Runnable task = null;
+                recordIdleStart();
                 try {
                     task = taskQueue.take();
                     if (task == WAKEUP_TASK) {
@@ -245,17 +278,22 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                     }
                 } catch (InterruptedException e) {
                     // Ignore
+                } finally {
+                    recordIdleEnd();
                 }
                 return task;
             } else {
                 long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
                 if (delayNanos > 0) {
+                    recordIdleStart();
                     try {
                         task = taskQueue.poll(delayNanos, TimeUnit.NANOSECONDS);
                     } catch (InterruptedException e) {
                         // Waken up.
                         return null;
+                    } finally {
+                        recordIdleEnd();
                     }
                 }
                 if (task == null) {
@@ -284,6 +322,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             if (scheduledTask == null) {
                 return true;
             }
+            recordScheduledTaskLateness(scheduledTask, nanoTime);
             if (!taskQueue.offer(scheduledTask)) {
                 // No space left in the task queue add it back to the scheduledTaskQueue so we pick it up again.
                 scheduledTaskQueue.add((ScheduledFutureTask<?>) scheduledTask);
@@ -305,11 +344,18 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
         do {
-            safeExecute(scheduledTask);
+            recordScheduledTaskLateness(scheduledTask, nanoTime);
+            safeExecuteTask(scheduledTask);
         } while ((scheduledTask = pollScheduledTask(nanoTime)) != null);
         return true;
     }
 
+    private void recordScheduledTaskLateness(Runnable scheduledTask, long nanoTime) {
+        if (metrics != null) {
+            metrics.scheduledTaskPolled(nanoTime - ((ScheduledFutureTask<?>) scheduledTask).deadlineNanos());
+        }
+    }
+
     /**
      * @see Queue#peek()
      */
@@ -342,7 +388,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected void addTask(Runnable task) {
         ObjectUtil.checkNotNull(task, "task");
+        if (metrics != null) {
+            metrics.taskAdded(task);
+        }
         if (!offerTask(task)) {
+            if (metrics != null) {
+                metrics.taskRemoved(task);
+            }
             reject(task);
         }
     }
@@ -358,7 +410,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @see Queue#remove(Object)
      */
     protected boolean removeTask(Runnable task) {
-        return taskQueue.remove(ObjectUtil.checkNotNull(task, "task"));
+        ObjectUtil.checkNotNull(task, "task");
+        if (metrics != null) {
+            metrics.taskRemoved(task);
+        }
+        return taskQueue.remove(task);
     }
 
     /**
@@ -368,6 +424,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected boolean runAllTasks() {
         assert inEventLoop();
+        updateProgress();
+        final long startTime = metricsStartTime();
         boolean fetchedAll;
         boolean ranAtLeastOne = false;
 
@@ -382,6 +440,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             lastExecutionTime = ScheduledFutureTask.nanoTime();
         }
         afterRunningAllTasks();
+        recordTasksRan(startTime);
         return ranAtLeastOne;
     }
 
@@ -396,6 +455,8 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      */
     protected final boolean runScheduledAndExecutorTasks(final int maxDrainAttempts) {
         assert inEventLoop();
+        updateProgress();
+        final long startTime = metricsStartTime();
         boolean ranAtLeastOneTask;
         int drainAttempt = 0;
         do {
@@ -408,6 +469,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             lastExecutionTime = ScheduledFutureTask.nanoTime();
         }
         afterRunningAllTasks();
+        recordTasksRan(startTime);
 
         return drainAttempt > 0;
     }
@@ -424,7 +486,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
         for (; ; ) {
-            safeExecute(task);
+            safeExecuteTask(task);
             task = pollTaskFrom(taskQueue);
             if (task == null) {
                 return true;
@@ -444,11 +506,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
         int remaining = Math.min(maxPendingTasks, taskQueue.size());
-        safeExecute(task);
+        safeExecuteTask(task);
         // Use taskQueue.poll() directly rather than pollTaskFrom() since the latter may
         // silently consume more than one item from the queue (skips over WAKEUP_TASK instances)
         while (remaining-- > 0 && (task = taskQueue.poll()) != null) {
-            safeExecute(task);
+            safeExecuteTask(task);
         }
         return true;
     }
@@ -458,10 +520,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * the tasks in the task queue and returns if it ran longer than {@code timeoutNanos}.
      */
     protected boolean runAllTasks(long timeoutNanos) {
+        updateProgress();
+        final long startTime = metricsStartTime();
         fetchFromScheduledTaskQueue();
         Runnable task = pollTask();
         if (task == null) {
             afterRunningAllTasks();
+            recordTasksRan(startTime);
             return false;
         }
 
@@ -469,7 +534,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         long runTasks = 0;
         long lastExecutionTime;
         for (; ; ) {
-            safeExecute(task);
+            safeExecuteTask(task);
 
             runTasks++;
 
@@ -490,10 +555,118 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         afterRunningAllTasks();
+        recordTasksRan(startTime);
         this.lastExecutionTime = lastExecutionTime;
         return true;
     }
 
+    private void safeExecuteTask(Runnable task) {
+        if (metrics != null) {
+            metrics.taskStarted(task);
+        }
+        safeExecute(task);
+    }
+
+    private void updateProgress() {
+        if (watched) {
+            // Only written by the executor thread, so an ordered store is enough and avoids a full fence per
+            // iteration.
+            PROGRESS_UPDATER.lazySet(this, progress + 1);
+        }
+    }
+
+    /**
+     * Called by {@link EventExecutorWatchdog} before it starts watching this executor.
+     */
+    void watched() {
+        watched = true;
+    }
+
+    long progress() {
+        return progress;
+    }
+
+    Thread thread() {
+        return thread;
+    }
+
+    /**
+     * Returns {@link #IDLE_STATE_UNKNOWN} if {@link #run()} never called {@link #recordIdleStart()} since the
+     * executor is watched by an {@link EventExecutorWatchdog}, otherwise
+     * {@link #IDLE_STATE_IDLE} while the executor thread waits for work and {@link #IDLE_STATE_BUSY} while it does not.
+     */
+    int idleState() {
+        return idleState;
+    }
+
+    private long metricsStartTime() {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    private void recordTasksRan(long startTime) {
+        if (metrics != null) {
+            metrics.tasksRan(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Run a task that was taken from the task queue via {@link #takeTask()} or {@link #pollTask()}, recording it in
+     * the {@link #metrics()} if enabled. Unlike {@link #runAllTasks()} exceptions thrown by the task are not caught.
+     */
+    protected final void runTask(Runnable task) {
+        if (metrics == null) {
+            task.run();
+            return;
+        }
+        final long startTime = System.nanoTime();
+        metrics.taskStarted(task);
+        try {
+            task.run();
+        } finally {
+            metrics.tasksRan(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetrics} of this executor, or {@code null} if the
+     * {@code io.netty.eventexecutor.metrics} system property is not set to {@code true}.
+     */
+    @UnstableApi
+    public final EventExecutorMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Must be called by {@link #run()} implementations right before the executor thread blocks waiting for work,
+     * for example in {@code Selector.select()}, so the idle time is accounted for in the {@link #metrics()} and an
+     * {@link EventExecutorWatchdog} does not consider the waiting executor blocked.
+     */
+    @UnstableApi
+    protected final void recordIdleStart() {
+        if (watched) {
+            // Only written by the executor thread, so an ordered store is enough.
+            IDLE_STATE_UPDATER.lazySet(this, IDLE_STATE_IDLE);
+        }
+        if (metrics != null) {
+            metrics.idleStarted();
+        }
+    }
+
+    /**
+     * Must be called by {@link #run()} implementations right after the executor thread stopped waiting for work.
+     *
+     * @see #recordIdleStart()
+     */
+    @UnstableApi
+    protected final void recordIdleEnd() {
+        if (watched) {
+            IDLE_STATE_UPDATER.lazySet(this, IDLE_STATE_BUSY);
+        }
+        if (metrics != null) {
+            metrics.idleEnded();
+        }
+    }
+
     /**
      * Invoked before returning from {@link #runAllTasks()} and {@link #runAllTasks(long)}.
      */
@@ -787,10 +960,13 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             // Check if any tasks were added to the queue every 100ms.
             // TODO: Change the behavior of takeTask() so that it returns on timeout.
             taskQueue.offer(WAKEUP_TASK);
+            recordIdleStart();
             try {
                 Thread.sleep(100);
             } catch (InterruptedException e) {
                 // Ignore
+            } finally {
+                recordIdleEnd();
             }
 
             return false;
@@ -989,6 +1165,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 if (interrupted) {
                     thread.interrupt();
                 }
+                if (metrics != null) {
+                    metrics.start();
+                }
+                if (BLOCKED_THRESHOLD_MILLIS > 0) {
+                    DefaultWatchdogHolder.WATCHDOG.watch(SingleThreadEventExecutor.this);
+                }
 
                 boolean success = false;
                 updateLastExecutionTime();
@@ -1048,6 +1230,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                             // See https://github.com/netty/netty/issues/6596.
                             FastThreadLocal.removeAll();
 
+                            if (metrics != null) {
+                                metrics.stop();
+                            }
                             STATE_UPDATER.set(SingleThreadEventExecutor.this, ST_TERMINATED);
                             threadLock.countDown();
                             int numUserTasks = drainTasks();
@@ -1079,6 +1264,11 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return numTasks;
     }
 
+    private static final class DefaultWatchdogHolder {
+        static final EventExecutorWatchdog WATCHDOG =
+                new EventExecutorWatchdog(BLOCKED_THRESHOLD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
     private static final class DefaultThreadProperties implements ThreadProperties {
         private final Thread t;
 
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * {@link EventExecutorGroup} for offloading handlers which block, for example on JDBC calls, that runs the tasks on
+ * virtual threads instead of a fixed pool of platform threads.
+ * <p>
+ * Every {@link #next()} call returns a new {@link OrderedEventExecutor} with its own task queue, so passing this group
+ * to {@link io.netty.channel.ChannelPipeline#addLast(EventExecutorGroup, String, io.netty.channel.ChannelHandler)}
+ * gives each channel its own ordered queue. When such a queue has tasks a new thread is started which runs them one
+ * after the other until the queue is empty, so the tasks of a channel never run concurrently and a blocked channel only
+ * blocks its own thread.
+ * <p>
+ * Virtual threads need Java 21 or later and are looked up reflectively, use {@link #isAvailable()} to check if they
+ * can be used. Apart from the threads the returned executors behave like those of
+ * {@link WorkStealingEventExecutorGroup}.
+ */
+@UnstableApi
+public final class VirtualThreadEventExecutorGroup extends AbstractOrderedEventExecutorGroup {
+
+    private static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(VirtualThreadEventExecutorGroup.class);
+
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Throwable cause = null;
+        if (PlatformDependent.javaVersion() < 21) {
+            cause = new UnsupportedOperationException("Virtual threads require Java 21 or later");
+        } else {
+            try {
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+                builderName = builderClass.getMethod("name", String.class, long.class);
+                builderFactory = builderClass.getMethod("factory");
+                // Make sure we can actually create a factory.
+                builderFactory.invoke(ofVirtual.invoke(null));
+            } catch (Throwable t) {
+                cause = t;
+                ofVirtual = null;
+                builderName = null;
+                builderFactory = null;
+            }
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        UNAVAILABILITY_CAUSE = cause;
+
+        if (logger.isDebugEnabled()) {
+            if (cause == null) {
+                logger.debug("Virtual threads: available");
+            } else {
+                logger.debug("Virtual threads: unavailable", cause);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if virtual threads are available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Returns the cause of unavailability of virtual threads, or {@code null} if they are available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    private final ThreadFactory threadFactory;
+
+    /**
+     * Creates a new instance which runs its tasks on virtual threads.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available
+     */
+    public VirtualThreadEventExecutorGroup() {
+        this(newVirtualThreadFactory(DefaultThreadFactory.toPoolName(VirtualThreadEventExecutorGroup.class)));
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param threadFactory  the {@link ThreadFactory} used to create a thread each time an executor has tasks to run,
+     *                       which is expected to create virtual threads
+     */
+    public VirtualThreadEventExecutorGroup(ThreadFactory threadFactory) {
+        this(threadFactory, 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param threadFactory         the {@link ThreadFactory} used to create a thread each time an executor has tasks
+     *                              to run, which is expected to create virtual threads
+     * @param maxTaskExecutePerRun  the maximum number of tasks a thread runs before the executor continues on a new
+     *                              thread, so other threads get a chance to run
+     */
+    public VirtualThreadEventExecutorGroup(ThreadFactory threadFactory, int maxTaskExecutePerRun) {
+        super(maxTaskExecutePerRun);
+        this.threadFactory = ObjectUtil.checkNotNull(threadFactory, "threadFactory");
+    }
+
+    /**
+     * Returns a new {@link ThreadFactory} which creates virtual threads named {@code poolName} followed by a dash and
+     * a sequence number.
+     *
+     * @throws UnsupportedOperationException if virtual threads are not available
+     */
+    public static ThreadFactory newVirtualThreadFactory(String poolName) {
+        ObjectUtil.checkNotNull(poolName, "poolName");
+        if (!isAvailable()) {
+            throw (UnsupportedOperationException) new UnsupportedOperationException(
+                    "Virtual threads are not available").initCause(UNAVAILABILITY_CAUSE);
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, poolName + '-', 0L);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (Exception e) {
+            throw (UnsupportedOperationException) new UnsupportedOperationException(
+                    "Failed to create a virtual thread factory").initCause(e);
+        }
+    }
+
+    @Override
+    void submit(final OrderedExecutor executor) {
+        threadFactory.newThread(new Runnable() {
+            @Override
+            public void run() {
+                executor.run();
+            }
+        }).start();
+    }
+}
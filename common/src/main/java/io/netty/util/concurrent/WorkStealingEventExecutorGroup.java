@@ -0,0 +1,214 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link EventExecutorGroup} for offloading CPU heavy handlers which preserves the execution order of the tasks
+ * submitted to each {@link EventExecutor} returned by {@link #next()}, but does not bind them to a {@link Thread}.
+ * <p>
+ * Every {@link #next()} call returns a new {@link OrderedEventExecutor} with its own task queue, so passing this group
+ * to {@link io.netty.channel.ChannelPipeline#addLast(EventExecutorGroup, String, io.netty.channel.ChannelHandler)}
+ * gives each channel its own ordered queue. When such a queue has tasks it is handed to a worker thread, preferably
+ * the one which ran it last. Each worker has a queue of these ready executors, and a worker which runs out of work
+ * steals whole executors from the other workers, so a few busy channels cannot keep the other channels which share
+ * their worker waiting while other workers are idle. An executor runs at most {@code maxTaskExecutePerRun} tasks at a
+ * time before it goes back to the end of its worker's queue.
+ * <p>
+ * Scheduled tasks are run by the executor which scheduled them once they are due. Shutting down one of the executors
+ * shuts down the whole group. {@link #iterator()} returns no executors as they are created on demand.
+ */
+@UnstableApi
+public final class WorkStealingEventExecutorGroup extends AbstractOrderedEventExecutorGroup {
+
+    private final Worker[] workers;
+    private final ThreadFactory threadFactory;
+    private final AtomicBoolean workersStarted = new AtomicBoolean();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads  the number of worker threads
+     */
+    public WorkStealingEventExecutorGroup(int nThreads) {
+        this(nThreads, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads       the number of worker threads
+     * @param threadFactory  the {@link ThreadFactory} used to create the worker threads, or {@code null} to use the
+     *                       default
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory) {
+        this(nThreads, threadFactory, 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param nThreads              the number of worker threads
+     * @param threadFactory         the {@link ThreadFactory} used to create the worker threads, or {@code null} to
+     *                              use the default
+     * @param maxTaskExecutePerRun  the maximum number of tasks an executor runs before another one gets its turn
+     */
+    public WorkStealingEventExecutorGroup(int nThreads, ThreadFactory threadFactory, int maxTaskExecutePerRun) {
+        super(maxTaskExecutePerRun);
+        ObjectUtil.checkPositive(nThreads, "nThreads");
+        this.threadFactory = threadFactory == null ?
+                new DefaultThreadFactory(WorkStealingEventExecutorGroup.class) : threadFactory;
+        workers = new Worker[nThreads];
+        for (int i = 0; i < nThreads; i++) {
+            workers[i] = new Worker(i);
+        }
+    }
+
+    @Override
+    void submit(OrderedExecutor executor) {
+        if (!workersStarted.get() && workersStarted.compareAndSet(false, true)) {
+            for (Worker worker : workers) {
+                worker.start();
+            }
+        }
+        // Prefer the current worker if called from one of ours, for locality, and otherwise the worker which ran the
+        // executor last.
+        Thread currentThread = Thread.currentThread();
+        Worker worker = null;
+        for (Worker w : workers) {
+            if (w.thread == currentThread) {
+                worker = w;
+                break;
+            }
+        }
+        if (worker == null) {
+            int lastWorker = executor.lastRunner;
+            worker = workers[lastWorker >= 0 ? lastWorker : PlatformDependent.threadLocalRandom().nextInt(
+                    workers.length)];
+        }
+        worker.readyExecutors.offer(executor);
+        if (!worker.unpark()) {
+            // The worker is busy, let an idle one steal the executor if there is any.
+            for (Worker w : workers) {
+                if (w.unpark()) {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    void terminated() {
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+        }
+    }
+
+    private final class Worker implements Runnable {
+        private final int index;
+        // Multi-consumer, as idle workers steal from it.
+        final Queue<OrderedExecutor> readyExecutors = new ConcurrentLinkedQueue<OrderedExecutor>();
+        volatile Thread thread;
+        private volatile boolean parked;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        void start() {
+            Thread thread = threadFactory.newThread(this);
+            this.thread = thread;
+            thread.start();
+        }
+
+        /**
+         * Returns {@code true} if the worker was parked and is now woken up.
+         */
+        boolean unpark() {
+            if (parked) {
+                parked = false;
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void run() {
+            thread = Thread.currentThread();
+            try {
+                for (;;) {
+                    OrderedExecutor executor = readyExecutors.poll();
+                    if (executor == null) {
+                        executor = steal();
+                    }
+                    if (executor != null) {
+                        executor.lastRunner = index;
+                        executor.run();
+                        continue;
+                    }
+
+                    // Announce that we are about to park before checking for work again, so a producer either
+                    // sees us parked and unparks us or we see its executor.
+                    parked = true;
+                    if (hasReadyExecutors()) {
+                        parked = false;
+                        continue;
+                    }
+                    // Only stop once terminated, as until then an executor may still be submitted, for example by an
+                    // execute() call which started before the shutdown.
+                    if (isTerminated()) {
+                        break;
+                    }
+                    LockSupport.park(this);
+                    parked = false;
+                }
+            } finally {
+                parked = false;
+            }
+        }
+
+        private OrderedExecutor steal() {
+            int length = workers.length;
+            for (int i = 1; i < length; i++) {
+                OrderedExecutor executor = workers[(index + i) % length].readyExecutors.poll();
+                if (executor != null) {
+                    return executor;
+                }
+            }
+            return null;
+        }
+
+        private boolean hasReadyExecutors() {
+            for (Worker worker : workers) {
+                if (!worker.readyExecutors.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -21,14 +21,18 @@ import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 /**
@@ -45,6 +49,13 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
     private static final int STRING_BUILDER_MAX_SIZE;
     private static final int HANDLER_SHARABLE_CACHE_INITIAL_CAPACITY = 4;
     private static final int INDEXED_VARIABLE_TABLE_INITIAL_SIZE = 32;
+    private static final int INDEXED_VARIABLE_TABLE_COMPACT_INITIAL_SIZE = 8;
+    private static final boolean RECLAIM_INDEXES;
+    private static final boolean COMPACT;
+
+    // Indexes of garbage collected variables; guarded by RECLAIMABLE_INDEXES.
+    private static final ReferenceQueue<Object> RECLAIMED_INDEXES = new ReferenceQueue<Object>();
+    private static final Set<IndexReference> RECLAIMABLE_INDEXES = new HashSet<IndexReference>();
 
     public static final Object UNSET = new Object();
 
@@ -57,6 +68,14 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
 
         STRING_BUILDER_MAX_SIZE = SystemPropertyUtil.getInt("io.netty.threadLocalMap.stringBuilder.maxSize", 1024 * 4);
         logger.debug("-Dio.netty.threadLocalMap.stringBuilder.maxSize: {}", STRING_BUILDER_MAX_SIZE);
+
+        RECLAIM_INDEXES = SystemPropertyUtil.getBoolean("io.netty.threadLocalMap.reclaimIndexes", true);
+        logger.debug("-Dio.netty.threadLocalMap.reclaimIndexes: {}", RECLAIM_INDEXES);
+
+        // Use a smaller indexed variable table which grows in smaller steps for threads which are not
+        // FastThreadLocalThreads, as these usually only use a few thread-local variables.
+        COMPACT = SystemPropertyUtil.getBoolean("io.netty.threadLocalMap.compact", false);
+        logger.debug("-Dio.netty.threadLocalMap.compact: {}", COMPACT);
     }
 
     public static InternalThreadLocalMap getIfSet() {
@@ -79,7 +98,7 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
     private static InternalThreadLocalMap fastGet(FastThreadLocalThread thread) {
         InternalThreadLocalMap threadLocalMap = thread.threadLocalMap();
         if (threadLocalMap == null) {
-            thread.setThreadLocalMap(threadLocalMap = new InternalThreadLocalMap());
+            thread.setThreadLocalMap(threadLocalMap = new InternalThreadLocalMap(false));
         }
         return threadLocalMap;
     }
@@ -88,7 +107,7 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         ThreadLocal<InternalThreadLocalMap> slowThreadLocalMap = UnpaddedInternalThreadLocalMap.slowThreadLocalMap;
         InternalThreadLocalMap ret = slowThreadLocalMap.get();
         if (ret == null) {
-            ret = new InternalThreadLocalMap();
+            ret = new InternalThreadLocalMap(COMPACT);
             slowThreadLocalMap.set(ret);
         }
         return ret;
@@ -116,6 +135,30 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         return index;
     }
 
+    /**
+     * Returns an index like {@link #nextVariableIndex()}, which is handed out again once {@code variable} was
+     * garbage collected. The caller must guarantee that no reachable {@link InternalThreadLocalMap} holds a value at
+     * the returned index once {@code variable} is unreachable, which {@link FastThreadLocal} does by referencing
+     * every variable which is set in a map from that map.
+     */
+    public static int nextVariableIndex(Object variable) {
+        if (!RECLAIM_INDEXES) {
+            return nextVariableIndex();
+        }
+        synchronized (RECLAIMABLE_INDEXES) {
+            IndexReference reclaimed = (IndexReference) RECLAIMED_INDEXES.poll();
+            int index;
+            if (reclaimed != null) {
+                RECLAIMABLE_INDEXES.remove(reclaimed);
+                index = reclaimed.index;
+            } else {
+                index = nextVariableIndex();
+            }
+            RECLAIMABLE_INDEXES.add(new IndexReference(variable, index));
+            return index;
+        }
+    }
+
     public static int lastVariableIndex() {
         return nextIndex.get() - 1;
     }
@@ -124,12 +167,16 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
     // With CompressedOops enabled, an instance of this class should occupy at least 128 bytes.
     public long rp1, rp2, rp3, rp4, rp5, rp6, rp7, rp8, rp9;
 
-    private InternalThreadLocalMap() {
-        super(newIndexedVariableTable());
+    private final boolean compact;
+
+    private InternalThreadLocalMap(boolean compact) {
+        super(newIndexedVariableTable(compact));
+        this.compact = compact;
     }
 
-    private static Object[] newIndexedVariableTable() {
-        Object[] array = new Object[INDEXED_VARIABLE_TABLE_INITIAL_SIZE];
+    private static Object[] newIndexedVariableTable(boolean compact) {
+        Object[] array = new Object[compact ? INDEXED_VARIABLE_TABLE_COMPACT_INITIAL_SIZE :
+                INDEXED_VARIABLE_TABLE_INITIAL_SIZE];
         Arrays.fill(array, UNSET);
         return array;
     }
@@ -309,13 +356,19 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
     private void expandIndexedVariableTableAndSet(int index, Object value) {
         Object[] oldArray = indexedVariables;
         final int oldCapacity = oldArray.length;
-        int newCapacity = index;
-        newCapacity |= newCapacity >>>  1;
-        newCapacity |= newCapacity >>>  2;
-        newCapacity |= newCapacity >>>  4;
-        newCapacity |= newCapacity >>>  8;
-        newCapacity |= newCapacity >>> 16;
-        newCapacity ++;
+        int newCapacity;
+        if (compact) {
+            // Grow by 50% at least, rounded up to a multiple of 8, instead of doubling.
+            newCapacity = (Math.max(index + 1, oldCapacity + (oldCapacity >>> 1)) + 7) & ~7;
+        } else {
+            newCapacity = index;
+            newCapacity |= newCapacity >>>  1;
+            newCapacity |= newCapacity >>>  2;
+            newCapacity |= newCapacity >>>  4;
+            newCapacity |= newCapacity >>>  8;
+            newCapacity |= newCapacity >>> 16;
+            newCapacity ++;
+        }
 
         Object[] newArray = Arrays.copyOf(oldArray, newCapacity);
         Arrays.fill(newArray, oldCapacity, newArray.length, UNSET);
@@ -349,4 +402,13 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         }
         cleanerFlags.set(index);
     }
+
+    private static final class IndexReference extends PhantomReference<Object> {
+        final int index;
+
+        IndexReference(Object variable, int index) {
+            super(variable, RECLAIMED_INDEXES);
+            this.index = index;
+        }
+    }
 }
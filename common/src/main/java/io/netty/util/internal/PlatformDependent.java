@@ -746,6 +746,26 @@ public final class PlatformDependent {
         decrementMemoryCounter(capacity);
     }
 
+    /**
+     * Counts {@code capacity} bytes of direct memory which were not allocated via
+     * {@link #allocateDirectNoCleaner(int)}, for example because they are mapped from a file, against
+     * {@link #maxDirectMemory()}. The bytes <strong>MUST</strong> be given back via {@link #unreserveDirectMemory(int)}
+     * once the memory was released.
+     * This method does nothing if {@link #usedDirectMemory()} is not available.
+     *
+     * @throws OutOfDirectMemoryError if the limit would be exceeded
+     */
+    public static void reserveDirectMemory(int capacity) {
+        incrementMemoryCounter(capacity);
+    }
+
+    /**
+     * Gives back {@code capacity} bytes which were counted via {@link #reserveDirectMemory(int)}.
+     */
+    public static void unreserveDirectMemory(int capacity) {
+        decrementMemoryCounter(capacity);
+    }
+
     private static void incrementMemoryCounter(int capacity) {
         if (DIRECT_MEMORY_COUNTER != null) {
             long newUsedMemory = DIRECT_MEMORY_COUNTER.addAndGet(capacity);
@@ -15,6 +15,19 @@ void convertSources(String templateDir, String outputDir) {
     keyPrimitives.eachWithIndex { keyPrimitive, i ->
         convertTemplates templateDir, outputDir, keyPrimitive, keyObjects[i], keyNumberMethod[i]
     }
+
+    // Maps with primitive values are only generated for the most commonly used key and value types.
+    String[] mapPrimitives = ["int", "long"]
+    String[] mapObjects = ["Integer", "Long"]
+    mapPrimitives.eachWithIndex { keyPrimitive, i ->
+        mapPrimitives.each { valuePrimitive ->
+            convertKeyValueTemplates templateDir, outputDir, keyPrimitive, mapObjects[i], valuePrimitive
+        }
+    }
+}
+
+String hashCodeFn(String primitive, String name) {
+    return primitive.equals("long") ? "(int) (" + name + " ^ (" + name + " >>> 32))" : "(int) " + name
 }
 
 void convertTemplates(String templateDir,
@@ -25,17 +38,43 @@ void convertTemplates(String templateDir,
     def keyName = keyPrimitive.capitalize()
     def replaceFrom = "(^.*)K([^.]+)\\.template\$"
     def replaceTo = "\\1" + keyName + "\\2.java"
-    def hashCodeFn = keyPrimitive.equals("long") ? "(int) (key ^ (key >>> 32))" : "(int) key"
     ant.copy(todir: outputDir) {
         fileset(dir: templateDir) {
             include(name: "**/*.template")
+            exclude(name: "**/KV*.template")
         }
         filterset() {
             filter(token: "K", value: keyName)
             filter(token: "k", value: keyPrimitive)
             filter(token: "O", value: keyObject)
             filter(token: "KEY_NUMBER_METHOD", value: keyNumberMethod)
-            filter(token: "HASH_CODE", value: hashCodeFn)
+            filter(token: "HASH_CODE", value: hashCodeFn(keyPrimitive, "key"))
+        }
+        regexpmapper(from: replaceFrom, to: replaceTo)
+    }
+}
+
+void convertKeyValueTemplates(String templateDir,
+                              String outputDir,
+                              String keyPrimitive,
+                              String keyObject,
+                              String valuePrimitive) {
+    def keyName = keyPrimitive.capitalize()
+    def valueName = valuePrimitive.capitalize()
+    def replaceFrom = "(^.*)KV([^.]+)\\.template\$"
+    def replaceTo = "\\1" + keyName + valueName + "\\2.java"
+    ant.copy(todir: outputDir) {
+        fileset(dir: templateDir) {
+            include(name: "**/KV*.template")
+        }
+        filterset() {
+            filter(token: "K", value: keyName)
+            filter(token: "k", value: keyPrimitive)
+            filter(token: "O", value: keyObject)
+            filter(token: "V", value: valueName)
+            filter(token: "v", value: valuePrimitive)
+            filter(token: "HASH_CODE", value: hashCodeFn(keyPrimitive, "key"))
+            filter(token: "VALUE_HASH_CODE", value: hashCodeFn(valuePrimitive, "value"))
         }
         regexpmapper(from: replaceFrom, to: replaceTo)
     }
@@ -96,4 +96,46 @@ public class DefaultAttributeMapTest {
         assertSame(2, attr2.get());
         assertSame(attr, attr2);
     }
+
+    @Test
+    public void testManyAttributes() {
+        AttributeKey<?>[] keys = new AttributeKey<?>[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = AttributeKey.valueOf("testManyAttributes" + i);
+        }
+        // Insert in an order which is neither ascending nor descending by id.
+        for (int i = 0; i < keys.length; i += 2) {
+            map.attr(keys[i]);
+        }
+        for (int i = keys.length - 1; i > 0; i -= 2) {
+            map.attr(keys[i]);
+        }
+        for (AttributeKey<?> key : keys) {
+            assertTrue(map.hasAttr(key));
+            assertSame(key, map.attr(key).key());
+        }
+
+        for (int i = 0; i < keys.length; i += 3) {
+            map.attr(keys[i]).remove();
+        }
+        for (int i = 0; i < keys.length; i++) {
+            assertEquals(i % 3 != 0, map.hasAttr(keys[i]));
+        }
+    }
+
+    @Test
+    public void testRemovedAttributeIsReplaced() {
+        AttributeKey<String> key = AttributeKey.valueOf("testRemovedAttributeIsReplaced");
+        Attribute<String> attr = map.attr(key);
+        attr.set("a");
+        attr.remove();
+        assertFalse(map.hasAttr(key));
+
+        // Removing twice must not remove the attribute which replaced it.
+        Attribute<String> attr2 = map.attr(key);
+        assertNotSame(attr, attr2);
+        attr.remove();
+        assertTrue(map.hasAttr(key));
+        assertSame(attr2, map.attr(key));
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HierarchicalWheelTimerTest {
+
+    @Test
+    public void testScheduleTimeoutShouldNotRunBeforeDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(createCountDownLatchTimerTask(barrier), 10, TimeUnit.SECONDS);
+        assertFalse(barrier.await(3, TimeUnit.SECONDS));
+        assertFalse("timer should not expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test
+    public void testScheduleTimeoutShouldRunAfterDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(createCountDownLatchTimerTask(barrier), 2, TimeUnit.SECONDS);
+        assertTrue(barrier.await(3, TimeUnit.SECONDS));
+        assertTrue("timer should expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test(timeout = 3000)
+    public void testStopTimer() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Timer timerProcessed = new HierarchicalWheelTimer();
+        for (int i = 0; i < 3; i ++) {
+            timerProcessed.newTimeout(createCountDownLatchTimerTask(latch), 1, TimeUnit.MILLISECONDS);
+        }
+
+        latch.await();
+        assertEquals("Number of unprocessed timeouts should be 0", 0, timerProcessed.stop().size());
+
+        final Timer timerUnprocessed = new HierarchicalWheelTimer(Executors.defaultThreadFactory(),
+                10, TimeUnit.MILLISECONDS, 4, 2);
+        for (int i = 0; i < 5; i ++) {
+            // Far enough in the future to end up in one of the overflow wheels.
+            timerUnprocessed.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        }
+        Thread.sleep(1000L); // sleep for a second
+        assertEquals(5, timerUnprocessed.stop().size());
+    }
+
+    @Test(timeout = 3000)
+    public void testTimerShouldThrowExceptionAfterShutdownForNewTimeouts() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Timer timer = new HierarchicalWheelTimer();
+        for (int i = 0; i < 3; i ++) {
+            timer.newTimeout(createCountDownLatchTimerTask(latch), 1, TimeUnit.MILLISECONDS);
+        }
+
+        latch.await();
+        timer.stop();
+
+        try {
+            timer.newTimeout(createNoOpTimerTask(), 1, TimeUnit.MILLISECONDS);
+            fail("Expected exception didn't occur.");
+        } catch (IllegalStateException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testExecutionOnTimeAcrossWheels() throws InterruptedException {
+        // With 4 ticks per wheel the delays below cascade through up to four wheels.
+        int tickDuration = 10;
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(),
+                tickDuration, TimeUnit.MILLISECONDS, 4, 1);
+        final BlockingQueue<Long> queue = new LinkedBlockingQueue<Long>();
+        final int[] timeouts = { 5, 35, 170, 650, 1300 };
+
+        for (int timeout: timeouts) {
+            final long start = System.nanoTime();
+            final long delay = timeout;
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(final Timeout timeout) throws Exception {
+                    queue.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - delay);
+                }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        for (int i = 0; i < timeouts.length; i++) {
+            long late = queue.take();
+            assertTrue("timeout expired " + late + "ms late", late >= 0 && late < 2 * tickDuration + 100);
+        }
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test(timeout = 10000)
+    public void testShardsHandOffExpiredTimeoutsInBatches() throws InterruptedException {
+        final AtomicInteger batches = new AtomicInteger();
+        final ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Executor executor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                batches.incrementAndGet();
+                executorService.execute(command);
+            }
+        };
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(),
+                100, TimeUnit.MILLISECONDS, 16, 4, executor, true, -1);
+        int scheduledTasks = 10000;
+        final CountDownLatch latch = new CountDownLatch(scheduledTasks);
+        final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        for (int i = 0; i < scheduledTasks; i++) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) {
+                    threads.add(Thread.currentThread());
+                    latch.countDown();
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+        assertTrue("expected batches, got " + batches.get(), batches.get() < scheduledTasks / 2);
+        assertEquals(0, timer.pendingTimeouts());
+        // All tasks were run by the single thread of the executor, not by the four workers.
+        assertEquals(1, threads.size());
+        timer.stop();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testCancelledTimeoutShouldNotRun() throws InterruptedException {
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(),
+                10, TimeUnit.MILLISECONDS, 4, 1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Timeout timeout = timer.newTimeout(createCountDownLatchTimerTask(cancelled), 300, TimeUnit.MILLISECONDS);
+        timer.newTimeout(createCountDownLatchTimerTask(latch), 500, TimeUnit.MILLISECONDS);
+        // Let the timeout reach one of the overflow wheels before cancelling it.
+        Thread.sleep(100);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        latch.await();
+        assertEquals(1, cancelled.getCount());
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.isExpired());
+        assertEquals(0, timer.pendingTimeouts());
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test
+    public void testRejectedExecutionExceptionWhenTooManyTimeoutsAreAddedBackToBack() {
+        HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 100,
+            TimeUnit.MILLISECONDS, 32, 2, null, true, 2);
+        timer.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        timer.newTimeout(createNoOpTimerTask(), 5, TimeUnit.SECONDS);
+        try {
+            timer.newTimeout(createNoOpTimerTask(), 1, TimeUnit.MILLISECONDS);
+            fail("Timer allowed adding 3 timeouts when maxPendingTimeouts was 2");
+        } catch (RejectedExecutionException e) {
+            // Expected
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void reportPendingTimeouts() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer();
+        final Timeout t1 = timer.newTimeout(createNoOpTimerTask(), 100, TimeUnit.MINUTES);
+        final Timeout t2 = timer.newTimeout(createNoOpTimerTask(), 100, TimeUnit.MINUTES);
+        timer.newTimeout(createCountDownLatchTimerTask(latch), 90, TimeUnit.MILLISECONDS);
+
+        assertEquals(3, timer.pendingTimeouts());
+        t1.cancel();
+        t2.cancel();
+        latch.await();
+
+        assertEquals(0, timer.pendingTimeouts());
+        timer.stop();
+    }
+
+    @Test
+    public void testOverflow() throws InterruptedException  {
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(),
+                1, TimeUnit.MILLISECONDS, 2, 1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        Timeout timeout = timer.newTimeout(createCountDownLatchTimerTask(latch), Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        assertFalse(latch.await(1, TimeUnit.SECONDS));
+        timeout.cancel();
+        timer.stop();
+    }
+
+    private static TimerTask createNoOpTimerTask() {
+        return new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) throws Exception {
+            }
+        };
+    }
+
+    private static TimerTask createCountDownLatchTimerTask(final CountDownLatch latch) {
+        return new TimerTask() {
+            @Override
+            public void run(final Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LockFreeRecyclerTest extends RecyclerTest {
+
+    @Override
+    protected boolean lockFree() {
+        return true;
+    }
+
+    private static Recycler<HandledObject> newLockFreeRecycler(int maxCapacityPerThread, int ratio) {
+        return new Recycler<HandledObject>(maxCapacityPerThread, 2, ratio, 2, ratio, true) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                return new HandledObject(handle);
+            }
+        };
+    }
+
+    @Test
+    @Override
+    public void testDiscardingExceedingElementsWithRecycleAtDifferentThread() throws Exception {
+        final int maxCapacity = 32;
+        final AtomicInteger instancesCount = new AtomicInteger(0);
+
+        final Recycler<HandledObject> recycler = new Recycler<HandledObject>(maxCapacity, 2, 8, 2, 8, true) {
+            @Override
+            protected HandledObject newObject(Recycler.Handle<HandledObject> handle) {
+                instancesCount.incrementAndGet();
+                return new HandledObject(handle);
+            }
+        };
+        testDiscardingExceedingElementsWithRecycleAtDifferentThread(recycler, maxCapacity, instancesCount);
+    }
+
+    @Test
+    public void testMetric() throws Exception {
+        final Recycler<HandledObject> recycler = newLockFreeRecycler(2, 0);
+        HandledObject o = recycler.get();
+        o.recycle();
+        assertSame(o, recycler.get());
+        assertEquals(1, recycler.metric().hits());
+        assertEquals(1, recycler.metric().misses());
+
+        final HandledObject[] objects = { o, recycler.get(), recycler.get() };
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (HandledObject object : objects) {
+                    object.recycle();
+                }
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(3, recycler.metric().crossThreadReturns());
+
+        // Only maxCapacityPerThread objects can be taken over from the other thread.
+        assertSame(objects[1], recycler.get());
+        assertSame(objects[0], recycler.get());
+        assertNotSame(objects[2], recycler.get());
+        assertEquals(3, recycler.metric().hits());
+        assertEquals(4, recycler.metric().misses());
+        assertEquals(1, recycler.metric().drops());
+    }
+
+    @Test
+    public void testDropWhenOwnerRemoved() throws Exception {
+        final Recycler<HandledObject> recycler = newLockFreeRecycler(16, 0);
+        final HandledObject[] objects = new HandledObject[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                objects[0] = recycler.get();
+            }
+        };
+        thread.start();
+        thread.join();
+
+        // The thread which owns the pool is gone, so the object can never be reused.
+        objects[0].recycle();
+        assertEquals(1, recycler.metric().crossThreadReturns());
+        assertEquals(1, recycler.metric().drops());
+    }
+}
@@ -26,15 +26,19 @@ import static org.junit.Assert.*;
 
 public class RecyclerTest {
 
-    private static Recycler<HandledObject> newRecycler(int maxCapacityPerThread) {
+    protected boolean lockFree() {
+        return false;
+    }
+
+    private Recycler<HandledObject> newRecycler(int maxCapacityPerThread) {
         return newRecycler(maxCapacityPerThread, 2, 8, 2, 8);
     }
 
-    private static Recycler<HandledObject> newRecycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
+    private Recycler<HandledObject> newRecycler(int maxCapacityPerThread, int maxSharedCapacityFactor,
                                                        int ratio, int maxDelayedQueuesPerThread,
                                                        int delayedQueueRatio) {
         return new Recycler<HandledObject>(maxCapacityPerThread, maxSharedCapacityFactor, ratio,
-                maxDelayedQueuesPerThread, delayedQueueRatio) {
+                maxDelayedQueuesPerThread, delayedQueueRatio, lockFree()) {
             @Override
             protected HandledObject newObject(
                     Recycler.Handle<HandledObject> handle) {
@@ -187,7 +191,7 @@ public class RecyclerTest {
         }
     }
 
-    private static void testMaxCapacity(int maxCapacity) {
+    private void testMaxCapacity(int maxCapacity) {
         Recycler<HandledObject> recycler = newRecycler(maxCapacity);
         HandledObject[] objects = new HandledObject[maxCapacity * 3];
         for (int i = 0; i < objects.length; i++) {
@@ -276,7 +280,11 @@ public class RecyclerTest {
                 return new HandledObject(handle);
             }
         };
+        testDiscardingExceedingElementsWithRecycleAtDifferentThread(recycler, maxCapacity, instancesCount);
+    }
 
+    static void testDiscardingExceedingElementsWithRecycleAtDifferentThread(
+            Recycler<HandledObject> recycler, int maxCapacity, AtomicInteger instancesCount) throws Exception {
         // Borrow 2 * maxCapacity objects.
         final HandledObject[] array = new HandledObject[maxCapacity * 2];
         for (int i = 0; i < array.length; i++) {
@@ -18,11 +18,18 @@ package io.netty.util;
 import org.junit.Test;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
 public class ResourceLeakDetectorTest {
 
     @Test(timeout = 60000)
@@ -95,6 +102,67 @@ public class ResourceLeakDetectorTest {
         assertNoErrors(error);
     }
 
+    @Test
+    public void testAllocationSiteFingerprint() {
+        AllocationSite[] sites = new AllocationSite[2];
+        for (int i = 0; i < sites.length; i++) {
+            sites[i] = AllocationSite.capture(4);
+        }
+        AllocationSite other = AllocationSite.capture(4);
+
+        assertEquals(sites[0].fingerprint(), sites[1].fingerprint());
+        assertEquals(sites[0].toString(), sites[1].toString());
+        assertNotEquals(sites[0].fingerprint(), other.fingerprint());
+        assertTrue(sites[0].toString(), sites[0].toString().startsWith(
+                "\tat " + ResourceLeakDetectorTest.class.getName() + ".testAllocationSiteFingerprint:"));
+    }
+
+    @Test(timeout = 60000)
+    public void testAllocationSiteLeaksAreAggregated() throws Exception {
+        ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+        boolean allocationSites = ResourceLeakDetector.isAllocationSiteTracking();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SIMPLE);
+        ResourceLeakDetector.setAllocationSiteTracking(true);
+        try {
+            final List<String> reports = new ArrayList<String>();
+            ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>(Object.class, 1) {
+                @Override
+                protected void reportAllocationSiteLeaks(String resourceType, String sites) {
+                    reports.add(sites);
+                }
+
+                @Override
+                protected void reportTracedLeak(String resourceType, String records) {
+                    reports.add(records);
+                }
+
+                @Override
+                protected void reportUntracedLeak(String resourceType) {
+                    reports.add(resourceType);
+                }
+            };
+            for (int i = 0; i < 10; i++) {
+                assertNotNull(detector.track(new Object()));
+            }
+            while (reports.isEmpty()) {
+                System.gc();
+                Thread.sleep(10);
+                // Tracking an instance reports the leaks which were collected so far.
+                Object obj = new Object();
+                detector.track(obj).close(obj);
+            }
+
+            assertEquals(1, reports.size());
+            String report = reports.get(0);
+            assertTrue(report, report.contains(" leak(s) allocated at:"));
+            assertTrue(report, report.contains(
+                    ResourceLeakDetectorTest.class.getName() + ".testAllocationSiteLeaksAreAggregated:"));
+        } finally {
+            ResourceLeakDetector.setLevel(level);
+            ResourceLeakDetector.setAllocationSiteTracking(allocationSites);
+        }
+    }
+
     // Mimic the way how we implement our classes that should help with leak detection
     private static final  class LeakAwareResource implements Resource {
         private final Resource resource;
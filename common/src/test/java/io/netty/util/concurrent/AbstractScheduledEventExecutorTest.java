@@ -17,13 +17,18 @@ package io.netty.util.concurrent;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class AbstractScheduledEventExecutorTest {
     private static final Runnable TEST_RUNNABLE = new Runnable() {
@@ -95,6 +100,136 @@ public class AbstractScheduledEventExecutorTest {
         executor.scheduleWithFixedDelay(TEST_RUNNABLE, 0, -1, TimeUnit.DAYS);
     }
 
+    @Test
+    public void testScheduledTaskWheelPromotesTasksBeforeDeadline() {
+        final long tick = TimeUnit.MILLISECONDS.toNanos(10);
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        ScheduledTaskWheel wheel = executor.scheduledTaskWheel =
+                new ScheduledTaskWheel(executor, tick, 4, TimeUnit.MILLISECONDS.toNanos(100));
+
+        ScheduledFutureTask<?> precise = (ScheduledFutureTask<?>) executor.schedule(
+                TEST_RUNNABLE, 50, TimeUnit.MILLISECONDS);
+        assertNull(precise.wheelBucket);
+
+        // With 4 ticks per wheel these end up in several levels of the wheel.
+        long[] delays = { 200, 350, 1000, 4000, 10000 };
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (long delay: delays) {
+            ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) executor.schedule(
+                    TEST_RUNNABLE, delay, TimeUnit.MILLISECONDS);
+            assertNotNull(task.wheelBucket);
+            tasks.add(task);
+        }
+        assertEquals(delays.length, wheel.size());
+
+        // The executor must be woken up at least one tick before the first task in the wheel is due.
+        assertTrue(executor.nextScheduledTaskDeadlineNanos() <= tasks.get(0).deadlineNanos() - tick);
+
+        long start = tasks.get(0).deadlineNanos() - TimeUnit.MILLISECONDS.toNanos(delays[0]);
+        for (long time = start; wheel.size() > 0; time += TimeUnit.MILLISECONDS.toNanos(1)) {
+            wheel.promote(time);
+            for (ScheduledFutureTask<?> task: tasks) {
+                boolean promoted = task.wheelBucket == null;
+                if (time < task.deadlineNanos() - 2 * tick) {
+                    assertFalse(promoted);
+                } else if (time >= task.deadlineNanos() - tick) {
+                    assertTrue(promoted);
+                }
+            }
+        }
+        for (ScheduledFutureTask<?> task: tasks) {
+            assertTrue(executor.scheduledTaskQueue().containsTyped(task));
+        }
+    }
+
+    @Test
+    public void testScheduledTaskWheelPromotesAfterLongBlock() {
+        final long tick = TimeUnit.MILLISECONDS.toNanos(10);
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        ScheduledTaskWheel wheel = executor.scheduledTaskWheel =
+                new ScheduledTaskWheel(executor, tick, 4, TimeUnit.MILLISECONDS.toNanos(100));
+
+        ScheduledFutureTask<?> near = (ScheduledFutureTask<?>) executor.schedule(
+                TEST_RUNNABLE, 200, TimeUnit.MILLISECONDS);
+        ScheduledFutureTask<?> far = (ScheduledFutureTask<?>) executor.schedule(
+                TEST_RUNNABLE, 10, TimeUnit.DAYS);
+        assertEquals(2, wheel.size());
+
+        // The loop was blocked far past the first deadline, a single promotion must catch up.
+        wheel.promote(near.deadlineNanos() + TimeUnit.HOURS.toNanos(1));
+        assertNull(near.wheelBucket);
+        assertTrue(executor.scheduledTaskQueue().containsTyped(near));
+        assertNotNull(far.wheelBucket);
+        assertEquals(1, wheel.size());
+
+        wheel.promote(far.deadlineNanos());
+        assertEquals(0, wheel.size());
+        assertTrue(executor.scheduledTaskQueue().containsTyped(far));
+    }
+
+    @Test
+    public void testScheduledTaskWheelCancelFromEventLoop() {
+        TestScheduledEventExecutor executor = new TestScheduledEventExecutor();
+        ScheduledTaskWheel wheel = executor.scheduledTaskWheel = new ScheduledTaskWheel(
+                executor, TimeUnit.MILLISECONDS.toNanos(10), 4, TimeUnit.MILLISECONDS.toNanos(100));
+        ScheduledFuture<?> first = executor.schedule(TEST_RUNNABLE, 1, TimeUnit.SECONDS);
+        ScheduledFuture<?> second = executor.schedule(TEST_RUNNABLE, 1, TimeUnit.HOURS);
+        assertEquals(2, wheel.size());
+
+        assertTrue(first.cancel(false));
+        assertTrue(second.cancel(false));
+        assertEquals(0, wheel.size());
+        assertNull(((ScheduledFutureTask<?>) second).wheelBucket);
+
+        executor.cancelScheduledTasks();
+        assertNull(executor.peekScheduledTask());
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduledTaskWheelRunsTasksOnTime() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    executor.scheduledTaskWheel = new ScheduledTaskWheel(executor,
+                            TimeUnit.MILLISECONDS.toNanos(10), 4, TimeUnit.MILLISECONDS.toNanos(100));
+                }
+            }).sync();
+
+            final CountDownLatch cancelledLatch = new CountDownLatch(1);
+            ScheduledFuture<?> cancelled = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancelledLatch.countDown();
+                }
+            }, 300, TimeUnit.MILLISECONDS);
+            // Cancelled from outside the event loop, the task is dropped once its bucket comes due.
+            assertTrue(cancelled.cancel(false));
+
+            final long start = System.nanoTime();
+            ScheduledFuture<Long> future = executor.schedule(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return System.nanoTime() - start;
+                }
+            }, 500, TimeUnit.MILLISECONDS);
+            long elapsed = future.get();
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(500));
+            assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(1500));
+            assertEquals(1, cancelledLatch.getCount());
+
+            assertEquals(0, (int) executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return executor.scheduledTaskWheel.size();
+                }
+            }).get());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
     private static final class TestScheduledEventExecutor extends AbstractScheduledEventExecutor {
         @Override
         public boolean isShuttingDown() {
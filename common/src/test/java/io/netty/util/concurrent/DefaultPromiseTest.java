@@ -23,7 +23,9 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
@@ -316,6 +318,152 @@ public class DefaultPromiseTest {
         assertEquals("success", promise.getNow());
     }
 
+    @Test
+    public void testRemoveListenerPreservesNotifyOrder() {
+        final Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        final StringBuilder order = new StringBuilder();
+        List<FutureListener<Void>> listeners = new ArrayList<FutureListener<Void>>();
+        for (int i = 0; i < 5; i++) {
+            final int id = i;
+            listeners.add(new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) {
+                    order.append(id);
+                }
+            });
+        }
+        for (FutureListener<Void> listener : listeners) {
+            promise.addListener(listener);
+        }
+        // Adding the same listener twice must notify it twice, and removing it must only remove the first occurrence.
+        promise.addListener(listeners.get(1));
+        promise.removeListener(listeners.get(1));
+        promise.removeListener(listeners.get(3));
+
+        promise.setSuccess(null);
+        assertEquals("0241", order.toString());
+    }
+
+    @Test
+    public void testRemoveOnlyListener() {
+        final Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        final AtomicInteger notified = new AtomicInteger();
+        FutureListener<Void> listener = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                notified.incrementAndGet();
+            }
+        };
+        promise.addListener(listener);
+        promise.removeListener(listener);
+        promise.setSuccess(null);
+        assertEquals(0, notified.get());
+    }
+
+    @Test
+    public void testRepeatedAddAndRemoveListenerDoesNotGrowStack() {
+        final DefaultPromise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        final AtomicInteger notified = new AtomicInteger();
+        FutureListener<Void> first = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                notified.incrementAndGet();
+            }
+        };
+        FutureListener<Void> last = new FutureListener<Void>() {
+            @Override
+            public void operationComplete(Future<Void> future) {
+                notified.incrementAndGet();
+            }
+        };
+        promise.addListener(first);
+        promise.addListener(last);
+        for (int i = 0; i < 10000; i++) {
+            FutureListener<Void> listener = new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) {
+                    fail();
+                }
+            };
+            promise.addListener(listener);
+            // Remove the listeners from the middle and from the top of the stack in turn.
+            if ((i & 1) == 0) {
+                promise.addListener(last);
+                promise.removeListener(last);
+            }
+            promise.removeListener(listener);
+            assertEquals(2, promise.listenerStackSize());
+        }
+
+        promise.setSuccess(null);
+        assertEquals(2, notified.get());
+        assertEquals(0, promise.listenerStackSize());
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentAddListenersAndComplete() throws Exception {
+        final int threads = 4;
+        final int listenersPerThread = 64;
+        ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 200; round++) {
+                final Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+                final AtomicInteger notified = new AtomicInteger();
+                final CountDownLatch start = new CountDownLatch(1);
+                final CountDownLatch done = new CountDownLatch(threads);
+                for (int i = 0; i < threads; i++) {
+                    service.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                start.await();
+                                for (int j = 0; j < listenersPerThread; j++) {
+                                    promise.addListener(new FutureListener<Void>() {
+                                        @Override
+                                        public void operationComplete(Future<Void> future) {
+                                            notified.incrementAndGet();
+                                        }
+                                    });
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            } finally {
+                                done.countDown();
+                            }
+                        }
+                    });
+                }
+                start.countDown();
+                promise.setSuccess(null);
+                done.await();
+                // Every listener must be notified exactly once, no matter if it was added before or after completion.
+                assertEquals(threads * listenersPerThread, notified.get());
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testAwaitRacingWithComplete() throws Exception {
+        ExecutorService service = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                final Promise<Void> promise = new DefaultPromise<Void>(GlobalEventExecutor.INSTANCE);
+                service.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        promise.setSuccess(null);
+                    }
+                });
+                assertTrue(promise.await(5, TimeUnit.SECONDS));
+                promise.awaitUninterruptibly();
+            }
+        } finally {
+            service.shutdown();
+        }
+    }
+
     private static void testStackOverFlowChainedFuturesA(int promiseChainLength, final EventExecutor executor,
                                                          boolean runTestInExecutorThread)
             throws InterruptedException {
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventExecutorMetricsTest {
+
+    private static final Runnable TASK = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    @Test
+    public void testNotStarted() {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        assertEquals(0, metrics.elapsedNanos());
+        assertEquals(0, metrics.busyNanos());
+        assertEquals(0, metrics.idleNanos());
+    }
+
+    @Test
+    public void testIdleTimeIncludesCurrentWait() throws Exception {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        metrics.start();
+        metrics.idleStarted();
+        Thread.sleep(50);
+        long idle = metrics.idleNanos();
+        assertTrue(idle >= TimeUnit.MILLISECONDS.toNanos(50));
+        metrics.idleEnded();
+        assertTrue(metrics.idleNanos() >= idle);
+        assertTrue(metrics.elapsedNanos() >= metrics.idleNanos());
+
+        // Ending the idle time twice must not count it twice.
+        long total = metrics.idleNanos();
+        metrics.idleEnded();
+        assertEquals(total, metrics.idleNanos());
+
+        metrics.stop();
+        long elapsed = metrics.elapsedNanos();
+        Thread.sleep(10);
+        assertEquals(elapsed, metrics.elapsedNanos());
+    }
+
+    @Test
+    public void testTasksPerIteration() {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        for (int i = 0; i < 3; i++) {
+            metrics.taskStarted(TASK);
+        }
+        metrics.tasksRan(100);
+        metrics.tasksRan(50);
+
+        assertEquals(3, metrics.tasksRun());
+        assertEquals(2, metrics.iterations());
+        assertEquals(150, metrics.taskNanos());
+
+        EventExecutorMetrics.Histogram histogram = metrics.tasksPerIteration();
+        assertEquals(2, histogram.totalCount());
+        assertEquals(3, histogram.max());
+        assertEquals(1, histogram.count(0));
+        // 3 is in [2, 3]
+        assertEquals(1, histogram.count(2));
+        assertEquals(2, histogram.lowerBound(2));
+        assertEquals(3, histogram.upperBound(2));
+    }
+
+    @Test
+    public void testSampledTaskWaitTime() throws Exception {
+        EventExecutorMetrics metrics = new EventExecutorMetrics();
+        Runnable other = new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        };
+        metrics.taskAdded(TASK);
+        // Only one task is sampled at a time.
+        metrics.taskAdded(other);
+        Thread.sleep(10);
+        metrics.taskStarted(other);
+        assertEquals(0, metrics.taskWaitTime().totalCount());
+        metrics.taskStarted(TASK);
+        assertEquals(1, metrics.taskWaitTime().totalCount());
+        assertTrue(metrics.taskWaitTime().max() >= TimeUnit.MILLISECONDS.toNanos(10));
+
+        // A removed task releases the sample.
+        metrics.taskAdded(TASK);
+        metrics.taskRemoved(TASK);
+        metrics.taskAdded(other);
+        metrics.taskStarted(other);
+        assertEquals(2, metrics.taskWaitTime().totalCount());
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        EventExecutorMetrics.Histogram histogram = new EventExecutorMetrics().scheduledTaskLateness();
+        histogram.record(-1);
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(1024);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.count(0));
+        assertEquals(1, histogram.count(1));
+        assertEquals(1, histogram.count(11));
+        assertEquals(1, histogram.count(histogram.buckets() - 1));
+        assertEquals(Long.MAX_VALUE, histogram.upperBound(histogram.buckets() - 1));
+        assertEquals(Long.MAX_VALUE, histogram.max());
+        assertEquals(5, histogram.totalCount());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventExecutorWatchdogTest {
+
+    private DefaultEventExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new DefaultEventExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedExecutorIsReported() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        EventExecutorWatchdog watchdog = new EventExecutorWatchdog(100, TimeUnit.MILLISECONDS, listener);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Start the executor before watching it.
+            }
+        }).sync();
+        watchdog.watch(executor);
+
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        listener.blockedLatch.await();
+        assertTrue(listener.blockedNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(containsAwait(listener.stackTrace));
+        // Let the watchdog sample a few more times.
+        Thread.sleep(200);
+        release.countDown();
+
+        listener.unblockedLatch.await();
+        assertEquals(1, listener.blockedCount.get());
+        assertFalse(listener.stackSamples.isEmpty());
+        EventExecutorWatchdog.StackSample top = listener.stackSamples.get(0);
+        assertTrue(top.count() >= 1);
+        assertTrue(containsAwait(top.stackTrace()));
+        watchdog.unwatch(executor);
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleExecutorIsNotReported() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        EventExecutorWatchdog watchdog = new EventExecutorWatchdog(50, TimeUnit.MILLISECONDS, listener);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Start the executor before watching it.
+            }
+        }).sync();
+        watchdog.watch(executor);
+
+        Thread.sleep(500);
+        assertEquals(0, listener.blockedCount.get());
+        watchdog.unwatch(executor);
+    }
+
+    @Test(timeout = 10000)
+    public void testIdleExecutorIsNotWokenUp() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        EventExecutorWatchdog watchdog = new EventExecutorWatchdog(20, TimeUnit.MILLISECONDS, listener);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Start the executor before watching it.
+            }
+        }).sync();
+        watchdog.watch(executor);
+
+        // Wait until the executor waits for work again.
+        while (executor.idleState() != SingleThreadEventExecutor.IDLE_STATE_IDLE) {
+            Thread.sleep(10);
+        }
+        long progress = executor.progress();
+        Thread.sleep(200);
+        assertEquals(progress, executor.progress());
+        assertEquals(0, listener.blockedCount.get());
+        watchdog.unwatch(executor);
+    }
+
+    @Test(timeout = 10000)
+    public void testWatchedExecutorShutsDownAfterQuietPeriod() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        EventExecutorWatchdog watchdog = new EventExecutorWatchdog(20, TimeUnit.MILLISECONDS, listener);
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Start the executor before watching it.
+            }
+        }).sync();
+        watchdog.watch(executor);
+
+        long start = System.nanoTime();
+        executor.shutdownGracefully(200, 5000, TimeUnit.MILLISECONDS).sync();
+        // The watchdog must not keep the executor busy until the timeout.
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(4000));
+        assertEquals(0, listener.blockedCount.get());
+    }
+
+    private static boolean containsAwait(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            if (element.getClassName().equals(CountDownLatch.class.getName()) &&
+                    element.getMethodName().equals("await")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class RecordingListener implements EventExecutorWatchdog.Listener {
+        final CountDownLatch blockedLatch = new CountDownLatch(1);
+        final CountDownLatch unblockedLatch = new CountDownLatch(1);
+        final AtomicInteger blockedCount = new AtomicInteger();
+        volatile long blockedNanos;
+        volatile StackTraceElement[] stackTrace;
+        volatile List<EventExecutorWatchdog.StackSample> stackSamples;
+
+        @Override
+        public void blocked(SingleThreadEventExecutor executor, long blockedNanos, StackTraceElement[] stackTrace) {
+            this.blockedNanos = blockedNanos;
+            this.stackTrace = stackTrace;
+            blockedCount.incrementAndGet();
+            blockedLatch.countDown();
+        }
+
+        @Override
+        public void unblocked(SingleThreadEventExecutor executor, long blockedNanos,
+                              List<EventExecutorWatchdog.StackSample> stackSamples) {
+            this.stackSamples = stackSamples;
+            unblockedLatch.countDown();
+        }
+    }
+}
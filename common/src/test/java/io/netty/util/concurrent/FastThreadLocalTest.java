@@ -16,6 +16,7 @@
 
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.ObjectCleaner;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -27,6 +28,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -55,6 +57,38 @@ public class FastThreadLocalTest {
         assertNull(threadLocal.getIfExists());
     }
 
+    @Test(timeout = 30000)
+    public void testIndexOfUnreachableFastThreadLocalIsReused() throws Exception {
+        // A variable which is still set is referenced by the map, so its index must never be handed out again.
+        FastThreadLocal<String> stillSet = new FastThreadLocal<String>();
+        stillSet.set("stillSet");
+
+        // Every iteration leaves an unreachable variable behind, so a collection eventually makes an index
+        // reusable. The timeout is generous, as System.gc() is only a request.
+        FastThreadLocal<String> threadLocal;
+        for (;;) {
+            int lastIndex = InternalThreadLocalMap.lastVariableIndex();
+            threadLocal = new FastThreadLocal<String>();
+            if (InternalThreadLocalMap.lastVariableIndex() == lastIndex) {
+                // The index of a variable which was created in a previous iteration was reused.
+                break;
+            }
+            assertNotEquals(stillSet.index, threadLocal.index);
+            threadLocal.set("value");
+            threadLocal.remove();
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertNotEquals(stillSet.index, threadLocal.index);
+        assertNull(threadLocal.get());
+        threadLocal.set("value");
+        assertEquals("value", threadLocal.get());
+        assertEquals("stillSet", stillSet.get());
+        threadLocal.remove();
+        stillSet.remove();
+    }
+
     @Test(timeout = 10000)
     public void testRemoveAll() throws Exception {
         final AtomicBoolean removed = new AtomicBoolean();
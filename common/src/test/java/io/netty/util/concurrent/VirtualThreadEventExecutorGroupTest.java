@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.PlatformDependent;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VirtualThreadEventExecutorGroupTest {
+
+    // Virtual threads are not available on all the JDKs we test with, so use platform threads where possible.
+    private static final ThreadFactory THREAD_FACTORY = new DefaultThreadFactory("virtualThreadTest", true);
+
+    @Test
+    public void testAvailability() {
+        if (PlatformDependent.javaVersion() < 21) {
+            assertFalse(VirtualThreadEventExecutorGroup.isAvailable());
+            assertNotNull(VirtualThreadEventExecutorGroup.unavailabilityCause());
+            try {
+                new VirtualThreadEventExecutorGroup();
+                fail();
+            } catch (UnsupportedOperationException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testVirtualThreads() throws Exception {
+        Assume.assumeTrue(VirtualThreadEventExecutorGroup.isAvailable());
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup();
+        try {
+            final EventExecutor executor = group.next();
+            final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    assertTrue(executor.inEventLoop());
+                    thread.set(Thread.currentThread());
+                }
+            }).sync();
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread.get()));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOrderingPerExecutor() throws Throwable {
+        final int executors = 16;
+        final int tasks = 10000;
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(THREAD_FACTORY, 16);
+        try {
+            final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+            final CountDownLatch latch = new CountDownLatch(executors);
+            List<Thread> producers = new ArrayList<Thread>(executors);
+            for (int i = 0; i < executors; i++) {
+                final EventExecutor executor = group.next();
+                Thread producer = new Thread(new Runnable() {
+                    private int expected;
+                    private final AtomicBoolean running = new AtomicBoolean();
+
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < tasks; i++) {
+                            final int id = i;
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (!executor.inEventLoop()) {
+                                        cause.compareAndSet(null, new AssertionError("not in event loop"));
+                                    }
+                                    if (!running.compareAndSet(false, true)) {
+                                        cause.compareAndSet(null, new AssertionError("ran concurrently"));
+                                    }
+                                    if (expected++ != id) {
+                                        cause.compareAndSet(null, new AssertionError(
+                                                "expected " + (expected - 1) + " but got " + id));
+                                    }
+                                    running.set(false);
+                                    if (id == tasks - 1) {
+                                        latch.countDown();
+                                    }
+                                }
+                            });
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            latch.await();
+            Throwable error = cause.get();
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedExecutorDoesNotBlockOthers() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(THREAD_FACTORY);
+        try {
+            final CountDownLatch release = new CountDownLatch(1);
+            EventExecutor blocking = group.next();
+            Future<?> blocked = blocking.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            final AtomicBoolean ran = new AtomicBoolean();
+            group.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                    ran.set(true);
+                }
+            }).sync();
+            assertTrue(ran.get());
+            assertFalse(blocked.isDone());
+            release.countDown();
+            blocked.sync();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownRunsSubmittedTasks() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(THREAD_FACTORY);
+        EventExecutor executor = group.next();
+        final CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+        }
+        Future<?> termination = group.shutdownGracefully();
+        assertTrue(group.isShuttingDown());
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertTrue(termination.await(5, TimeUnit.SECONDS));
+        assertEquals(0, latch.getCount());
+        assertTrue(group.isTerminated());
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingThreadStartRunsRemainingTasks() throws Exception {
+        // Only the first thread can be started, so the executor has to keep on running on it.
+        final AtomicInteger threads = new AtomicInteger();
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                if (threads.getAndIncrement() > 0) {
+                    throw new IllegalStateException();
+                }
+                return THREAD_FACTORY.newThread(r);
+            }
+        }, 1);
+        EventExecutor executor = group.next();
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }));
+        }
+        Future<?> termination = group.shutdownGracefully();
+        release.countDown();
+        for (Future<?> future : futures) {
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+        }
+        assertTrue(termination.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingThreadStartFailsTasks() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                throw new IllegalStateException();
+            }
+        });
+        try {
+            group.next().submit(new Runnable() {
+                @Override
+                public void run() {
+                    fail();
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(group.shutdownGracefully().await(5, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void testSchedule() throws Exception {
+        VirtualThreadEventExecutorGroup group = new VirtualThreadEventExecutorGroup(THREAD_FACTORY);
+        try {
+            final EventExecutor executor = group.next();
+            final AtomicBoolean inEventLoop = new AtomicBoolean();
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    inEventLoop.set(executor.inEventLoop());
+                }
+            }, 50, TimeUnit.MILLISECONDS).sync();
+            assertTrue(inEventLoop.get());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+}
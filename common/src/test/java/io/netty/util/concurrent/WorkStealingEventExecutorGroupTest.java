@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util.concurrent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class WorkStealingEventExecutorGroupTest {
+
+    @Test(timeout = 10000)
+    public void testOrderingPerExecutor() throws Throwable {
+        final int executors = 16;
+        final int tasks = 10000;
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(4, null, 16);
+        try {
+            final AtomicReference<Throwable> cause = new AtomicReference<Throwable>();
+            final CountDownLatch latch = new CountDownLatch(executors);
+            List<Thread> producers = new ArrayList<Thread>(executors);
+            for (int i = 0; i < executors; i++) {
+                final EventExecutor executor = group.next();
+                Thread producer = new Thread(new Runnable() {
+                    private int expected;
+
+                    @Override
+                    public void run() {
+                        for (int i = 0; i < tasks; i++) {
+                            final int id = i;
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    if (!executor.inEventLoop()) {
+                                        cause.compareAndSet(null, new AssertionError("not in event loop"));
+                                    }
+                                    if (expected++ != id) {
+                                        cause.compareAndSet(null, new AssertionError(
+                                                "expected " + (expected - 1) + " but got " + id));
+                                    }
+                                    if (id == tasks - 1) {
+                                        latch.countDown();
+                                    }
+                                }
+                            });
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            latch.await();
+            Throwable error = cause.get();
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBlockedExecutorDoesNotDelayOthers() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            EventExecutor blocking = group.next();
+            final EventExecutor other = group.next();
+            final CountDownLatch done = new CountDownLatch(100);
+            // Submit from the blocking executor so the other one is queued on the blocked worker and has to be stolen.
+            blocking.execute(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100; i++) {
+                        other.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                done.countDown();
+                            }
+                        });
+                    }
+                    blocked.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            blocked.await();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            release.countDown();
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testInEventLoop() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(1);
+        try {
+            final EventExecutor executor = group.next();
+            assertFalse(executor.inEventLoop());
+            final AtomicBoolean inEventLoop = new AtomicBoolean();
+            final AtomicBoolean otherInEventLoop = new AtomicBoolean(true);
+            final EventExecutor other = group.next();
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    inEventLoop.set(executor.inEventLoop());
+                    otherInEventLoop.set(other.inEventLoop());
+                }
+            }).sync();
+            assertTrue(inEventLoop.get());
+            assertFalse(otherInEventLoop.get());
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownRunsSubmittedTasks() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        EventExecutor executor = group.next();
+        final CountDownLatch latch = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            });
+        }
+        Future<?> termination = group.shutdownGracefully();
+        assertTrue(group.isShuttingDown());
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        termination.sync();
+        assertEquals(0, latch.getCount());
+        assertTrue(group.isTerminated());
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownWithoutTasks() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        assertNull(group.shutdownGracefully().sync().getNow());
+        assertTrue(group.isTerminated());
+    }
+
+    @Test(timeout = 10000)
+    public void testSchedule() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        try {
+            final EventExecutor executor = group.next();
+            long start = System.nanoTime();
+            ScheduledFuture<Boolean> future = executor.schedule(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return executor.inEventLoop();
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+            assertTrue(future.get());
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+            final CountDownLatch latch = new CountDownLatch(5);
+            ScheduledFuture<?> periodic = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+            latch.await();
+            assertTrue(periodic.cancel(false));
+        } finally {
+            group.shutdownGracefully().syncUninterruptibly();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testShutdownCancelsScheduledTasks() throws Exception {
+        WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+        EventExecutor executor = group.next();
+        ScheduledFuture<?> future = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                fail();
+            }
+        }, 1, TimeUnit.HOURS);
+        // Make sure the task is part of the scheduled tasks of the executor before shutting down.
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }).sync();
+        group.shutdownGracefully().sync();
+        assertTrue(future.isCancelled());
+        assertTrue(future.cause() instanceof CancellationException);
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentExecuteAndShutdown() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            final WorkStealingEventExecutorGroup group = new WorkStealingEventExecutorGroup(2);
+            final EventExecutor executor = group.next();
+            final AtomicInteger accepted = new AtomicInteger();
+            final AtomicInteger ran = new AtomicInteger();
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (;;) {
+                        try {
+                            executor.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    ran.incrementAndGet();
+                                }
+                            });
+                            accepted.incrementAndGet();
+                        } catch (RejectedExecutionException e) {
+                            return;
+                        }
+                    }
+                }
+            });
+            producer.start();
+            group.shutdownGracefully();
+            producer.join();
+            group.terminationFuture().sync();
+            // Every accepted task must have run before the group terminated.
+            assertEquals(accepted.get(), ran.get());
+        }
+    }
+}
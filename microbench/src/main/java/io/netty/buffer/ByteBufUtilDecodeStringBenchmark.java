@@ -81,6 +81,10 @@ public class ByteBufUtilDecodeStringBenchmark extends AbstractMicrobenchmark {
     @Param
     public ByteBufType bufferType;
 
+    // Whether the content is pure ASCII or contains a two byte UTF-8 sequence in the middle.
+    @Param({ "true", "false" })
+    public boolean ascii;
+
     private ByteBuf buffer;
     private Charset charset;
 
@@ -94,6 +98,11 @@ public class ByteBufUtilDecodeStringBenchmark extends AbstractMicrobenchmark {
     public void setup() {
         byte[] bytes = new byte[size + 2];
         Arrays.fill(bytes, (byte) 'a');
+        if (!ascii && size >= 2) {
+            // 'é' encoded in UTF-8.
+            bytes[size / 2 - 1] = (byte) 0xC3;
+            bytes[size / 2] = (byte) 0xA9;
+        }
 
         // Use an offset to not allow any optimizations because we use the exact passed in byte[] for heap buffers.
         buffer = bufferType.newBuffer(bytes, size);
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder.Cumulator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+
+/**
+ * Compares the {@link Cumulator}s of {@link ByteToMessageDecoder} on a long-lived connection which receives small
+ * length-prefixed frames in fragments that do not line up with the frame boundaries.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ByteToMessageDecoderCumulatorBenchmark extends AbstractMicrobenchmark {
+
+    private static final int FRAMES = 256;
+
+    public enum CumulatorType {
+        MERGE(ByteToMessageDecoder.MERGE_CUMULATOR),
+        COMPOSITE(ByteToMessageDecoder.COMPOSITE_CUMULATOR),
+        RING(ByteToMessageDecoder.RING_CUMULATOR);
+
+        final Cumulator cumulator;
+
+        CumulatorType(Cumulator cumulator) {
+            this.cumulator = cumulator;
+        }
+    }
+
+    @Param
+    public CumulatorType cumulatorType;
+
+    // Size of the frames including their 4 byte length prefix.
+    @Param({ "64", "512" })
+    public int frameSize;
+
+    // Size of the fragments the input is received in, chosen to not be a multiple of the frame size.
+    @Param({ "100", "1500" })
+    public int fragmentSize;
+
+    private EmbeddedChannel channel;
+    private ByteBuf input;
+
+    @Setup
+    public void setup() {
+        input = PooledByteBufAllocator.DEFAULT.directBuffer(FRAMES * frameSize);
+        for (int i = 0; i < FRAMES; i++) {
+            input.writeInt(frameSize - 4);
+            input.writeZero(frameSize - 4);
+        }
+        ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+                while (in.readableBytes() >= 4) {
+                    int length = in.getInt(in.readerIndex());
+                    if (in.readableBytes() < 4 + length) {
+                        break;
+                    }
+                    out.add(in.skipBytes(4).readRetainedSlice(length));
+                }
+            }
+        };
+        decoder.setCumulator(cumulatorType.cumulator);
+        channel = new EmbeddedChannel(decoder, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ReferenceCountUtil.release(msg);
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        input.release();
+    }
+
+    @Benchmark
+    public void decodeFragmented() {
+        ByteBuf input = this.input;
+        int length = input.readableBytes();
+        for (int i = 0; i < length; i += fragmentSize) {
+            channel.writeInbound(input.retainedSlice(i, Math.min(fragmentSize, length - i)));
+        }
+    }
+}
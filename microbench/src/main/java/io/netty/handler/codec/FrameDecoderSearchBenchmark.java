@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the decoders that search their input for delimiters on realistic line-delimited and HTTP header
+ * payloads, received either at once or in fragments.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class FrameDecoderSearchBenchmark extends AbstractMicrobenchmark {
+
+    private static final byte[] LINES;
+    private static final byte[] HTTP_REQUESTS;
+
+    static {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 64; i++) {
+            lines.append("2020-06-01T12:00:00.000Z INFO  [worker-").append(i)
+                 .append("] io.netty.example.LogLine - processed request id=").append(i * 7919)
+                 .append(" status=200 bytes=1432\r\n");
+        }
+        LINES = lines.toString().getBytes(CharsetUtil.US_ASCII);
+
+        StringBuilder requests = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            requests.append("GET /some/path?foo=bar&wibble=eek&page=").append(i).append(" HTTP/1.1\r\n")
+                    .append("Host: www.example.com\r\n")
+                    .append("User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:77.0) Gecko/20100101 Firefox/77.0\r\n")
+                    .append("Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n")
+                    .append("Accept-Language: en-US,en;q=0.5\r\n")
+                    .append("Accept-Encoding: gzip, deflate, br\r\n")
+                    .append("Referer: https://www.example.com/index.html\r\n")
+                    .append("Cookie: session=0123456789abcdef0123456789abcdef; theme=dark\r\n")
+                    .append("Connection: keep-alive\r\n")
+                    .append("\r\n");
+        }
+        HTTP_REQUESTS = requests.toString().getBytes(CharsetUtil.US_ASCII);
+    }
+
+    public enum DecoderType {
+        LINE_BASED {
+            @Override
+            ChannelHandler newDecoder() {
+                return new LineBasedFrameDecoder(8192);
+            }
+
+            @Override
+            byte[] payload() {
+                return LINES;
+            }
+        },
+        DELIMITER_BASED {
+            @Override
+            ChannelHandler newDecoder() {
+                return new DelimiterBasedFrameDecoder(8192, Delimiters.lineDelimiter());
+            }
+
+            @Override
+            byte[] payload() {
+                return LINES;
+            }
+        },
+        HTTP_REQUEST {
+            @Override
+            ChannelHandler newDecoder() {
+                return new HttpRequestDecoder();
+            }
+
+            @Override
+            byte[] payload() {
+                return HTTP_REQUESTS;
+            }
+        };
+
+        abstract ChannelHandler newDecoder();
+
+        abstract byte[] payload();
+    }
+
+    @Param
+    public DecoderType decoderType;
+
+    // Size of the fragments the payload is received in, where 0 delivers it at once.
+    @Param({ "0", "128", "1024" })
+    public int fragmentSize;
+
+    @Param({ "true", "false" })
+    public boolean direct;
+
+    private ByteBuf payload;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = decoderType.payload();
+        payload = direct ? PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length)
+                         : PooledByteBufAllocator.DEFAULT.heapBuffer(bytes.length);
+        payload.writeBytes(bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        payload.release();
+    }
+
+    @Benchmark
+    public int decode() {
+        EmbeddedChannel channel = new EmbeddedChannel(decoderType.newDecoder());
+        ByteBuf payload = this.payload;
+        int length = payload.readableBytes();
+        int step = fragmentSize == 0 ? length : fragmentSize;
+        for (int i = 0; i < length; i += step) {
+            channel.writeInbound(payload.retainedSlice(i, Math.min(step, length - i)));
+        }
+        int frames = 0;
+        for (;;) {
+            Object msg = channel.readInbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+            frames++;
+        }
+        channel.finishAndReleaseAll();
+        return frames;
+    }
+}
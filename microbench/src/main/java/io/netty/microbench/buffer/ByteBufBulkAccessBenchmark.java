@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Compares transferring primitive arrays element by element with the bulk accessors of {@link ByteBuf}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ByteBufBulkAccessBenchmark extends AbstractMicrobenchmark {
+
+    public enum BufferType {
+        HEAP {
+            @Override
+            ByteBuf newBuffer(int capacity) {
+                return PooledByteBufAllocator.DEFAULT.heapBuffer(capacity, capacity);
+            }
+        },
+        DIRECT {
+            @Override
+            ByteBuf newBuffer(int capacity) {
+                return PooledByteBufAllocator.DEFAULT.directBuffer(capacity, capacity);
+            }
+        },
+        COMPOSITE {
+            @Override
+            ByteBuf newBuffer(int capacity) {
+                CompositeByteBuf buf = Unpooled.compositeBuffer();
+                int half = capacity / 2;
+                buf.addComponent(true, PooledByteBufAllocator.DEFAULT.directBuffer(half, half));
+                buf.addComponent(true, PooledByteBufAllocator.DEFAULT.directBuffer(capacity - half, capacity - half));
+                return buf.clear();
+            }
+        };
+
+        abstract ByteBuf newBuffer(int capacity);
+    }
+
+    @Param
+    public BufferType bufferType;
+
+    @Param({ "16", "256" })
+    public int length;
+
+    private ByteBuf buffer;
+    private int[] ints;
+    private long[] longs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ints = new int[length];
+        longs = new long[length];
+        for (int i = 0; i < length; i++) {
+            ints[i] = random.nextInt();
+            longs[i] = random.nextLong();
+        }
+        buffer = bufferType.newBuffer(length * 8);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public ByteBuf writeIntsLoop() {
+        ByteBuf buffer = this.buffer.clear();
+        int[] ints = this.ints;
+        for (int i = 0; i < ints.length; i++) {
+            buffer.writeInt(ints[i]);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public ByteBuf writeIntsBulk() {
+        return buffer.clear().writeInts(ints, 0, ints.length);
+    }
+
+    @Benchmark
+    public long[] getLongsLoop() {
+        ByteBuf buffer = this.buffer;
+        long[] longs = this.longs;
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = buffer.getLong(i << 3);
+        }
+        return longs;
+    }
+
+    @Benchmark
+    public long[] getLongsBulk() {
+        buffer.getLongs(0, longs, 0, longs.length);
+        return longs;
+    }
+}
@@ -19,6 +19,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.AsciiString;
 import io.netty.util.CharsetUtil;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Measurement;
@@ -45,6 +46,12 @@ public class
     private StringBuilder utf8Sequence;
     private String utf8;
 
+    // Mostly ASCII with a single non-ASCII char near the end, like typical JSON payloads.
+    private String mixed;
+    private AsciiString asciiString;
+    private ByteBuf heapBuffer;
+    private ByteBuf mixedBuffer;
+
     @Setup
     public void setup() {
         // Use buffer sizes that will also allow to write UTF-8 without grow the buffer
@@ -67,6 +74,12 @@ public class
 
         asciiBuffer = Unpooled.copiedBuffer(ascii, CharsetUtil.US_ASCII);
         utf8Buffer = Unpooled.copiedBuffer(utf8, CharsetUtil.UTF_8);
+
+        mixed = "{\"id\":12345,\"name\":\"netty\",\"tags\":[\"buffer\",\"codec\",\"transport\"]," +
+                "\"description\":\"An asynchronous event-driven network application framework\",\"city\":\"Zürich\"}";
+        asciiString = new AsciiString(ascii);
+        heapBuffer = Unpooled.buffer(512);
+        mixedBuffer = Unpooled.copiedBuffer(mixed, CharsetUtil.UTF_8);
     }
 
     @TearDown
@@ -75,6 +88,8 @@ public class
         wrapped.release();
         asciiBuffer.release();
         utf8Buffer.release();
+        heapBuffer.release();
+        mixedBuffer.release();
     }
 
     @Benchmark
@@ -173,6 +188,46 @@ public class
         ByteBufUtil.writeUtf8(wrapped, utf8Sequence);
     }
 
+    @Benchmark
+    public void writeUtf8AsciiOnlyString() {
+        buffer.resetWriterIndex();
+        ByteBufUtil.writeUtf8(buffer, ascii);
+    }
+
+    @Benchmark
+    public void writeUtf8AsciiOnlyStringHeap() {
+        heapBuffer.resetWriterIndex();
+        ByteBufUtil.writeUtf8(heapBuffer, ascii);
+    }
+
+    @Benchmark
+    public void writeUtf8AsciiString() {
+        buffer.resetWriterIndex();
+        ByteBufUtil.writeUtf8(buffer, asciiString);
+    }
+
+    @Benchmark
+    public void writeUtf8MixedString() {
+        buffer.resetWriterIndex();
+        ByteBufUtil.writeUtf8(buffer, mixed);
+    }
+
+    @Benchmark
+    public void writeUtf8MixedStringHeap() {
+        heapBuffer.resetWriterIndex();
+        ByteBufUtil.writeUtf8(heapBuffer, mixed);
+    }
+
+    @Benchmark
+    public String decodeStringAsciiAsUtf8() {
+        return asciiBuffer.toString(CharsetUtil.UTF_8);
+    }
+
+    @Benchmark
+    public String decodeStringMixedUtf8() {
+        return mixedBuffer.toString(CharsetUtil.UTF_8);
+    }
+
     @Benchmark
     public String decodeStringAscii() {
         return asciiBuffer.toString(CharsetUtil.US_ASCII);
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Measures encoding and decoding of varints via {@link ByteBufUtil} with values of mixed encoded lengths.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ByteBufUtilVarIntBenchmark extends AbstractMicrobenchmark {
+
+    private static final int VALUES = 1024;
+
+    public enum BufferType {
+        HEAP,
+        DIRECT,
+        COMPOSITE
+    }
+
+    @Param
+    public BufferType bufferType;
+
+    // Maximum number of bits of the encoded values, so 7 only produces single byte varints.
+    @Param({ "7", "14", "32" })
+    public int bits;
+
+    private ByteBuf buffer;
+    private int[] values;
+    private long[] longValues;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new int[VALUES];
+        longValues = new long[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            values[i] = bits == 32 ? random.nextInt() : random.nextInt(1 << bits);
+            longValues[i] = ByteBufUtil.encodeZigZag64(values[i]);
+        }
+        int capacity = VALUES * 10;
+        switch (bufferType) {
+            case HEAP:
+                buffer = PooledByteBufAllocator.DEFAULT.heapBuffer(capacity);
+                break;
+            case DIRECT:
+                buffer = PooledByteBufAllocator.DEFAULT.directBuffer(capacity);
+                break;
+            case COMPOSITE:
+                buffer = Unpooled.compositeBuffer()
+                        .addComponent(PooledByteBufAllocator.DEFAULT.directBuffer(capacity / 2))
+                        .addComponent(PooledByteBufAllocator.DEFAULT.directBuffer(capacity / 2));
+                break;
+            default:
+                throw new Error();
+        }
+        buffer.ensureWritable(capacity);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+    }
+
+    @Benchmark
+    public int writeReadVarInt32() {
+        ByteBuf buffer = this.buffer.clear();
+        int[] values = this.values;
+        for (int i = 0; i < values.length; i++) {
+            ByteBufUtil.writeVarInt32(buffer, values[i]);
+        }
+        int sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += ByteBufUtil.readVarInt32(buffer);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long writeReadZigZagVarInt64() {
+        ByteBuf buffer = this.buffer.clear();
+        long[] values = longValues;
+        for (int i = 0; i < values.length; i++) {
+            ByteBufUtil.writeVarInt64(buffer, values[i]);
+        }
+        long sum = 0;
+        for (int i = 0; i < values.length; i++) {
+            sum += ByteBufUtil.decodeZigZag64(ByteBufUtil.readVarInt64(buffer));
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per packet cost of allocating and releasing the receive buffers of a batched datagram read, one by
+ * one and via {@link PooledByteBufAllocator#directBuffers(int, int, ByteBuf[])}. At 1M packets per second the
+ * budget for everything that is done per packet is 1000 ns.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PooledByteBufAllocatorBulkBenchmark extends AbstractMicrobenchmark {
+
+    // Number of datagrams per recvmmsg(...) call.
+    private static final int BATCH = 64;
+
+    @Param({ "512", "1472", "2048" })
+    public int datagramSize;
+
+    @Param({ "true", "false" })
+    public boolean threadCache;
+
+    private final ByteBuf[] buffers = new ByteBuf[BATCH];
+    private PooledByteBufAllocator allocator;
+
+    @Setup
+    public void setup() {
+        int smallCacheSize = threadCache ? PooledByteBufAllocator.defaultSmallCacheSize() : 0;
+        allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, smallCacheSize, 0, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void allocateOneByOne() {
+        ByteBuf[] buffers = this.buffers;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = allocator.directBuffer(datagramSize);
+        }
+        release(buffers);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void allocateBulk() {
+        ByteBuf[] buffers = this.buffers;
+        allocator.directBuffers(buffers.length, datagramSize, buffers);
+        release(buffers);
+    }
+
+    private static void release(ByteBuf[] buffers) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i].release();
+            buffers[i] = null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares random access over many pooled direct buffers with and without chunks that are backed by huge pages.
+ *
+ * Running the huge page variant requires a hugetlbfs mount at {@code /dev/hugepages} with enough pages reserved,
+ * for example via {@code sysctl vm.nr_hugepages=512}. If it is missing the allocator falls back to normal direct
+ * memory and both variants should perform the same.
+ */
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PooledByteBufAllocatorHugePageBenchmark extends AbstractMicrobenchmark {
+
+    private static final int ACCESSES = 4096;
+
+    @Param({ "1024", "16384" })
+    public int buffers;
+
+    @Param({ "00512", "65536" })
+    public int size;
+
+    private ByteBuf[] bufs;
+    private int[] bufIndexes;
+    private int[] offsets;
+
+    @Setup
+    public void setup() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true);
+        bufs = new ByteBuf[buffers];
+        for (int i = 0; i < bufs.length; i++) {
+            bufs[i] = allocator.directBuffer(size, size).writerIndex(size);
+        }
+        Random random = new Random(42);
+        bufIndexes = new int[ACCESSES];
+        offsets = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            bufIndexes[i] = random.nextInt(buffers);
+            offsets[i] = random.nextInt(size - 7);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buf: bufs) {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public long randomAccess() {
+        return randomAccess0();
+    }
+
+    @Benchmark
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = "-Dio.netty.allocator.hugePageDirectory=/dev/hugepages")
+    public long randomAccessHugePages() {
+        return randomAccess0();
+    }
+
+    private long randomAccess0() {
+        long sum = 0;
+        for (int i = 0; i < ACCESSES; i++) {
+            ByteBuf buf = bufs[bufIndexes[i]];
+            int offset = offsets[i];
+            buf.setLong(offset, sum);
+            sum += buf.getLong(offset);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures small allocations that miss the thread cache and so need to use the subpage pools of a single shared
+ * arena, with an increasing number of threads. {@link Striped} runs the same benchmarks with striped subpage pools.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class PooledByteBufAllocatorSubpageContentionBenchmark extends AbstractMicrobenchmark {
+
+    // No thread caches and a single arena, so every allocation goes to the subpage pools.
+    private static final ByteBufAllocator allocator = new PooledByteBufAllocator(
+            true, 0, 1, 8192, 11, 0, 0, false);
+
+    @Param({ "00016", "00256", "04096" })
+    public int size;
+
+    @Benchmark
+    @Threads(1)
+    public boolean allocateRelease1Thread() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean allocateRelease4Threads() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean allocateRelease16Threads() {
+        return allocator.directBuffer(size).release();
+    }
+
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = "-Dio.netty.allocator.subpagePoolStripes=16")
+    public static class Striped extends PooledByteBufAllocatorSubpageContentionBenchmark {
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.channel;
+
+import io.netty.channel.Channel;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.LoadAwareEventLoopChooserFactory;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Simulates connections with skewed per-request cost placed on {@link EventLoop}s by different
+ * {@link EventExecutorChooserFactory}s, and measures the request latency distribution.
+ * <p>
+ * Every fourth connection is heavy, so round-robin placement initially puts all heavy connections on the same loop.
+ * Connections reconnect from time to time, which places them again, so a load-aware chooser can move heavy
+ * connections away from busy loops. Each connection is an unconnected channel registered with its {@link EventLoop},
+ * so {@link io.netty.channel.SingleThreadEventLoop#registeredChannels()} follows the placement.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(8)
+public class LoadAwareEventLoopChooserBenchmark extends AbstractMicrobenchmark {
+
+    private static final int LOOPS = 4;
+    private static final int CONNECTIONS = 64;
+    private static final long HEAVY_REQUEST_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long LIGHT_REQUEST_NANOS = TimeUnit.MICROSECONDS.toNanos(5);
+
+    public enum ChooserType {
+        ROUND_ROBIN, LOAD_AWARE
+    }
+
+    @Param
+    public ChooserType chooser;
+
+    // One in this many requests makes its connection reconnect first.
+    @Param({ "1000" })
+    public int reconnectEvery;
+
+    private EventLoopGroup group;
+    private AtomicReferenceArray<Channel> connections;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        EventExecutorChooserFactory chooserFactory = chooser == ChooserType.LOAD_AWARE ?
+                LoadAwareEventLoopChooserFactory.INSTANCE : DefaultEventExecutorChooserFactory.INSTANCE;
+        group = new NioEventLoopGroup(LOOPS, (Executor) null, chooserFactory, SelectorProvider.provider(),
+                DefaultSelectStrategyFactory.INSTANCE);
+        connections = new AtomicReferenceArray<Channel>(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connections.set(i, connect());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (int i = 0; i < CONNECTIONS; i++) {
+            connections.get(i).close().syncUninterruptibly();
+        }
+        group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+    }
+
+    private Channel connect() {
+        // Registering picks the event loop via the chooser.
+        Channel channel = new NioSocketChannel();
+        group.register(channel).syncUninterruptibly();
+        return channel;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = { "-Dio.netty.eventexecutor.metrics=true" })
+    public void request() {
+        Random random = PlatformDependent.threadLocalRandom();
+        int connection = random.nextInt(CONNECTIONS);
+        if (random.nextInt(reconnectEvery) == 0) {
+            connections.getAndSet(connection, connect()).close();
+        }
+        final long requestNanos = connection % 4 == 0 ? HEAVY_REQUEST_NANOS : LIGHT_REQUEST_NANOS;
+        connections.get(connection).eventLoop().submit(new Runnable() {
+            @Override
+            public void run() {
+                long deadline = System.nanoTime() + requestNanos;
+                while (System.nanoTime() < deadline) {
+                    // Simulate the cost of handling the request.
+                }
+            }
+        }).syncUninterruptibly();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.DefaultPromise;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * This class benchmarks adding listeners to a {@link DefaultPromise} and completing it, both on the calling thread
+ * and on another {@link EventExecutor}.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(1)
+public class DefaultPromiseBenchmark extends AbstractMicrobenchmark {
+
+    private static final FutureListener<Void> LISTENER = new FutureListener<Void>() {
+        @Override
+        public void operationComplete(Future<Void> future) {
+            // NOOP
+        }
+    };
+
+    @Param({ "0", "1", "3" })
+    public int listeners;
+
+    private EventExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = new DefaultEventExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Benchmark
+    public Promise<Void> completeOnCallerThread() {
+        Promise<Void> promise = new DefaultPromise<Void>(ImmediateEventExecutor.INSTANCE);
+        for (int i = 0; i < listeners; i++) {
+            promise.addListener(LISTENER);
+        }
+        return promise.setSuccess(null);
+    }
+
+    @Benchmark
+    public Promise<Void> completeOnOtherThread() {
+        final Promise<Void> promise = executor.newPromise();
+        for (int i = 0; i < listeners; i++) {
+            promise.addListener(LISTENER);
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                promise.setSuccess(null);
+            }
+        });
+        return promise.syncUninterruptibly();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.VirtualThreadEventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks offloading blocking tasks for a number of keys (think channels) to an
+ * {@link EventExecutorGroup}, as handlers calling JDBC or other blocking clients do. Each invocation submits
+ * {@code tasksPerKey} tasks which block for {@code blockMicros} for every key and waits for all of them to complete.
+ * <p>
+ * {@link VirtualThreadEventExecutorGroup} needs Java 21 or later.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadEventExecutorGroupBenchmark extends AbstractMicrobenchmark {
+
+    public enum ExecutorType {
+        DEFAULT,
+        VIRTUAL
+    }
+
+    @Param({ "DEFAULT", "VIRTUAL" })
+    public ExecutorType executorType;
+
+    // Only used by DEFAULT.
+    @Param({ "16", "64" })
+    public int threads;
+
+    @Param({ "256" })
+    public int keys;
+
+    @Param({ "4" })
+    public int tasksPerKey;
+
+    @Param({ "1000" })
+    public int blockMicros;
+
+    private EventExecutorGroup group;
+    private EventExecutor[] executors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (executorType) {
+            case DEFAULT:
+                group = new DefaultEventExecutorGroup(threads);
+                break;
+            case VIRTUAL:
+                if (!VirtualThreadEventExecutorGroup.isAvailable()) {
+                    throw new IllegalStateException("Virtual threads are not available",
+                            VirtualThreadEventExecutorGroup.unavailabilityCause());
+                }
+                group = new VirtualThreadEventExecutorGroup();
+                break;
+            default:
+                throw new Error();
+        }
+        executors = new EventExecutor[keys];
+        for (int i = 0; i < keys; i++) {
+            executors[i] = group.next();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void blockingTasks() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        final long blockNanos = TimeUnit.MICROSECONDS.toNanos(blockMicros);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                executors[key].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            TimeUnit.NANOSECONDS.sleep(blockNanos);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        latch.await();
+    }
+}
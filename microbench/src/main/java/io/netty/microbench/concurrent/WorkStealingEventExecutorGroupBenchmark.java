@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.microbench.concurrent;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.UnorderedThreadPoolEventExecutor;
+import io.netty.util.concurrent.WorkStealingEventExecutorGroup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class benchmarks offloading CPU heavy tasks for a number of keys (think channels) to an
+ * {@link EventExecutorGroup}, where a few keys are much more expensive than the others. Each invocation submits
+ * {@code tasksPerKey} tasks for every key and waits for all of them to complete.
+ * <p>
+ * {@link DefaultEventExecutorGroup} and {@link WorkStealingEventExecutorGroup} keep the tasks of each key in order,
+ * while {@link UnorderedThreadPoolEventExecutor} does not and is only included as a baseline.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Threads(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkStealingEventExecutorGroupBenchmark extends AbstractMicrobenchmark {
+
+    public enum ExecutorType {
+        DEFAULT,
+        UNORDERED,
+        WORK_STEALING
+    }
+
+    private static final int THREADS = 4;
+
+    @Param({ "DEFAULT", "UNORDERED", "WORK_STEALING" })
+    public ExecutorType executorType;
+
+    @Param({ "64" })
+    public int keys;
+
+    // Every n-th key is heavy.
+    @Param({ "8" })
+    public int heavyKeyInterval;
+
+    @Param({ "10" })
+    public int tasksPerKey;
+
+    @Param({ "100" })
+    public int lightTokens;
+
+    @Param({ "10000" })
+    public int heavyTokens;
+
+    private EventExecutorGroup group;
+    private EventExecutor[] executors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (executorType) {
+            case DEFAULT:
+                group = new DefaultEventExecutorGroup(THREADS);
+                break;
+            case UNORDERED:
+                group = new UnorderedThreadPoolEventExecutor(THREADS);
+                break;
+            case WORK_STEALING:
+                group = new WorkStealingEventExecutorGroup(THREADS);
+                break;
+            default:
+                throw new Error();
+        }
+        executors = new EventExecutor[keys];
+        for (int i = 0; i < keys; i++) {
+            executors[i] = group.next();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        group.shutdownGracefully().syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void skewedLoad() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                final int tokens = key % heavyKeyInterval == 0 ? heavyTokens : lightTokens;
+                executors[key].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        Blackhole.consumeCPU(tokens);
+                        latch.countDown();
+                    }
+                });
+            }
+        }
+        latch.await();
+    }
+}
@@ -18,6 +18,7 @@ package io.netty.microbench.internal;
 import io.netty.microbench.util.AbstractMicrobenchmark;
 import io.netty.util.internal.RecyclableArrayList;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
@@ -40,4 +41,11 @@ public class RecyclableArrayListBenchmark extends AbstractMicrobenchmark {
         RecyclableArrayList list = RecyclableArrayList.newInstance(size);
         return list.recycle();
     }
+
+    @Benchmark
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = "-Dio.netty.recycler.lockFree=true")
+    public boolean recycleSameThreadLockFree() {
+        RecyclableArrayList list = RecyclableArrayList.newInstance(size);
+        return list.recycle();
+    }
 }
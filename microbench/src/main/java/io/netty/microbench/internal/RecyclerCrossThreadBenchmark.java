@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.internal;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Queue;
+
+/**
+ * Benchmarks recycling objects on another thread than the one which obtained them, like it happens for
+ * {@code PooledByteBuf}s which are released by a different {@code EventLoop}. Run {@link LockFree} to compare
+ * with the lock-free {@link Recycler} implementation.
+ */
+@State(Scope.Group)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class RecyclerCrossThreadBenchmark extends AbstractMicrobenchmark {
+
+    private static final Recycler<DummyObject> RECYCLER = new Recycler<DummyObject>() {
+        @Override
+        protected DummyObject newObject(Recycler.Handle<DummyObject> handle) {
+            return new DummyObject(handle);
+        }
+    };
+
+    private Queue<DummyObject> handoff;
+
+    @Setup
+    public void setup() {
+        handoff = PlatformDependent.newFixedMpscQueue(1024);
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public DummyObject producer() {
+        DummyObject object = RECYCLER.get();
+        if (!handoff.offer(object)) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    @Benchmark
+    @Group("crossThread")
+    @GroupThreads(1)
+    public DummyObject consumer() {
+        DummyObject object = handoff.poll();
+        if (object != null) {
+            object.recycle();
+        }
+        return object;
+    }
+
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = "-Dio.netty.recycler.lockFree=true")
+    public static class LockFree extends RecyclerCrossThreadBenchmark {
+    }
+
+    static final class DummyObject {
+        private final Recycler.Handle<DummyObject> handle;
+
+        DummyObject(Recycler.Handle<DummyObject> handle) {
+            this.handle = handle;
+        }
+
+        void recycle() {
+            handle.recycle(this);
+        }
+    }
+}
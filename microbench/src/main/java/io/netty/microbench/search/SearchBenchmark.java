@@ -153,6 +153,12 @@ public class SearchBenchmark extends AbstractMicrobenchmark {
         return ByteBufUtil.indexOf(needle, haystack);
     }
 
+    @Benchmark
+    @CompilerControl(Mode.DONT_INLINE)
+    public int indexOfByte() {
+        return haystack.indexOf(haystack.readerIndex(), haystack.writerIndex(), needleBytes[needleBytes.length - 1]);
+    }
+
     @Benchmark
     @CompilerControl(Mode.DONT_INLINE)
     public int kmp() {
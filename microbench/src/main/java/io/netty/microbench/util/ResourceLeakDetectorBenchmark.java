@@ -16,21 +16,51 @@
 package io.netty.microbench.util;
 
 import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakTracker;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
 
 public class ResourceLeakDetectorBenchmark extends AbstractMicrobenchmark {
 
     private static final Object DUMMY = new Object();
     private ResourceLeakDetector<Object> detector;
+    private ResourceLeakDetector.Level oldLevel;
+    private boolean oldAllocationSites;
+
+    @Param({ "DISABLED", "SIMPLE", "ADVANCED" })
+    public ResourceLeakDetector.Level level;
+
+    @Param({ "1", "128" })
+    public int samplingInterval;
+
+    @Param({ "false", "true" })
+    public boolean allocationSites;
 
     @Setup
     public void setup() {
-        detector = new ResourceLeakDetector<Object>(getClass(), 128, Long.MAX_VALUE);
+        oldLevel = ResourceLeakDetector.getLevel();
+        oldAllocationSites = ResourceLeakDetector.isAllocationSiteTracking();
+        ResourceLeakDetector.setLevel(level);
+        ResourceLeakDetector.setAllocationSiteTracking(allocationSites);
+        detector = new ResourceLeakDetector<Object>(getClass(), samplingInterval, Long.MAX_VALUE);
+    }
+
+    @TearDown
+    public void teardown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+        ResourceLeakDetector.setAllocationSiteTracking(oldAllocationSites);
     }
 
     @Benchmark
     public Object open() {
         return detector.open(DUMMY);
     }
+
+    @Benchmark
+    public boolean trackAndClose() {
+        ResourceLeakTracker<Object> tracker = detector.track(DUMMY);
+        return tracker != null && tracker.close(DUMMY);
+    }
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link DefaultAttributeMap#attr(AttributeKey)} lookups and updates. Run with {@code -prof gc}: the
+ * normalized allocation rate of {@link #newMapWithAttributes(Blackhole)} is the footprint of a map holding
+ * {@link #attributes} attributes.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class DefaultAttributeMapBenchmark extends AbstractMicrobenchmark {
+
+    @SuppressWarnings("unchecked")
+    private static final AttributeKey<Object>[] KEYS = new AttributeKey[16];
+
+    static {
+        for (int i = 0; i < KEYS.length; i++) {
+            KEYS[i] = AttributeKey.valueOf(DefaultAttributeMapBenchmark.class, "key" + i);
+        }
+    }
+
+    @Param({ "1", "2", "8" })
+    public int attributes;
+
+    private DefaultAttributeMap map;
+    private AttributeKey<Object> lastKey;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        map = new DefaultAttributeMap();
+        for (int i = 0; i < attributes; i++) {
+            map.attr(KEYS[i]).set(i);
+        }
+        lastKey = KEYS[attributes - 1];
+    }
+
+    @Benchmark
+    public Object get() {
+        return map.attr(lastKey).get();
+    }
+
+    @Benchmark
+    public void set() {
+        map.attr(lastKey).set(Boolean.TRUE);
+    }
+
+    @Benchmark
+    public boolean hasAttr() {
+        return map.hasAttr(lastKey);
+    }
+
+    @Benchmark
+    public Object setAndRemove() {
+        Attribute<Object> attr = map.attr(KEYS[KEYS.length - 1]);
+        attr.set(Boolean.TRUE);
+        return attr.getAndRemove();
+    }
+
+    @Benchmark
+    public void newMapWithAttributes(Blackhole bh) {
+        DefaultAttributeMap map = new DefaultAttributeMap();
+        for (int i = 0; i < attributes; i++) {
+            map.attr(KEYS[i]);
+        }
+        bh.consume(map);
+    }
+}
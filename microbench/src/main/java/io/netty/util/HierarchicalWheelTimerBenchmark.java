@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.util;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules and cancels timeouts on a {@link Timer} which already holds {@link #pending} timeouts with mixed
+ * durations, ranging from request deadlines of a few seconds to idle timeouts of hours.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class HierarchicalWheelTimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final long[] DURATIONS = new long[1024];
+    private static final TimerTask NOOP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    };
+
+    static {
+        Random random = new Random(42);
+        for (int i = 0; i < DURATIONS.length; i++) {
+            int kind = random.nextInt(10);
+            long duration;
+            if (kind < 4) {
+                // request deadlines: 1 - 30 seconds
+                duration = TimeUnit.SECONDS.toMillis(1 + random.nextInt(30));
+            } else if (kind < 8) {
+                // idle timeouts: 30 seconds - 10 minutes
+                duration = TimeUnit.SECONDS.toMillis(30 + random.nextInt(570));
+            } else {
+                // long lived: 10 minutes - 24 hours
+                duration = TimeUnit.MINUTES.toMillis(10 + random.nextInt(1430));
+            }
+            DURATIONS[i] = duration;
+        }
+    }
+
+    public enum TimerType {
+        HASHED,
+        HIERARCHICAL,
+        HIERARCHICAL_SHARDED
+    }
+
+    @Param
+    public TimerType type;
+
+    @Param({ "10000000" })
+    public int pending;
+
+    @Param({ "10" })
+    public int tickMillis;
+
+    private Timer timer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ThreadFactory threadFactory = new DefaultThreadFactory("timer", true);
+        switch (type) {
+            case HASHED:
+                timer = new HashedWheelTimer(threadFactory, tickMillis, TimeUnit.MILLISECONDS, 512);
+                break;
+            case HIERARCHICAL:
+                timer = new HierarchicalWheelTimer(threadFactory, tickMillis, TimeUnit.MILLISECONDS, 512, 1);
+                break;
+            case HIERARCHICAL_SHARDED:
+                timer = new HierarchicalWheelTimer(threadFactory, tickMillis, TimeUnit.MILLISECONDS, 512, 4);
+                break;
+            default:
+                throw new Error();
+        }
+        for (int i = 0; i < pending; i++) {
+            timer.newTimeout(NOOP, DURATIONS[i & DURATIONS.length - 1], TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Churn {
+        private final Timeout[] timeouts = new Timeout[65536];
+        private int index;
+
+        Timeout next(Timer timer) {
+            int i = index++ & timeouts.length - 1;
+            Timeout timeout = timeouts[i];
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            return timeouts[i] = timer.newTimeout(NOOP, DURATIONS[i & DURATIONS.length - 1], TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+    public Timeout scheduleAndCancel(Churn churn) {
+        return churn.next(timer);
+    }
+
+    @Benchmark
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+    @Threads(4)
+    public Timeout scheduleAndCancelConcurrently(Churn churn) {
+        return churn.next(timer);
+    }
+}
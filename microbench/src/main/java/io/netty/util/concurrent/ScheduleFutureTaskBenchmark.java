@@ -19,8 +19,10 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
@@ -44,6 +46,10 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         }
     };
 
+    private static final int CHURN = 1024;
+    private static final String SCHEDULED_TASK_WHEEL =
+            "-Dio.netty.eventexecutor.scheduledTaskWheelThresholdMillis=1000";
+
     @State(Scope.Thread)
     public static class ThreadState {
 
@@ -106,4 +112,92 @@ public class ScheduleFutureTaskBenchmark extends AbstractMicrobenchmark {
         }
         return null;
     }
+
+    /**
+     * An event loop which already has {@link #outstanding} timers with delays between one second and one hour
+     * scheduled, like the idle and read timeouts of a busy server.
+     */
+    @State(Scope.Benchmark)
+    public static class OutstandingTimersState {
+
+        @Param({ "1000000" })
+        int outstanding;
+
+        AbstractScheduledEventExecutor eventLoop;
+        final ScheduledFuture<?>[] churn = new ScheduledFuture<?>[CHURN];
+        int churnIndex;
+
+        @Setup(Level.Trial)
+        public void reset() {
+            eventLoop = (AbstractScheduledEventExecutor) new NioEventLoopGroup(1).next();
+            eventLoop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < outstanding; i++) {
+                        eventLoop.schedule(NO_OP, 1 + i % 3600, TimeUnit.SECONDS);
+                    }
+                }
+            }).awaitUninterruptibly();
+        }
+
+        @TearDown(Level.Trial)
+        public void shutdown() {
+            eventLoop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    eventLoop.cancelScheduledTasks();
+                }
+            }).awaitUninterruptibly();
+            eventLoop.parent().shutdownGracefully().awaitUninterruptibly();
+        }
+
+        void churn() {
+            int i = churnIndex++ & CHURN - 1;
+            ScheduledFuture<?> future = churn[i];
+            if (future != null) {
+                future.cancel(false);
+            }
+            churn[i] = eventLoop.schedule(NO_OP, 30 + (i & 31), TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(CHURN)
+    public Future<?> rescheduleWithOutstandingTimers(final OutstandingTimersState state) {
+        return state.eventLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < CHURN; i++) {
+                    state.churn();
+                }
+            }
+        }).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(CHURN)
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = SCHEDULED_TASK_WHEEL)
+    public Future<?> rescheduleWithOutstandingTimersWheel(final OutstandingTimersState state) {
+        return rescheduleWithOutstandingTimers(state);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(CHURN)
+    public Future<?> rescheduleOutsideLoopWithOutstandingTimers(final OutstandingTimersState state) {
+        for (int i = 0; i < CHURN; i++) {
+            state.churn();
+        }
+        return null;
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(CHURN)
+    @Fork(value = DEFAULT_FORKS, jvmArgsAppend = SCHEDULED_TASK_WHEEL)
+    public Future<?> rescheduleOutsideLoopWithOutstandingTimersWheel(final OutstandingTimersState state) {
+        return rescheduleOutsideLoopWithOutstandingTimers(state);
+    }
 }
@@ -480,17 +480,17 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 try {
                     boolean connected = isConnected();
                     do {
-                        ByteBuf byteBuf = allocHandle.allocate(allocator);
                         final boolean read;
                         int datagramSize = config().getMaxDatagramPayloadSize();
 
                         // Only try to use recvmmsg if its really supported by the running system.
                         int numDatagram = Native.IS_SUPPORTING_RECVMMSG ?
-                                datagramSize == 0 ? 1 : byteBuf.writableBytes() / datagramSize :
+                                datagramSize == 0 ? 1 : allocHandle.guess() / datagramSize :
                                 0;
 
                         try {
                             if (numDatagram <= 1) {
+                                ByteBuf byteBuf = allocHandle.allocate(allocator);
                                 if (connected) {
                                     read = connectedRead(allocHandle, byteBuf, datagramSize);
                                 } else {
@@ -498,7 +498,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                                 }
                             } else {
                                 // Try to use scattering reads via recvmmsg(...) syscall.
-                                read = scatteringRead(allocHandle, byteBuf, datagramSize, numDatagram);
+                                read = scatteringRead(allocHandle, allocator, datagramSize, numDatagram);
                             }
                         } catch (NativeIoException e) {
                             if (connected) {
@@ -579,20 +579,17 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         return e;
     }
 
-    private boolean scatteringRead(EpollRecvByteAllocatorHandle allocHandle,
-            ByteBuf byteBuf, int datagramSize, int numDatagram) throws IOException {
+    private boolean scatteringRead(EpollRecvByteAllocatorHandle allocHandle, ByteBufAllocator allocator,
+            int datagramSize, int numDatagram) throws IOException {
         RecyclableArrayList bufferPackets = null;
+        NativeDatagramPacketArray array = cleanDatagramPacketArray();
         try {
-            int offset = byteBuf.writerIndex();
-            NativeDatagramPacketArray array = cleanDatagramPacketArray();
+            // Allocate one buffer per datagram in one go so each packet owns its memory and no slices are needed.
+            // The handle is not asked to allocate here: recvmmsg needs a fixed datagramSize slot per packet, and the
+            // handle's guess() already decided how many slots (numDatagram) this read uses.
+            int added = array.addWritable(allocator, datagramSize, numDatagram);
 
-            for (int i = 0; i < numDatagram;  i++, offset += datagramSize) {
-                if (!array.addWritable(byteBuf, offset, datagramSize)) {
-                    break;
-                }
-            }
-
-            allocHandle.attemptedBytesRead(offset - byteBuf.writerIndex());
+            allocHandle.attemptedBytesRead(added * datagramSize);
 
             NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
 
@@ -602,15 +599,14 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 return false;
             }
             int bytesReceived = received * datagramSize;
-            byteBuf.writerIndex(bytesReceived);
             InetSocketAddress local = localAddress();
             if (received == 1) {
                 // Single packet fast-path
-                DatagramPacket packet = packets[0].newDatagramPacket(byteBuf, local);
+                DatagramPacket packet = array.takeDatagramPacket(0, local);
+                array.releaseBuffers();
                 allocHandle.lastBytesRead(datagramSize);
                 allocHandle.incMessagesRead(1);
                 pipeline().fireChannelRead(packet);
-                byteBuf = null;
                 return true;
             }
 
@@ -619,9 +615,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             // in a channelRead(...) method and so may re-use the NativeDatagramPacketArray again.
             bufferPackets = RecyclableArrayList.newInstance();
             for (int i = 0; i < received; i++) {
-                DatagramPacket packet = packets[i].newDatagramPacket(byteBuf.readRetainedSlice(datagramSize), local);
+                DatagramPacket packet = array.takeDatagramPacket(i, local);
                 bufferPackets.add(packet);
             }
+            array.releaseBuffers();
 
             allocHandle.lastBytesRead(bytesReceived);
             allocHandle.incMessagesRead(received);
@@ -633,9 +630,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             bufferPackets = null;
             return true;
         } finally {
-            if (byteBuf != null) {
-                byteBuf.release();
-            }
+            array.releaseBuffers();
             if (bufferPackets != null) {
                 for (int i = 0; i < bufferPackets.size(); i++) {
                     ReferenceCountUtil.release(bufferPackets.get(i));
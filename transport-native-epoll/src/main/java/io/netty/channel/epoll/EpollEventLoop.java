@@ -314,14 +314,24 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         continue;
 
                     case SelectStrategy.BUSY_WAIT:
-                        strategy = epollBusyWait();
+                        recordIdleStart();
+                        try {
+                            strategy = epollBusyWait();
+                        } finally {
+                            recordIdleEnd();
+                        }
                         break;
 
                     case SelectStrategy.SELECT:
                         if (pendingWakeup) {
                             // We are going to be immediately woken so no need to reset wakenUp
                             // or check for timerfd adjustment.
-                            strategy = epollWaitTimeboxed();
+                            recordIdleStart();
+                            try {
+                                strategy = epollWaitTimeboxed();
+                            } finally {
+                                recordIdleEnd();
+                            }
                             if (strategy != 0) {
                                 break;
                             }
@@ -342,13 +352,18 @@ class EpollEventLoop extends SingleThreadEventLoop {
                         nextWakeupNanos.set(curDeadlineNanos);
                         try {
                             if (!hasTasks()) {
-                                if (curDeadlineNanos == prevDeadlineNanos) {
-                                    // No timer activity needed
-                                    strategy = epollWaitNoTimerChange();
-                                } else {
-                                    // Timerfd needs to be re-armed or disarmed
-                                    prevDeadlineNanos = curDeadlineNanos;
-                                    strategy = epollWait(curDeadlineNanos);
+                                recordIdleStart();
+                                try {
+                                    if (curDeadlineNanos == prevDeadlineNanos) {
+                                        // No timer activity needed
+                                        strategy = epollWaitNoTimerChange();
+                                    } else {
+                                        // Timerfd needs to be re-armed or disarmed
+                                        prevDeadlineNanos = curDeadlineNanos;
+                                        strategy = epollWait(curDeadlineNanos);
+                                    }
+                                } finally {
+                                    recordIdleEnd();
                                 }
                             }
                         } finally {
@@ -15,7 +15,9 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.buffer.AbstractByteBufAllocator;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelOutboundBuffer.MessageProcessor;
 import io.netty.channel.socket.DatagramPacket;
@@ -46,7 +48,11 @@ final class NativeDatagramPacketArray {
     private final byte[] ipv4Bytes = new byte[4];
     private final MyMessageProcessor processor = new MyMessageProcessor();
 
+    // Buffers allocated by addWritable(ByteBufAllocator, int, int) that were not taken yet.
+    private final ByteBuf[] buffers = new ByteBuf[UIO_MAX_IOV];
+
     private int count;
+    private int numBuffers;
 
     NativeDatagramPacketArray() {
         for (int i = 0; i < packets.length; i++) {
@@ -58,6 +64,63 @@ final class NativeDatagramPacketArray {
         return add0(buf, index, len, null);
     }
 
+    /**
+     * Allocates up to {@code num} direct buffers of {@code size} bytes in one go and adds them as writable packets.
+     * The buffers are owned by this array until they are taken via
+     * {@link #takeDatagramPacket(int, InetSocketAddress)}. Returns the number of packets that were added.
+     */
+    int addWritable(ByteBufAllocator alloc, int size, int num) {
+        assert count == 0 && numBuffers == 0 && size > 0;
+        num = Math.min(num, packets.length);
+        if (alloc instanceof AbstractByteBufAllocator) {
+            // Releases the buffers it allocated so far if it fails.
+            ((AbstractByteBufAllocator) alloc).directBuffers(num, size, buffers);
+            numBuffers = num;
+        } else {
+            // Update numBuffers as we go, so releaseBuffers() sees every buffer if an allocation fails.
+            for (int i = 0; i < num; i++) {
+                buffers[i] = alloc.directBuffer(size);
+                numBuffers = i + 1;
+            }
+        }
+
+        int added = 0;
+        while (added < num) {
+            ByteBuf buf = buffers[added];
+            if (!add0(buf, buf.writerIndex(), size, null)) {
+                break;
+            }
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Creates a {@link DatagramPacket} for the received packet at the given {@code index} and transfers the ownership
+     * of its buffer to the returned packet. If the packet can not be created the buffer stays owned by this array.
+     */
+    DatagramPacket takeDatagramPacket(int index, InetSocketAddress localAddress) throws UnknownHostException {
+        ByteBuf buf = buffers[index];
+        assert buf != null;
+        DatagramPacket packet = packets[index].newDatagramPacket(buf, localAddress);
+        buffers[index] = null;
+        return packet;
+    }
+
+    /**
+     * Releases all the buffers that were allocated by {@link #addWritable(ByteBufAllocator, int, int)} and not taken.
+     */
+    void releaseBuffers() {
+        for (int i = 0; i < numBuffers; i++) {
+            ByteBuf buf = buffers[i];
+            if (buf != null) {
+                buffers[i] = null;
+                buf.release();
+            }
+        }
+        numBuffers = 0;
+    }
+
     private boolean add0(ByteBuf buf, int index, int len, InetSocketAddress recipient) {
         if (count == packets.length) {
             // We already filled up to UIO_MAX_IOV messages. This is the max allowed per
@@ -99,11 +162,13 @@ final class NativeDatagramPacketArray {
     }
 
     void clear() {
+        releaseBuffers();
         this.count = 0;
         this.iovArray.clear();
     }
 
     void release() {
+        releaseBuffers();
         iovArray.release();
     }
 
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutorMetrics;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventExecutorChooserFactory} which picks two random {@link EventExecutor}s and chooses the less loaded one
+ * ("power of two choices"). Unlike round-robin this keeps long-lived heavy connections from piling up on the same
+ * {@link EventLoop}, while the random sampling keeps a burst of new channels from all landing on the one loop that
+ * looked least loaded a moment ago.
+ * <p>
+ * The load of an executor is judged by its recent busy ratio if {@link EventExecutorMetrics} are enabled via
+ * {@code -Dio.netty.eventexecutor.metrics=true}, and otherwise, or if the busy ratios are close, by the sum of its
+ * {@linkplain SingleThreadEventLoop#registeredChannels() registered channels} and
+ * {@linkplain SingleThreadEventExecutor#pendingTasks() pending tasks}.
+ * <p>
+ * This factory is not used by default. Balancing the load only lowers the latency if the {@link EventLoop}s actually
+ * run in parallel, so compare it with the default chooser for the given workload and machine, for example via
+ * {@code LoadAwareEventLoopChooserBenchmark}, before switching to it.
+ */
+@UnstableApi
+public final class LoadAwareEventLoopChooserFactory implements EventExecutorChooserFactory {
+
+    public static final LoadAwareEventLoopChooserFactory INSTANCE = new LoadAwareEventLoopChooserFactory();
+
+    // How often the busy ratio of an executor is recomputed from its metrics.
+    private static final long BUSY_RATIO_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Busy ratios closer than this are considered equal, so the channel and task counts decide.
+    private static final double BUSY_RATIO_TOLERANCE = 0.1;
+
+    private LoadAwareEventLoopChooserFactory() { }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        return new LoadAwareEventExecutorChooser(executors);
+    }
+
+    private static final class LoadAwareEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final ExecutorLoad[] loads;
+
+        LoadAwareEventExecutorChooser(EventExecutor[] executors) {
+            this.executors = executors;
+            loads = new ExecutorLoad[executors.length];
+            for (int i = 0; i < executors.length; i++) {
+                loads[i] = new ExecutorLoad(executors[i]);
+            }
+        }
+
+        @Override
+        public EventExecutor next() {
+            int length = executors.length;
+            if (length == 1) {
+                return executors[0];
+            }
+            Random random = PlatformDependent.threadLocalRandom();
+            int first = random.nextInt(length);
+            // Pick a different second executor without retrying.
+            int second = random.nextInt(length - 1);
+            if (second >= first) {
+                second++;
+            }
+            return loads[second].isLessLoadedThan(loads[first], System.nanoTime()) ?
+                    executors[second] : executors[first];
+        }
+    }
+
+    private static final class ExecutorLoad {
+        private final EventExecutor executor;
+        private final EventExecutorMetrics metrics;
+
+        // Updated racily by the threads calling next(), which is fine as the busy ratio is only a hint.
+        private volatile long lastUpdateNanos;
+        private volatile long lastElapsedNanos;
+        private volatile long lastBusyNanos;
+        private volatile double busyRatio;
+
+        ExecutorLoad(EventExecutor executor) {
+            this.executor = executor;
+            metrics = executor instanceof SingleThreadEventExecutor ?
+                    ((SingleThreadEventExecutor) executor).metrics() : null;
+            lastUpdateNanos = System.nanoTime() - BUSY_RATIO_INTERVAL_NANOS;
+        }
+
+        boolean isLessLoadedThan(ExecutorLoad other, long nanoTime) {
+            if (metrics != null && other.metrics != null) {
+                double busyRatio = busyRatio(nanoTime);
+                double otherBusyRatio = other.busyRatio(nanoTime);
+                if (Math.abs(busyRatio - otherBusyRatio) > BUSY_RATIO_TOLERANCE) {
+                    return busyRatio < otherBusyRatio;
+                }
+            }
+            return queuedWork() < other.queuedWork();
+        }
+
+        private double busyRatio(long nanoTime) {
+            if (nanoTime - lastUpdateNanos >= BUSY_RATIO_INTERVAL_NANOS) {
+                lastUpdateNanos = nanoTime;
+                long elapsedNanos = metrics.elapsedNanos();
+                long busyNanos = metrics.busyNanos();
+                long elapsedDelta = elapsedNanos - lastElapsedNanos;
+                if (elapsedDelta > 0) {
+                    busyRatio = Math.min(1, Math.max(0, (double) (busyNanos - lastBusyNanos) / elapsedDelta));
+                }
+                lastElapsedNanos = elapsedNanos;
+                lastBusyNanos = busyNanos;
+            }
+            return busyRatio;
+        }
+
+        private long queuedWork() {
+            long work = 0;
+            if (executor instanceof SingleThreadEventLoop) {
+                work += Math.max(0, ((SingleThreadEventLoop) executor).registeredChannels());
+            }
+            if (executor instanceof SingleThreadEventExecutor) {
+                work += ((SingleThreadEventExecutor) executor).pendingTasks();
+            }
+            return work;
+        }
+    }
+}
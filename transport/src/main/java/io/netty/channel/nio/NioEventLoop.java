@@ -495,7 +495,12 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                             try {
                                 // 如果当前taskQueue没有任务时，就会执行select(wakenUp.getAndSet(false))方法
                                 if (!hasTasks()) {
-                                    strategy = select(curDeadlineNanos);
+                                    recordIdleStart();
+                                    try {
+                                        strategy = select(curDeadlineNanos);
+                                    } finally {
+                                        recordIdleEnd();
+                                    }
                                 }
                             } finally {
                                 // This update is just to help block unnecessary selector wakeups
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LoadAwareEventLoopChooserFactoryTest {
+
+    private final DefaultEventLoop[] loops = new DefaultEventLoop[4];
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new DefaultEventLoop();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (DefaultEventLoop loop : loops) {
+            loop.shutdownGracefully();
+        }
+        for (DefaultEventLoop loop : loops) {
+            loop.terminationFuture().syncUninterruptibly();
+        }
+    }
+
+    @Test
+    public void testSingleExecutor() {
+        EventExecutorChooser chooser =
+                LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(new EventExecutor[] { loops[0] });
+        assertSame(loops[0], chooser.next());
+    }
+
+    @Test
+    public void testChoosesAllIdleExecutors() {
+        EventExecutorChooser chooser = LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(loops);
+        Set<EventExecutor> chosen = new HashSet<EventExecutor>();
+        for (int i = 0; i < 1000; i++) {
+            chosen.add(chooser.next());
+        }
+        assertEquals(loops.length, chosen.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testNeverChoosesMostLoadedExecutor() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        loops[0].execute(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        blocked.await();
+        Runnable noop = new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        };
+        for (int i = 0; i < 16; i++) {
+            loops[0].execute(noop);
+        }
+
+        try {
+            EventExecutorChooser chooser = LoadAwareEventLoopChooserFactory.INSTANCE.newChooser(loops);
+            // Both random choices are always distinct, so the most loaded executor always loses.
+            for (int i = 0; i < 1000; i++) {
+                assertNotSame(loops[0], chooser.next());
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+}